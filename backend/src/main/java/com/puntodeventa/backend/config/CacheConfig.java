@@ -1,66 +1,174 @@
 package com.puntodeventa.backend.config;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.puntodeventa.backend.service.BusEventos;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.util.concurrent.TimeUnit;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 /**
  * Configuración de caché con Caffeine para mejorar el rendimiento
  * de consultas frecuentes a datos que cambian poco.
+ *
+ * Cada caché tiene su política (tamaño o peso, expiración y recarga) en
+ * application.properties, ver {@link CachePoliticas}.
  */
 @Configuration
 @EnableCaching
+@EnableConfigurationProperties(CachePoliticas.class)
 public class CacheConfig {
 
     /**
-     * Configuración de cachés por tipo de dato:
+     * Cachés de la aplicación. Niveles configurados en application.properties:
      * - Estáticos (10 min): categorías, métodos de pago, roles
-     * - Semi-estáticos (5 min): productos, proveedores, ingredientes
-     * - Dinámicos (1 min): inventario, turnos activos
+     * - Semi-estáticos (5 min, recarga en segundo plano): productos, recetas, proveedores,
+     * ingredientes
+     * - Dinámicos (1 min): inventario, turnos y cajas activos
      */
-    @Bean
-    public CacheManager cacheManager() {
-        CaffeineCacheManager cacheManager = new CaffeineCacheManager(
-                // Catálogos estáticos (cambian poco)
-                "categorias-productos",
-                "categorias-gastos",
-                "metodos-pago",
-                "roles",
-                "permisos",
-                "sucursales",
-                "unidades",
+    static final List<String> CACHES = List.of(
+            // Catálogos estáticos (cambian poco)
+            "categorias-productos",
+            "categorias-gastos",
+            "metodos-pago",
+            "roles",
+            "permisos",
+            "sucursales",
+            "unidades",
 
-                // Datos semi-estáticos (actualizaciones ocasionales)
-                "productos",
-                "proveedores",
-                "ingredientes",
-                "recetas",
+            // Datos semi-estáticos (actualizaciones ocasionales)
+            "productos",
+            "proveedores",
+            "ingredientes",
+            "recetas",
 
-                // Datos dinámicos (actualizaciones frecuentes, caché corto)
-                "inventario",
-                "turnos-activos",
-                "cajas-activas");
+            // Datos dinámicos (actualizaciones frecuentes, caché corto); caja y turno
+            // activos por sucursal (CajaTurnoActivoRegistry) además se invalidan al
+            // abrir/cerrar caja o turno
+            "inventario",
+            "turnos-activos",
+            "cajas-activas");
 
-        cacheManager.setCaffeine(caffeineCacheBuilder());
+    /**
+     * Solo existen las cachés declaradas (en CACHES o en cache.politicas); un nombre
+     * desconocido en @Cacheable es un error.
+     *
+     * Cada caché es local al nodo ({@link CacheDistribuida}); sus invalidaciones se envían
+     * a los demás nodos por el bus y las de los demás se aplican aquí.
+     */
+    @Bean
+    public CacheManager cacheManager(CachePoliticas politicas, ObjectProvider<CacheRecargable> recargables,
+                                     BusEventos bus) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new CacheDistribuida(name, cache, isAllowNullValues(), bus);
+            }
+        };
+        cacheManager.setCacheNames(List.of());
+        Set<String> nombres = new TreeSet<>(CACHES);
+        nombres.addAll(politicas.politicas().keySet());
+        for (String nombre : nombres) {
+            CachePoliticas.Politica politica = politicas.de(nombre);
+            Caffeine<Object, Object> builder = caffeine(politica);
+            cacheManager.registerCustomCache(nombre, politica.refreshAfterWrite() != null
+                    ? builder.build(recargador(nombre, recargables))
+                    : builder.build());
+        }
+        bus.suscribir(CacheDistribuida.TIPO, carga -> {
+            int separador = carga.indexOf('|');
+            if (cacheManager.getCache(carga.substring(0, separador)) instanceof CacheDistribuida cache) {
+                cache.aplicar(carga.substring(separador + 1));
+            }
+        });
         return cacheManager;
     }
 
     /**
-     * Configuración de Caffeine:
-     * - Tamaño máximo: 1000 entradas por caché
-     * - Expiración: 10 minutos después de escribir (se puede personalizar por
-     * caché)
-     * - Métricas: habilitadas para monitoreo
+     * Builder de Caffeine para una política; las métricas de hit/miss siempre habilitadas.
+     */
+    static Caffeine<Object, Object> caffeine(CachePoliticas.Politica politica) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+        if (politica.maximumWeight() != null) {
+            builder.maximumWeight(politica.maximumWeight()).weigher(CacheConfig::peso);
+        } else if (politica.maximumSize() != null) {
+            builder.maximumSize(politica.maximumSize());
+        }
+        if (politica.expireAfterWrite() != null) {
+            builder.expireAfterWrite(politica.expireAfterWrite());
+        }
+        if (politica.expireAfterAccess() != null) {
+            builder.expireAfterAccess(politica.expireAfterAccess());
+        }
+        if (politica.refreshAfterWrite() != null) {
+            builder.refreshAfterWrite(politica.refreshAfterWrite());
+        }
+        return builder;
+    }
+
+    /**
+     * Solo recarga: un fallo devuelve null y lo calcula el método @Cacheable como siempre.
+     * Una entrada vieja se recarga con el {@link CacheRecargable} de la caché en el pool
+     * de Caffeine, sin bloquear la lectura; si la caché no tiene uno, la entrada se descarta.
      */
-    private Caffeine<Object, Object> caffeineCacheBuilder() {
-        return Caffeine.newBuilder()
-                .maximumSize(1000)
-                .expireAfterWrite(10, TimeUnit.MINUTES)
-                .recordStats(); // Habilita métricas de hit/miss
+    static CacheLoader<Object, Object> recargador(String nombre, ObjectProvider<CacheRecargable> recargables) {
+        return new CacheLoader<>() {
+            @Override
+            public Object load(Object clave) {
+                return null;
+            }
+
+            @Override
+            public Object reload(Object clave, Object anterior) {
+                return recargables.orderedStream()
+                        .filter(r -> r.cache().equals(nombre))
+                        .findFirst()
+                        .map(r -> r.recargar(clave))
+                        .orElse(null);
+            }
+        };
+    }
+
+    /** Peso de una entrada para maximum-weight: una lista pesa su número de elementos. */
+    private static int peso(Object clave, Object valor) {
+        if (valor instanceof Collection<?> c) {
+            return Math.max(1, c.size());
+        }
+        if (valor instanceof Map<?, ?> m) {
+            return Math.max(1, m.size());
+        }
+        return 1;
+    }
+
+    /**
+     * Tasa de aciertos por caché (cache.hit.ratio, tag cache), a partir de las estadísticas
+     * de Caffeine. Los contadores cache.gets/puts/evictions/size los registra Spring Boot
+     * Actuator para las mismas cachés; todo se expone en /actuator/metrics (p. ej.
+     * /actuator/metrics/cache.gets?tag=cache:productos) y en /actuator/prometheus.
+     */
+    @Bean
+    public MeterBinder cacheHitRatio(CacheManager cacheManager) {
+        return registry -> cacheManager.getCacheNames().forEach(nombre -> {
+            if (cacheManager.getCache(nombre) instanceof CaffeineCache cache) {
+                Gauge.builder("cache.hit.ratio", cache.getNativeCache(), c -> c.stats().hitRate())
+                        .description("Aciertos / lecturas de la caché desde el arranque")
+                        .tag("cache", nombre)
+                        .register(registry);
+            }
+        });
     }
 }
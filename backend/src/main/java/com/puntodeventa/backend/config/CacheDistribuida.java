@@ -0,0 +1,92 @@
+package com.puntodeventa.backend.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.puntodeventa.backend.service.BusEventos;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+/**
+ * Caché Caffeine local cuyas invalidaciones llegan también a los demás nodos por el
+ * {@link BusEventos} (tipo "cache"): la entrada se quita aquí de inmediato y en los otros
+ * nodos cuando confirma la transacción. Los valores no viajan: cada nodo recalcula el suyo.
+ *
+ * La clave viaja como "L:5", "I:5" o "S:variantes-5"; otra clase de clave vacía la caché
+ * entera en los demás nodos.
+ */
+public class CacheDistribuida extends CaffeineCache {
+
+    static final String TIPO = "cache";
+
+    private final BusEventos bus;
+
+    public CacheDistribuida(String nombre, Cache<Object, Object> cache, boolean permitirNulos, BusEventos bus) {
+        super(nombre, cache, permitirNulos);
+        this.bus = bus;
+    }
+
+    @Override
+    public void evict(Object key) {
+        super.evict(key);
+        bus.publicar(TIPO, getName() + "|" + codificar(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean presente = super.evictIfPresent(key);
+        bus.publicar(TIPO, getName() + "|" + codificar(key));
+        return presente;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        bus.publicar(TIPO, getName() + "|*");
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean habia = super.invalidate();
+        bus.publicar(TIPO, getName() + "|*");
+        return habia;
+    }
+
+    /**
+     * Aplica una invalidación llegada de otro nodo, sin volver a publicarla.
+     *
+     * @param clave clave codificada o "*"
+     */
+    void aplicar(String clave) {
+        Object decodificada = decodificar(clave);
+        if (decodificada == null) {
+            super.clear();
+        } else {
+            super.evict(decodificada);
+        }
+    }
+
+    static String codificar(Object clave) {
+        if (clave instanceof Long l) {
+            return "L:" + l;
+        }
+        if (clave instanceof Integer i) {
+            return "I:" + i;
+        }
+        if (clave instanceof String s) {
+            return "S:" + s;
+        }
+        return "*";
+    }
+
+    /** Clave decodificada, o null si hay que vaciar toda la caché. */
+    static Object decodificar(String clave) {
+        if (clave.startsWith("L:")) {
+            return Long.valueOf(clave.substring(2));
+        }
+        if (clave.startsWith("I:")) {
+            return Integer.valueOf(clave.substring(2));
+        }
+        if (clave.startsWith("S:")) {
+            return clave.substring(2);
+        }
+        return null;
+    }
+}
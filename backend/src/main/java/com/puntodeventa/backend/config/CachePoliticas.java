@@ -0,0 +1,68 @@
+package com.puntodeventa.backend.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Políticas de las cachés de Caffeine, desde application.properties:
+ *
+ * <pre>
+ * cache.defecto.maximum-size=1000
+ * cache.defecto.expire-after-write=10m
+ * cache.politicas.productos.refresh-after-write=1m
+ * cache.politicas.recetas.maximum-weight=20000
+ * </pre>
+ *
+ * Lo que una caché no define lo toma de "defecto"; si define maximum-size o
+ * maximum-weight, ignora el límite del defecto. Sin propiedades: 1000 entradas y
+ * 10 minutos.
+ *
+ * @param defecto   política de las cachés sin entrada propia
+ * @param politicas política por nombre de caché (las que no están en CacheConfig se crean)
+ */
+@ConfigurationProperties(prefix = "cache")
+public record CachePoliticas(Politica defecto, Map<String, Politica> politicas) {
+
+    private static final Politica DEFECTO = new Politica(1_000L, null, Duration.ofMinutes(10), null, null);
+
+    public CachePoliticas {
+        defecto = defecto == null ? DEFECTO : defecto.con(DEFECTO);
+        politicas = politicas == null ? Map.of() : Map.copyOf(politicas);
+    }
+
+    /**
+     * Política efectiva de una caché.
+     */
+    public Politica de(String cache) {
+        Politica propia = politicas.get(cache);
+        return propia == null ? defecto : propia.con(defecto);
+    }
+
+    /**
+     * @param maximumSize       máximo de entradas
+     * @param maximumWeight     máximo de peso (una lista pesa su número de elementos)
+     * @param expireAfterWrite  expiración desde que se escribió la entrada
+     * @param expireAfterAccess expiración desde la última lectura
+     * @param refreshAfterWrite antigüedad desde la que una lectura recarga la entrada en
+     *                          segundo plano y mientras tanto devuelve la anterior (solo
+     *                          en cachés con un {@link CacheRecargable})
+     */
+    public record Politica(Long maximumSize, Long maximumWeight, Duration expireAfterWrite,
+            Duration expireAfterAccess, Duration refreshAfterWrite) {
+
+        /**
+         * Completa lo que falta con otra política.
+         */
+        Politica con(Politica base) {
+            boolean limitePropio = maximumSize != null || maximumWeight != null;
+            return new Politica(
+                    limitePropio ? maximumSize : base.maximumSize(),
+                    limitePropio ? maximumWeight : base.maximumWeight(),
+                    expireAfterWrite != null ? expireAfterWrite : base.expireAfterWrite(),
+                    expireAfterAccess != null ? expireAfterAccess : base.expireAfterAccess(),
+                    refreshAfterWrite != null ? refreshAfterWrite : base.refreshAfterWrite());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.puntodeventa.backend.config;
+
+/**
+ * Servicio que sabe recalcular las entradas de una caché a partir de su clave. Las cachés
+ * con refresh-after-write (ver {@link CachePoliticas}) lo usan para recargar en segundo
+ * plano una entrada vieja mientras las lecturas siguen recibiendo la anterior.
+ */
+public interface CacheRecargable {
+
+    /** Nombre de la caché. */
+    String cache();
+
+    /**
+     * Valor actual de la entrada, sin pasar por la caché; null si la clave no se reconoce
+     * o ya no existe (la entrada se descarta).
+     */
+    Object recargar(Object clave);
+}
@@ -0,0 +1,28 @@
+package com.puntodeventa.backend.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * StatementInspector de Hibernate que cuenta las sentencias SQL preparadas por hilo.
+ *
+ * Permite medir los viajes a la BD de una operación (ver VentaMetricas) sin activar
+ * hibernate.generate_statistics en producción: el costo es un incremento por sentencia.
+ * Las consultas de JdbcTemplate no pasan por Hibernate y no se cuentan.
+ */
+public class ContadorSentencias implements StatementInspector {
+
+    private static final ThreadLocal<long[]> CONTADOR = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        CONTADOR.get()[0]++;
+        return sql;
+    }
+
+    /**
+     * Sentencias preparadas por el hilo actual desde su inicio (solo crece).
+     */
+    public static long actual() {
+        return CONTADOR.get()[0];
+    }
+}
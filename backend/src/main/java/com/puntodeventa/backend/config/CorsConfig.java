@@ -70,7 +70,7 @@ public class CorsConfig {
         configuration.setMaxAge(maxAge);
         
         // Exponer headers necesarios para el frontend
-        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Total-Count"));
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Total-Count", "ETag"));
 
         var source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
@@ -0,0 +1,21 @@
+package com.puntodeventa.backend.config;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuración de métricas de la aplicación (Micrometer, expuestas en /actuator/prometheus).
+ */
+@Configuration
+public class MetricasConfig {
+
+    /**
+     * Registra el contador de sentencias SQL por hilo usado por las métricas de ventas.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer contadorSentenciasCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new ContadorSentencias());
+    }
+}
@@ -0,0 +1,28 @@
+package com.puntodeventa.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Programador de las tareas periódicas (consulta del bus entre nodos, descuento de
+ * inventario, conciliación de stock). Lo administra el contenedor: cada servicio programa
+ * sus tareas al terminar el arranque (ApplicationReadyEvent) y se cancelan al cerrarse el
+ * contexto.
+ *
+ * Tiene nombre propio porque STOMP y SockJS ya registran sus TaskScheduler.
+ */
+@Configuration
+public class ProgramacionConfig {
+
+    public static final String PROGRAMADOR = "programadorTareas";
+
+    @Bean(PROGRAMADOR)
+    public ThreadPoolTaskScheduler programadorTareas(@Value("${programacion.hilos:2}") int hilos) {
+        ThreadPoolTaskScheduler programador = new ThreadPoolTaskScheduler();
+        programador.setPoolSize(hilos);
+        programador.setThreadNamePrefix("programadas-");
+        return programador;
+    }
+}
@@ -1,6 +1,8 @@
 package com.puntodeventa.backend.config;
 
+import com.puntodeventa.backend.security.StompAutorizacionInterceptor;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
@@ -11,7 +13,8 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
  * 
  * Endpoints:
  * - Conexión WebSocket: /ws
- * - Destinos de suscripción: /topic/* (broadcast) y /user/* (privado)
+ * - Destinos de suscripción: /topic/* (broadcast), /topic/sucursal/{id}/* (por sucursal,
+ *   requiere JWT en el CONNECT) y /user/* (privado)
  * - Destinos de envío: /app/* (mensajes del cliente al servidor)
  * 
  * @author Grxson
@@ -22,6 +25,12 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private final StompAutorizacionInterceptor autorizacionInterceptor;
+
+    public WebSocketConfig(StompAutorizacionInterceptor autorizacionInterceptor) {
+        this.autorizacionInterceptor = autorizacionInterceptor;
+    }
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
         // Habilitar un broker simple en memoria para mensajes
@@ -35,6 +44,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         config.setUserDestinationPrefix("/user");
     }
 
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // JWT en CONNECT y autorización de suscripciones a temas por sucursal
+        registration.interceptors(autorizacionInterceptor);
+    }
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Endpoint para conexión WebSocket con CORS
@@ -11,6 +11,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 import java.util.Optional;
@@ -22,23 +23,27 @@ import java.util.Optional;
 public class CategoriaProductoController {
 
     private final CategoriaProductoService categoriaService;
+    private final RespuestaCatalogo respuestaCatalogo;
 
-    public CategoriaProductoController(CategoriaProductoService categoriaService) {
+    public CategoriaProductoController(CategoriaProductoService categoriaService,
+            RespuestaCatalogo respuestaCatalogo) {
         this.categoriaService = categoriaService;
+        this.respuestaCatalogo = respuestaCatalogo;
     }
 
     @GetMapping
     @Operation(summary = "Listar categorías", description = "Permite filtrar por activa y búsqueda por nombre (q)")
     public ResponseEntity<List<CategoriaProductoDTO>> listar(
             @RequestParam Optional<Boolean> activa,
-            @RequestParam(name = "q") Optional<String> query) {
-        return ResponseEntity.ok(categoriaService.listar(activa, query));
+            @RequestParam(name = "q") Optional<String> query,
+            WebRequest request) {
+        return respuestaCatalogo.condicional(request, () -> categoriaService.listar(activa, query));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Obtener categoría por ID")
-    public ResponseEntity<CategoriaProductoDTO> obtener(@PathVariable Long id) {
-        return ResponseEntity.ok(categoriaService.obtener(id));
+    public ResponseEntity<CategoriaProductoDTO> obtener(@PathVariable Long id, WebRequest request) {
+        return respuestaCatalogo.condicional(request, () -> categoriaService.obtener(id));
     }
 
     @PostMapping
@@ -6,6 +6,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
@@ -26,6 +27,7 @@ import java.util.List;
 public class CategoriaSubcategoriaController {
 
     private final CategoriaSubcategoriaService categoriaSubcategoriaService;
+    private final RespuestaCatalogo respuestaCatalogo;
 
     /**
      * Obtener todas las subcategorías activas de una categoría.
@@ -38,12 +40,11 @@ public class CategoriaSubcategoriaController {
     @GetMapping
     @Operation(summary = "Listar subcategorías", description = "Obtiene todas las subcategorías activas de una categoría, ordenadas por orden")
     public ResponseEntity<List<CategoriaSubcategoriaDTO>> listar(
-            @PathVariable Long categoriaId) {
-
-        List<CategoriaSubcategoriaDTO> subcategorias = categoriaSubcategoriaService
-                .obtenerSubcategoriasPorCategoria(categoriaId);
+            @PathVariable Long categoriaId,
+            WebRequest request) {
 
-        return ResponseEntity.ok(subcategorias);
+        return respuestaCatalogo.condicional(request,
+                () -> categoriaSubcategoriaService.obtenerSubcategoriasPorCategoria(categoriaId));
     }
 
     /**
@@ -53,8 +54,10 @@ public class CategoriaSubcategoriaController {
     @Operation(summary = "Obtener subcategoría por ID")
     public ResponseEntity<CategoriaSubcategoriaDTO> obtener(
             @PathVariable Long categoriaId,
-            @PathVariable Long subcategoriaId) {
-        return ResponseEntity.ok(categoriaSubcategoriaService.obtenerPorId(subcategoriaId));
+            @PathVariable Long subcategoriaId,
+            WebRequest request) {
+        return respuestaCatalogo.condicional(request,
+                () -> categoriaSubcategoriaService.obtenerPorId(subcategoriaId));
     }
 
     /**
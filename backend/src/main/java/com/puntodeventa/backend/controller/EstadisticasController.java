@@ -1,17 +1,21 @@
 package com.puntodeventa.backend.controller;
 
+import com.puntodeventa.backend.dto.EstadisticasDiaDTO;
 import com.puntodeventa.backend.dto.ProductoRendimientoDTO;
 import com.puntodeventa.backend.dto.ResumenVentasDiaDTO;
 import com.puntodeventa.backend.service.EstadisticasService;
+import com.puntodeventa.backend.service.ResumenDiarioService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/estadisticas")
@@ -19,9 +23,11 @@ import java.util.List;
 public class EstadisticasController {
 
     private final EstadisticasService estadisticasService;
+    private final ResumenDiarioService resumenDiarioService;
 
-    public EstadisticasController(EstadisticasService estadisticasService) {
+    public EstadisticasController(EstadisticasService estadisticasService, ResumenDiarioService resumenDiarioService) {
         this.estadisticasService = estadisticasService;
+        this.resumenDiarioService = resumenDiarioService;
     }
 
     @GetMapping("/ventas/dia")
@@ -35,6 +41,20 @@ public class EstadisticasController {
         return ResponseEntity.ok(estadisticasService.resumenDia(f));
     }
 
+    @GetMapping("/ventas/dia/panel")
+    @Operation(summary = "Resumen del día con desglose por método de pago",
+            description = "Mismo contenido que el evento ESTADISTICAS_ACTUALIZADAS (global o, con sucursalId, "
+                    + "el del tema de la sucursal). Si no se proporciona fecha, usa fecha actual")
+    public ResponseEntity<EstadisticasDiaDTO> estadisticasDia(
+            @RequestParam(name = "fecha", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+            LocalDate fecha,
+            @RequestParam(name = "sucursalId", required = false) Long sucursalId
+    ) {
+        LocalDate f = fecha != null ? fecha : LocalDate.now();
+        return ResponseEntity.ok(estadisticasService.estadisticasDia(f, sucursalId));
+    }
+
     @GetMapping("/ventas/rango")
     @Operation(summary = "Resumen de ventas en rango")
     public ResponseEntity<ResumenVentasDiaDTO> resumenRango(
@@ -63,4 +83,11 @@ public class EstadisticasController {
     ) {
         return ResponseEntity.ok(estadisticasService.rendimientoProductosRango(desde, hasta, limite));
     }
+
+    @PostMapping("/resumen-diario/reconstruir")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Reconstruir acumulado diario", description = "Recalcula resumen_diario desde ventas y gastos")
+    public ResponseEntity<Map<String, Integer>> reconstruirResumenDiario() {
+        return ResponseEntity.ok(Map.of("filas", resumenDiarioService.reconstruir()));
+    }
 }
@@ -1,29 +1,42 @@
 package com.puntodeventa.backend.controller;
 
 import com.puntodeventa.backend.dto.InventarioMovimientoDTO;
+import com.puntodeventa.backend.dto.InventarioMovimientoPaginaDTO;
 import com.puntodeventa.backend.service.InventarioMovimientoService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  * Controlador REST para movimientos de inventario.
  * Documentado según la guía de inventario.
+ *
+ * Los listados devuelven una página ({@link InventarioMovimientoPaginaDTO}) si se envía
+ * cursor o limite; sin ninguno de los dos conservan la forma anterior (la lista completa),
+ * leída página por página.
  */
 @RestController
 @RequestMapping("/api/inventario/movimientos")
 public class InventarioMovimientoController {
+    private static final int LIMITE_POR_DEFECTO = 50;
+
     @Autowired
     private InventarioMovimientoService movimientoService;
 
     /**
-     * Listar todos los movimientos de inventario.
+     * Listar los movimientos de inventario, del más reciente al más antiguo, por páginas.
+     * Enviar el siguienteCursor de la respuesta para obtener la página siguiente.
      */
     @GetMapping
-    public List<InventarioMovimientoDTO> listarMovimientos() {
-        return movimientoService.listarTodos();
+    public Object listarMovimientos(
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limite
+    ) {
+        return paginaOLista(cursor, limite, movimientoService::listar);
     }
 
     /**
@@ -45,34 +58,64 @@ public class InventarioMovimientoController {
     }
 
     /**
-     * Obtener movimientos por ingrediente.
+     * Obtener movimientos por ingrediente (paginado por cursor).
      */
     @GetMapping("/ingrediente/{ingredienteId}")
-    public List<InventarioMovimientoDTO> obtenerPorIngrediente(@PathVariable Long ingredienteId) {
-        return movimientoService.obtenerPorIngrediente(ingredienteId);
+    public Object obtenerPorIngrediente(
+        @PathVariable Long ingredienteId,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limite
+    ) {
+        return paginaOLista(cursor, limite, (c, l) -> movimientoService.obtenerPorIngrediente(ingredienteId, c, l));
     }
 
     /**
-     * Obtener movimientos por ingrediente y tipo.
+     * Obtener movimientos por ingrediente y tipo (paginado por cursor).
      */
     @GetMapping("/ingrediente/{ingredienteId}/tipo/{tipo}")
-    public List<InventarioMovimientoDTO> obtenerPorIngredienteYTipo(
+    public Object obtenerPorIngredienteYTipo(
         @PathVariable Long ingredienteId,
-        @PathVariable String tipo
+        @PathVariable String tipo,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limite
     ) {
-        return movimientoService.obtenerPorIngredienteYTipo(ingredienteId, tipo);
+        return paginaOLista(cursor, limite,
+            (c, l) -> movimientoService.obtenerPorIngredienteYTipo(ingredienteId, tipo, c, l));
     }
 
     /**
-     * Obtener movimientos por rango de fechas.
+     * Obtener movimientos por rango de fechas (paginado por cursor).
      */
     @GetMapping("/rango")
-    public List<InventarioMovimientoDTO> obtenerPorRangoFechas(
+    public Object obtenerPorRangoFechas(
         @RequestParam String desde,
-        @RequestParam String hasta
+        @RequestParam String hasta,
+        @RequestParam(required = false) String cursor,
+        @RequestParam(required = false) Integer limite
     ) {
         java.time.LocalDateTime fechaDesde = java.time.LocalDateTime.parse(desde + "T00:00:00");
         java.time.LocalDateTime fechaHasta = java.time.LocalDateTime.parse(hasta + "T23:59:59");
-        return movimientoService.obtenerPorRangoFechas(fechaDesde, fechaHasta);
+        return paginaOLista(cursor, limite,
+            (c, l) -> movimientoService.obtenerPorRangoFechas(fechaDesde, fechaHasta, c, l));
+    }
+
+    /**
+     * Con cursor o limite, la página pedida (limite 50 por defecto); sin ninguno, todos los
+     * movimientos como lista, recorriendo las páginas de LIMITE_MAXIMO (cada una en su
+     * propia transacción corta).
+     */
+    static Object paginaOLista(String cursor, Integer limite,
+                               BiFunction<String, Integer, InventarioMovimientoPaginaDTO> consulta) {
+        if (cursor != null || limite != null) {
+            return consulta.apply(cursor, limite != null ? limite : LIMITE_POR_DEFECTO);
+        }
+        List<InventarioMovimientoDTO> todos = new ArrayList<>();
+        String siguiente = null;
+        do {
+            InventarioMovimientoPaginaDTO pagina = consulta.apply(siguiente, InventarioMovimientoService.LIMITE_MAXIMO);
+            todos.addAll(pagina.movimientos());
+            siguiente = pagina.siguienteCursor();
+        } while (siguiente != null);
+        return todos;
     }
 }
@@ -1,13 +1,18 @@
 package com.puntodeventa.backend.controller;
 
 import com.puntodeventa.backend.dto.ProductoDTO;
+import com.puntodeventa.backend.dto.ProductoImportDTO;
+import com.puntodeventa.backend.dto.ResultadoImportacionDTO;
+import com.puntodeventa.backend.service.ProductoImportacionService;
 import com.puntodeventa.backend.service.ProductoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -20,9 +25,14 @@ import java.util.Optional;
 public class ProductoController {
 
     private final ProductoService productoService;
+    private final RespuestaCatalogo respuestaCatalogo;
+    private final ProductoImportacionService importacionService;
 
-    public ProductoController(ProductoService productoService) {
+    public ProductoController(ProductoService productoService, RespuestaCatalogo respuestaCatalogo,
+            ProductoImportacionService importacionService) {
         this.productoService = productoService;
+        this.respuestaCatalogo = respuestaCatalogo;
+        this.importacionService = importacionService;
     }
 
     @GetMapping
@@ -31,20 +41,38 @@ public class ProductoController {
             @RequestParam Optional<Boolean> activo,
             @RequestParam(name = "enMenu") Optional<Boolean> enMenu,
             @RequestParam Optional<Long> categoriaId,
-            @RequestParam(name = "q") Optional<String> query) {
-        return ResponseEntity.ok(productoService.listar(activo, enMenu, categoriaId, query));
+            @RequestParam(name = "q") Optional<String> query,
+            WebRequest request) {
+        return respuestaCatalogo.condicional(request,
+                () -> productoService.listar(activo, enMenu, categoriaId, query));
+    }
+
+    @GetMapping("/buscar")
+    @Operation(summary = "Buscar productos", description = "Búsqueda de la caja por nombre, variante o SKU: sin acentos, por prefijo y con tolerancia a errores, ordenada por relevancia")
+    public ResponseEntity<List<ProductoDTO>> buscar(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "20") int limite,
+            @RequestParam(defaultValue = "true") boolean soloMenu,
+            WebRequest request) {
+        return respuestaCatalogo.condicional(request, () -> productoService.buscar(q, limite, soloMenu));
+    }
+
+    @GetMapping("/escanear")
+    @Operation(summary = "Escanear SKU", description = "Producto activo (base o variante) con ese SKU o código de barras")
+    public ResponseEntity<ProductoDTO> escanear(@RequestParam String sku) {
+        return ResponseEntity.ok(productoService.escanear(sku));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "Obtener producto por ID")
-    public ResponseEntity<ProductoDTO> obtener(@PathVariable Long id) {
-        return ResponseEntity.ok(productoService.obtener(id));
+    public ResponseEntity<ProductoDTO> obtener(@PathVariable Long id, WebRequest request) {
+        return respuestaCatalogo.condicional(request, () -> productoService.obtener(id));
     }
 
     @GetMapping("/{id}/variantes")
     @Operation(summary = "Obtener variantes de un producto")
-    public ResponseEntity<List<ProductoDTO>> obtenerVariantes(@PathVariable Long id) {
-        return ResponseEntity.ok(productoService.obtenerVariantes(id));
+    public ResponseEntity<List<ProductoDTO>> obtenerVariantes(@PathVariable Long id, WebRequest request) {
+        return respuestaCatalogo.condicional(request, () -> productoService.obtenerVariantes(id));
     }
 
     @PostMapping("/{id}/variantes")
@@ -54,6 +82,18 @@ public class ProductoController {
         return new ResponseEntity<>(variante, HttpStatus.CREATED);
     }
 
+    @PostMapping(value = "/importar", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Importar productos (JSON)", description = "Crea o actualiza productos base con sus variantes en una sola transacción; valida todo antes de escribir")
+    public ResponseEntity<ResultadoImportacionDTO> importar(@RequestBody List<ProductoImportDTO> productos) {
+        return ResponseEntity.ok(importacionService.importar(productos));
+    }
+
+    @PostMapping(value = "/importar", consumes = { "text/csv", MediaType.TEXT_PLAIN_VALUE })
+    @Operation(summary = "Importar productos (CSV)", description = "Encabezado: id, sku, nombre, descripcion, categoriaId, precio, costoEstimado, activo, disponibleEnMenu, variante, ordenVariante. Las filas con variante pertenecen al producto base anterior")
+    public ResponseEntity<ResultadoImportacionDTO> importarCsv(@RequestBody String csv) {
+        return ResponseEntity.ok(importacionService.importarCsv(csv));
+    }
+
     @PostMapping
     @Operation(summary = "Crear producto")
     public ResponseEntity<ProductoDTO> crear(@Validated @RequestBody ProductoDTO dto) {
@@ -0,0 +1,60 @@
+package com.puntodeventa.backend.controller;
+
+import com.puntodeventa.backend.service.MenuCatalogoRegistry;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.function.Supplier;
+
+/**
+ * GET condicional para los endpoints del catálogo (productos, categorías, subcategorías).
+ *
+ * El ETag es la versión del catálogo ({@link MenuCatalogoRegistry#etag()}): si el cliente
+ * envía If-None-Match con la versión vigente se responde 304 sin calcular ni serializar el
+ * cuerpo. Cache-Control: no-cache obliga a revalidar en cada uso.
+ */
+@Component
+public class RespuestaCatalogo {
+
+    private final MenuCatalogoRegistry menuCatalogo;
+
+    public RespuestaCatalogo(MenuCatalogoRegistry menuCatalogo) {
+        this.menuCatalogo = menuCatalogo;
+    }
+
+    public <T> ResponseEntity<T> condicional(WebRequest request, Supplier<T> cuerpo) {
+        // La versión se lee antes de calcular el cuerpo: el cuerpo nunca es más viejo que su ETag
+        String etag = menuCatalogo.etag();
+        if (coincide(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(CacheControl.noCache())
+                    .build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(cuerpo.get());
+    }
+
+    static boolean coincide(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidato : ifNoneMatch.split(",")) {
+            String tag = candidato.trim();
+            if (tag.startsWith("W/")) {
+                // If-None-Match usa comparación débil
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,76 @@
+package com.puntodeventa.backend.controller;
+
+import com.puntodeventa.backend.dto.ConciliacionStockDTO;
+import com.puntodeventa.backend.dto.StockIngredienteDTO;
+import com.puntodeventa.backend.dto.StockLoteDTO;
+import com.puntodeventa.backend.service.LoteInventarioService;
+import com.puntodeventa.backend.service.StockIngredienteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Controlador REST para la existencia de ingredientes por sucursal.
+ */
+@RestController
+@RequestMapping("/api/inventario/stock")
+@RequiredArgsConstructor
+@Tag(name = "Inventario - Stock", description = "Existencia de ingredientes por sucursal")
+public class StockIngredienteController {
+
+    private final StockIngredienteService stockService;
+    private final LoteInventarioService loteService;
+
+    @GetMapping("/ingrediente/{ingredienteId}")
+    @Operation(summary = "Existencia de un ingrediente en una sucursal (sin sucursalId: movimientos sin sucursal)")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR', 'CAJERO')")
+    public ResponseEntity<StockIngredienteDTO> obtenerExistencia(
+            @PathVariable Long ingredienteId,
+            @RequestParam(required = false) Long sucursalId) {
+        return ResponseEntity.ok(stockService.existencia(ingredienteId, sucursalId));
+    }
+
+    @GetMapping("/ingrediente/{ingredienteId}/sucursales")
+    @Operation(summary = "Existencia de un ingrediente en cada sucursal")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR', 'CAJERO')")
+    public ResponseEntity<List<StockIngredienteDTO>> obtenerExistencias(@PathVariable Long ingredienteId) {
+        return ResponseEntity.ok(stockService.existencias(ingredienteId));
+    }
+
+    @GetMapping("/bajo-minimo")
+    @Operation(summary = "Ingredientes por debajo de su stock mínimo en una sucursal")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR', 'CAJERO')")
+    public ResponseEntity<List<StockIngredienteDTO>> obtenerBajoMinimo(@RequestParam(required = false) Long sucursalId) {
+        return ResponseEntity.ok(stockService.bajoMinimo(sucursalId));
+    }
+
+    @GetMapping("/ingrediente/{ingredienteId}/lotes")
+    @Operation(summary = "Lotes con existencia de un ingrediente en una sucursal, en orden de consumo (FEFO)")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR', 'CAJERO')")
+    public ResponseEntity<List<StockLoteDTO>> obtenerLotes(
+            @PathVariable Long ingredienteId,
+            @RequestParam(required = false) Long sucursalId) {
+        return ResponseEntity.ok(loteService.lotes(ingredienteId, sucursalId));
+    }
+
+    @GetMapping("/por-caducar")
+    @Operation(summary = "Lotes de una sucursal que caducan en los próximos días (incluye los ya caducados)")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR', 'CAJERO')")
+    public ResponseEntity<List<StockLoteDTO>> obtenerPorCaducar(
+            @RequestParam(required = false) Long sucursalId,
+            @RequestParam(defaultValue = "7") int dias) {
+        return ResponseEntity.ok(loteService.porCaducar(sucursalId, dias));
+    }
+
+    @PostMapping("/conciliar")
+    @Operation(summary = "Comparar la existencia con el libro de movimientos (y corregirla con corregir=true)")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ConciliacionStockDTO> conciliar(@RequestParam(defaultValue = "false") boolean corregir) {
+        return ResponseEntity.ok(stockService.conciliar(corregir));
+    }
+}
@@ -4,7 +4,10 @@ import com.puntodeventa.backend.dto.CrearVentaRequest;
 import com.puntodeventa.backend.dto.ActualizarVentaRequest;
 import com.puntodeventa.backend.dto.VentaDTO;
 import com.puntodeventa.backend.dto.DesglosePagoDTO;
+import com.puntodeventa.backend.dto.VentaPaginaDTO;
+import com.puntodeventa.backend.service.VentaLecturaService;
 import com.puntodeventa.backend.service.VentaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -12,10 +15,16 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -28,15 +37,54 @@ import java.util.List;
 @Tag(name = "Ventas", description = "Endpoints para registro y consulta de ventas")
 public class VentaController {
     
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    
     private final VentaService ventaService;
+    private final ObjectMapper objectMapper;
     
     @GetMapping
-    @Operation(summary = "Obtener todas las ventas")
+    @Operation(summary = "Obtener todas las ventas",
+               description = "Devuelve el historial completo. Para historiales largos usar /pagina o /export.")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR', 'CAJERO')")
     public ResponseEntity<List<VentaDTO>> obtenerTodas() {
         return ResponseEntity.ok(ventaService.obtenerTodas());
     }
     
+    @GetMapping("/pagina")
+    @Operation(summary = "Obtener ventas paginadas por cursor",
+               description = "Paginación keyset sobre (fecha, id), de la más reciente a la más antigua. " +
+                            "Enviar el siguienteCursor de la respuesta para obtener la página siguiente. " +
+                            "Límite máximo: " + VentaLecturaService.LIMITE_MAXIMO)
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR', 'CAJERO')")
+    public ResponseEntity<VentaPaginaDTO> obtenerPagina(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int limite) {
+        return ResponseEntity.ok(ventaService.obtenerPagina(cursor, limite));
+    }
+    
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @Operation(summary = "Exportar ventas en NDJSON",
+               description = "Transmite todas las ventas (una por línea, JSON) recorriendo el historial por páginas. " +
+                            "La memoria del servidor no crece con el tamaño del historial.")
+    @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR')")
+    public ResponseEntity<StreamingResponseBody> exportar() {
+        StreamingResponseBody cuerpo = salida -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+            String cursor = null;
+            do {
+                // Cada página en su propia transacción corta
+                VentaPaginaDTO pagina = ventaService.obtenerPagina(cursor, VentaLecturaService.LIMITE_MAXIMO);
+                for (VentaDTO venta : pagina.ventas()) {
+                    writer.write(objectMapper.writeValueAsString(venta));
+                    writer.write('\n');
+                }
+                writer.flush();
+                cursor = pagina.siguienteCursor();
+            } while (cursor != null);
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(cuerpo);
+    }
+    
     @GetMapping("/{id}")
     @Operation(summary = "Obtener venta por ID")
     @PreAuthorize("hasAnyRole('ADMIN', 'SUPERVISOR', 'CAJERO')")
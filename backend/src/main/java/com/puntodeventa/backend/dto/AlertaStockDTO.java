@@ -0,0 +1,23 @@
+package com.puntodeventa.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Alerta de un ingrediente que bajó de su stock mínimo en una sucursal, con la proyección
+ * de agotamiento según su consumo reciente. Cantidades en la unidad base del ingrediente.
+ */
+public record AlertaStockDTO(
+    Long ingredienteId,
+    String ingredienteNombre,
+    /** 0 = movimientos sin sucursal asignada. */
+    Long sucursalId,
+    BigDecimal cantidad,
+    BigDecimal stockMinimo,
+    String unidadAbreviatura,
+    /** Salidas promedio por día en los últimos inventario.alertas.dias-consumo días. */
+    BigDecimal consumoDiario,
+    /** Días hasta agotarse al consumo diario; null si no hubo consumo en el periodo. */
+    BigDecimal diasRestantes,
+    LocalDateTime agotamientoEstimado
+) {}
@@ -0,0 +1,25 @@
+package com.puntodeventa.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Resultado de conciliar stock_ingredientes contra el libro de movimientos.
+ * corregido indica si las diferencias encontradas ya se aplicaron al stock.
+ */
+public record ConciliacionStockDTO(
+        int revisados,
+        List<Diferencia> diferencias,
+        boolean corregido
+) {
+
+    /**
+     * Ingrediente/sucursal cuyo stock no coincide con la suma de sus movimientos.
+     */
+    public record Diferencia(Long ingredienteId, Long sucursalId, BigDecimal stock, BigDecimal libro) {
+
+        public BigDecimal ajuste() {
+            return libro.subtract(stock);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.puntodeventa.backend.dto;
+
+import java.util.List;
+
+/**
+ * Resumen del día con el desglose por método de pago: contenido del evento
+ * ESTADISTICAS_ACTUALIZADAS y del panel de estadísticas del día.
+ */
+public record EstadisticasDiaDTO(
+        ResumenVentasDiaDTO resumen,
+        List<DesglosePagoDTO> desglosePagos
+) {}
@@ -45,5 +45,8 @@ public record InventarioMovimientoDTO(
     Long refId,
     String lote,
     LocalDate caducidad,
-    String nota
+    String nota,
+
+    /** Sucursal cuyo stock mueve; null = sin sucursal asignada. */
+    Long sucursalId
 ) {}
@@ -0,0 +1,13 @@
+package com.puntodeventa.backend.dto;
+
+import java.util.List;
+
+/**
+ * Página de movimientos de inventario con paginación por cursor (keyset) sobre (fecha, id),
+ * del más reciente al más antiguo. siguienteCursor es null cuando no hay más movimientos.
+ */
+public record InventarioMovimientoPaginaDTO(
+        List<InventarioMovimientoDTO> movimientos,
+        String siguienteCursor,
+        boolean hayMas
+) {}
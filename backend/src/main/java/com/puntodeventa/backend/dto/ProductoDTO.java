@@ -27,6 +27,7 @@ public record ProductoDTO(
             String nombre,
             String nombreVariante,
             BigDecimal precio,
-            Integer ordenVariante
+            Integer ordenVariante,
+            String sku
     ) {}
 }
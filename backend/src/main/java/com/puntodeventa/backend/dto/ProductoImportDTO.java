@@ -0,0 +1,35 @@
+package com.puntodeventa.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Producto base (con sus variantes) para la importación masiva.
+ *
+ * Se actualiza el producto con ese id o, si no viene id, el producto base con ese SKU; si
+ * no existe se crea. Los campos nulos no se modifican al actualizar. Las variantes se
+ * emparejan por nombre de variante (sin distinguir mayúsculas) con las del producto base.
+ */
+public record ProductoImportDTO(
+        Long id,
+        String sku,
+        String nombre,
+        String descripcion,
+        Long categoriaId,
+        BigDecimal precio,
+        BigDecimal costoEstimado,
+        Boolean activo,
+        Boolean disponibleEnMenu,
+        List<VarianteImportDTO> variantes
+) {
+    /**
+     * Variante a crear o actualizar. Sin precio ni costo se usan los del producto base.
+     */
+    public record VarianteImportDTO(
+            String nombreVariante,
+            String sku,
+            BigDecimal precio,
+            BigDecimal costoEstimado,
+            Integer ordenVariante
+    ) {}
+}
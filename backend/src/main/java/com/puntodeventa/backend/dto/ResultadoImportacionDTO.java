@@ -0,0 +1,11 @@
+package com.puntodeventa.backend.dto;
+
+/**
+ * Resumen de una importación masiva de productos.
+ */
+public record ResultadoImportacionDTO(
+        int productosCreados,
+        int productosActualizados,
+        int variantesCreadas,
+        int variantesActualizadas
+) {}
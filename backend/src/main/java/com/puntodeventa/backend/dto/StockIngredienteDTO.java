@@ -0,0 +1,26 @@
+package com.puntodeventa.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Existencia de un ingrediente en una sucursal, en su unidad base.
+ * bajoMinimo indica que la existencia es menor al stock mínimo del ingrediente.
+ */
+public record StockIngredienteDTO(
+        Long ingredienteId,
+        String ingredienteNombre,
+        Long sucursalId,
+        BigDecimal cantidad,
+        String unidadAbreviatura,
+        BigDecimal stockMinimo,
+        boolean bajoMinimo,
+        LocalDateTime actualizado
+) {
+
+    public StockIngredienteDTO(Long ingredienteId, String ingredienteNombre, Long sucursalId, BigDecimal cantidad,
+                               String unidadAbreviatura, BigDecimal stockMinimo, LocalDateTime actualizado) {
+        this(ingredienteId, ingredienteNombre, sucursalId, cantidad, unidadAbreviatura, stockMinimo,
+                stockMinimo != null && cantidad.compareTo(stockMinimo) < 0, actualizado);
+    }
+}
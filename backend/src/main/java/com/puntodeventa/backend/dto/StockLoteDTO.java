@@ -0,0 +1,20 @@
+package com.puntodeventa.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Existencia de un lote de un ingrediente en una sucursal, en su unidad base.
+ */
+public record StockLoteDTO(
+        Long ingredienteId,
+        String ingredienteNombre,
+        Long sucursalId,
+        String lote,
+        LocalDate caducidad,
+        BigDecimal cantidad,
+        String unidadAbreviatura,
+        LocalDateTime actualizado
+) {
+}
@@ -0,0 +1,13 @@
+package com.puntodeventa.backend.dto;
+
+import java.util.List;
+
+/**
+ * Página de ventas con paginación por cursor (keyset) sobre (fecha, id), de la más reciente a la más antigua.
+ * siguienteCursor es null cuando no hay más ventas.
+ */
+public record VentaPaginaDTO(
+        List<VentaDTO> ventas,
+        String siguienteCursor,
+        boolean hayMas
+) {}
@@ -10,8 +10,8 @@ import java.time.LocalDateTime;
  * @since Java 21
  */
 public record WebSocketMessage(
-    String tipo, // PRODUCTO_CREADO, PRODUCTO_ACTUALIZADO, PRODUCTO_ELIMINADO, VENTA_CREADA, ESTADISTICAS_ACTUALIZADAS
-    String entidad, // producto, venta, estadisticas
+    String tipo, // PRODUCTO_CREADO, PRODUCTO_ACTUALIZADO, PRODUCTO_ELIMINADO, VENTA_CREADA, ESTADISTICAS_ACTUALIZADAS, STOCK_BAJO
+    String entidad, // producto, venta, estadisticas, ingrediente
     Long entidadId, // ID de la entidad afectada
     Object datos, // Datos específicos del evento
     LocalDateTime timestamp
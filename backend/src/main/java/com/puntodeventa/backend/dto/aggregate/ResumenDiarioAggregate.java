@@ -0,0 +1,35 @@
+package com.puntodeventa.backend.dto.aggregate;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección agregada de ventas cerradas más gastos operacionales (rango).
+ */
+public record ResumenDiarioAggregate(
+        BigDecimal totalVentas,
+        BigDecimal subtotalVentas,
+        Long cantidadVentas,
+        Long itemsVendidos,
+        BigDecimal totalCostos,
+        BigDecimal gastosOperacionales
+) {
+
+    public static final ResumenDiarioAggregate VACIO = new ResumenDiarioAggregate(
+            BigDecimal.ZERO, BigDecimal.ZERO, 0L, 0L, BigDecimal.ZERO, BigDecimal.ZERO);
+
+    public static ResumenDiarioAggregate de(ResumenVentasAggregate ventas, BigDecimal gastosOperacionales) {
+        return new ResumenDiarioAggregate(ventas.totalVentas(), ventas.subtotalVentas(), ventas.cantidadVentas(),
+                ventas.itemsVendidos(), ventas.totalCostos(),
+                gastosOperacionales != null ? gastosOperacionales : BigDecimal.ZERO);
+    }
+
+    public ResumenDiarioAggregate sumar(ResumenDiarioAggregate otro) {
+        return new ResumenDiarioAggregate(
+                totalVentas.add(otro.totalVentas),
+                subtotalVentas.add(otro.subtotalVentas),
+                cantidadVentas + otro.cantidadVentas,
+                itemsVendidos + otro.itemsVendidos,
+                totalCostos.add(otro.totalCostos),
+                gastosOperacionales.add(otro.gastosOperacionales));
+    }
+}
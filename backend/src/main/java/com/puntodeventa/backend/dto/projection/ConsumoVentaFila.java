@@ -0,0 +1,16 @@
+package com.puntodeventa.backend.dto.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * Unidades vendidas de un producto en una venta cerrada, con lo necesario para generar
+ * sus movimientos de consumo: sucursal y fecha de la venta.
+ */
+public record ConsumoVentaFila(
+        Long ventaId,
+        Long sucursalId,
+        LocalDateTime fecha,
+        Long productoId,
+        Long cantidad
+) {
+}
@@ -0,0 +1,23 @@
+package com.puntodeventa.backend.dto.projection;
+
+import com.puntodeventa.backend.dto.PagoDTO;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de lectura de un pago, con el ID de la venta para agrupar.
+ */
+public record PagoFila(
+        Long ventaId,
+        Long id,
+        Long metodoPagoId,
+        String metodoPagoNombre,
+        BigDecimal monto,
+        String referencia,
+        LocalDateTime fecha
+) {
+    public PagoDTO toDTO() {
+        return new PagoDTO(id, metodoPagoId, metodoPagoNombre, monto, referencia, fecha);
+    }
+}
@@ -0,0 +1,18 @@
+package com.puntodeventa.backend.dto.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección de un renglón de receta con lo necesario para calcular su costo: cantidad,
+ * merma teórica, unidad y su factor y costo unitario base del ingrediente.
+ */
+public record RenglonCostoFila(
+        Long productoId,
+        Long ingredienteId,
+        BigDecimal cantidad,
+        BigDecimal mermaTeorica,
+        Long unidadId,
+        BigDecimal factorBase,
+        BigDecimal costoUnitarioBase
+) {
+}
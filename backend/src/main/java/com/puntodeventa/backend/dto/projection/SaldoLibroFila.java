@@ -0,0 +1,14 @@
+package com.puntodeventa.backend.dto.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Suma de cantidades (en la unidad base del ingrediente) de los movimientos de un
+ * ingrediente, sucursal y tipo, para conciliar stock_ingredientes contra el libro.
+ */
+public record SaldoLibroFila(
+        Long ingredienteId,
+        Long sucursalId,
+        String tipo,
+        BigDecimal cantidadBase
+) {}
@@ -0,0 +1,10 @@
+package com.puntodeventa.backend.dto.projection;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección del último costo calculado de un producto (su renglón más reciente en
+ * producto_costo_historico).
+ */
+public record UltimoCostoFila(Long productoId, BigDecimal costo) {
+}
@@ -0,0 +1,24 @@
+package com.puntodeventa.backend.dto.projection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Proyección de lectura de la cabecera de una venta (sin items ni pagos).
+ * Incluye los datos planos de sucursal y usuario para no cargar esas entidades.
+ */
+public record VentaCabecera(
+        Long id,
+        Long sucursalId,
+        String sucursalNombre,
+        LocalDateTime fecha,
+        BigDecimal subtotal,
+        BigDecimal total,
+        BigDecimal impuestos,
+        BigDecimal descuento,
+        String canal,
+        String estado,
+        String nota,
+        Long usuarioId,
+        String usuarioNombre
+) {}
@@ -0,0 +1,24 @@
+package com.puntodeventa.backend.dto.projection;
+
+import com.puntodeventa.backend.dto.VentaItemDTO;
+
+import java.math.BigDecimal;
+
+/**
+ * Proyección de lectura de un item de venta, con el ID de la venta para agrupar.
+ */
+public record VentaItemFila(
+        Long ventaId,
+        Long id,
+        Long productoId,
+        String productoNombre,
+        Integer cantidad,
+        BigDecimal precioUnitario,
+        BigDecimal subtotal,
+        BigDecimal costoEstimado,
+        String nota
+) {
+    public VentaItemDTO toDTO() {
+        return new VentaItemDTO(id, productoId, productoNombre, cantidad, precioUnitario, subtotal, costoEstimado, nota);
+    }
+}
@@ -108,6 +108,24 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
     }
 
+    /**
+     * Maneja una importación masiva con errores: todos los errores, por fila o producto.
+     */
+    @ExceptionHandler(ImportacionInvalidaException.class)
+    public ResponseEntity<ErrorResponse> handleImportacionInvalida(ImportacionInvalidaException ex) {
+        log.warn("❌ Importación rechazada: {} error(es)", ex.getErrores().size());
+
+        ErrorResponse error = ErrorResponse.builder()
+            .timestamp(LocalDateTime.now())
+            .status(HttpStatus.BAD_REQUEST.value())
+            .error("Error de validación")
+            .message(ex.getMessage())
+            .validationErrors(ex.getErrores())
+            .build();
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
+    }
+
     /**
      * Maneja errores de autenticación y autorización (401).
      * Captura IllegalArgumentException lanzadas desde servicios de autenticación.
@@ -0,0 +1,23 @@
+package com.puntodeventa.backend.exception;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Importación rechazada: lleva todos los errores encontrados, por fila o producto.
+ * No se escribe nada si hay al menos uno.
+ */
+public class ImportacionInvalidaException extends IllegalArgumentException {
+
+    private final Map<String, String> errores;
+
+    public ImportacionInvalidaException(Map<String, String> errores) {
+        super("La importación tiene " + errores.size() + " error(es); no se guardó ningún producto");
+        this.errores = Collections.unmodifiableMap(new LinkedHashMap<>(errores));
+    }
+
+    public Map<String, String> getErrores() {
+        return errores;
+    }
+}
@@ -113,7 +113,8 @@ public class InventarioMapper {
             movimiento.getRefId(),
             movimiento.getLote(),
             movimiento.getCaducidad(),
-            movimiento.getNota()
+            movimiento.getNota(),
+            movimiento.getSucursalId()
         );
     }
     
@@ -0,0 +1,24 @@
+package com.puntodeventa.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Versión del catálogo compartida por los nodos: una sola fila que sube con cada cambio
+ * de productos o categorías (la mantiene MenuCatalogoRegistry).
+ */
+@Entity
+@Table(name = "catalogo_version")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CatalogoVersion {
+
+    @Id
+    private Integer id;
+
+    @Column(nullable = false)
+    private Long version;
+}
@@ -0,0 +1,44 @@
+package com.puntodeventa.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Venta cuyo consumo de ingredientes falta descontar del inventario (outbox transaccional).
+ * Se inserta en la transacción de la venta y DescuentoInventarioService la borra en la misma
+ * transacción en que inserta los movimientos, así que cada venta se descuenta una sola vez.
+ */
+@Entity
+@Table(name = "inventario_descuentos_pendientes", indexes = {
+    @Index(name = "idx_inv_desc_pend_venta", columnList = "venta_id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DescuentoInventarioPendiente {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "venta_id", nullable = false)
+    private Long ventaId;
+
+    @Column(name = "creado_en", nullable = false)
+    private LocalDateTime creadoEn;
+
+    /** Intentos fallidos; al llegar al máximo deja de procesarse (queda para revisión). */
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer intentos = 0;
+
+    /** Último error al procesarla. */
+    @Column(columnDefinition = "TEXT")
+    private String error;
+}
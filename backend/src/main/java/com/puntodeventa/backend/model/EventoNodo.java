@@ -0,0 +1,39 @@
+package com.puntodeventa.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Eventos de una transacción confirmada en un nodo, para los demás nodos (bus.tipo=jdbc).
+ * Cada nodo lee las filas nuevas de los otros; las viejas se borran pasada la retención.
+ */
+@Entity
+@Table(name = "eventos_nodos", indexes = {
+    @Index(name = "idx_eventos_nodos_creado_en", columnList = "creado_en")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EventoNodo {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Nodo que publicó (no se entrega a sí mismo). */
+    @Column(nullable = false, length = 36)
+    private String nodo;
+
+    /** Lista JSON de eventos (tipo y carga). */
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String eventos;
+
+    @Column(name = "creado_en", nullable = false)
+    private LocalDateTime creadoEn;
+}
@@ -15,11 +15,13 @@ import java.time.LocalDateTime;
 
 /**
  * Entidad que representa un movimiento de inventario.
- * Tipos: entrada, consumo, ajuste, merma, devolución
+ * Tipos (en mayúsculas): ENTRADA, EGRESO, CONSUMO, AJUSTE, MERMA, DEVOLUCION
  */
 @Entity
 @Table(name = "inventario_movimientos", indexes = {
-    @Index(name = "idx_inv_mov_ingrediente_fecha", columnList = "ingrediente_id, fecha"),
+    @Index(name = "idx_inv_mov_ingrediente_fecha_id", columnList = "ingrediente_id, fecha DESC, id DESC"),
+    @Index(name = "idx_inv_mov_ingrediente_tipo_fecha_id", columnList = "ingrediente_id, tipo, fecha DESC, id DESC"),
+    @Index(name = "idx_inv_mov_fecha_id", columnList = "fecha DESC, id DESC"),
     @Index(name = "idx_inv_mov_tipo_fecha", columnList = "tipo, fecha")
 })
 @Data
@@ -36,10 +38,14 @@ public class InventarioMovimiento {
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "ingrediente_id", nullable = false)
     private Ingrediente ingrediente;
+
+    /** Columna ingrediente_id de solo lectura, para filtrar y ordenar por el índice sin el join. */
+    @Column(name = "ingrediente_id", insertable = false, updatable = false)
+    private Long ingredienteId;
     
     @NotBlank(message = "El tipo de movimiento es obligatorio")
     @Column(nullable = false, length = 20)
-    private String tipo; // entrada, consumo, ajuste, merma, devolucion
+    private String tipo; // ENTRADA, EGRESO, CONSUMO, AJUSTE, MERMA, DEVOLUCION (en mayúsculas)
     
     @NotNull(message = "La cantidad es obligatoria")
     @Positive(message = "La cantidad debe ser positiva")
@@ -76,4 +82,8 @@ public class InventarioMovimiento {
     
     @Column(columnDefinition = "TEXT")
     private String nota;
+
+    /** Sucursal cuyo stock mueve (null = sin sucursal asignada). */
+    @Column(name = "sucursal_id")
+    private Long sucursalId;
 }
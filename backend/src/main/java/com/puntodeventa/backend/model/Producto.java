@@ -17,15 +17,22 @@ import java.util.List;
  * Entidad que representa un producto del menú.
  */
 @Entity
-@Table(name = "productos")
+@Table(name = "productos", indexes = {
+    @Index(name = "ux_productos_sku", columnList = "sku", unique = true)
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
 public class Producto {
     
+    /**
+     * Ids de secuencia en bloques de 50 (V016): Hibernate asigna el id sin ejecutar el
+     * INSERT y puede agruparlos en lotes JDBC (con IDENTITY no es posible).
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "productos_seq")
+    @SequenceGenerator(name = "productos_seq", sequenceName = "productos_id_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "El nombre del producto es obligatorio")
@@ -25,8 +25,14 @@ import java.time.LocalDateTime;
 @Builder
 public class ProductoCostoHistorico {
 
+    /**
+     * Ids de secuencia en bloques de 50 (V018): el recálculo de costos agrega cientos de
+     * renglones y Hibernate puede agruparlos en lotes JDBC.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "producto_costo_historico_seq")
+    @SequenceGenerator(name = "producto_costo_historico_seq", sequenceName = "producto_costo_historico_id_seq",
+            allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
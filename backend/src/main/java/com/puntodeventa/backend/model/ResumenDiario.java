@@ -0,0 +1,63 @@
+package com.puntodeventa.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Acumulado de ventas cerradas y gastos operacionales por día y sucursal.
+ * Lo mantiene ResumenDiarioService de forma incremental; se puede reconstruir
+ * desde ventas/gastos en cualquier momento.
+ */
+@Entity
+@Table(name = "resumen_diario", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_resumen_diario_fecha_sucursal", columnNames = {"fecha", "sucursal_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ResumenDiario {
+
+    /** sucursal_id usado para ventas/gastos sin sucursal asignada. */
+    public static final Long SIN_SUCURSAL = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate fecha;
+
+    @Column(name = "sucursal_id", nullable = false)
+    private Long sucursalId;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    @Builder.Default
+    private BigDecimal totalVentas = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    @Builder.Default
+    private BigDecimal subtotalVentas = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long cantidadVentas = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long itemsVendidos = 0L;
+
+    @Column(nullable = false, precision = 16, scale = 4)
+    @Builder.Default
+    private BigDecimal costoProductos = BigDecimal.ZERO;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    @Builder.Default
+    private BigDecimal gastosOperacionales = BigDecimal.ZERO;
+}
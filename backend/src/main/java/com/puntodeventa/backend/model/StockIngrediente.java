@@ -0,0 +1,48 @@
+package com.puntodeventa.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Existencia actual de un ingrediente en una sucursal, en la unidad base del ingrediente.
+ * La mantiene StockIngredienteService con cada movimiento de inventario que se registra
+ * o elimina; se puede conciliar contra inventario_movimientos en cualquier momento.
+ */
+@Entity
+@Table(name = "stock_ingredientes", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stock_ingrediente_sucursal", columnNames = {"ingrediente_id", "sucursal_id"})
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockIngrediente {
+
+    /** sucursal_id usado para movimientos sin sucursal asignada. */
+    public static final Long SIN_SUCURSAL = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "ingrediente_id", nullable = false)
+    private Long ingredienteId;
+
+    @Column(name = "sucursal_id", nullable = false)
+    private Long sucursalId;
+
+    /** Sin redondeo: cantidad del movimiento (6 decimales) x factor de la unidad (6 decimales). */
+    @Column(nullable = false, precision = 24, scale = 12)
+    @Builder.Default
+    private BigDecimal cantidad = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private LocalDateTime actualizado = LocalDateTime.now();
+}
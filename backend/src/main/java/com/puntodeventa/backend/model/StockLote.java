@@ -0,0 +1,54 @@
+package com.puntodeventa.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Existencia de un lote de un ingrediente en una sucursal, en la unidad base del
+ * ingrediente. La mantiene LoteInventarioService con los movimientos que traen lote; las
+ * salidas sin lote se asignan a los lotes por caducidad (FEFO).
+ */
+@Entity
+@Table(name = "stock_lotes", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stock_lote", columnNames = {"ingrediente_id", "sucursal_id", "lote"})
+}, indexes = {
+    @Index(name = "idx_stock_lote_asignacion", columnList = "ingrediente_id, sucursal_id, caducidad"),
+    @Index(name = "idx_stock_lote_sucursal_caducidad", columnList = "sucursal_id, caducidad")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockLote {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "ingrediente_id", nullable = false)
+    private Long ingredienteId;
+
+    /** 0 = sin sucursal asignada, como en stock_ingredientes. */
+    @Column(name = "sucursal_id", nullable = false)
+    private Long sucursalId;
+
+    @Column(nullable = false, length = 100)
+    private String lote;
+
+    private LocalDate caducidad;
+
+    @Column(nullable = false, precision = 24, scale = 12)
+    @Builder.Default
+    private BigDecimal cantidad = BigDecimal.ZERO;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private LocalDateTime actualizado = LocalDateTime.now();
+}
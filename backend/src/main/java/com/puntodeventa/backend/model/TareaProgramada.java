@@ -0,0 +1,33 @@
+package com.puntodeventa.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Turno de una tarea periódica que solo ejecuta un nodo: la toma quien la encuentra
+ * vencida y la deja bloqueada durante su intervalo.
+ */
+@Entity
+@Table(name = "tareas_programadas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TareaProgramada {
+
+    @Id
+    @Column(length = 60)
+    private String nombre;
+
+    @Column(name = "bloqueada_hasta", nullable = false)
+    private LocalDateTime bloqueadaHasta;
+
+    /** Último nodo que la tomó. */
+    @Column(length = 36)
+    private String nodo;
+}
@@ -20,6 +20,7 @@ import java.util.List;
 @Entity
 @Table(name = "ventas", indexes = {
     @Index(name = "idx_venta_fecha", columnList = "fecha"),
+    @Index(name = "idx_venta_fecha_id", columnList = "fecha, id"),
     @Index(name = "idx_venta_estado", columnList = "estado"),
     @Index(name = "idx_venta_sucursal", columnList = "sucursal_id")
 })
@@ -15,7 +15,9 @@ import java.math.BigDecimal;
  * Entidad que representa un item (producto) dentro de una venta.
  */
 @Entity
-@Table(name = "ventas_items")
+@Table(name = "ventas_items", indexes = {
+    @Index(name = "idx_venta_item_venta", columnList = "venta_id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -0,0 +1,34 @@
+package com.puntodeventa.backend.repository;
+
+import com.puntodeventa.backend.model.DescuentoInventarioPendiente;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositorio de las ventas pendientes de descontar del inventario.
+ */
+@Repository
+public interface DescuentoInventarioPendienteRepository extends JpaRepository<DescuentoInventarioPendiente, Long> {
+
+    /** Las más antiguas primero, sin las que agotaron sus intentos. */
+    @Query("SELECT d FROM DescuentoInventarioPendiente d WHERE d.intentos < :maxIntentos ORDER BY d.id")
+    List<DescuentoInventarioPendiente> findPendientes(@Param("maxIntentos") int maxIntentos, Limit limite);
+
+    /**
+     * Descarta lo pendiente de la venta. Si el proceso en segundo plano ya la tomó, espera
+     * a que confirme (bloqueo de fila) y devuelve 0: sus movimientos ya están en el libro.
+     */
+    @Modifying
+    @Query("DELETE FROM DescuentoInventarioPendiente d WHERE d.ventaId = :ventaId")
+    int deleteByVentaId(@Param("ventaId") Long ventaId);
+
+    @Modifying
+    @Query("UPDATE DescuentoInventarioPendiente d SET d.intentos = d.intentos + 1, d.error = :error WHERE d.id = :id")
+    int registrarFallo(@Param("id") Long id, @Param("error") String error);
+}
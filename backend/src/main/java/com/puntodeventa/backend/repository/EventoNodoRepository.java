@@ -0,0 +1,33 @@
+package com.puntodeventa.backend.repository;
+
+import com.puntodeventa.backend.model.EventoNodo;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repositorio de la tabla de eventos entre nodos.
+ */
+@Repository
+public interface EventoNodoRepository extends JpaRepository<EventoNodo, Long> {
+
+    /** Ids recientes, sin la carga: la consulta de cada intervalo recorre solo la clave primaria. */
+    @Query("SELECT e.id FROM EventoNodo e WHERE e.id > :id ORDER BY e.id")
+    List<Long> findIdsMayoresA(@Param("id") Long id);
+
+    /** Eventos aún no vistos de los demás nodos. */
+    List<EventoNodo> findByIdInAndNodoNotOrderByIdAsc(Collection<Long> ids, String nodo);
+
+    @Query("SELECT COALESCE(MAX(e.id), 0) FROM EventoNodo e")
+    long maxId();
+
+    @Modifying
+    @Query("DELETE FROM EventoNodo e WHERE e.creadoEn < :limite")
+    int borrarAnterioresA(@Param("limite") LocalDateTime limite);
+}
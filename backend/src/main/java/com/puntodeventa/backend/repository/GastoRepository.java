@@ -46,5 +46,17 @@ public interface GastoRepository extends JpaRepository<Gasto, Long> {
     java.math.BigDecimal sumMontoByTipoGastoAndFechaBetween(@Param("tipoGasto") String tipoGasto,
                                                             @Param("fechaInicio") LocalDateTime fechaInicio,
                                                             @Param("fechaFin") LocalDateTime fechaFin);
-}
 
+    /**
+     * Gastos de un tipo agrupados por día y sucursal (reconstrucción de resumen_diario).
+     *
+     * @return [0]=fecha (LocalDate), [1]=sucursalId (0 si no tiene), [2]=monto
+     */
+    @Query("""
+        SELECT extract(date from g.fecha), COALESCE(g.sucursal.id, 0), SUM(g.monto)
+        FROM Gasto g
+        WHERE g.tipoGasto = :tipoGasto
+        GROUP BY extract(date from g.fecha), COALESCE(g.sucursal.id, 0)
+        """)
+    List<Object[]> sumMontoByTipoGastoPorDiaYSucursal(@Param("tipoGasto") String tipoGasto);
+}
@@ -1,13 +1,19 @@
 package com.puntodeventa.backend.repository;
 
+import com.puntodeventa.backend.dto.InventarioMovimientoDTO;
+import com.puntodeventa.backend.dto.projection.SaldoLibroFila;
 import com.puntodeventa.backend.model.InventarioMovimiento;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio para la entidad InventarioMovimiento.
@@ -38,6 +44,114 @@ public interface InventarioMovimientoRepository extends JpaRepository<Inventario
         @Param("fechaFin") LocalDateTime fechaFin
     );
     
+    /**
+     * Movimiento con ingrediente y unidad como DTO, en una sola consulta (sin cargar entidades).
+     * LEFT JOIN (las llaves no son nulas, da lo mismo) para que el plan recorra primero
+     * inventario_movimientos por su índice y no empiece por la tabla más chica.
+     */
+    String SELECT_DTO = """
+        SELECT new com.puntodeventa.backend.dto.InventarioMovimientoDTO(
+            m.id, i.id, i.nombre, m.tipo, m.cantidad, u.id, u.nombre, u.abreviatura,
+            m.costoUnitario, m.costoTotal, m.fecha, m.refTipo, m.refId, m.lote, m.caducidad, m.nota,
+            m.sucursalId
+        )
+        FROM InventarioMovimiento m
+        LEFT JOIN m.ingrediente i
+        LEFT JOIN m.unidad u
+        """;
+
+    /**
+     * Movimientos estrictamente anteriores a (fecha, id): keyset. La condición
+     * "m.fecha <= :fecha" acota el recorrido del índice, así que el costo de una página no
+     * depende de su profundidad. El ORDER BY de cada consulta repite las columnas del
+     * índice que usa, en su orden, para que se lea ya ordenado y sin ordenar después;
+     * m.ingredienteId es la columna ingrediente_id (m.ingrediente.id sería i.id del join).
+     */
+    String ANTES_DE = """
+        m.fecha <= :fecha AND (m.fecha < :fecha OR m.id < :id)
+        """;
+
+    String POR_FECHA = " ORDER BY m.fecha DESC, m.id DESC";
+
+    @Query(SELECT_DTO + "WHERE m.id = :id")
+    Optional<InventarioMovimientoDTO> findDTOById(@Param("id") Long id);
+
+    /** Usa idx_inv_mov_fecha_id. */
+    @Query(SELECT_DTO + "WHERE " + ANTES_DE + POR_FECHA)
+    List<InventarioMovimientoDTO> findPagina(@Param("fecha") LocalDateTime fecha,
+                                             @Param("id") Long id,
+                                             Limit limite);
+
+    /** Usa idx_inv_mov_ingrediente_fecha_id. */
+    @Query(SELECT_DTO + "WHERE m.ingredienteId = :ingredienteId AND " + ANTES_DE
+            + "ORDER BY m.ingredienteId, m.fecha DESC, m.id DESC")
+    List<InventarioMovimientoDTO> findPaginaPorIngrediente(@Param("ingredienteId") Long ingredienteId,
+                                                           @Param("fecha") LocalDateTime fecha,
+                                                           @Param("id") Long id,
+                                                           Limit limite);
+
+    /** Usa idx_inv_mov_ingrediente_tipo_fecha_id; el tipo se guarda en mayúsculas. */
+    @Query(SELECT_DTO + "WHERE m.ingredienteId = :ingredienteId AND m.tipo = :tipo AND " + ANTES_DE
+            + "ORDER BY m.ingredienteId, m.tipo, m.fecha DESC, m.id DESC")
+    List<InventarioMovimientoDTO> findPaginaPorIngredienteYTipo(@Param("ingredienteId") Long ingredienteId,
+                                                                @Param("tipo") String tipo,
+                                                                @Param("fecha") LocalDateTime fecha,
+                                                                @Param("id") Long id,
+                                                                Limit limite);
+
+    /** Usa idx_inv_mov_fecha_id. */
+    @Query(SELECT_DTO + "WHERE m.fecha >= :desde AND m.fecha <= :hasta AND " + ANTES_DE + POR_FECHA)
+    List<InventarioMovimientoDTO> findPaginaPorRango(@Param("desde") LocalDateTime desde,
+                                                     @Param("hasta") LocalDateTime hasta,
+                                                     @Param("fecha") LocalDateTime fecha,
+                                                     @Param("id") Long id,
+                                                     Limit limite);
+
+    /**
+     * Cantidades del libro en la unidad base del ingrediente, por ingrediente, sucursal y
+     * tipo (el signo de cada tipo lo aplica StockIngredienteService).
+     */
+    @Query("""
+        SELECT new com.puntodeventa.backend.dto.projection.SaldoLibroFila(
+            m.ingredienteId, m.sucursalId, m.tipo, SUM(m.cantidad * u.factorBase)
+        )
+        FROM InventarioMovimiento m
+        JOIN m.unidad u
+        GROUP BY m.ingredienteId, m.sucursalId, m.tipo
+        """)
+    List<SaldoLibroFila> sumarPorIngredienteSucursalYTipo();
+
+    /**
+     * Salidas de un ingrediente en una sucursal desde una fecha, en su unidad base, para
+     * proyectar cuándo se agota. Los movimientos sin sucursal van por sumarSalidasSinSucursalDesde:
+     * la comparación directa de la columna deja usar un índice, COALESCE(m.sucursalId, 0) no.
+     */
+    @Query("""
+        SELECT COALESCE(SUM(m.cantidad * u.factorBase), 0)
+        FROM InventarioMovimiento m
+        LEFT JOIN m.unidad u
+        WHERE m.ingredienteId = :ingredienteId AND m.sucursalId = :sucursalId
+          AND m.tipo IN :tipos AND m.fecha >= :desde
+        """)
+    BigDecimal sumarSalidasDesde(@Param("ingredienteId") Long ingredienteId,
+                                 @Param("sucursalId") Long sucursalId,
+                                 @Param("tipos") Collection<String> tipos,
+                                 @Param("desde") LocalDateTime desde);
+
+    /**
+     * Como sumarSalidasDesde, para los movimientos sin sucursal.
+     */
+    @Query("""
+        SELECT COALESCE(SUM(m.cantidad * u.factorBase), 0)
+        FROM InventarioMovimiento m
+        LEFT JOIN m.unidad u
+        WHERE m.ingredienteId = :ingredienteId AND m.sucursalId IS NULL
+          AND m.tipo IN :tipos AND m.fecha >= :desde
+        """)
+    BigDecimal sumarSalidasSinSucursalDesde(@Param("ingredienteId") Long ingredienteId,
+                                            @Param("tipos") Collection<String> tipos,
+                                            @Param("desde") LocalDateTime desde);
+
     /**
      * Buscar movimientos de inventario relacionados con una venta específica.
      * Usado para revertir el consumo de inventario al cancelar una venta.
@@ -1,9 +1,13 @@
 package com.puntodeventa.backend.repository;
 
+import com.puntodeventa.backend.dto.projection.PagoFila;
 import com.puntodeventa.backend.model.Pago;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -15,4 +19,18 @@ public interface PagoRepository extends JpaRepository<Pago, Long> {
     List<Pago> findByVentaId(Long ventaId);
     
     List<Pago> findByMetodoPagoId(Long metodoPagoId);
+
+    /**
+     * Pagos de un lote de ventas como proyección plana (una sola consulta por página).
+     */
+    @Query("""
+        SELECT new com.puntodeventa.backend.dto.projection.PagoFila(
+            p.venta.id, p.id, mp.id, mp.nombre, p.monto, p.referencia, p.fecha
+        )
+        FROM Pago p
+        JOIN p.metodoPago mp
+        WHERE p.venta.id IN :ventaIds
+        ORDER BY p.id
+        """)
+    List<PagoFila> findFilasByVentaIds(@Param("ventaIds") Collection<Long> ventaIds);
 }
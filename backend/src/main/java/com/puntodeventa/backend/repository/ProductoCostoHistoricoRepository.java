@@ -1,9 +1,13 @@
 package com.puntodeventa.backend.repository;
 
+import com.puntodeventa.backend.dto.projection.UltimoCostoFila;
 import com.puntodeventa.backend.model.ProductoCostoHistorico;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,5 +16,15 @@ import org.springframework.data.domain.Pageable;
 public interface ProductoCostoHistoricoRepository extends JpaRepository<ProductoCostoHistorico, Long> {
     List<ProductoCostoHistorico> findByProductoIdOrderByFechaCalculoDesc(Long productoId);
     Page<ProductoCostoHistorico> findByProductoIdOrderByFechaCalculoDesc(Long productoId, Pageable pageable);
-}
 
+    /**
+     * Último costo calculado de cada producto con histórico, por idx_pch_producto.
+     */
+    @Query("""
+        SELECT new com.puntodeventa.backend.dto.projection.UltimoCostoFila(h.producto.id, h.costo)
+        FROM ProductoCostoHistorico h
+        WHERE h.producto.id IN :productoIds AND h.fechaCalculo = (
+            SELECT MAX(h2.fechaCalculo) FROM ProductoCostoHistorico h2 WHERE h2.producto.id = h.producto.id)
+        """)
+    List<UltimoCostoFila> findUltimosCostos(@Param("productoIds") Collection<Long> productoIds);
+}
@@ -1,11 +1,13 @@
 package com.puntodeventa.backend.repository;
 
 import com.puntodeventa.backend.model.Producto;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -32,10 +34,64 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
 
     List<Producto> findByProductoBaseIdIsNullAndDisponibleEnMenuTrue();
 
-    // Buscar por SKU
+    /**
+     * Productos base con su categoría (para la foto del menú, sin un SELECT por categoría).
+     */
+    @Query("SELECT p FROM Producto p LEFT JOIN FETCH p.categoria WHERE p.productoBase IS NULL ORDER BY p.id")
+    List<Producto> findBasesConCategoria();
+
+    /**
+     * Variantes activas con su categoría y producto base (para la foto del menú y el escaneo por SKU).
+     */
+    @EntityGraph(attributePaths = { "categoria", "productoBase" })
+    List<Producto> findByProductoBaseIsNotNullAndActivoTrue();
+
+    // Buscar por SKU (único, ux_productos_sku)
     Optional<Producto> findBySku(String sku);
 
+    List<Producto> findBySkuIn(Collection<String> skus);
+
+    List<Producto> findByProductoBaseIdIn(Collection<Long> productoBaseIds);
+
+    /**
+     * ¿Otro producto ya usa ese SKU?
+     *
+     * @param excluirId producto a ignorar (el que se edita); null al crear
+     */
+    @Query("SELECT COUNT(p) > 0 FROM Producto p WHERE p.sku = :sku AND (:excluirId IS NULL OR p.id <> :excluirId)")
+    boolean existsOtroConSku(@Param("sku") String sku, @Param("excluirId") Long excluirId);
+
+    /**
+     * Variantes de un producto base por orden (las que no tienen orden al final).
+     * Usa idx_productos_producto_base_id; no recorre el catálogo.
+     */
+    @Query("SELECT p FROM Producto p WHERE p.productoBase.id = :productoBaseId ORDER BY p.ordenVariante ASC NULLS LAST, p.id")
+    List<Producto> findVariantesOrdenadas(@Param("productoBaseId") Long productoBaseId);
+
+    /**
+     * ¿Existe otra variante del mismo producto base con ese nombre (sin distinguir mayúsculas)?
+     * Misma expresión que el índice único ux_productos_base_nombre_variante.
+     *
+     * @param excluirId variante a ignorar (la que se edita); null al crear
+     */
+    @Query("""
+        SELECT COUNT(p) > 0 FROM Producto p
+        WHERE p.productoBase.id = :productoBaseId
+          AND LOWER(p.nombreVariante) = LOWER(:nombreVariante)
+          AND (:excluirId IS NULL OR p.id <> :excluirId)
+        """)
+    boolean existsVarianteConNombre(@Param("productoBaseId") Long productoBaseId,
+                                    @Param("nombreVariante") String nombreVariante,
+                                    @Param("excluirId") Long excluirId);
+
     // Contar variantes de un producto base - EFICIENTE CON QUERY
     @Query("SELECT COUNT(p) FROM Producto p WHERE p.productoBase.id = :productoBaseId")
     long countVariantesByProductoBaseId(@Param("productoBaseId") Long productoBaseId);
+
+    /**
+     * Carga en una sola consulta los productos de una venta junto con su producto base
+     * (evita un SELECT adicional por cada variante al construir el nombre completo).
+     */
+    @Query("SELECT p FROM Producto p LEFT JOIN FETCH p.productoBase WHERE p.id IN :ids")
+    List<Producto> findAllWithBaseByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -1,5 +1,6 @@
 package com.puntodeventa.backend.repository;
 
+import com.puntodeventa.backend.dto.projection.RenglonCostoFila;
 import com.puntodeventa.backend.model.Receta;
 import com.puntodeventa.backend.model.RecetaId;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -7,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -22,5 +24,21 @@ public interface RecetaRepository extends JpaRepository<Receta, RecetaId> {
     @Query("SELECT r FROM Receta r JOIN FETCH r.ingrediente JOIN FETCH r.unidad WHERE r.productoId = :productoId")
     List<Receta> findByProductoIdWithDetails(@Param("productoId") Long productoId);
     
+    /**
+     * Todos los renglones de receta para el motor de costos, en una sola consulta.
+     */
+    @Query("""
+        SELECT new com.puntodeventa.backend.dto.projection.RenglonCostoFila(
+            r.productoId, r.ingredienteId, r.cantidad, r.mermaTeorica, u.id, u.factorBase, i.costoUnitarioBase)
+        FROM Receta r JOIN r.unidad u JOIN r.ingrediente i
+        """)
+    List<RenglonCostoFila> findRenglonesCosto();
+
+    @Query("SELECT DISTINCT r.ingredienteId FROM Receta r WHERE r.productoId IN :productoIds")
+    List<Long> findIngredienteIdsByProductoIdIn(@Param("productoIds") Collection<Long> productoIds);
+
+    @Query("SELECT r.productoId FROM Receta r WHERE r.ingredienteId = :ingredienteId")
+    List<Long> findProductoIdsByIngredienteId(@Param("ingredienteId") Long ingredienteId);
+    
     void deleteByProductoIdAndIngredienteId(Long productoId, Long ingredienteId);
 }
@@ -0,0 +1,74 @@
+package com.puntodeventa.backend.repository;
+
+import com.puntodeventa.backend.dto.aggregate.ResumenDiarioAggregate;
+import com.puntodeventa.backend.model.ResumenDiario;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Repositorio del acumulado diario de ventas y gastos.
+ */
+@Repository
+public interface ResumenDiarioRepository extends JpaRepository<ResumenDiario, Long> {
+
+    /**
+     * Suma (o resta, con valores negativos) un aporte al acumulado del día/sucursal
+     * con un UPDATE atómico, sin leer la fila.
+     *
+     * @return filas actualizadas (0 si la fila del día aún no existe)
+     */
+    @Modifying
+    @Query("""
+        UPDATE ResumenDiario r SET
+            r.totalVentas = r.totalVentas + :total,
+            r.subtotalVentas = r.subtotalVentas + :subtotal,
+            r.cantidadVentas = r.cantidadVentas + :ventas,
+            r.itemsVendidos = r.itemsVendidos + :items,
+            r.costoProductos = r.costoProductos + :costo,
+            r.gastosOperacionales = r.gastosOperacionales + :gastos
+        WHERE r.fecha = :fecha AND r.sucursalId = :sucursalId
+        """)
+    int acumular(@Param("fecha") LocalDate fecha,
+                 @Param("sucursalId") Long sucursalId,
+                 @Param("total") BigDecimal total,
+                 @Param("subtotal") BigDecimal subtotal,
+                 @Param("ventas") long ventas,
+                 @Param("items") long items,
+                 @Param("costo") BigDecimal costo,
+                 @Param("gastos") BigDecimal gastos);
+
+    @Query("""
+        SELECT new com.puntodeventa.backend.dto.aggregate.ResumenDiarioAggregate(
+            COALESCE(SUM(r.totalVentas), 0),
+            COALESCE(SUM(r.subtotalVentas), 0),
+            COALESCE(SUM(r.cantidadVentas), 0),
+            COALESCE(SUM(r.itemsVendidos), 0),
+            COALESCE(SUM(r.costoProductos), 0),
+            COALESCE(SUM(r.gastosOperacionales), 0)
+        )
+        FROM ResumenDiario r
+        WHERE r.fecha BETWEEN :desde AND :hasta
+        """)
+    ResumenDiarioAggregate sumarRango(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta);
+
+    @Query("""
+        SELECT new com.puntodeventa.backend.dto.aggregate.ResumenDiarioAggregate(
+            COALESCE(SUM(r.totalVentas), 0),
+            COALESCE(SUM(r.subtotalVentas), 0),
+            COALESCE(SUM(r.cantidadVentas), 0),
+            COALESCE(SUM(r.itemsVendidos), 0),
+            COALESCE(SUM(r.costoProductos), 0),
+            COALESCE(SUM(r.gastosOperacionales), 0)
+        )
+        FROM ResumenDiario r
+        WHERE r.fecha BETWEEN :desde AND :hasta AND r.sucursalId = :sucursalId
+        """)
+    ResumenDiarioAggregate sumarRangoSucursal(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta,
+                                              @Param("sucursalId") Long sucursalId);
+}
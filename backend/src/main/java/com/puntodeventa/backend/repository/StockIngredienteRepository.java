@@ -0,0 +1,84 @@
+package com.puntodeventa.backend.repository;
+
+import com.puntodeventa.backend.dto.StockIngredienteDTO;
+import com.puntodeventa.backend.model.StockIngrediente;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositorio de la existencia por ingrediente y sucursal.
+ */
+@Repository
+public interface StockIngredienteRepository extends JpaRepository<StockIngrediente, Long> {
+
+    /**
+     * Suma (o resta, con una cantidad negativa) a la existencia del ingrediente/sucursal
+     * con un UPDATE atómico, sin leer la fila.
+     *
+     * @return filas actualizadas (0 si la fila aún no existe)
+     */
+    @Modifying
+    @Query("""
+        UPDATE StockIngrediente s SET s.cantidad = s.cantidad + :cantidad, s.actualizado = :ahora
+        WHERE s.ingredienteId = :ingredienteId AND s.sucursalId = :sucursalId
+        """)
+    int acumular(@Param("ingredienteId") Long ingredienteId,
+                 @Param("sucursalId") Long sucursalId,
+                 @Param("cantidad") BigDecimal cantidad,
+                 @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Existencia con los datos del ingrediente, en una sola consulta.
+     */
+    String SELECT_DTO = """
+        SELECT new com.puntodeventa.backend.dto.StockIngredienteDTO(
+            s.ingredienteId, i.nombre, s.sucursalId, s.cantidad, u.abreviatura, i.stockMinimo, s.actualizado
+        )
+        FROM StockIngrediente s
+        JOIN Ingrediente i ON i.id = s.ingredienteId
+        JOIN i.unidadBase u
+        """;
+
+    /** Por la restricción única (ingrediente_id, sucursal_id): una fila. */
+    @Query(SELECT_DTO + "WHERE s.ingredienteId = :ingredienteId AND s.sucursalId = :sucursalId")
+    Optional<StockIngredienteDTO> findDTO(@Param("ingredienteId") Long ingredienteId,
+                                          @Param("sucursalId") Long sucursalId);
+
+    @Query(SELECT_DTO + "WHERE s.ingredienteId = :ingredienteId ORDER BY s.sucursalId")
+    List<StockIngredienteDTO> findDTOByIngrediente(@Param("ingredienteId") Long ingredienteId);
+
+    /**
+     * Existencias de esos ingredientes en esas sucursales, solo de ingredientes con stock
+     * mínimo (evaluación de alertas de los ingredientes que tocó una transacción).
+     */
+    @Query(SELECT_DTO + """
+        WHERE s.ingredienteId IN :ingredienteIds AND s.sucursalId IN :sucursalIds AND i.stockMinimo IS NOT NULL
+        """)
+    List<StockIngredienteDTO> findDTOConMinimo(@Param("ingredienteIds") Collection<Long> ingredienteIds,
+                                               @Param("sucursalIds") Collection<Long> sucursalIds);
+
+    /**
+     * Ingredientes activos con existencia menor a su stock mínimo en la sucursal (sin fila
+     * de stock, la existencia es cero).
+     */
+    @Query("""
+        SELECT new com.puntodeventa.backend.dto.StockIngredienteDTO(
+            i.id, i.nombre, :sucursalId, COALESCE(s.cantidad, 0), u.abreviatura, i.stockMinimo, s.actualizado
+        )
+        FROM Ingrediente i
+        JOIN i.unidadBase u
+        LEFT JOIN StockIngrediente s ON s.ingredienteId = i.id AND s.sucursalId = :sucursalId
+        WHERE i.activo = true AND i.stockMinimo IS NOT NULL AND COALESCE(s.cantidad, 0) < i.stockMinimo
+        ORDER BY i.nombre
+        """)
+    List<StockIngredienteDTO> findBajoMinimo(@Param("sucursalId") Long sucursalId);
+}
@@ -0,0 +1,71 @@
+package com.puntodeventa.backend.repository;
+
+import com.puntodeventa.backend.dto.StockLoteDTO;
+import com.puntodeventa.backend.model.StockLote;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositorio de la existencia por lote.
+ */
+@Repository
+public interface StockLoteRepository extends JpaRepository<StockLote, Long>, StockLoteRepositoryCustom {
+
+    /**
+     * Suma (o resta) a la existencia del lote con un UPDATE atómico; la caducidad se
+     * completa si el lote aún no la tenía.
+     *
+     * @return filas actualizadas (0 si el lote aún no existe)
+     */
+    @Modifying
+    @Query("""
+        UPDATE StockLote l SET l.cantidad = l.cantidad + :cantidad, l.caducidad = COALESCE(l.caducidad, :caducidad),
+            l.actualizado = :ahora
+        WHERE l.ingredienteId = :ingredienteId AND l.sucursalId = :sucursalId AND l.lote = :lote
+        """)
+    int acumular(@Param("ingredienteId") Long ingredienteId,
+                 @Param("sucursalId") Long sucursalId,
+                 @Param("lote") String lote,
+                 @Param("caducidad") LocalDate caducidad,
+                 @Param("cantidad") BigDecimal cantidad,
+                 @Param("ahora") LocalDateTime ahora);
+
+    /**
+     * Lote con los datos del ingrediente, en una sola consulta.
+     */
+    String SELECT_DTO = """
+        SELECT new com.puntodeventa.backend.dto.StockLoteDTO(
+            l.ingredienteId, i.nombre, l.sucursalId, l.lote, l.caducidad, l.cantidad, u.abreviatura, l.actualizado
+        )
+        FROM StockLote l
+        JOIN Ingrediente i ON i.id = l.ingredienteId
+        JOIN i.unidadBase u
+        """;
+
+    /** Lotes con existencia del ingrediente en la sucursal, en orden de consumo (FEFO). */
+    @Query(SELECT_DTO + """
+        WHERE l.ingredienteId = :ingredienteId AND l.sucursalId = :sucursalId AND l.cantidad > 0
+        ORDER BY l.caducidad ASC NULLS LAST, l.id
+        """)
+    List<StockLoteDTO> findDTODisponibles(@Param("ingredienteId") Long ingredienteId,
+                                          @Param("sucursalId") Long sucursalId);
+
+    /**
+     * Lotes con existencia de la sucursal que caducan a más tardar en esa fecha (incluye los
+     * ya caducados); rango sobre idx_stock_lote_sucursal_caducidad.
+     */
+    @Query(SELECT_DTO + """
+        WHERE l.sucursalId = :sucursalId AND l.caducidad <= :hasta AND l.cantidad > 0
+        ORDER BY l.caducidad, i.nombre
+        """)
+    List<StockLoteDTO> findDTOPorCaducar(@Param("sucursalId") Long sucursalId,
+                                         @Param("hasta") LocalDate hasta);
+}
@@ -0,0 +1,25 @@
+package com.puntodeventa.backend.repository;
+
+import com.puntodeventa.backend.model.StockLote;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Consultas de stock_lotes cuyo texto depende del número de parámetros.
+ */
+public interface StockLoteRepositoryCustom {
+
+    /** Ingrediente y sucursal (0 = sin sucursal) de una salida. */
+    record Existencia(Long ingredienteId, Long sucursalId) {
+    }
+
+    /**
+     * Lotes con existencia de exactamente esos pares ingrediente/sucursal, bloqueados para
+     * asignarles salidas. Se bloquean en el orden de uk_stock_lote (ingrediente, sucursal,
+     * lote), el mismo que usan los movimientos con lote, así que dos transacciones
+     * concurrentes esperan una a la otra en lugar de bloquearse mutuamente; el orden de
+     * consumo (FEFO) lo pone quien asigna.
+     */
+    List<StockLote> findDisponiblesParaAsignar(Collection<Existencia> existencias);
+}
@@ -0,0 +1,44 @@
+package com.puntodeventa.backend.repository;
+
+import com.puntodeventa.backend.model.StockLote;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Filtra por pares (ingrediente_id, sucursal_id) con un IN de valores de fila: cada par
+ * es una búsqueda exacta sobre uk_stock_lote, sin el producto cruzado de dos IN sueltos.
+ */
+class StockLoteRepositoryCustomImpl implements StockLoteRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<StockLote> findDisponiblesParaAsignar(Collection<Existencia> existencias) {
+        if (existencias.isEmpty()) {
+            return List.of();
+        }
+        StringJoiner pares = new StringJoiner(", ");
+        for (int i = 0; i < existencias.size(); i++) {
+            pares.add("(:ingrediente" + i + ", :sucursal" + i + ")");
+        }
+        TypedQuery<StockLote> query = entityManager.createQuery("""
+            SELECT l FROM StockLote l
+            WHERE (l.ingredienteId, l.sucursalId) IN (%s) AND l.cantidad > 0
+            ORDER BY l.ingredienteId, l.sucursalId, l.lote
+            """.formatted(pares), StockLote.class);
+        int i = 0;
+        for (Existencia e : existencias) {
+            query.setParameter("ingrediente" + i, e.ingredienteId());
+            query.setParameter("sucursal" + i, e.sucursalId());
+            i++;
+        }
+        return query.setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+    }
+}
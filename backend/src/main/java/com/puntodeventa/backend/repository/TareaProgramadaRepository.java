@@ -0,0 +1,32 @@
+package com.puntodeventa.backend.repository;
+
+import com.puntodeventa.backend.model.TareaProgramada;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repositorio de los turnos de tareas periódicas.
+ */
+@Repository
+public interface TareaProgramadaRepository extends JpaRepository<TareaProgramada, String> {
+
+    /**
+     * Toma la tarea si su bloqueo ya venció, con un UPDATE atómico.
+     *
+     * @return 1 si este nodo la tomó; 0 si otro la tiene o aún no existe
+     */
+    @Modifying
+    @Query("""
+        UPDATE TareaProgramada t SET t.bloqueadaHasta = :hasta, t.nodo = :nodo
+        WHERE t.nombre = :nombre AND t.bloqueadaHasta <= :ahora
+        """)
+    int tomar(@Param("nombre") String nombre,
+              @Param("ahora") LocalDateTime ahora,
+              @Param("hasta") LocalDateTime hasta,
+              @Param("nodo") String nodo);
+}
@@ -2,6 +2,8 @@ package com.puntodeventa.backend.repository;
 
 import com.puntodeventa.backend.model.VentaItem;
 import com.puntodeventa.backend.dto.aggregate.ProductoRendimientoAggregate;
+import com.puntodeventa.backend.dto.projection.ConsumoVentaFila;
+import com.puntodeventa.backend.dto.projection.VentaItemFila;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -33,4 +36,47 @@ public interface VentaItemRepository extends JpaRepository<VentaItem, Long> {
     List<ProductoRendimientoAggregate> topProductos(@Param("inicio") LocalDateTime inicio,
                                                     @Param("fin") LocalDateTime fin,
                                                     Pageable pageable);
+
+    /**
+     * Items de un lote de ventas como proyección plana (una sola consulta por página).
+     */
+    @Query("""
+        SELECT new com.puntodeventa.backend.dto.projection.VentaItemFila(
+            i.venta.id, i.id, p.id, p.nombre, i.cantidad, i.precioUnitario, i.subtotal, i.costoEstimado, i.nota
+        )
+        FROM VentaItem i
+        JOIN i.producto p
+        WHERE i.venta.id IN :ventaIds
+        ORDER BY i.id
+        """)
+    List<VentaItemFila> findFilasByVentaIds(@Param("ventaIds") Collection<Long> ventaIds);
+
+    /**
+     * Unidades vendidas por producto de las ventas cerradas indicadas (descuento de
+     * inventario por recetas); las canceladas no consumen.
+     */
+    @Query("""
+        SELECT new com.puntodeventa.backend.dto.projection.ConsumoVentaFila(
+            v.id, v.sucursal.id, v.fecha, i.producto.id, SUM(i.cantidad)
+        )
+        FROM VentaItem i
+        JOIN i.venta v
+        WHERE v.id IN :ventaIds AND v.estado = 'cerrada'
+        GROUP BY v.id, v.sucursal.id, v.fecha, i.producto.id
+        """)
+    List<ConsumoVentaFila> findConsumoByVentaIds(@Param("ventaIds") Collection<Long> ventaIds);
+
+    /**
+     * Items de ventas cerradas agrupados por día y sucursal (reconstrucción de resumen_diario).
+     *
+     * @return [0]=fecha (LocalDate), [1]=sucursalId (0 si no tiene), [2]=unidades, [3]=costo estimado
+     */
+    @Query("""
+        SELECT extract(date from v.fecha), COALESCE(v.sucursal.id, 0), SUM(i.cantidad), COALESCE(SUM(i.costoEstimado), 0)
+        FROM VentaItem i
+        JOIN i.venta v
+        WHERE v.estado = 'cerrada'
+        GROUP BY extract(date from v.fecha), COALESCE(v.sucursal.id, 0)
+        """)
+    List<Object[]> sumItemsCerradasPorDiaYSucursal();
 }
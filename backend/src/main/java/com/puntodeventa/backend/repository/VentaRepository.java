@@ -2,6 +2,8 @@ package com.puntodeventa.backend.repository;
 
 import com.puntodeventa.backend.model.Venta;
 import com.puntodeventa.backend.dto.aggregate.ResumenVentasAggregate;
+import com.puntodeventa.backend.dto.projection.VentaCabecera;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.EntityGraph;
@@ -10,6 +12,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repositorio JPA para ventas.
@@ -23,16 +26,28 @@ public interface VentaRepository extends JpaRepository<Venta, Long> {
     
     List<Venta> findByFechaBetween(LocalDateTime fechaInicio, LocalDateTime fechaFin);
 
+    /**
+     * Resumen de ventas cerradas del rango en una sola consulta con dos agregados planos:
+     * sumas de ventas (recorrido por idx_venta_fecha) y sumas de items de esas ventas
+     * (join por idx_venta_item_venta). Reemplaza dos subconsultas que volvían a
+     * recorrer ventas_items por separado.
+     */
     @Query("""
         SELECT new com.puntodeventa.backend.dto.aggregate.ResumenVentasAggregate(
-            COALESCE(SUM(v.total), 0),
-            COALESCE(SUM(v.subtotal), 0),
-            COUNT(DISTINCT v.id),
-            (SELECT COALESCE(SUM(i2.cantidad), 0) FROM VentaItem i2 JOIN i2.venta v2 WHERE v2.estado = 'cerrada' AND v2.fecha BETWEEN :inicio AND :fin),
-            (SELECT COALESCE(SUM(i3.costoEstimado), 0) FROM VentaItem i3 JOIN i3.venta v3 WHERE v3.estado = 'cerrada' AND v3.fecha BETWEEN :inicio AND :fin)
+            t.total, t.subtotal, t.cantidad, x.items, x.costo
         )
-        FROM Venta v
-        WHERE v.estado = 'cerrada' AND v.fecha BETWEEN :inicio AND :fin
+        FROM (
+            SELECT COALESCE(SUM(v.total), 0) AS total, COALESCE(SUM(v.subtotal), 0) AS subtotal,
+                   COUNT(v.id) AS cantidad
+            FROM Venta v
+            WHERE v.estado = 'cerrada' AND v.fecha BETWEEN :inicio AND :fin
+        ) t
+        JOIN (
+            SELECT COALESCE(SUM(i.cantidad), 0) AS items, COALESCE(SUM(i.costoEstimado), 0) AS costo
+            FROM VentaItem i
+            JOIN i.venta v
+            WHERE v.estado = 'cerrada' AND v.fecha BETWEEN :inicio AND :fin
+        ) x ON 1 = 1
         """)
     ResumenVentasAggregate aggregateResumen(@Param("inicio") LocalDateTime inicio,
                                             @Param("fin") LocalDateTime fin);
@@ -57,4 +72,82 @@ public interface VentaRepository extends JpaRepository<Venta, Long> {
         """)
     List<Object[]> sumByMetodoPago(@Param("inicio") LocalDateTime inicio,
                                     @Param("fin") LocalDateTime fin);
+
+    /** Desglose por método de pago de las ventas cerradas de una sucursal. */
+    @Query("""
+        SELECT mp.nombre, COALESCE(SUM(p.monto), 0)
+        FROM Pago p
+        JOIN p.metodoPago mp
+        JOIN p.venta v
+        WHERE v.estado = 'cerrada' AND v.fecha BETWEEN :inicio AND :fin AND v.sucursal.id = :sucursalId
+        GROUP BY mp.id, mp.nombre
+        ORDER BY mp.nombre
+        """)
+    List<Object[]> sumByMetodoPagoAndSucursal(@Param("inicio") LocalDateTime inicio,
+                                              @Param("fin") LocalDateTime fin,
+                                              @Param("sucursalId") Long sucursalId);
+
+    /**
+     * Cabecera de venta (con sucursal y usuario) como proyección; base de las consultas del modelo de lectura.
+     */
+    String SELECT_CABECERA = """
+        SELECT new com.puntodeventa.backend.dto.projection.VentaCabecera(
+            v.id, s.id, s.nombre, v.fecha, v.subtotal, v.total, v.impuestos, v.descuento,
+            v.canal, v.estado, v.nota, u.id, u.nombre
+        )
+        FROM Venta v
+        LEFT JOIN v.sucursal s
+        LEFT JOIN v.usuario u
+        """;
+
+    /**
+     * Primera página de cabeceras de venta, de la más reciente a la más antigua.
+     */
+    @Query(SELECT_CABECERA + "ORDER BY v.fecha DESC, v.id DESC")
+    List<VentaCabecera> findCabeceras(Limit limite);
+
+    /**
+     * Siguiente página de cabeceras (keyset): ventas estrictamente anteriores a (fecha, id).
+     * Usa el índice idx_venta_fecha_id, por lo que el costo no depende de la profundidad de la página.
+     */
+    @Query(SELECT_CABECERA + """
+        WHERE v.fecha < :fecha OR (v.fecha = :fecha AND v.id < :id)
+        ORDER BY v.fecha DESC, v.id DESC
+        """)
+    List<VentaCabecera> findCabecerasAntesDe(@Param("fecha") LocalDateTime fecha,
+                                             @Param("id") Long id,
+                                             Limit limite);
+
+    @Query(SELECT_CABECERA + "WHERE v.id = :id")
+    Optional<VentaCabecera> findCabeceraById(@Param("id") Long id);
+
+    @Query(SELECT_CABECERA + "WHERE v.estado = :estado ORDER BY v.id")
+    List<VentaCabecera> findCabecerasByEstado(@Param("estado") String estado);
+
+    @Query(SELECT_CABECERA + "WHERE s.id = :sucursalId ORDER BY v.id")
+    List<VentaCabecera> findCabecerasBySucursalId(@Param("sucursalId") Long sucursalId);
+
+    @Query(SELECT_CABECERA + "WHERE v.fecha BETWEEN :inicio AND :fin ORDER BY v.fecha, v.id")
+    List<VentaCabecera> findCabecerasByFechaBetween(@Param("inicio") LocalDateTime inicio,
+                                                    @Param("fin") LocalDateTime fin);
+
+    /**
+     * Venta con sus items y productos en una sola consulta, para las operaciones que
+     * modifican la venta y devuelven el DTO completo.
+     */
+    @EntityGraph(attributePaths = {"items", "items.producto"})
+    Optional<Venta> findConItemsById(Long id);
+
+    /**
+     * Ventas cerradas agrupadas por día y sucursal (reconstrucción de resumen_diario).
+     *
+     * @return [0]=fecha (LocalDate), [1]=sucursalId (0 si no tiene), [2]=total, [3]=subtotal, [4]=cantidad
+     */
+    @Query("""
+        SELECT extract(date from v.fecha), COALESCE(v.sucursal.id, 0), SUM(v.total), SUM(v.subtotal), COUNT(v)
+        FROM Venta v
+        WHERE v.estado = 'cerrada'
+        GROUP BY extract(date from v.fecha), COALESCE(v.sucursal.id, 0)
+        """)
+    List<Object[]> sumCerradasPorDiaYSucursal();
 }
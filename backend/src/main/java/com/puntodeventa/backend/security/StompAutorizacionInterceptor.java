@@ -0,0 +1,114 @@
+package com.puntodeventa.backend.security;
+
+import com.puntodeventa.backend.model.Usuario;
+import com.puntodeventa.backend.repository.UsuarioRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Autoriza las suscripciones STOMP a los temas por sucursal.
+ *
+ * En el CONNECT el cliente envía el JWT en la cabecera nativa Authorization; se guardan
+ * el usuario, la sucursal y el rol en la sesión WebSocket. Toda suscripción requiere una
+ * sesión autenticada: /topic/sucursal/{id}/** solo para usuarios de esa sucursal o ADMIN,
+ * y los demás temas globales (ventas, estadísticas e inventario de todas las sucursales)
+ * solo para ADMIN, salvo los de TEMAS_ABIERTOS (catálogo). /user/** y /queue/** van al
+ * propio usuario.
+ */
+@Slf4j
+@Component
+public class StompAutorizacionInterceptor implements ChannelInterceptor {
+
+    private static final Pattern TEMA_SUCURSAL = Pattern.compile("^/topic/sucursal/(\\d+)/.+$");
+    /** Temas globales que recibe cualquier usuario autenticado. */
+    private static final Set<String> TEMAS_ABIERTOS = Set.of("/topic/productos");
+    private static final String ATRIBUTO_USUARIO = "usuarioId";
+    private static final String ATRIBUTO_SUCURSAL = "sucursalId";
+    private static final String ATRIBUTO_ROL = "rol";
+    private static final String ROL_ADMIN = "ADMIN";
+
+    private final JwtUtil jwtUtil;
+    private final UsuarioRepository usuarioRepository;
+
+    public StompAutorizacionInterceptor(JwtUtil jwtUtil, UsuarioRepository usuarioRepository) {
+        this.jwtUtil = jwtUtil;
+        this.usuarioRepository = usuarioRepository;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        if (accessor.getCommand() == StompCommand.CONNECT) {
+            autenticar(accessor);
+        } else if (accessor.getCommand() == StompCommand.SUBSCRIBE) {
+            autorizar(accessor);
+        }
+        return message;
+    }
+
+    private void autenticar(StompHeaderAccessor accessor) {
+        String bearer = accessor.getFirstNativeHeader("Authorization");
+        if (bearer == null || !bearer.startsWith("Bearer ")) {
+            return;
+        }
+        String token = bearer.substring(7);
+        if (!jwtUtil.isTokenValid(token)) {
+            throw new MessagingException("Sesión caducada, inicia sesión de nuevo");
+        }
+        Long usuarioId = jwtUtil.extractUsuarioId(token);
+        Usuario usuario = usuarioRepository.findById(usuarioId)
+            .orElseThrow(() -> new MessagingException("Usuario no encontrado"));
+        Map<String, Object> sesion = accessor.getSessionAttributes();
+        if (sesion != null) {
+            sesion.put(ATRIBUTO_USUARIO, usuarioId);
+            sesion.put(ATRIBUTO_SUCURSAL, usuario.getSucursal() != null ? usuario.getSucursal().getId() : null);
+            sesion.put(ATRIBUTO_ROL, jwtUtil.extractRol(token));
+        }
+    }
+
+    private void autorizar(StompHeaderAccessor accessor) {
+        String destino = accessor.getDestination();
+        Map<String, Object> sesion = accessor.getSessionAttributes();
+        if (sesion == null || sesion.get(ATRIBUTO_USUARIO) == null) {
+            log.debug("Suscripción sin sesión autenticada rechazada a {}", destino);
+            throw new AccessDeniedException("Inicia sesión para suscribirte a " + destino);
+        }
+        if (ROL_ADMIN.equals(sesion.get(ATRIBUTO_ROL)) || destino == null || !destino.startsWith("/topic/")
+                || TEMAS_ABIERTOS.contains(destino)) {
+            return;
+        }
+        Long sucursalTema = sucursalDeDestino(destino);
+        Object sucursal = sesion.get(ATRIBUTO_SUCURSAL);
+        if (sucursalTema == null || !sucursalTema.equals(sucursal)) {
+            log.debug("Suscripción rechazada a {} (sucursal de la sesión: {})", destino, sucursal);
+            throw new AccessDeniedException("No autorizado para " + destino);
+        }
+    }
+
+    /**
+     * Sucursal de un destino /topic/sucursal/{id}/..., o null si no es un tema de sucursal.
+     */
+    static Long sucursalDeDestino(String destino) {
+        if (destino == null) {
+            return null;
+        }
+        Matcher m = TEMA_SUCURSAL.matcher(destino);
+        return m.matches() ? Long.valueOf(m.group(1)) : null;
+    }
+}
@@ -0,0 +1,178 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.AlertaStockDTO;
+import com.puntodeventa.backend.dto.StockIngredienteDTO;
+import com.puntodeventa.backend.model.StockIngrediente;
+import com.puntodeventa.backend.repository.InventarioMovimientoRepository;
+import com.puntodeventa.backend.repository.StockIngredienteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Alertas de stock bajo: avisa por WebSocket cuando la existencia de un ingrediente en una
+ * sucursal cruza hacia abajo su stock mínimo, con la proyección de agotamiento.
+ *
+ * Solo se evalúan los ingredientes/sucursal que tocó la transacción: StockIngredienteService
+ * pasa cada cantidad aplicada y, antes de confirmar, una consulta lee la existencia y el
+ * mínimo de las filas que bajaron. La existencia previa es la actual menos lo aplicado en la
+ * transacción (el UPDATE mantiene bloqueadas las filas). Se avisa al cruzar el mínimo
+ * (antes >= mínimo > después), no en cada movimiento posterior por debajo de él.
+ *
+ * El consumo diario (salidas de los últimos inventario.alertas.dias-consumo días) se
+ * consulta en la misma pasada y conexión, solo para los ingredientes que cruzaron; tras el
+ * commit solo se envían las alertas ya armadas.
+ */
+@Slf4j
+@Service
+public class AlertaStockService {
+
+    private final StockIngredienteRepository stockRepository;
+    private final InventarioMovimientoRepository movimientoRepository;
+    private final WebSocketNotificationService notificationService;
+    private final int diasConsumo;
+
+    public AlertaStockService(StockIngredienteRepository stockRepository,
+                              InventarioMovimientoRepository movimientoRepository,
+                              WebSocketNotificationService notificationService,
+                              @Value("${inventario.alertas.dias-consumo:7}") int diasConsumo) {
+        this.stockRepository = stockRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.notificationService = notificationService;
+        this.diasConsumo = diasConsumo;
+    }
+
+    /**
+     * Registra una cantidad aplicada a la existencia en la transacción actual; se evalúa al
+     * confirmarla junto con las demás.
+     *
+     * @param sucursalId ya normalizada (0 = sin sucursal)
+     */
+    public void registrar(Long ingredienteId, Long sucursalId, BigDecimal cantidad) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Cambios cambios = null;
+        for (TransactionSynchronization s : TransactionSynchronizationManager.getSynchronizations()) {
+            if (s instanceof Cambios c) {
+                cambios = c;
+                break;
+            }
+        }
+        if (cambios == null) {
+            cambios = new Cambios();
+            TransactionSynchronizationManager.registerSynchronization(cambios);
+        }
+        cambios.porFila.merge(new Clave(ingredienteId, sucursalId), cantidad, BigDecimal::add);
+    }
+
+    /**
+     * Filas que la transacción dejó por debajo de su mínimo estando en o sobre él.
+     */
+    private List<StockIngredienteDTO> cruces(Map<Clave, BigDecimal> porFila) {
+        Set<Long> ingredientes = new HashSet<>();
+        Set<Long> sucursales = new HashSet<>();
+        porFila.forEach((clave, cantidad) -> {
+            if (cantidad.signum() < 0) {
+                ingredientes.add(clave.ingredienteId());
+                sucursales.add(clave.sucursalId());
+            }
+        });
+        if (ingredientes.isEmpty()) {
+            return List.of();
+        }
+        List<StockIngredienteDTO> cruces = new ArrayList<>();
+        for (StockIngredienteDTO fila : stockRepository.findDTOConMinimo(ingredientes, sucursales)) {
+            BigDecimal aplicado = porFila.get(new Clave(fila.ingredienteId(), fila.sucursalId()));
+            if (aplicado == null || aplicado.signum() >= 0) {
+                continue;
+            }
+            BigDecimal antes = fila.cantidad().subtract(aplicado);
+            if (antes.compareTo(fila.stockMinimo()) >= 0 && fila.cantidad().compareTo(fila.stockMinimo()) < 0) {
+                cruces.add(fila);
+            }
+        }
+        return cruces;
+    }
+
+    /**
+     * Alertas de las filas que cruzaron su mínimo, con el consumo leído en la misma
+     * transacción que las cruzó.
+     */
+    private List<AlertaStockDTO> alertas(Map<Clave, BigDecimal> porFila) {
+        LocalDateTime ahora = LocalDateTime.now();
+        return cruces(porFila).stream().map(fila -> alerta(fila, ahora)).toList();
+    }
+
+    private void notificar(List<AlertaStockDTO> alertas) {
+        try {
+            for (AlertaStockDTO alerta : alertas) {
+                log.info("Stock bajo: ingrediente {} ({}) en sucursal {}: {} {} (mínimo {}), agotamiento estimado {}",
+                    alerta.ingredienteId(), alerta.ingredienteNombre(), alerta.sucursalId(), alerta.cantidad(),
+                    alerta.unidadAbreviatura(), alerta.stockMinimo(), alerta.agotamientoEstimado());
+                notificationService.notificarStockBajo(alerta);
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron enviar las alertas de stock bajo: {}", e.getMessage());
+        }
+    }
+
+    private AlertaStockDTO alerta(StockIngredienteDTO fila, LocalDateTime ahora) {
+        LocalDateTime desde = ahora.minusDays(diasConsumo);
+        BigDecimal salidas = StockIngrediente.SIN_SUCURSAL.equals(fila.sucursalId())
+            ? movimientoRepository.sumarSalidasSinSucursalDesde(fila.ingredienteId(), StockIngredienteService.SALIDAS, desde)
+            : movimientoRepository.sumarSalidasDesde(fila.ingredienteId(), fila.sucursalId(),
+                StockIngredienteService.SALIDAS, desde);
+        BigDecimal consumoDiario = salidas.divide(BigDecimal.valueOf(diasConsumo), 6, RoundingMode.HALF_UP);
+        BigDecimal diasRestantes = null;
+        LocalDateTime agotamiento = null;
+        if (fila.cantidad().signum() <= 0) {
+            diasRestantes = BigDecimal.ZERO;
+            agotamiento = ahora;
+        } else if (consumoDiario.signum() > 0) {
+            diasRestantes = fila.cantidad().divide(consumoDiario, 1, RoundingMode.HALF_UP);
+            long minutos = fila.cantidad().multiply(BigDecimal.valueOf(24 * 60))
+                .divide(consumoDiario, 0, RoundingMode.HALF_UP).longValue();
+            agotamiento = ahora.plusMinutes(minutos);
+        }
+        return new AlertaStockDTO(fila.ingredienteId(), fila.ingredienteNombre(), fila.sucursalId(),
+            fila.cantidad(), fila.stockMinimo(), fila.unidadAbreviatura(), consumoDiario, diasRestantes, agotamiento);
+    }
+
+    /**
+     * Cantidades aplicadas por la transacción; arma las alertas antes del commit, con su
+     * conexión, y las envía después.
+     */
+    private class Cambios implements TransactionSynchronization {
+
+        private final Map<Clave, BigDecimal> porFila = new HashMap<>();
+        private List<AlertaStockDTO> alertas = List.of();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            alertas = alertas(porFila);
+        }
+
+        @Override
+        public void afterCommit() {
+            if (!alertas.isEmpty()) {
+                notificar(alertas);
+            }
+        }
+    }
+
+    private record Clave(Long ingredienteId, Long sucursalId) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.puntodeventa.backend.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Bus de eventos entre las instancias (nodos) del backend: invalidaciones de caché, cambios
+ * del catálogo y mensajes WebSocket, para que cada réplica detrás del balanceador vea lo
+ * mismo que la que atendió la escritura.
+ *
+ * Implementaciones (propiedad bus.tipo):
+ * - local (por defecto): un solo proceso; con bus.local.grupo, los contextos del mismo
+ *   proceso con el mismo grupo forman un cluster (tests)
+ * - jdbc: tabla eventos_nodos en la base compartida, consultada por cada nodo
+ *
+ * Dentro de una transacción los eventos se envían solo si confirma, una vez, al terminar;
+ * fuera de una transacción se envían de inmediato. Un nodo no recibe sus propios eventos.
+ */
+public interface BusEventos {
+
+    /**
+     * Evento enviado a los demás nodos.
+     *
+     * @param tipo  receptor ("cache", "catalogo", "websocket")
+     * @param carga contenido en texto (JSON)
+     */
+    record Evento(String tipo, String carga) {}
+
+    /** Identificador de este nodo. */
+    String nodo();
+
+    /**
+     * Envía un evento a los demás nodos (al confirmar la transacción actual, si la hay).
+     */
+    void publicar(String tipo, String carga);
+
+    /**
+     * Envía varios eventos del mismo tipo juntos: fuera de una transacción, en un solo
+     * envío (una fila con el bus jdbc); dentro, con los demás eventos de la transacción.
+     */
+    void publicarTodos(String tipo, List<String> cargas);
+
+    /**
+     * Registra el receptor de un tipo de evento llegado de otro nodo.
+     */
+    void suscribir(String tipo, Consumer<String> receptor);
+}
@@ -0,0 +1,123 @@
+package com.puntodeventa.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Parte común de los buses: agrupa los eventos de una transacción (sin repetidos) y los
+ * envía juntos al confirmarse, y entrega los eventos recibidos a los receptores.
+ */
+@Slf4j
+abstract class BusEventosBase implements BusEventos {
+
+    /**
+     * Eventos de la transacción actual, enviados por la última sincronización de la
+     * transacción (las que publican en afterCompletion deben ordenarse antes). Lo que se
+     * publique después del envío y ya se envió, se omite.
+     */
+    private static final class Pendientes {
+        private final Set<Evento> eventos = new LinkedHashSet<>();
+        private boolean enviados;
+    }
+
+    private final String nodo = UUID.randomUUID().toString().substring(0, 8);
+    private final Map<String, List<Consumer<String>>> receptores = new ConcurrentHashMap<>();
+
+    @Override
+    public String nodo() {
+        return nodo;
+    }
+
+    @Override
+    public void publicar(String tipo, String carga) {
+        Evento evento = new Evento(tipo, carga);
+        Pendientes pendientes = (Pendientes) TransactionSynchronizationManager.getResource(this);
+        if (pendientes == null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendientes = new Pendientes();
+            registrar(pendientes);
+        }
+        if (pendientes == null) {
+            enviar(List.of(evento));
+        } else if (!pendientes.enviados) {
+            pendientes.eventos.add(evento);
+        } else if (!pendientes.eventos.contains(evento)) {
+            enviar(List.of(evento));
+        }
+    }
+
+    @Override
+    public void publicarTodos(String tipo, List<String> cargas) {
+        if (cargas.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            cargas.forEach(carga -> publicar(tipo, carga));
+        } else {
+            enviar(cargas.stream().map(carga -> new Evento(tipo, carga)).toList());
+        }
+    }
+
+    @Override
+    public void suscribir(String tipo, Consumer<String> receptor) {
+        receptores.computeIfAbsent(tipo, t -> new CopyOnWriteArrayList<>()).add(receptor);
+    }
+
+    /**
+     * Envía los eventos a los demás nodos.
+     */
+    protected abstract void enviar(List<Evento> eventos);
+
+    /**
+     * Entrega a los receptores los eventos llegados de otro nodo; un receptor que falla no
+     * detiene a los demás.
+     */
+    protected void entregar(List<Evento> eventos) {
+        for (Evento evento : eventos) {
+            for (Consumer<String> receptor : receptores.getOrDefault(evento.tipo(), List.of())) {
+                try {
+                    receptor.accept(evento.carga());
+                } catch (RuntimeException e) {
+                    log.error("Error aplicando evento '{}' de otro nodo: {}", evento.tipo(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void registrar(Pendientes pendientes) {
+        TransactionSynchronizationManager.bindResource(this, pendientes);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public int getOrder() {
+                // Después de las demás sincronizaciones, para incluir lo que publiquen al terminar
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                try {
+                    pendientes.enviados = true;
+                    if (status == STATUS_COMMITTED && !pendientes.eventos.isEmpty()) {
+                        enviar(new ArrayList<>(pendientes.eventos));
+                    }
+                } catch (RuntimeException e) {
+                    log.error("No se pudieron enviar {} eventos a los demás nodos: {}",
+                            pendientes.eventos.size(), e.getMessage());
+                } finally {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BusEventosBase.this);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,156 @@
+package com.puntodeventa.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puntodeventa.backend.config.ProgramacionConfig;
+import com.puntodeventa.backend.model.EventoNodo;
+import com.puntodeventa.backend.repository.EventoNodoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Bus sobre la base de datos compartida (bus.tipo=jdbc), sin otro servicio: cada
+ * transacción confirmada con eventos inserta una fila en eventos_nodos y cada nodo consulta
+ * las filas nuevas cada bus.jdbc.intervalo-ms (500 ms por defecto).
+ *
+ * Los ids se asignan al insertar pero las filas se confirman en cualquier orden, así que
+ * cada consulta vuelve a mirar los últimos {@link #VENTANA} ids (solo los ids) y lee la
+ * carga únicamente de los no vistos.
+ * Las filas de más de bus.jdbc.retencion (1 h) se borran. Ambas tareas corren en el
+ * programador de la aplicación desde que termina el arranque.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bus.tipo", havingValue = "jdbc")
+public class BusEventosJdbc extends BusEventosBase {
+
+    /**
+     * Ids hacia atrás que se vuelven a consultar por confirmaciones fuera de orden: una fila
+     * que se confirma después que otras con id mayor se entrega mientras no se hayan
+     * insertado VENTANA ids después del suyo. Como la ventana se relee en cada intervalo,
+     * esa consulta trae solo ids (la clave primaria); con la carga, cada nodo volvía a leer
+     * hasta VENTANA cargas JSON por intervalo, incluidas las suyas y las ya entregadas.
+     */
+    static final long VENTANA = 200;
+
+    private static final Duration DEPURACION = Duration.ofMinutes(10);
+
+    private static final TypeReference<List<Evento>> LISTA = new TypeReference<>() {
+    };
+
+    private final EventoNodoRepository repository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate nuevaTransaccion;
+    private final Duration retencion;
+    private final Duration intervalo;
+    private final TaskScheduler programador;
+
+    /** Mayor id visto; null hasta la primera consulta (no se reciben eventos anteriores al arranque). */
+    private Long ultimo;
+    private final NavigableSet<Long> vistos = new TreeSet<>();
+
+    public BusEventosJdbc(EventoNodoRepository repository, ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager,
+                          @Qualifier(ProgramacionConfig.PROGRAMADOR) TaskScheduler programador,
+                          @Value("${bus.jdbc.intervalo-ms:500}") long intervaloMs,
+                          @Value("${bus.jdbc.retencion:1h}") Duration retencion) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.retencion = retencion;
+        this.intervalo = Duration.ofMillis(intervaloMs);
+        this.programador = programador;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void programar() {
+        programador.scheduleWithFixedDelay(this::consultarSeguro, intervalo);
+        programador.scheduleWithFixedDelay(this::depurarSeguro, Instant.now().plus(DEPURACION), DEPURACION);
+    }
+
+    /**
+     * Inserta los eventos en una transacción propia: se llama al terminar la transacción
+     * que los produjo (o fuera de transacción).
+     */
+    @Override
+    protected void enviar(List<Evento> eventos) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(eventos);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudieron serializar los eventos del bus", e);
+        }
+        nuevaTransaccion.executeWithoutResult(status -> repository.save(EventoNodo.builder()
+            .nodo(nodo())
+            .eventos(json)
+            .creadoEn(LocalDateTime.now())
+            .build()));
+    }
+
+    /**
+     * Entrega los eventos de otros nodos confirmados desde la consulta anterior. Primero se
+     * leen solo los ids de la ventana; las cargas se piden únicamente para los ids nuevos
+     * de otros nodos.
+     */
+    synchronized void consultar() {
+        if (ultimo == null) {
+            ultimo = repository.maxId();
+            vistos.addAll(repository.findIdsMayoresA(ultimo - VENTANA));
+            return;
+        }
+        List<Long> nuevos = new ArrayList<>();
+        for (Long id : repository.findIdsMayoresA(ultimo - VENTANA)) {
+            if (vistos.add(id)) {
+                nuevos.add(id);
+                ultimo = Math.max(ultimo, id);
+            }
+        }
+        if (!nuevos.isEmpty()) {
+            for (EventoNodo fila : repository.findByIdInAndNodoNotOrderByIdAsc(nuevos, nodo())) {
+                try {
+                    entregar(objectMapper.readValue(fila.getEventos(), LISTA));
+                } catch (JsonProcessingException e) {
+                    log.error("Evento {} del nodo {} ilegible: {}", fila.getId(), fila.getNodo(), e.getMessage());
+                }
+            }
+        }
+        vistos.headSet(ultimo - VENTANA, true).clear();
+    }
+
+    private void consultarSeguro() {
+        try {
+            consultar();
+        } catch (RuntimeException e) {
+            log.warn("Error consultando eventos de otros nodos: {}", e.getMessage());
+        }
+    }
+
+    private void depurarSeguro() {
+        try {
+            Integer borrados = nuevaTransaccion.execute(status ->
+                repository.borrarAnterioresA(LocalDateTime.now().minus(retencion)));
+            log.debug("Eventos entre nodos depurados: {}", borrados);
+        } catch (RuntimeException e) {
+            log.warn("Error depurando eventos entre nodos: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.puntodeventa.backend.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bus dentro del proceso (bus.tipo=local, por defecto). Sin grupo es un nodo solo y no
+ * envía nada; con bus.local.grupo entrega los eventos, en el mismo hilo, a los demás
+ * contextos de Spring del proceso con el mismo grupo.
+ */
+@Component
+@ConditionalOnProperty(name = "bus.tipo", havingValue = "local", matchIfMissing = true)
+public class BusEventosLocal extends BusEventosBase {
+
+    private static final Map<String, Set<BusEventosLocal>> GRUPOS = new ConcurrentHashMap<>();
+
+    private final String grupo;
+
+    @Autowired
+    public BusEventosLocal(@Value("${bus.local.grupo:}") String grupo) {
+        this.grupo = grupo == null || grupo.isBlank() ? null : grupo;
+        if (this.grupo != null) {
+            GRUPOS.computeIfAbsent(this.grupo, g -> ConcurrentHashMap.newKeySet()).add(this);
+        }
+    }
+
+    /** Nodo solo, sin grupo. */
+    public BusEventosLocal() {
+        this(null);
+    }
+
+    @Override
+    protected void enviar(List<Evento> eventos) {
+        if (grupo == null) {
+            return;
+        }
+        for (BusEventosLocal otro : GRUPOS.getOrDefault(grupo, Set.of())) {
+            if (otro != this) {
+                otro.entregar(eventos);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void detener() {
+        if (grupo != null) {
+            GRUPOS.computeIfPresent(grupo, (g, nodos) -> {
+                nodos.remove(this);
+                return nodos.isEmpty() ? null : nodos;
+            });
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.puntodeventa.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Savepoint;
+import java.util.List;
+
+/**
+ * Registro en memoria de la caja y el turno activos por sucursal.
+ *
+ * Las ventas que llegan sin cajaId/turnoId se resuelven desde los cachés
+ * "cajas-activas" y "turnos-activos" (TTL corto definido en CacheConfig), de modo
+ * que crear una venta no requiere SQL adicional. Las entradas se invalidan al
+ * publicar un {@link CambioCajaTurno} (apertura/cierre de caja o turno).
+ *
+ * La carga ejecuta una sola consulta por valor, con la conexión de la transacción
+ * de la venta pero dentro de un savepoint JDBC: en PostgreSQL un
+ * error de SQL aborta la transacción en curso, y en H2 local las tablas
+ * cajas/turnos pueden no existir. Si falla, se vuelve al savepoint y la venta sigue.
+ */
+@Slf4j
+@Component
+public class CajaTurnoActivoRegistry {
+
+    /** ID usado cuando no existen las tablas cajas/turnos (modo desarrollo H2). */
+    static final Long ID_POR_DEFECTO = 1L;
+
+    private static final String SQL_CAJA = """
+        select id from cajas
+        order by case
+            when activa = true and sucursal_id = ? then 0
+            when activa = true then 1
+            else 2 end,
+            id
+        limit 1
+        """;
+
+    private static final String SQL_TURNO = """
+        select id from turnos
+        order by case
+            when activo = true
+                and (cast(? as bigint) is null or caja_id = ?)
+                and (cast(? as bigint) is null or sucursal_id = ?) then 0
+            when activo = true then 1
+            else 2 end,
+            fecha_apertura desc nulls last,
+            id desc
+        limit 1
+        """;
+
+    /**
+     * Evento de apertura/cierre de caja o turno. sucursalId null invalida todas las sucursales.
+     */
+    public record CambioCajaTurno(Long sucursalId) {}
+
+    private final Cache cajasActivas;
+    private final Cache turnosActivos;
+    private final JdbcTemplate jdbcTemplate;
+
+    public CajaTurnoActivoRegistry(CacheManager cacheManager, JdbcTemplate jdbcTemplate) {
+        this.cajasActivas = cacheManager.getCache("cajas-activas");
+        this.turnosActivos = cacheManager.getCache("turnos-activos");
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Caja activa de la sucursal; si no hay, cualquier caja activa; si no, la primera existente.
+     */
+    public Long cajaActiva(Long sucursalId) {
+        return cajasActivas.get(claveSucursal(sucursalId), () -> cargar("cajas", SQL_CAJA, sucursalId));
+    }
+
+    /**
+     * Turno activo de la caja/sucursal; si no hay, cualquier turno activo; si no, el más reciente.
+     */
+    public Long turnoActivo(Long sucursalId, Long cajaId) {
+        String clave = claveSucursal(sucursalId) + ":caja-" + cajaId;
+        return turnosActivos.get(clave, () -> cargar("turnos", SQL_TURNO, cajaId, cajaId, sucursalId, sucursalId));
+    }
+
+    /**
+     * Invalida la caja y los turnos cacheados de una sucursal (o de todas si es null).
+     */
+    public void invalidar(Long sucursalId) {
+        if (sucursalId == null) {
+            cajasActivas.clear();
+            turnosActivos.clear();
+            return;
+        }
+        cajasActivas.evict(claveSucursal(sucursalId));
+        cajasActivas.evict(claveSucursal(null));
+        // Las claves de turnos incluyen la caja; se limpia el caché completo (es pequeño)
+        turnosActivos.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCambioCajaTurno(CambioCajaTurno evento) {
+        log.debug("Cambio de caja/turno en sucursal {}; invalidando registro", evento.sucursalId());
+        invalidar(evento.sucursalId());
+    }
+
+    private Long cargar(String tabla, String sql, Object... params) {
+        try {
+            List<Long> ids = consultar(sql, params);
+            if (ids != null && !ids.isEmpty()) {
+                return ids.getFirst();
+            }
+            log.warn("No hay registros en tabla '{}'. Usando ID por defecto = {}", tabla, ID_POR_DEFECTO);
+        } catch (Exception e) {
+            log.warn("No se pudo acceder a tabla '{}' ({}). Usando ID por defecto = {} (modo desarrollo H2)",
+                tabla, e.getMessage(), ID_POR_DEFECTO);
+        }
+        return ID_POR_DEFECTO;
+    }
+
+    /**
+     * Consulta con la conexión de la transacción en curso, si hay una, protegida por un
+     * savepoint para que un error no la aborte.
+     */
+    private List<Long> consultar(String sql, Object... params) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return jdbcTemplate.queryForList(sql, Long.class, params);
+        }
+        return jdbcTemplate.execute((ConnectionCallback<List<Long>>) con -> {
+            Savepoint savepoint = con.setSavepoint();
+            try {
+                List<Long> ids = jdbcTemplate.queryForList(sql, Long.class, params);
+                con.releaseSavepoint(savepoint);
+                return ids;
+            } catch (DataAccessException e) {
+                con.rollback(savepoint);
+                throw e;
+            }
+        });
+    }
+
+    private static String claveSucursal(Long sucursalId) {
+        return sucursalId != null ? "sucursal-" + sucursalId : "sucursal-todas";
+    }
+}
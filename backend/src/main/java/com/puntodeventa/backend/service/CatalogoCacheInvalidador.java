@@ -0,0 +1,126 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.repository.RecetaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Invalida en las cachés solo las entradas afectadas por un cambio del catálogo, en lugar
+ * de vaciar la caché completa en cada escritura.
+ *
+ * - {@link MenuCatalogoRegistry.CambioCatalogo} con productos: en "productos" el producto
+ *   (id) y su lista de variantes ('variantes-' + id); en "recetas" la receta del producto y
+ *   las listas por ingrediente donde aparece (muestran el nombre del producto). Un cambio
+ *   general (categorías) vacía "productos", porque cada producto lleva el nombre de su
+ *   categoría.
+ * - {@link CambioRecetas}: en "recetas" las entradas de esos productos e ingredientes.
+ *
+ * Como la foto del menú, se invalida al publicarse el evento y otra vez al terminar la
+ * transacción, para que una lectura concurrente no deje en caché lo anterior al commit.
+ */
+@Slf4j
+@Component
+public class CatalogoCacheInvalidador {
+
+    /**
+     * Cambio en recetas: entradas 'producto-' + id e 'ingrediente-' + id de la caché "recetas".
+     */
+    public record CambioRecetas(Set<Long> productos, Set<Long> ingredientes) {
+
+        public CambioRecetas {
+            productos = sinNulos(productos);
+            ingredientes = sinNulos(ingredientes);
+        }
+
+        public static CambioRecetas de(Long productoId, Long ingredienteId) {
+            return new CambioRecetas(Collections.singleton(productoId), Collections.singleton(ingredienteId));
+        }
+    }
+
+    private final CacheManager cacheManager;
+    private final RecetaRepository recetaRepository;
+
+    public CatalogoCacheInvalidador(CacheManager cacheManager, RecetaRepository recetaRepository) {
+        this.cacheManager = cacheManager;
+        this.recetaRepository = recetaRepository;
+    }
+
+    @EventListener
+    public void onCambioCatalogo(MenuCatalogoRegistry.CambioCatalogo evento) {
+        Cache productos = cacheManager.getCache("productos");
+        if (evento.general()) {
+            invalidar(productos == null ? List.of() : List.of(productos::clear));
+            return;
+        }
+        if (evento.productos().isEmpty()) {
+            return;
+        }
+        List<Runnable> acciones = new ArrayList<>();
+        if (productos != null) {
+            for (Long id : evento.productos()) {
+                acciones.add(() -> productos.evict(id));
+                acciones.add(() -> productos.evict("variantes-" + id));
+            }
+        }
+        agregarRecetas(acciones, new CambioRecetas(evento.productos(),
+                Set.copyOf(recetaRepository.findIngredienteIdsByProductoIdIn(evento.productos()))));
+        invalidar(acciones);
+        log.debug("Caché de productos invalidada para {}", evento.productos());
+    }
+
+    @EventListener
+    public void onCambioRecetas(CambioRecetas evento) {
+        List<Runnable> acciones = new ArrayList<>();
+        agregarRecetas(acciones, evento);
+        invalidar(acciones);
+    }
+
+    private void agregarRecetas(List<Runnable> acciones, CambioRecetas evento) {
+        Cache recetas = cacheManager.getCache("recetas");
+        if (recetas == null) {
+            return;
+        }
+        evento.productos().forEach(id -> acciones.add(() -> recetas.evict("producto-" + id)));
+        evento.ingredientes().forEach(id -> acciones.add(() -> recetas.evict("ingrediente-" + id)));
+    }
+
+    /**
+     * Invalida ya y, dentro de una transacción, otra vez al terminar (las claves se calculan
+     * una sola vez, mientras la transacción sigue abierta).
+     */
+    private static void invalidar(List<Runnable> acciones) {
+        acciones.forEach(Runnable::run);
+        if (!acciones.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public int getOrder() {
+                    // Antes del envío del bus de eventos, que ya incluye estas invalidaciones
+                    return Ordered.LOWEST_PRECEDENCE - 1;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    acciones.forEach(Runnable::run);
+                }
+            });
+        }
+    }
+
+    private static Set<Long> sinNulos(Collection<Long> ids) {
+        return ids == null ? Set.of() : ids.stream().filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -8,6 +8,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -21,9 +22,12 @@ import java.util.stream.Collectors;
 public class CategoriaProductoService {
 
     private final CategoriaProductoRepository categoriaRepository;
+    private final ApplicationEventPublisher eventos;
 
-    public CategoriaProductoService(CategoriaProductoRepository categoriaRepository) {
+    public CategoriaProductoService(CategoriaProductoRepository categoriaRepository,
+            ApplicationEventPublisher eventos) {
         this.categoriaRepository = categoriaRepository;
+        this.eventos = eventos;
     }
 
     // ❌ NO CACHEAR: El filtro activa cambia frecuentemente (soft deletes)
@@ -46,31 +50,44 @@ public class CategoriaProductoService {
         return toDTO(c);
     }
 
-    @CacheEvict(value = "categorias-productos", allEntries = true)
     public CategoriaProductoDTO crear(CategoriaProductoDTO dto) {
         CategoriaProducto c = new CategoriaProducto();
         apply(dto, c);
-        return toDTO(categoriaRepository.save(c));
+        CategoriaProducto guardada = categoriaRepository.save(c);
+        // Categoría nueva: ningún producto la usa todavía
+        eventos.publishEvent(MenuCatalogoRegistry.CambioCatalogo.deProductos());
+        return toDTO(guardada);
     }
 
-    @CacheEvict(value = "categorias-productos", allEntries = true)
+    @CacheEvict(value = "categorias-productos", key = "#id")
     public CategoriaProductoDTO actualizar(Long id, CategoriaProductoDTO dto) {
         CategoriaProducto c = categoriaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Categoría no encontrada con id: " + id));
         apply(dto, c);
-        return toDTO(categoriaRepository.save(c));
+        CategoriaProducto guardada = categoriaRepository.save(c);
+        // El nombre de la categoría forma parte del menú
+        cambioCatalogo();
+        return toDTO(guardada);
     }
 
-    @CacheEvict(value = "categorias-productos", allEntries = true)
+    @CacheEvict(value = "categorias-productos", key = "#id")
     public void eliminar(Long id) {
         CategoriaProducto c = categoriaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Categoría no encontrada con id: " + id));
 
         // Eliminar definitivamente de la BD
         categoriaRepository.deleteById(id);
+        cambioCatalogo();
         log.info("Categoría eliminada permanentemente: {} (ID: {})", c.getNombre(), c.getId());
     }
 
+    /**
+     * Cambio general: cada producto en caché lleva el nombre de su categoría.
+     */
+    private void cambioCatalogo() {
+        eventos.publishEvent(new MenuCatalogoRegistry.CambioCatalogo());
+    }
+
     private void apply(CategoriaProductoDTO dto, CategoriaProducto c) {
         if (dto.nombre() != null)
             c.setNombre(dto.nombre());
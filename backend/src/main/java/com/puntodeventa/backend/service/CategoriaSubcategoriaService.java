@@ -2,6 +2,7 @@ package com.puntodeventa.backend.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -26,6 +27,7 @@ public class CategoriaSubcategoriaService {
 
     private final CategoriaSubcategoriaRepository categoriaSubcategoriaRepository;
     private final CategoriaProductoRepository categoriaProductoRepository;
+    private final ApplicationEventPublisher eventos;
 
     /**
      * Obtener todas las subcategorías activas de una categoría.
@@ -93,6 +95,7 @@ public class CategoriaSubcategoriaService {
                 .build();
 
         CategoriaSubcategoria guardada = categoriaSubcategoriaRepository.save(entity);
+        cambioCatalogo();
         log.info("✅ Subcategoría creada exitosamente: {}", guardada.getId());
 
         return convertToDTO(guardada);
@@ -120,6 +123,7 @@ public class CategoriaSubcategoriaService {
         entity.setActiva(dto.activa() != null ? dto.activa() : true);
 
         CategoriaSubcategoria actualizada = categoriaSubcategoriaRepository.save(entity);
+        cambioCatalogo();
         log.info("✅ Subcategoría actualizada exitosamente: {}", id);
 
         return convertToDTO(actualizada);
@@ -136,10 +140,19 @@ public class CategoriaSubcategoriaService {
 
         // Eliminar definitivamente de la BD
         categoriaSubcategoriaRepository.deleteById(id);
+        cambioCatalogo();
 
         log.info("✅ Subcategoría eliminada permanentemente: {}", id);
     }
 
+    /**
+     * Las subcategorías forman parte del catálogo (ETag de los endpoints de catálogo), pero
+     * no de los productos: no se invalida ningún producto en caché.
+     */
+    private void cambioCatalogo() {
+        eventos.publishEvent(MenuCatalogoRegistry.CambioCatalogo.deProductos());
+    }
+
     /**
      * Convertir entidad a DTO.
      */
@@ -0,0 +1,387 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.projection.RenglonCostoFila;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.model.ProductoCostoHistorico;
+import com.puntodeventa.backend.repository.ProductoCostoHistoricoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import com.puntodeventa.backend.repository.RecetaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Motor de costos de recetas.
+ *
+ * Mantiene en memoria los renglones de todas las recetas (cantidad ya convertida a la
+ * unidad base del ingrediente, con la merma), el índice inverso ingrediente → productos y
+ * el costo de cada producto, calculado una vez y reutilizado. Al cambiar el costo unitario
+ * de ingredientes se recalculan solo los productos que los usan, en un lote; al cambiar una
+ * receta, el producto de esa receta. En ambos casos se actualiza su costoEstimado y se
+ * agrega un renglón a producto_costo_historico por producto.
+ *
+ * costoEstimado sigue a la receta mientras el producto no tenga histórico (productos
+ * anteriores al motor, variantes que copian el costo del base) o sea igual al último costo
+ * calculado (el último renglón del histórico); uno cambiado a mano después de un cálculo
+ * (edición del producto, importación) no se sobrescribe.
+ *
+ * Los cambios se ven de inmediato solo dentro de la transacción que los hace (con un
+ * modelo ligado a ella); los demás hilos siguen con el modelo confirmado hasta el commit.
+ * Entonces un cambio de costos pone su modelo nuevo y un cambio de recetas descarta el
+ * modelo (se vuelve a cargar con una consulta en el siguiente uso). Los demás nodos lo
+ * descartan por el {@link BusEventos} (tipo "costos").
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class CostoRecetaService {
+
+    /** Fuente del histórico para los recálculos por cambio de costo de ingredientes. */
+    public static final String FUENTE_COSTO_INGREDIENTE = "RECETA_COSTO_INGREDIENTE";
+
+    /** Fuente del histórico para los recálculos por cambio de receta. */
+    public static final String FUENTE_RECETA = "RECETA_MODIFICADA";
+
+    private static final String TIPO = "costos";
+
+    /**
+     * Renglón de receta: ingrediente y cantidad en su unidad base (con la merma), más la
+     * cantidad tal como está en la receta para los consumos.
+     */
+    private record Renglon(Long ingredienteId, BigDecimal cantidadBase,
+                           Long unidadId, BigDecimal cantidad, BigDecimal factorBase) {
+    }
+
+    /**
+     * Consumo de un ingrediente por unidad vendida del producto, en la unidad de la receta
+     * (sin la merma teórica), con el costo unitario en esa unidad.
+     */
+    public record Consumo(Long ingredienteId, Long unidadId, BigDecimal cantidad, BigDecimal factorBase,
+                          BigDecimal costoUnitario) {
+    }
+
+    /**
+     * Recetas y costos de una versión. Renglones e índice no cambian; un cambio de costos
+     * crea otro modelo con los nuevos costos de ingredientes y productos.
+     */
+    private record Modelo(long version,
+                          Map<Long, List<Renglon>> renglones,
+                          Map<Long, Set<Long>> productosPorIngrediente,
+                          Map<Long, BigDecimal> costoIngrediente,
+                          Map<Long, BigDecimal> costoProducto) {
+
+        BigDecimal costo(Long productoId) {
+            return costoProducto.computeIfAbsent(productoId, id -> costo(id, Map.of()));
+        }
+
+        /** Costo del producto con costos de ingrediente que reemplazan a los del modelo. */
+        BigDecimal costo(Long productoId, Map<Long, BigDecimal> nuevosCostos) {
+            BigDecimal total = BigDecimal.ZERO;
+            for (Renglon r : renglones.getOrDefault(productoId, List.of())) {
+                BigDecimal costoUnitario = nuevosCostos.getOrDefault(r.ingredienteId(),
+                        costoIngrediente.get(r.ingredienteId()));
+                total = total.add(r.cantidadBase().multiply(costoUnitario));
+            }
+            return total;
+        }
+
+        Modelo con(Map<Long, BigDecimal> nuevosCostos, Map<Long, BigDecimal> nuevosProductos) {
+            Map<Long, BigDecimal> ingredientes = new HashMap<>(costoIngrediente);
+            ingredientes.putAll(nuevosCostos);
+            Map<Long, BigDecimal> productos = new ConcurrentHashMap<>(costoProducto);
+            productos.putAll(nuevosProductos);
+            return new Modelo(version, renglones, productosPorIngrediente, Map.copyOf(ingredientes), productos);
+        }
+    }
+
+    private final RecetaRepository recetaRepository;
+    private final ProductoRepository productoRepository;
+    private final ProductoCostoHistoricoRepository historicoRepository;
+    private final ApplicationEventPublisher eventos;
+    private final BusEventos bus;
+
+    private final AtomicLong version = new AtomicLong(1);
+    private volatile Modelo modelo;
+
+    public CostoRecetaService(RecetaRepository recetaRepository, ProductoRepository productoRepository,
+                              ProductoCostoHistoricoRepository historicoRepository,
+                              ApplicationEventPublisher eventos, BusEventos bus) {
+        this.recetaRepository = recetaRepository;
+        this.productoRepository = productoRepository;
+        this.historicoRepository = historicoRepository;
+        this.eventos = eventos;
+        this.bus = bus;
+        bus.suscribir(TIPO, carga -> version.incrementAndGet());
+    }
+
+    /**
+     * Costo estándar del producto según su receta (cero si no tiene).
+     */
+    public BigDecimal costo(Long productoId) {
+        return modelo().costo(productoId);
+    }
+
+    /**
+     * Ingredientes que consume una unidad vendida del producto (vacío si no tiene receta).
+     */
+    public List<Consumo> consumo(Long productoId) {
+        Modelo m = modelo();
+        List<Renglon> renglones = m.renglones().getOrDefault(productoId, List.of());
+        List<Consumo> consumo = new ArrayList<>(renglones.size());
+        for (Renglon r : renglones) {
+            consumo.add(new Consumo(r.ingredienteId(), r.unidadId(), r.cantidad(), r.factorBase(),
+                    m.costoIngrediente().get(r.ingredienteId()).multiply(r.factorBase())));
+        }
+        return consumo;
+    }
+
+    /**
+     * Productos cuya receta usa el ingrediente.
+     */
+    public Set<Long> productosConIngrediente(Long ingredienteId) {
+        return modelo().productosPorIngrediente().getOrDefault(ingredienteId, Set.of());
+    }
+
+    /**
+     * Recalcula, con los nuevos costos unitarios base, los productos que usan alguno de los
+     * ingredientes: actualiza su costoEstimado (si sigue a la receta) y agrega su renglón al
+     * histórico.
+     *
+     * @param nuevosCostos costo unitario base por ingrediente
+     * @return ids de los productos recalculados
+     */
+    @Transactional
+    public Set<Long> recalcularPorIngredientes(Map<Long, BigDecimal> nuevosCostos, String fuente) {
+        Modelo m = modelo();
+        Set<Long> afectados = new TreeSet<>();
+        nuevosCostos.keySet().forEach(id -> afectados.addAll(m.productosPorIngrediente().getOrDefault(id, Set.of())));
+        if (afectados.isEmpty()) {
+            return afectados;
+        }
+
+        Map<Long, BigDecimal> nuevos = new HashMap<>();
+        afectados.forEach(id -> nuevos.put(id, m.costo(id, nuevosCostos)));
+
+        int actualizados = actualizarProductos(nuevos, fuente);
+        bus.publicar(TIPO, "");
+        aplicar(m, nuevosCostos, nuevos);
+        log.info("Costos recalculados: {} ingredientes, {} productos ({} con costo propio)", nuevosCostos.size(),
+                afectados.size(), afectados.size() - actualizados);
+        return afectados;
+    }
+
+    /**
+     * La receta del producto cambió: descarta el modelo como {@link #recetasModificadas()} y
+     * recalcula el costo del producto con la receta nueva (costoEstimado e histórico). Si
+     * ya no tiene receta, su costo se deja como está.
+     */
+    @Transactional
+    public void recetasModificadas(Long productoId) {
+        recetasModificadas();
+        Modelo m = modelo();
+        if (m.renglones().containsKey(productoId)) {
+            actualizarProductos(Map.of(productoId, m.costo(productoId)), FUENTE_RECETA);
+        }
+    }
+
+    /**
+     * Recetas modificadas sin pasar por {@link RecetaService}: la transacción recarga su
+     * propio modelo (ve su cambio) y el compartido se descarta al terminar.
+     */
+    public void recetasModificadas() {
+        bus.publicar(TIPO, "");
+        ModeloTransaccion enTransaccion = enTransaccion();
+        if (enTransaccion == null) {
+            version.incrementAndGet();
+            return;
+        }
+        enTransaccion.modelo = null;
+        enTransaccion.descartar = true;
+    }
+
+    /**
+     * Escribe los nuevos costos en costoEstimado y el histórico, con una consulta por tabla y
+     * los renglones en lote. Se omiten los productos cuyo costo se cambió a mano después del
+     * último cálculo; todos tienen receta, así que sin histórico siguen a la receta.
+     *
+     * @return productos actualizados
+     */
+    private int actualizarProductos(Map<Long, BigDecimal> nuevos, String fuente) {
+        Map<Long, BigDecimal> ultimos = new HashMap<>();
+        historicoRepository.findUltimosCostos(nuevos.keySet()).forEach(f -> ultimos.put(f.productoId(), f.costo()));
+
+        LocalDateTime ahora = LocalDateTime.now();
+        List<ProductoCostoHistorico> historico = new ArrayList<>(nuevos.size());
+        Set<Long> actualizados = new TreeSet<>();
+        for (Producto p : productoRepository.findAllById(nuevos.keySet())) {
+            BigDecimal ultimo = ultimos.get(p.getId());
+            if (p.getCostoEstimado() != null && ultimo != null && ultimo.compareTo(p.getCostoEstimado()) != 0) {
+                continue;
+            }
+            BigDecimal costo = nuevos.get(p.getId()).setScale(4, RoundingMode.HALF_UP);
+            p.setCostoEstimado(costo);
+            historico.add(historico(p, costo, ahora, fuente));
+            actualizados.add(p.getId());
+        }
+        historicoRepository.saveAll(historico);
+        if (!actualizados.isEmpty()) {
+            eventos.publishEvent(MenuCatalogoRegistry.CambioCatalogo.deProductos(actualizados));
+        }
+        return actualizados.size();
+    }
+
+    /**
+     * La transacción pasa ya a los nuevos costos; el modelo compartido, al confirmarse.
+     */
+    private void aplicar(Modelo m, Map<Long, BigDecimal> nuevosCostos, Map<Long, BigDecimal> nuevos) {
+        Modelo nuevo = m.con(nuevosCostos, nuevos);
+        ModeloTransaccion enTransaccion = enTransaccion();
+        if (enTransaccion == null) {
+            reemplazar(m, nuevo);
+            return;
+        }
+        if (enTransaccion.anterior == null) {
+            enTransaccion.anterior = m;
+        }
+        enTransaccion.modelo = nuevo;
+    }
+
+    /**
+     * Modelo de la transacción actual, creado al primer cambio; al terminar se desliga y,
+     * si se confirmó, pasa al modelo compartido. Null fuera de una transacción.
+     */
+    private ModeloTransaccion enTransaccion() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+        ModeloTransaccion actual = (ModeloTransaccion) TransactionSynchronizationManager.getResource(this);
+        if (actual != null) {
+            return actual;
+        }
+        ModeloTransaccion nuevo = new ModeloTransaccion();
+        TransactionSynchronizationManager.bindResource(this, nuevo);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CostoRecetaService.this);
+                if (status != STATUS_COMMITTED) {
+                    return;
+                }
+                if (nuevo.descartar) {
+                    version.incrementAndGet();
+                } else if (nuevo.modelo != null) {
+                    reemplazar(nuevo.anterior, nuevo.modelo);
+                }
+            }
+        });
+        return nuevo;
+    }
+
+    private synchronized void reemplazar(Modelo anterior, Modelo nuevo) {
+        if (modelo == anterior && anterior.version() == version.get()) {
+            modelo = nuevo;
+        } else {
+            version.incrementAndGet();
+        }
+    }
+
+    private Modelo modelo() {
+        ModeloTransaccion enTransaccion = TransactionSynchronizationManager.isSynchronizationActive()
+                ? (ModeloTransaccion) TransactionSynchronizationManager.getResource(this) : null;
+        if (enTransaccion != null) {
+            if (enTransaccion.modelo == null) {
+                // Recetas cambiadas en la transacción: su modelo incluye lo aún no confirmado
+                enTransaccion.modelo = cargar(version.get());
+            }
+            return enTransaccion.modelo;
+        }
+        long actual = version.get();
+        Modelo m = modelo;
+        if (m != null && m.version() == actual) {
+            return m;
+        }
+        synchronized (this) {
+            actual = version.get();
+            m = modelo;
+            if (m == null || m.version() != actual) {
+                m = cargar(actual);
+                modelo = m;
+            }
+            return m;
+        }
+    }
+
+    /** Modelo con los cambios de una transacción aún sin confirmar. */
+    private static final class ModeloTransaccion {
+        /** Compartido del que parten los cambios de costos (null si la transacción no los hizo). */
+        Modelo anterior;
+        Modelo modelo;
+        /** Se cambiaron recetas: al confirmar se descarta el compartido. */
+        boolean descartar;
+    }
+
+    private Modelo cargar(long version) {
+        Map<Long, List<Renglon>> renglones = new HashMap<>();
+        Map<Long, Set<Long>> productosPorIngrediente = new HashMap<>();
+        Map<Long, BigDecimal> costoIngrediente = new HashMap<>();
+        for (RenglonCostoFila f : recetaRepository.findRenglonesCosto()) {
+            renglones.computeIfAbsent(f.productoId(), id -> new ArrayList<>())
+                    .add(new Renglon(f.ingredienteId(), cantidadBase(f), f.unidadId(), f.cantidad(), f.factorBase()));
+            productosPorIngrediente.computeIfAbsent(f.ingredienteId(), id -> new TreeSet<>()).add(f.productoId());
+            costoIngrediente.put(f.ingredienteId(), f.costoUnitarioBase());
+        }
+        renglones.replaceAll((id, lista) -> List.copyOf(lista));
+        productosPorIngrediente.replaceAll((id, productos) -> Set.copyOf(productos));
+        log.debug("Modelo de costos cargado: versión {}, {} productos con receta, {} ingredientes",
+                version, renglones.size(), costoIngrediente.size());
+        return new Modelo(version, Map.copyOf(renglones), Map.copyOf(productosPorIngrediente),
+                Map.copyOf(costoIngrediente), new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Cantidad en la unidad base del ingrediente: cantidad / (1 - merma) * factor de la unidad.
+     */
+    private static BigDecimal cantidadBase(RenglonCostoFila f) {
+        BigDecimal merma = f.mermaTeorica() != null ? f.mermaTeorica() : BigDecimal.ZERO;
+        BigDecimal cantidadReal = merma.compareTo(BigDecimal.ONE) < 0
+                ? f.cantidad().divide(BigDecimal.ONE.subtract(merma), 6, RoundingMode.HALF_UP)
+                : f.cantidad();
+        return cantidadReal.multiply(f.factorBase());
+    }
+
+    private static ProductoCostoHistorico historico(Producto p, BigDecimal costo, LocalDateTime fecha, String fuente) {
+        BigDecimal margen = null;
+        BigDecimal margenPct = null;
+        if (p.getPrecio() != null) {
+            margen = p.getPrecio().subtract(costo).setScale(4, RoundingMode.HALF_UP);
+            if (p.getPrecio().compareTo(BigDecimal.ZERO) > 0) {
+                margenPct = margen.divide(p.getPrecio(), 4, RoundingMode.HALF_UP)
+                        .multiply(BigDecimal.valueOf(100)).setScale(2, RoundingMode.HALF_UP);
+            }
+        }
+        return ProductoCostoHistorico.builder()
+                .producto(p)
+                .costo(costo)
+                .precio(p.getPrecio())
+                .margenAbsoluto(margen)
+                .margenPorcentaje(margenPct)
+                .fechaCalculo(fecha)
+                .fuente(fuente)
+                .build();
+    }
+}
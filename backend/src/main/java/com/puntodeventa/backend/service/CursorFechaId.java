@@ -0,0 +1,37 @@
+package com.puntodeventa.backend.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Posición en un listado paginado por cursor (keyset) sobre (fecha, id) descendente: última
+ * (fecha, id) entregada. Se serializa en Base64 URL-safe.
+ */
+record CursorFechaId(LocalDateTime fecha, Long id) {
+
+    /** Antes de la primera página: mayor que cualquier (fecha, id). */
+    static final CursorFechaId INICIO = new CursorFechaId(LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    String codificar() {
+        String plano = fecha + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(plano.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor cursor recibido, o null/vacío para la primera página
+     */
+    static CursorFechaId decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return INICIO;
+        }
+        try {
+            String plano = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = plano.lastIndexOf('|');
+            return new CursorFechaId(LocalDateTime.parse(plano.substring(0, separador)),
+                Long.valueOf(plano.substring(separador + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cursor de paginación inválido: " + cursor);
+        }
+    }
+}
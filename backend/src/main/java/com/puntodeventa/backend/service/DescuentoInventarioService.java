@@ -0,0 +1,287 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.config.ProgramacionConfig;
+import com.puntodeventa.backend.dto.projection.ConsumoVentaFila;
+import com.puntodeventa.backend.model.DescuentoInventarioPendiente;
+import com.puntodeventa.backend.model.StockIngrediente;
+import com.puntodeventa.backend.repository.DescuentoInventarioPendienteRepository;
+import com.puntodeventa.backend.repository.VentaItemRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Descuento de inventario por recetas de las ventas, fuera de la transacción del cajero.
+ *
+ * La venta solo inserta su fila en inventario_descuentos_pendientes (outbox). Un hilo en
+ * segundo plano toma lotes de pendientes y, en una transacción por lote, borra las filas
+ * (si otro nodo ya las borró no cuentan), expande las recetas con el modelo en memoria de
+ * {@link CostoRecetaService}, reparte los consumos entre los lotes por caducidad con
+ * {@link LoteInventarioService#asignar(List)} (una consulta para todo el lote de ventas),
+ * inserta los movimientos EGRESO (uno por lote tomado) en un lote JDBC y aplica a
+ * stock_ingredientes un UPDATE por ingrediente/sucursal. Borrar la fila e insertar los
+ * movimientos se confirman juntos: cada venta se descuenta una sola vez.
+ *
+ * El descuento corre en el programador de la aplicación al confirmarse una venta y cada
+ * inventario.descuento.intervalo desde que termina el arranque (0 = nunca; los tests
+ * llaman a {@link #procesarPendientes()}), una sola pasada a la vez por nodo.
+ */
+@Slf4j
+@Service
+public class DescuentoInventarioService {
+
+    /** Intentos fallidos tras los que una venta deja de procesarse. */
+    static final int MAX_INTENTOS = 5;
+
+    private static final String RECLAMAR = "DELETE FROM inventario_descuentos_pendientes WHERE id = ?";
+
+    private static final String INSERTAR_MOVIMIENTO = """
+        INSERT INTO inventario_movimientos (ingrediente_id, tipo, cantidad, unidad_id, costo_unitario, costo_total,
+                                            fecha, ref_tipo, ref_id, nota, sucursal_id, lote, caducidad)
+        VALUES (?, 'EGRESO', ?, ?, ?, ?, ?, 'venta', ?, ?, ?, ?, ?)
+        """;
+
+    /** Tipos de los parámetros (sucursal_id, lote y caducidad pueden ser null). */
+    private static final int[] TIPOS_MOVIMIENTO = {Types.BIGINT, Types.NUMERIC, Types.BIGINT, Types.NUMERIC,
+        Types.NUMERIC, Types.TIMESTAMP, Types.BIGINT, Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.DATE};
+
+    private final DescuentoInventarioPendienteRepository pendienteRepository;
+    private final VentaItemRepository ventaItemRepository;
+    private final CostoRecetaService costoRecetaService;
+    private final StockIngredienteService stockService;
+    private final LoteInventarioService loteService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaccion;
+    private final TransactionTemplate nuevaTransaccion;
+    private final int tamanoLote;
+    private final TaskScheduler programador;
+    private final Duration intervalo;
+    private final AtomicBoolean despierto = new AtomicBoolean();
+    private final AtomicBoolean procesando = new AtomicBoolean();
+    private final AtomicBoolean otraPasada = new AtomicBoolean();
+
+    public DescuentoInventarioService(DescuentoInventarioPendienteRepository pendienteRepository,
+                                      VentaItemRepository ventaItemRepository,
+                                      CostoRecetaService costoRecetaService,
+                                      StockIngredienteService stockService,
+                                      LoteInventarioService loteService,
+                                      JdbcTemplate jdbcTemplate,
+                                      PlatformTransactionManager transactionManager,
+                                      @Qualifier(ProgramacionConfig.PROGRAMADOR) TaskScheduler programador,
+                                      @Value("${inventario.descuento.intervalo:2s}") Duration intervalo,
+                                      @Value("${inventario.descuento.lote:100}") int tamanoLote) {
+        this.pendienteRepository = pendienteRepository;
+        this.ventaItemRepository = ventaItemRepository;
+        this.costoRecetaService = costoRecetaService;
+        this.stockService = stockService;
+        this.loteService = loteService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion = new TransactionTemplate(transactionManager);
+        this.nuevaTransaccion.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tamanoLote = tamanoLote;
+        this.programador = programador;
+        this.intervalo = intervalo;
+    }
+
+    /**
+     * Programa la revisión periódica de pendientes (si inventario.descuento.intervalo no es 0).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void programar() {
+        if (!intervalo.isZero()) {
+            programador.scheduleWithFixedDelay(this::procesarSeguro, Instant.now().plus(intervalo), intervalo);
+        }
+    }
+
+    /**
+     * Deja la venta pendiente de descontar, en la transacción que la guarda; al confirmarse
+     * despierta al hilo de descuento.
+     */
+    @Transactional
+    public void encolar(Long ventaId) {
+        pendienteRepository.save(DescuentoInventarioPendiente.builder()
+            .ventaId(ventaId)
+            .creadoEn(LocalDateTime.now())
+            .build());
+        if (!intervalo.isZero() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    despertar();
+                }
+            });
+        }
+    }
+
+    /**
+     * Quita la venta de la cola antes de cancelarla, editarla o eliminarla.
+     *
+     * @return true si aún no se había descontado (no hay movimientos que revertir)
+     */
+    @Transactional
+    public boolean descartar(Long ventaId) {
+        return pendienteRepository.deleteByVentaId(ventaId) > 0;
+    }
+
+    /**
+     * Descuenta las ventas pendientes, por lotes, hasta vaciar la cola.
+     *
+     * @return ventas descontadas
+     */
+    public int procesarPendientes() {
+        int descontadas = 0;
+        while (true) {
+            List<DescuentoInventarioPendiente> lote = pendienteRepository.findPendientes(MAX_INTENTOS,
+                Limit.of(tamanoLote));
+            if (lote.isEmpty()) {
+                return descontadas;
+            }
+            int n = procesar(lote);
+            descontadas += n;
+            if (n == 0 || lote.size() < tamanoLote) {
+                return descontadas;
+            }
+        }
+    }
+
+    private void despertar() {
+        if (despierto.compareAndSet(false, true)) {
+            programador.schedule(() -> {
+                despierto.set(false);
+                procesarSeguro();
+            }, Instant.now());
+        }
+    }
+
+    /**
+     * Una pasada a la vez: si ya hay una en curso, esta la repite al terminar en lugar de
+     * ocupar otro hilo del programador.
+     */
+    private void procesarSeguro() {
+        otraPasada.set(true);
+        while (otraPasada.get() && procesando.compareAndSet(false, true)) {
+            try {
+                otraPasada.set(false);
+                int descontadas = procesarPendientes();
+                if (descontadas > 0) {
+                    log.debug("Inventario descontado de {} ventas", descontadas);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Error descontando inventario de ventas pendientes: {}", e.getMessage());
+            } finally {
+                procesando.set(false);
+            }
+        }
+    }
+
+    /**
+     * Un lote en una transacción; si falla se reintenta venta por venta para que una
+     * venta con problemas no detenga a las demás.
+     */
+    private int procesar(List<DescuentoInventarioPendiente> lote) {
+        try {
+            return transaccion.execute(status -> descontar(lote));
+        } catch (RuntimeException e) {
+            if (lote.size() > 1) {
+                log.warn("Lote de {} descuentos de inventario fallido ({}); se procesan uno por uno",
+                    lote.size(), e.getMessage());
+                int descontadas = 0;
+                for (DescuentoInventarioPendiente pendiente : lote) {
+                    descontadas += procesar(List.of(pendiente));
+                }
+                return descontadas;
+            }
+            DescuentoInventarioPendiente pendiente = lote.getFirst();
+            log.error("No se pudo descontar el inventario de la venta {} (intento {}): {}",
+                pendiente.getVentaId(), pendiente.getIntentos() + 1, e.getMessage());
+            nuevaTransaccion.executeWithoutResult(status ->
+                pendienteRepository.registrarFallo(pendiente.getId(), e.getMessage()));
+            return 0;
+        }
+    }
+
+    private int descontar(List<DescuentoInventarioPendiente> lote) {
+        // Reclamar: la fila borrada aquí es de esta transacción; 0 = otro nodo ya la tomó o se descartó
+        int[] borradas = jdbcTemplate.batchUpdate(RECLAMAR,
+            lote.stream().map(p -> new Object[]{p.getId()}).toList());
+        Set<Long> ventaIds = new LinkedHashSet<>();
+        for (int i = 0; i < borradas.length; i++) {
+            if (borradas[i] > 0) {
+                ventaIds.add(lote.get(i).getVentaId());
+            }
+        }
+        if (ventaIds.isEmpty()) {
+            return 0;
+        }
+
+        List<ConsumoVenta> consumos = new ArrayList<>();
+        List<LoteInventarioService.Salida> salidas = new ArrayList<>();
+        // En orden de ingrediente/sucursal, para que dos lotes concurrentes bloqueen las filas en el mismo orden
+        Map<Clave, BigDecimal> stock = new TreeMap<>(
+            Comparator.comparing(Clave::ingredienteId).thenComparing(Clave::sucursalId));
+        for (ConsumoVentaFila fila : ventaItemRepository.findConsumoByVentaIds(ventaIds)) {
+            BigDecimal vendidos = BigDecimal.valueOf(fila.cantidad());
+            for (CostoRecetaService.Consumo c : costoRecetaService.consumo(fila.productoId())) {
+                BigDecimal cantidad = c.cantidad().multiply(vendidos);
+                Long sucursal = fila.sucursalId() != null ? fila.sucursalId() : StockIngrediente.SIN_SUCURSAL;
+                consumos.add(new ConsumoVenta(fila, c));
+                salidas.add(new LoteInventarioService.Salida(c.ingredienteId(), sucursal, cantidad, c.factorBase()));
+                stock.merge(new Clave(c.ingredienteId(), sucursal), cantidad.multiply(c.factorBase()).negate(),
+                    BigDecimal::add);
+            }
+        }
+
+        List<Object[]> movimientos = new ArrayList<>();
+        for (LoteInventarioService.Porcion porcion : loteService.asignar(salidas)) {
+            ConsumoVenta consumo = consumos.get(porcion.salida());
+            ConsumoVentaFila fila = consumo.fila();
+            BigDecimal costoUnitario = consumo.receta().costoUnitario().setScale(6, RoundingMode.HALF_UP);
+            movimientos.add(new Object[]{
+                consumo.receta().ingredienteId(), porcion.cantidad(), consumo.receta().unidadId(), costoUnitario,
+                porcion.cantidad().multiply(costoUnitario).setScale(6, RoundingMode.HALF_UP), fila.fecha(),
+                fila.ventaId(), "Consumo automático por venta #" + fila.ventaId(), fila.sucursalId(),
+                porcion.lote(), porcion.caducidad()
+            });
+        }
+        jdbcTemplate.batchUpdate(INSERTAR_MOVIMIENTO, movimientos, TIPOS_MOVIMIENTO);
+        stock.forEach((clave, cantidad) -> stockService.sumar(clave.ingredienteId(), clave.sucursalId(), cantidad));
+        log.debug("Descuento de inventario: {} ventas, {} movimientos, {} existencias", ventaIds.size(),
+            movimientos.size(), stock.size());
+        return ventaIds.size();
+    }
+
+    private record Clave(Long ingredienteId, Long sucursalId) {
+    }
+
+    /** Un ingrediente de la receta de un producto vendido, pendiente de asignar a lotes. */
+    private record ConsumoVenta(ConsumoVentaFila fila, CostoRecetaService.Consumo receta) {
+    }
+}
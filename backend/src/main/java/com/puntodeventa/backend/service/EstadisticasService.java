@@ -1,12 +1,13 @@
 package com.puntodeventa.backend.service;
 
+import com.puntodeventa.backend.dto.DesglosePagoDTO;
+import com.puntodeventa.backend.dto.EstadisticasDiaDTO;
 import com.puntodeventa.backend.dto.ProductoRendimientoDTO;
 import com.puntodeventa.backend.dto.ResumenVentasDiaDTO;
-import com.puntodeventa.backend.dto.aggregate.ResumenVentasAggregate;
+import com.puntodeventa.backend.dto.aggregate.ResumenDiarioAggregate;
 import com.puntodeventa.backend.dto.aggregate.ProductoRendimientoAggregate;
-import com.puntodeventa.backend.repository.VentaRepository;
 import com.puntodeventa.backend.repository.VentaItemRepository;
-import com.puntodeventa.backend.repository.GastoRepository;
+import com.puntodeventa.backend.repository.VentaRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,14 +25,15 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class EstadisticasService {
 
-    private final VentaRepository ventaRepository;
     private final VentaItemRepository ventaItemRepository;
-    private final GastoRepository gastoRepository;
+    private final ResumenDiarioService resumenDiarioService;
+    private final VentaRepository ventaRepository;
 
-    public EstadisticasService(VentaRepository ventaRepository, VentaItemRepository ventaItemRepository, GastoRepository gastoRepository) {
-        this.ventaRepository = ventaRepository;
+    public EstadisticasService(VentaItemRepository ventaItemRepository, ResumenDiarioService resumenDiarioService,
+                               VentaRepository ventaRepository) {
         this.ventaItemRepository = ventaItemRepository;
-        this.gastoRepository = gastoRepository;
+        this.resumenDiarioService = resumenDiarioService;
+        this.ventaRepository = ventaRepository;
     }
 
     public ResumenVentasDiaDTO resumenDia(LocalDate fecha) {
@@ -41,15 +43,35 @@ public class EstadisticasService {
     }
 
     public ResumenVentasDiaDTO resumenRango(LocalDateTime desde, LocalDateTime hasta, LocalDate fechaRepresentativa) {
-        ResumenVentasAggregate agg = ventaRepository.aggregateResumen(desde, hasta);
+        // Días completos desde resumen_diario; fracciones de día desde ventas/gastos
+        return resumen(resumenDiarioService.resumenRango(desde, hasta), fechaRepresentativa);
+    }
+
+    public ResumenVentasDiaDTO resumenDiaSucursal(LocalDate fecha, Long sucursalId) {
+        return resumen(resumenDiarioService.resumenDiaSucursal(fecha, sucursalId), fecha);
+    }
+
+    /**
+     * Resumen del día y desglose por método de pago, global (sucursalId null) o de una sucursal.
+     */
+    public EstadisticasDiaDTO estadisticasDia(LocalDate fecha, Long sucursalId) {
+        LocalDateTime inicio = fecha.atStartOfDay();
+        LocalDateTime fin = fecha.atTime(LocalTime.MAX);
+        ResumenVentasDiaDTO resumen = sucursalId != null ? resumenDiaSucursal(fecha, sucursalId) : resumenDia(fecha);
+        List<Object[]> desglose = sucursalId != null
+                ? ventaRepository.sumByMetodoPagoAndSucursal(inicio, fin, sucursalId)
+                : ventaRepository.sumByMetodoPago(inicio, fin);
+        return new EstadisticasDiaDTO(resumen, desglose.stream()
+                .map(row -> new DesglosePagoDTO((String) row[0], (BigDecimal) row[1]))
+                .toList());
+    }
+
+    private ResumenVentasDiaDTO resumen(ResumenDiarioAggregate agg, LocalDate fechaRepresentativa) {
         BigDecimal totalVentas = agg.totalVentas();
         BigDecimal totalCostosProductos = agg.totalCostos();
         
-        // Sumar SOLO gastos OPERACIONALES del período (NO administrativos)
-        BigDecimal totalGastos = gastoRepository.sumMontoByTipoGastoAndFechaBetween("Operacional", desde, hasta);
-        if (totalGastos == null) {
-            totalGastos = BigDecimal.ZERO;
-        }
+        // SOLO gastos OPERACIONALES del período (NO administrativos)
+        BigDecimal totalGastos = agg.gastosOperacionales();
         
         // Total de costos = costos de productos + gastos operativos
         BigDecimal totalCostos = totalCostosProductos.add(totalGastos);
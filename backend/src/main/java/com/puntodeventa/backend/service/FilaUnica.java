@@ -0,0 +1,61 @@
+package com.puntodeventa.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Savepoint;
+
+/**
+ * Alta de la fila de un acumulado (resumen_diario, stock_ingredientes, stock_lotes) la
+ * primera vez que se toca su clave única, con la conexión de la transacción en curso.
+ *
+ * El INSERT corre dentro de un savepoint JDBC: si otra transacción creó la misma fila
+ * primero, la violación de la clave única se deshace hasta el savepoint y la transacción
+ * sigue (en PostgreSQL un error sin savepoint la abortaría). Así no se toma una segunda
+ * conexión del pool con REQUIRES_NEW mientras la primera sigue ocupada.
+ */
+@Slf4j
+@Component
+public class FilaUnica {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FilaUnica(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Ejecuta el INSERT de la fila; si ya existía, no hace nada.
+     *
+     * @return true si esta llamada creó la fila
+     */
+    public boolean insertarSiFalta(String sql, Object... params) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return insertar(sql, params);
+        }
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            Savepoint savepoint = con.setSavepoint();
+            boolean creada = insertar(sql, params);
+            if (creada) {
+                con.releaseSavepoint(savepoint);
+            } else {
+                con.rollback(savepoint);
+            }
+            return creada;
+        }));
+    }
+
+    private boolean insertar(String sql, Object... params) {
+        try {
+            jdbcTemplate.update(sql, params);
+            return true;
+        } catch (DuplicateKeyException e) {
+            log.debug("Fila ya creada por otra transacción: {}", e.getMostSpecificCause().getMessage());
+            return false;
+        }
+    }
+}
@@ -29,6 +29,7 @@ public class GastoService {
     private final MetodoPagoRepository metodoPagoRepository;
     private final UsuarioRepository usuarioRepository;
     private final WebSocketNotificationService notificationService;
+    private final ResumenDiarioService resumenDiarioService;
     
     public List<GastoDTO> obtenerTodos() {
         return gastoRepository.findAll().stream()
@@ -108,6 +109,7 @@ public class GastoService {
         }
         
         Gasto guardado = gastoRepository.save(gasto);
+        resumenDiarioService.sumar(resumenDiarioService.aporteGasto(guardado));
         GastoDTO gastoDTO = toDTO(guardado);
         
         // Notificar creación de gasto en tiempo real (después del commit)
@@ -124,7 +126,7 @@ public class GastoService {
                     
                     long inicioNotif = System.currentTimeMillis();
                     if (notificationService != null) {
-                        notificationService.notificarEstadisticasActualizadas();
+                        notificationService.notificarEstadisticasActualizadas(gastoDTO.sucursalId());
                         long tiempoNotif = System.currentTimeMillis() - inicioNotif;
                         org.slf4j.LoggerFactory.getLogger(GastoService.class)
                             .info("Notificación WebSocket enviada para gasto {}. Tiempo notificación: {}ms", 
@@ -141,6 +143,7 @@ public class GastoService {
     public void eliminar(Long id) {
         Gasto gasto = gastoRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Gasto no encontrado con id: " + id));
+        resumenDiarioService.restar(resumenDiarioService.aporteGasto(gasto));
         gastoRepository.delete(gasto);
     }
     
@@ -148,6 +151,7 @@ public class GastoService {
     public GastoDTO actualizar(Long id, CrearGastoRequest request) {
         Gasto gasto = gastoRepository.findById(id)
             .orElseThrow(() -> new ResourceNotFoundException("Gasto no encontrado con id: " + id));
+        ResumenDiarioService.Aporte aporteAnterior = resumenDiarioService.aporteGasto(gasto);
         
         // Actualizar categoría
         if (request.categoriaGastoId() != null) {
@@ -213,6 +217,8 @@ public class GastoService {
         gasto.setUpdatedAt(LocalDateTime.now());
         
         Gasto actualizado = gastoRepository.save(gasto);
+        resumenDiarioService.restar(aporteAnterior);
+        resumenDiarioService.sumar(resumenDiarioService.aporteGasto(actualizado));
         return toDTO(actualizado);
     }
     
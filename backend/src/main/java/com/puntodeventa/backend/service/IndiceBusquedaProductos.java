@@ -0,0 +1,308 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.ProductoDTO;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Índice de búsqueda en memoria para la caja: nombre del producto, nombres de variante,
+ * SKU y categoría, sin acentos ni mayúsculas ("Café" = "cafe").
+ *
+ * Guarda los términos ordenados, así que un prefijo es una búsqueda binaria. Si un término
+ * de la consulta tiene 4 letras o más también acepta errores de tecleo (1 error, 2 desde
+ * 8 letras) contra los términos que empiezan con la misma letra. Todos los términos de la
+ * consulta deben coincidir; el puntaje premia coincidencia exacta sobre prefijo sobre
+ * aproximada, y nombre o SKU sobre variante o categoría.
+ */
+final class IndiceBusquedaProductos {
+
+    private static final Pattern MARCAS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARADORES = Pattern.compile("[^a-z0-9]+");
+
+    private static final int EXACTO = 3;
+    private static final int PREFIJO = 2;
+    private static final int APROXIMADO = 1;
+
+    private static final int PESO_NOMBRE = 3;
+    private static final int PESO_SKU = 3;
+    private static final int PESO_VARIANTE = 2;
+    private static final int PESO_CATEGORIA = 1;
+
+    /** Términos normalizados de un producto con su peso (se reutilizan si el producto no cambió). */
+    private record Terminos(String[] textos, int[] pesos) {
+    }
+
+    /** Productos y pesos de un término mientras se arma el índice. */
+    private static final class Apariciones {
+        private int[] productos = new int[4];
+        private int[] pesos = new int[4];
+        private int n;
+
+        void agregar(int producto, int peso) {
+            if (n == productos.length) {
+                productos = Arrays.copyOf(productos, n * 2);
+                pesos = Arrays.copyOf(pesos, n * 2);
+            }
+            productos[n] = producto;
+            pesos[n++] = peso;
+        }
+    }
+
+    private final List<ProductoDTO> productos;
+    private final Terminos[] terminosDeProducto;
+    /** Términos distintos, ordenados. */
+    private final String[] terminos;
+    /** Los productos del término t están en [inicio[t], inicio[t + 1]) de productoDeTermino. */
+    private final int[] inicio;
+    private final int[] productoDeTermino;
+    private final int[] pesos;
+
+    private IndiceBusquedaProductos(List<ProductoDTO> productos, Terminos[] terminosDeProducto) {
+        this.productos = productos;
+        this.terminosDeProducto = terminosDeProducto;
+
+        Map<String, Apariciones> porTermino = new HashMap<>();
+        int total = 0;
+        for (int p = 0; p < terminosDeProducto.length; p++) {
+            Terminos t = terminosDeProducto[p];
+            for (int i = 0; i < t.textos().length; i++) {
+                porTermino.computeIfAbsent(t.textos()[i], k -> new Apariciones()).agregar(p, t.pesos()[i]);
+            }
+            total += t.textos().length;
+        }
+
+        // Solo se ordenan los términos distintos; sus productos ya quedan en orden de posición
+        this.terminos = porTermino.keySet().toArray(String[]::new);
+        Arrays.sort(terminos);
+        this.inicio = new int[terminos.length + 1];
+        this.productoDeTermino = new int[total];
+        this.pesos = new int[total];
+        int k = 0;
+        for (int t = 0; t < terminos.length; t++) {
+            inicio[t] = k;
+            Apariciones a = porTermino.get(terminos[t]);
+            System.arraycopy(a.productos, 0, productoDeTermino, k, a.n);
+            System.arraycopy(a.pesos, 0, pesos, k, a.n);
+            k += a.n;
+        }
+        inicio[terminos.length] = k;
+    }
+
+    /**
+     * @param productos productos base con sus variantes activas (los de la foto del menú)
+     * @param anterior  índice de la versión anterior del catálogo o null; de él se toman los
+     *                  términos de los productos que no cambiaron en lugar de normalizarlos de nuevo
+     */
+    static IndiceBusquedaProductos de(List<ProductoDTO> productos, IndiceBusquedaProductos anterior) {
+        Map<Long, Integer> posicionAnterior = new HashMap<>();
+        if (anterior != null) {
+            for (int i = 0; i < anterior.productos.size(); i++) {
+                posicionAnterior.put(anterior.productos.get(i).id(), i);
+            }
+        }
+
+        Terminos[] terminosDeProducto = new Terminos[productos.size()];
+        for (int i = 0; i < productos.size(); i++) {
+            ProductoDTO p = productos.get(i);
+            Integer previa = posicionAnterior.get(p.id());
+            terminosDeProducto[i] = previa != null && anterior.productos.get(previa).equals(p)
+                    ? anterior.terminosDeProducto[previa]
+                    : terminosDe(p);
+        }
+        return new IndiceBusquedaProductos(productos, terminosDeProducto);
+    }
+
+    /**
+     * Un término por producto con el mayor peso en que aparece.
+     */
+    private static Terminos terminosDe(ProductoDTO p) {
+        Map<String, Integer> propios = new HashMap<>();
+        agregar(propios, p.nombre(), PESO_NOMBRE);
+        agregar(propios, p.sku(), PESO_SKU);
+        agregar(propios, p.categoriaNombre(), PESO_CATEGORIA);
+        if (p.variantes() != null) {
+            for (ProductoDTO.VarianteDTO v : p.variantes()) {
+                agregar(propios, v.nombreVariante(), PESO_VARIANTE);
+                agregar(propios, v.sku(), PESO_SKU);
+            }
+        }
+        String[] textos = propios.keySet().toArray(String[]::new);
+        int[] pesosTermino = new int[textos.length];
+        for (int i = 0; i < textos.length; i++) {
+            pesosTermino[i] = propios.get(textos[i]);
+        }
+        return new Terminos(textos, pesosTermino);
+    }
+
+    /**
+     * Minúsculas sin acentos ni diéresis; "Café Olé" → "cafe ole".
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        if (texto.chars().allMatch(c -> c < 0x80)) {
+            return texto.toLowerCase(Locale.ROOT);
+        }
+        return MARCAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    static String[] tokenizar(String texto) {
+        String normalizado = normalizar(texto);
+        if (normalizado == null) {
+            return new String[0];
+        }
+        return Arrays.stream(SEPARADORES.split(normalizado))
+                .filter(t -> !t.isEmpty())
+                .toArray(String[]::new);
+    }
+
+
+    /**
+     * Productos que coinciden con todos los términos de la consulta, del mejor puntaje al
+     * peor (empate: nombre más corto primero).
+     */
+    List<ProductoDTO> buscar(String consulta, int limite, Predicate<ProductoDTO> filtro) {
+        String[] tokens = tokenizar(consulta);
+        if (tokens.length == 0 || limite <= 0) {
+            return List.of();
+        }
+
+        // Puntaje por posición de producto; 0 = descartado
+        int[] total = null;
+        for (String token : tokens) {
+            int[] mejor = coincidencias(token);
+            if (total == null) {
+                total = mejor;
+            } else {
+                for (int p = 0; p < total.length; p++) {
+                    total[p] = total[p] == 0 || mejor[p] == 0 ? 0 : total[p] + mejor[p];
+                }
+            }
+        }
+
+        // Clave ordenable: puntaje descendente, largo del nombre y posición ascendentes
+        long[] claves = new long[total.length];
+        int n = 0;
+        for (int p = 0; p < total.length; p++) {
+            if (total[p] > 0 && filtro.test(productos.get(p))) {
+                long largo = Math.min(productos.get(p).nombre().length(), 0xFFFF);
+                long puntaje = Math.min(total[p], 0xFFFFF);
+                claves[n++] = ((0xFFFFF - puntaje) << 40) | (largo << 24) | p;
+            }
+        }
+        Arrays.sort(claves, 0, n);
+        List<ProductoDTO> resultado = new ArrayList<>(Math.min(n, limite));
+        for (int i = 0; i < n && i < limite; i++) {
+            resultado.add(productos.get((int) (claves[i] & 0xFFFFFF)));
+        }
+        return resultado;
+    }
+
+    /**
+     * Mejor puntaje de cada producto (por posición) para un término de la consulta.
+     */
+    private int[] coincidencias(String token) {
+        int[] puntajes = new int[productos.size()];
+        for (int t = desde(token); t < terminos.length && terminos[t].startsWith(token); t++) {
+            sumar(puntajes, t, terminos[t].length() == token.length() ? EXACTO : PREFIJO);
+        }
+
+        // Códigos y números (SKU, tamaños) no toleran errores: solo prefijo
+        boolean conLetras = token.chars().anyMatch(Character::isLetter);
+        int tolerancia = !conLetras ? 0 : token.length() >= 8 ? 2 : token.length() >= 4 ? 1 : 0;
+        if (tolerancia > 0) {
+            // Solo términos con la misma primera letra: el rango es contiguo en el arreglo
+            char primera = token.charAt(0);
+            int fin = desde(String.valueOf((char) (primera + 1)));
+            for (int t = desde(String.valueOf(primera)); t < fin; t++) {
+                if (!terminos[t].startsWith(token) && distanciaAPrefijo(token, terminos[t], tolerancia) <= tolerancia) {
+                    sumar(puntajes, t, APROXIMADO);
+                }
+            }
+        }
+        return puntajes;
+    }
+
+    private void sumar(int[] puntajes, int termino, int calidad) {
+        for (int i = inicio[termino]; i < inicio[termino + 1]; i++) {
+            int p = productoDeTermino[i];
+            puntajes[p] = Math.max(puntajes[p], calidad * pesos[i]);
+        }
+    }
+
+    /**
+     * Primer término mayor o igual al texto dado.
+     */
+    private int desde(String texto) {
+        int bajo = 0;
+        int alto = terminos.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (terminos[medio].compareTo(texto) < 0) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    /**
+     * Menor distancia de edición (con transposiciones) entre la consulta y algún prefijo del
+     * término: tolera errores en lo ya tecleado sin contar lo que falta por teclear
+     * ("capuchi" encuentra "capuccino"). Corta en cuanto una fila completa supera la tolerancia.
+     */
+    static int distanciaAPrefijo(String consulta, String termino, int tolerancia) {
+        int n = termino.length();
+        int[] antepenultima = new int[n + 1];
+        int[] previa = new int[n + 1];
+        int[] actual = new int[n + 1];
+        // Fila 0: un prefijo vacío de la consulta contra los prefijos del término
+        for (int j = 0; j <= n; j++) {
+            previa[j] = j;
+        }
+        for (int i = 1; i <= consulta.length(); i++) {
+            actual[0] = i;
+            int minimo = actual[0];
+            for (int j = 1; j <= n; j++) {
+                int costo = consulta.charAt(i - 1) == termino.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(Math.min(previa[j] + 1, actual[j - 1] + 1), previa[j - 1] + costo);
+                if (i > 1 && j > 1 && consulta.charAt(i - 1) == termino.charAt(j - 2)
+                        && consulta.charAt(i - 2) == termino.charAt(j - 1)) {
+                    d = Math.min(d, antepenultima[j - 2] + 1);
+                }
+                actual[j] = d;
+                minimo = Math.min(minimo, d);
+            }
+            if (minimo > tolerancia) {
+                return minimo;
+            }
+            int[] libre = antepenultima;
+            antepenultima = previa;
+            previa = actual;
+            actual = libre;
+        }
+        // Última fila: la consulta completa contra cada prefijo del término
+        int mejor = Integer.MAX_VALUE;
+        for (int j = 0; j <= n; j++) {
+            mejor = Math.min(mejor, previa[j]);
+        }
+        return mejor;
+    }
+
+    private static void agregar(Map<String, Integer> propios, String texto, int peso) {
+        for (String token : tokenizar(texto)) {
+            propios.merge(token, peso, Math::max);
+        }
+    }
+}
@@ -8,17 +8,24 @@ import com.puntodeventa.backend.model.Proveedor;
 import com.puntodeventa.backend.model.Unidad;
 import com.puntodeventa.backend.repository.IngredienteRepository;
 import com.puntodeventa.backend.repository.ProveedorRepository;
+import com.puntodeventa.backend.repository.RecetaRepository;
 import com.puntodeventa.backend.repository.UnidadRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Servicio para gestión de ingredientes del inventario.
+ * Un cambio de costo unitario base recalcula el costo de los productos que usan el
+ * ingrediente ({@link CostoRecetaService}).
  */
 @Service
 @RequiredArgsConstructor
@@ -28,9 +35,12 @@ public class IngredienteService {
     private final IngredienteRepository ingredienteRepository;
     private final UnidadRepository unidadRepository;
     private final ProveedorRepository proveedorRepository;
+    private final RecetaRepository recetaRepository;
     private final InventarioMapper mapper;
+    private final ApplicationEventPublisher eventos;
+    private final CostoRecetaService costos;
 
-    @Cacheable(value = "ingredientes", unless = "#result.isEmpty()")
+    @Cacheable(value = "ingredientes", key = "'todos'", unless = "#result.isEmpty()")
     public List<IngredienteDTO> obtenerTodos() {
         return ingredienteRepository.findAll().stream()
                 .map(mapper::toIngredienteDTO)
@@ -67,7 +77,9 @@ public class IngredienteService {
                 .toList();
     }
 
-    @CacheEvict(value = "ingredientes", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(value = "ingredientes", key = "'todos'"),
+            @CacheEvict(value = "ingredientes", key = "'activos'") })
     @Transactional
     public IngredienteDTO crear(IngredienteDTO dto) {
         Unidad unidadBase = unidadRepository.findById(dto.unidadBaseId())
@@ -96,7 +108,10 @@ public class IngredienteService {
         return mapper.toIngredienteDTO(ingrediente);
     }
 
-    @CacheEvict(value = "ingredientes", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(value = "ingredientes", key = "#id"),
+            @CacheEvict(value = "ingredientes", key = "'todos'"),
+            @CacheEvict(value = "ingredientes", key = "'activos'") })
     @Transactional
     public IngredienteDTO actualizar(Long id, IngredienteDTO dto) {
         Ingrediente ingrediente = ingredienteRepository.findById(id)
@@ -113,6 +128,13 @@ public class IngredienteService {
                             "Proveedor no encontrado con id: " + dto.proveedorId()));
         }
 
+        // Con el costo anterior aún en la BD: el motor recalcula los productos que lo usan
+        if (dto.costoUnitarioBase() != null && (ingrediente.getCostoUnitarioBase() == null
+                || ingrediente.getCostoUnitarioBase().compareTo(dto.costoUnitarioBase()) != 0)) {
+            costos.recalcularPorIngredientes(Map.of(id, dto.costoUnitarioBase()),
+                    CostoRecetaService.FUENTE_COSTO_INGREDIENTE);
+        }
+
         ingrediente.setNombre(dto.nombre());
         ingrediente.setCategoria(dto.categoria());
         ingrediente.setUnidadBase(unidadBase);
@@ -123,15 +145,29 @@ public class IngredienteService {
         ingrediente.setActivo(dto.activo() != null ? dto.activo() : true);
 
         ingrediente = ingredienteRepository.save(ingrediente);
+        cambioRecetas(id);
         return mapper.toIngredienteDTO(ingrediente);
     }
 
-    @CacheEvict(value = "ingredientes", allEntries = true)
+    @Caching(evict = {
+            @CacheEvict(value = "ingredientes", key = "#id"),
+            @CacheEvict(value = "ingredientes", key = "'todos'"),
+            @CacheEvict(value = "ingredientes", key = "'activos'") })
     @Transactional
     public void eliminar(Long id) {
         Ingrediente ingrediente = ingredienteRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Ingrediente no encontrado con id: " + id));
         ingrediente.setActivo(false);
         ingredienteRepository.save(ingrediente);
+        cambioRecetas(id);
+    }
+
+    /**
+     * Las recetas en caché llevan el nombre del ingrediente y su costo depende del costo
+     * unitario: se invalidan las de los productos que lo usan.
+     */
+    private void cambioRecetas(Long ingredienteId) {
+        eventos.publishEvent(new CatalogoCacheInvalidador.CambioRecetas(
+                Set.copyOf(recetaRepository.findProductoIdsByIngredienteId(ingredienteId)), Set.of(ingredienteId)));
     }
 }
@@ -1,14 +1,21 @@
 package com.puntodeventa.backend.service;
 
 import com.puntodeventa.backend.dto.InventarioMovimientoDTO;
+import com.puntodeventa.backend.dto.InventarioMovimientoPaginaDTO;
 import com.puntodeventa.backend.model.InventarioMovimiento;
 import com.puntodeventa.backend.repository.InventarioMovimientoRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.function.BiFunction;
 
 @Service
 public class InventarioMovimientoService {
@@ -21,52 +28,81 @@ public class InventarioMovimientoService {
     @Autowired
     private com.puntodeventa.backend.repository.UnidadRepository unidadRepository;
 
-    // Métodos CRUD y de consulta
+    @Autowired
+    private StockIngredienteService stockService;
+
+    @Autowired
+    private LoteInventarioService loteService;
+
+    /** Tamaño máximo de página. */
+    public static final int LIMITE_MAXIMO = 500;
+
+    // Métodos CRUD y de consulta: páginas por cursor sobre (fecha, id) descendente, con
+    // consultas de proyección respaldadas por índice (1 consulta por página)
     @Transactional(readOnly = true)
-    public List<InventarioMovimientoDTO> listarTodos() {
-        return movimientoRepository.findAll().stream()
-            .map(this::toDTO)
-            .collect(Collectors.toList());
+    public InventarioMovimientoPaginaDTO listar(String cursor, int limite) {
+        return pagina(cursor, limite, (c, limit) -> movimientoRepository.findPagina(c.fecha(), c.id(), limit));
     }
 
     @Transactional(readOnly = true)
     public InventarioMovimientoDTO obtenerPorId(Long id) {
-        return movimientoRepository.findById(id)
-            .map(this::toDTO)
-            .orElse(null);
+        return movimientoRepository.findDTOById(id).orElse(null);
     }
 
     @Transactional(readOnly = true)
-    public List<InventarioMovimientoDTO> obtenerPorIngrediente(Long ingredienteId) {
-        return movimientoRepository.findAll().stream()
-            .filter(m -> m.getIngrediente().getId().equals(ingredienteId))
-            .map(this::toDTO)
-            .collect(Collectors.toList());
+    public InventarioMovimientoPaginaDTO obtenerPorIngrediente(Long ingredienteId, String cursor, int limite) {
+        return pagina(cursor, limite, (c, limit) ->
+            movimientoRepository.findPaginaPorIngrediente(ingredienteId, c.fecha(), c.id(), limit));
     }
 
+    /**
+     * El tipo no distingue mayúsculas: se guarda y se busca en mayúsculas.
+     */
     @Transactional(readOnly = true)
-    public List<InventarioMovimientoDTO> obtenerPorIngredienteYTipo(Long ingredienteId, String tipo) {
-        return movimientoRepository.findAll().stream()
-            .filter(m -> m.getIngrediente().getId().equals(ingredienteId) 
-                && m.getTipo().equalsIgnoreCase(tipo))
-            .map(this::toDTO)
-            .collect(Collectors.toList());
+    public InventarioMovimientoPaginaDTO obtenerPorIngredienteYTipo(Long ingredienteId, String tipo,
+                                                                    String cursor, int limite) {
+        String normalizado = normalizarTipo(tipo);
+        return pagina(cursor, limite, (c, limit) ->
+            movimientoRepository.findPaginaPorIngredienteYTipo(ingredienteId, normalizado, c.fecha(), c.id(), limit));
     }
 
     @Transactional(readOnly = true)
-    public List<InventarioMovimientoDTO> obtenerPorRangoFechas(java.time.LocalDateTime desde, java.time.LocalDateTime hasta) {
-        return movimientoRepository.findAll().stream()
-            .filter(m -> m.getFecha().isAfter(desde) && m.getFecha().isBefore(hasta))
-            .map(this::toDTO)
-            .collect(Collectors.toList());
+    public InventarioMovimientoPaginaDTO obtenerPorRangoFechas(LocalDateTime desde, LocalDateTime hasta,
+                                                               String cursor, int limite) {
+        return pagina(cursor, limite, (c, limit) ->
+            movimientoRepository.findPaginaPorRango(desde, hasta, c.fecha(), c.id(), limit));
+    }
+
+    /**
+     * Una página de la consulta: se pide un elemento extra para saber si hay más.
+     *
+     * @param limite tamaño de página (se acota a 1..LIMITE_MAXIMO)
+     */
+    private InventarioMovimientoPaginaDTO pagina(String cursor, int limite,
+                                                 BiFunction<CursorFechaId, Limit, List<InventarioMovimientoDTO>> consulta) {
+        int tamano = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        List<InventarioMovimientoDTO> movimientos = consulta.apply(CursorFechaId.decodificar(cursor), Limit.of(tamano + 1));
+
+        boolean hayMas = movimientos.size() > tamano;
+        String siguienteCursor = null;
+        if (hayMas) {
+            movimientos = movimientos.subList(0, tamano);
+            InventarioMovimientoDTO ultimo = movimientos.getLast();
+            siguienteCursor = new CursorFechaId(ultimo.fecha(), ultimo.id()).codificar();
+        }
+        return new InventarioMovimientoPaginaDTO(movimientos, siguienteCursor, hayMas);
+    }
+
+    static String normalizarTipo(String tipo) {
+        return tipo == null ? null : tipo.trim().toUpperCase(Locale.ROOT);
     }
 
     @Transactional
     public InventarioMovimientoDTO registrarMovimiento(InventarioMovimientoDTO dto) {
-        // Crear la entidad primero
+        // Crear la entidad primero. El id del cliente se ignora: un alta nunca sobrescribe
+        // un movimiento existente (se volvería a sumar a las existencias)
         InventarioMovimiento mov = new InventarioMovimiento();
-        mov.setId(dto.id());
-        mov.setTipo(dto.tipo());
+        mov.setTipo(normalizarTipo(dto.tipo()));
         mov.setCantidad(dto.cantidad());
         mov.setCostoUnitario(dto.costoUnitario());
         
@@ -109,11 +145,57 @@ public class InventarioMovimientoService {
         mov.setLote(dto.lote());
         mov.setCaducidad(dto.caducidad());
         mov.setNota(dto.nota());
+        mov.setSucursalId(dto.sucursalId());
 
+        if ((mov.getLote() == null || mov.getLote().isBlank()) && StockIngredienteService.signo(mov.getTipo()) < 0
+                && mov.getCantidad() != null && mov.getCantidad().signum() > 0) {
+            return registrarSalidaPorLotes(mov);
+        }
         InventarioMovimiento guardado = movimientoRepository.save(mov);
+        // Lote antes que existencia: el mismo orden de bloqueo que la asignación FEFO
+        loteService.registrar(guardado);
+        stockService.registrar(guardado);
         return toDTO(guardado);
     }
 
+    /**
+     * Salida sin lote: se reparte entre los lotes por caducidad (FEFO) y se guarda un
+     * movimiento por lote (con el costo total prorrateado); lo que no cubren los lotes
+     * queda en un movimiento sin lote.
+     *
+     * @return el primer movimiento guardado
+     */
+    private InventarioMovimientoDTO registrarSalidaPorLotes(InventarioMovimiento mov) {
+        List<LoteInventarioService.Porcion> porciones = loteService.asignar(List.of(new LoteInventarioService.Salida(
+            mov.getIngrediente().getId(), mov.getSucursalId(), mov.getCantidad(), mov.getUnidad().getFactorBase())));
+        BigDecimal cantidad = mov.getCantidad();
+        BigDecimal costoTotal = mov.getCostoTotal();
+        List<InventarioMovimiento> tramos = new ArrayList<>();
+        for (LoteInventarioService.Porcion porcion : porciones) {
+            InventarioMovimiento tramo = tramos.isEmpty() ? mov : InventarioMovimiento.builder()
+                .ingrediente(mov.getIngrediente())
+                .tipo(mov.getTipo())
+                .unidad(mov.getUnidad())
+                .costoUnitario(mov.getCostoUnitario())
+                .fecha(mov.getFecha())
+                .refTipo(mov.getRefTipo())
+                .refId(mov.getRefId())
+                .nota(mov.getNota())
+                .sucursalId(mov.getSucursalId())
+                .build();
+            tramo.setCantidad(porcion.cantidad());
+            tramo.setLote(porcion.lote());
+            tramo.setCaducidad(porcion.caducidad());
+            if (porciones.size() > 1) {
+                tramo.setCostoTotal(costoTotal.multiply(porcion.cantidad()).divide(cantidad, 6, RoundingMode.HALF_UP));
+            }
+            tramos.add(tramo);
+        }
+        List<InventarioMovimiento> guardados = movimientoRepository.saveAll(tramos);
+        guardados.forEach(stockService::registrar);
+        return toDTO(guardados.getFirst());
+    }
+
     // Conversión Entity <-> DTO
     private InventarioMovimientoDTO toDTO(InventarioMovimiento m) {
             return new InventarioMovimientoDTO(
@@ -132,14 +214,15 @@ public class InventarioMovimientoService {
                 m.getRefId(),
                 m.getLote(),
                 m.getCaducidad(),
-                m.getNota()
+                m.getNota(),
+                m.getSucursalId()
             );
     }
 
     private InventarioMovimiento toEntity(InventarioMovimientoDTO dto) {
         InventarioMovimiento m = new InventarioMovimiento();
         m.setId(dto.id());
-        m.setTipo(dto.tipo());
+        m.setTipo(normalizarTipo(dto.tipo()));
         m.setCantidad(dto.cantidad());
         m.setCostoUnitario(dto.costoUnitario());
         m.setCostoTotal(dto.costoTotal());
@@ -161,6 +244,7 @@ public class InventarioMovimientoService {
         m.setLote(dto.lote());
         m.setCaducidad(dto.caducidad());
         m.setNota(dto.nota());
+        m.setSucursalId(dto.sucursalId());
 
         return m;
     }
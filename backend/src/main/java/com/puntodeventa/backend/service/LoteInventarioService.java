@@ -0,0 +1,223 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.StockLoteDTO;
+import com.puntodeventa.backend.model.InventarioMovimiento;
+import com.puntodeventa.backend.model.StockIngrediente;
+import com.puntodeventa.backend.model.StockLote;
+import com.puntodeventa.backend.repository.StockLoteRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Existencia por lote y caducidad (tabla stock_lotes).
+ *
+ * Los movimientos que traen lote suman o restan a ese lote. Las salidas sin lote se
+ * reparten entre los lotes con existencia, primero el que caduca antes (FEFO), con
+ * {@link #asignar(List)}: una consulta bloquea los lotes de todas las salidas, el reparto
+ * se hace en memoria y las existencias se escriben en un solo lote de UPDATE al hacer
+ * flush. Lo que no cubren los lotes queda como salida sin lote (existencia sin rastrear).
+ *
+ * Los lotes siempre se bloquean en orden (ingrediente, sucursal, lote) y antes que
+ * stock_ingredientes: quien aplica varios movimientos usa {@link #registrarTodos} o
+ * {@link #revertirTodos} y después actualiza la existencia.
+ *
+ * Solo cuentan los movimientos registrados desde que existe la tabla: el libro anterior
+ * no asignaba las salidas a lotes, así que no se reconstruye.
+ */
+@Service
+@Transactional(readOnly = true)
+public class LoteInventarioService {
+
+    /** Escala de las cantidades de movimiento (inventario_movimientos.cantidad). */
+    private static final int ESCALA_CANTIDAD = 6;
+
+    /** Orden de consumo: primero el que caduca antes, sin caducidad al final. */
+    private static final Comparator<StockLote> FEFO = Comparator
+        .comparing(StockLote::getCaducidad, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(StockLote::getLote);
+
+    private static final String SQL_CREAR_LOTE = """
+        INSERT INTO stock_lotes (ingrediente_id, sucursal_id, lote, caducidad, cantidad, actualizado)
+        VALUES (?, ?, ?, ?, 0, ?)
+        """;
+
+    private final StockLoteRepository loteRepository;
+    private final FilaUnica filaUnica;
+
+    public LoteInventarioService(StockLoteRepository loteRepository, FilaUnica filaUnica) {
+        this.loteRepository = loteRepository;
+        this.filaUnica = filaUnica;
+    }
+
+    /**
+     * Salida a repartir entre lotes.
+     *
+     * @param cantidad   en la unidad del movimiento
+     * @param factorBase factor de esa unidad a la unidad base del ingrediente
+     */
+    public record Salida(Long ingredienteId, Long sucursalId, BigDecimal cantidad, BigDecimal factorBase) {
+    }
+
+    /**
+     * Parte de una salida tomada de un lote (lote null: lo que no cubrieron los lotes).
+     *
+     * @param salida   índice de la salida en la lista recibida
+     * @param cantidad en la unidad del movimiento; las porciones de una salida suman su cantidad
+     */
+    public record Porcion(int salida, String lote, LocalDate caducidad, BigDecimal cantidad) {
+    }
+
+    /**
+     * Aplica al lote un movimiento recién guardado que trae lote (los demás se ignoran).
+     */
+    @Transactional
+    public void registrar(InventarioMovimiento movimiento) {
+        acumular(movimiento, 1);
+    }
+
+    /**
+     * Quita del lote un movimiento que se elimina.
+     */
+    @Transactional
+    public void revertir(InventarioMovimiento movimiento) {
+        acumular(movimiento, -1);
+    }
+
+    /**
+     * Aplica a sus lotes varios movimientos recién guardados, en el orden de bloqueo de los
+     * lotes.
+     */
+    @Transactional
+    public void registrarTodos(Collection<InventarioMovimiento> movimientos) {
+        ordenados(movimientos).forEach(m -> acumular(m, 1));
+    }
+
+    /**
+     * Quita de sus lotes varios movimientos que se eliminan, en el orden de bloqueo de los
+     * lotes.
+     */
+    @Transactional
+    public void revertirTodos(Collection<InventarioMovimiento> movimientos) {
+        ordenados(movimientos).forEach(m -> acumular(m, -1));
+    }
+
+    /**
+     * Reparte las salidas entre los lotes con existencia por caducidad (FEFO) y descuenta
+     * las cantidades tomadas de cada lote.
+     *
+     * @return porciones de cada salida, en el orden de las salidas y de consumo de los lotes
+     */
+    @Transactional
+    public List<Porcion> asignar(List<Salida> salidas) {
+        if (salidas.isEmpty()) {
+            return List.of();
+        }
+        Set<StockLoteRepository.Existencia> existencias = new HashSet<>();
+        for (Salida s : salidas) {
+            existencias.add(new StockLoteRepository.Existencia(s.ingredienteId(), sucursalId(s.sucursalId())));
+        }
+        Map<StockLoteRepository.Existencia, List<StockLote>> disponibles = new HashMap<>();
+        for (StockLote lote : loteRepository.findDisponiblesParaAsignar(existencias)) {
+            disponibles.computeIfAbsent(new StockLoteRepository.Existencia(lote.getIngredienteId(), lote.getSucursalId()),
+                    k -> new ArrayList<>())
+                .add(lote);
+        }
+        disponibles.values().forEach(lotes -> lotes.sort(FEFO));
+
+        LocalDateTime ahora = LocalDateTime.now();
+        List<Porcion> porciones = new ArrayList<>();
+        for (int i = 0; i < salidas.size(); i++) {
+            Salida s = salidas.get(i);
+            BigDecimal restante = s.cantidad();
+            for (StockLote lote : disponibles.getOrDefault(
+                    new StockLoteRepository.Existencia(s.ingredienteId(), sucursalId(s.sucursalId())), List.of())) {
+                if (restante.signum() <= 0) {
+                    break;
+                }
+                // Hacia abajo: lo descontado al lote (toma x factor) nunca excede su existencia
+                BigDecimal enLote = lote.getCantidad().divide(s.factorBase(), ESCALA_CANTIDAD, RoundingMode.DOWN);
+                BigDecimal toma = restante.min(enLote);
+                if (toma.signum() <= 0) {
+                    continue;
+                }
+                lote.setCantidad(lote.getCantidad().subtract(toma.multiply(s.factorBase())));
+                lote.setActualizado(ahora);
+                porciones.add(new Porcion(i, lote.getLote(), lote.getCaducidad(), toma));
+                restante = restante.subtract(toma);
+            }
+            if (restante.signum() > 0) {
+                porciones.add(new Porcion(i, null, null, restante));
+            }
+        }
+        return porciones;
+    }
+
+    /**
+     * Lotes con existencia del ingrediente en la sucursal, en el orden en que se consumen.
+     *
+     * @param sucursalId null = sin sucursal asignada
+     */
+    public List<StockLoteDTO> lotes(Long ingredienteId, Long sucursalId) {
+        return loteRepository.findDTODisponibles(ingredienteId, sucursalId(sucursalId));
+    }
+
+    /**
+     * Lotes con existencia en la sucursal que caducan en los próximos días (o ya caducaron),
+     * primero el más próximo.
+     *
+     * @param sucursalId null = sin sucursal asignada
+     * @throws IllegalArgumentException si dias es negativo
+     */
+    public List<StockLoteDTO> porCaducar(Long sucursalId, int dias) {
+        if (dias < 0) {
+            throw new IllegalArgumentException("Los días deben ser 0 o más");
+        }
+        return loteRepository.findDTOPorCaducar(sucursalId(sucursalId), LocalDate.now().plusDays(dias));
+    }
+
+    private void acumular(InventarioMovimiento m, int sentido) {
+        String lote = m.getLote();
+        int signo = StockIngredienteService.signo(m.getTipo()) * sentido;
+        if (lote == null || lote.isBlank() || signo == 0) {
+            return;
+        }
+        Long ingredienteId = m.getIngrediente().getId();
+        Long sucursal = sucursalId(m.getSucursalId());
+        BigDecimal cantidad = m.getCantidad().multiply(m.getUnidad().getFactorBase())
+            .multiply(BigDecimal.valueOf(signo));
+        LocalDateTime ahora = LocalDateTime.now();
+        if (loteRepository.acumular(ingredienteId, sucursal, lote, m.getCaducidad(), cantidad, ahora) == 0) {
+            // Primer movimiento del lote: como en stock_ingredientes, la fila se crea en la misma
+            // transacción (si otra la creó primero, el INSERT se descarta) y se vuelve a acumular
+            filaUnica.insertarSiFalta(SQL_CREAR_LOTE, ingredienteId, sucursal, lote, m.getCaducidad(), ahora);
+            loteRepository.acumular(ingredienteId, sucursal, lote, m.getCaducidad(), cantidad, ahora);
+        }
+    }
+
+    /** Movimientos con lote en el orden de bloqueo de stock_lotes. */
+    private static List<InventarioMovimiento> ordenados(Collection<InventarioMovimiento> movimientos) {
+        return movimientos.stream()
+            .filter(m -> m.getLote() != null && !m.getLote().isBlank())
+            .sorted(Comparator.comparing((InventarioMovimiento m) -> m.getIngrediente().getId())
+                .thenComparing(m -> sucursalId(m.getSucursalId()))
+                .thenComparing(InventarioMovimiento::getLote))
+            .toList();
+    }
+
+    private static Long sucursalId(Long id) {
+        return id != null ? id : StockIngrediente.SIN_SUCURSAL;
+    }
+}
@@ -0,0 +1,197 @@
+package com.puntodeventa.backend.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Versión del catálogo (productos y categorías) y foto del menú de esa versión.
+ *
+ * Cada alta/edición/baja publica un {@link CambioCatalogo}; la versión sube al publicarse
+ * (la propia transacción ve su cambio) y otra vez al terminar la transacción, para que la
+ * foto se reconstruya con lo confirmado (o sin el cambio, si hubo rollback). La foto se
+ * reconstruye una sola vez por versión, en la primera lectura después del cambio.
+ *
+ * Con varios nodos, un cambio confirmado en otro nodo llega por el {@link BusEventos}
+ * (tipo "catalogo") y también sube la versión aquí.
+ *
+ * El ETag de los endpoints del catálogo no usa esa versión local (distinta en cada nodo)
+ * sino la compartida de la tabla catalogo_version: cada cambio la sube en su transacción
+ * y, al confirmarse, el nodo pasa a anunciarla; los demás, cuando les llega por el bus.
+ * Así todos los nodos al día dan el mismo ETag, y uno nunca anuncia una versión más
+ * nueva que la que reflejan sus cachés.
+ */
+@Slf4j
+@Component
+public class MenuCatalogoRegistry {
+
+    /**
+     * Evento de cambio en productos, categorías o subcategorías.
+     *
+     * @param productos ids de los productos modificados (incluido el producto base de una
+     *                  variante modificada); null si el cambio es general (categorías) y
+     *                  afecta a cualquier producto
+     */
+    public record CambioCatalogo(Set<Long> productos) {
+
+        public CambioCatalogo {
+            productos = productos == null ? null : Set.copyOf(productos);
+        }
+
+        /** Cambio general: categorías o subcategorías. */
+        public CambioCatalogo() {
+            this(null);
+        }
+
+        /** Cambio de estos productos; se ignoran los ids null. */
+        public static CambioCatalogo deProductos(Long... ids) {
+            return deProductos(Arrays.asList(ids));
+        }
+
+        public static CambioCatalogo deProductos(Collection<Long> ids) {
+            return new CambioCatalogo(ids.stream().filter(Objects::nonNull).collect(Collectors.toSet()));
+        }
+
+        public boolean general() {
+            return productos == null;
+        }
+    }
+
+    private static final String TIPO = "catalogo";
+
+    private static final String SQL_SUBIR_COMPARTIDA = "UPDATE catalogo_version SET version = version + 1 WHERE id = 1";
+    private static final String SQL_LEER_COMPARTIDA = "SELECT version FROM catalogo_version WHERE id = 1";
+    private static final String SQL_CREAR_COMPARTIDA = "INSERT INTO catalogo_version (id, version) VALUES (1, 0)";
+
+    private final AtomicLong version = new AtomicLong(1);
+    /** Versión compartida que ya reflejan las cachés de este nodo; -1 mientras no se ha leído. */
+    private final AtomicLong compartida = new AtomicLong(-1);
+    private volatile MenuSnapshot menu;
+    private final BusEventos bus;
+    private final JdbcTemplate jdbcTemplate;
+    private final FilaUnica filaUnica;
+
+    public MenuCatalogoRegistry(BusEventos bus, JdbcTemplate jdbcTemplate, FilaUnica filaUnica) {
+        this.bus = bus;
+        this.jdbcTemplate = jdbcTemplate;
+        this.filaUnica = filaUnica;
+        bus.suscribir(TIPO, carga -> {
+            if (!carga.isEmpty()) {
+                conocer(Long.parseLong(carga));
+            }
+            version.incrementAndGet();
+        });
+    }
+
+    public long version() {
+        return version.get();
+    }
+
+    /**
+     * ETag fuerte de la versión compartida del catálogo, p. ej. "1a"; el mismo en todos
+     * los nodos al día.
+     */
+    public String etag() {
+        long v = compartida.get();
+        if (v < 0) {
+            v = conocer(leerCompartida());
+        }
+        return "\"" + Long.toString(v, 36) + "\"";
+    }
+
+    /**
+     * Lee la versión compartida al arrancar, antes de atender peticiones (las cachés aún
+     * están vacías, así que no pueden ser más viejas que ella).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarVersionCompartida() {
+        conocer(leerCompartida());
+    }
+
+    /**
+     * Foto del menú de la versión actual; si cambió el catálogo, la reconstruye con el
+     * cargador (una sola vez aunque lleguen varias lecturas a la vez).
+     */
+    public MenuSnapshot menu(Supplier<MenuSnapshot.Contenido> cargador) {
+        long actual = version.get();
+        MenuSnapshot m = menu;
+        if (m != null && m.version() == actual) {
+            return m;
+        }
+        synchronized (this) {
+            actual = version.get();
+            m = menu;
+            if (m == null || m.version() != actual) {
+                // Si el catálogo cambia mientras se carga, la foto queda con la versión
+                // anterior y la siguiente lectura la vuelve a construir
+                m = MenuSnapshot.de(actual, cargador.get(), m);
+                menu = m;
+                log.debug("Menú reconstruido: versión {}, {} productos", actual, m.tamano());
+            }
+            return m;
+        }
+    }
+
+    @EventListener
+    public void onCambioCatalogo(CambioCatalogo evento) {
+        version.incrementAndGet();
+        long nueva = subirCompartida();
+        bus.publicar(TIPO, Long.toString(nueva));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            conocer(nueva);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                // Después de invalidar las cachés (ver CatalogoCacheInvalidador); con rollback no sube
+                if (status == STATUS_COMMITTED) {
+                    conocer(nueva);
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION)
+    public void onCambioCatalogoCompletado(CambioCatalogo evento) {
+        version.incrementAndGet();
+    }
+
+    /**
+     * Sube la versión compartida en la transacción del cambio (la fila queda bloqueada
+     * hasta su fin, así que los cambios del catálogo la suben en orden).
+     *
+     * @return la nueva versión
+     */
+    private long subirCompartida() {
+        if (jdbcTemplate.update(SQL_SUBIR_COMPARTIDA) == 0) {
+            // BD sin la migración: se crea la fila (si otro nodo la creó primero, se descarta)
+            filaUnica.insertarSiFalta(SQL_CREAR_COMPARTIDA);
+            jdbcTemplate.update(SQL_SUBIR_COMPARTIDA);
+        }
+        return leerCompartida();
+    }
+
+    private long leerCompartida() {
+        Long v = jdbcTemplate.query(SQL_LEER_COMPARTIDA, rs -> rs.next() ? rs.getLong(1) : 0L);
+        return v != null ? v : 0L;
+    }
+
+    private long conocer(long v) {
+        return compartida.accumulateAndGet(v, Math::max);
+    }
+}
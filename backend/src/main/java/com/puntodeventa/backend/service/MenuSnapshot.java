@@ -0,0 +1,172 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.ProductoDTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Foto inmutable del menú: productos base con sus variantes activas ya ordenadas.
+ *
+ * Se construye una vez por versión del catálogo ({@link MenuCatalogoRegistry}) y todas
+ * las terminales leen el mismo objeto. Guarda índices por categoría y por
+ * activo + en menú (el filtro del POS); el resto de filtros y la búsqueda por nombre
+ * se resuelven en memoria sobre el índice más pequeño que aplique. La búsqueda por nombre
+ * no distingue acentos; la de la caja usa {@link IndiceBusquedaProductos}. El escaneo de
+ * códigos resuelve el SKU en un mapa (productos base y variantes activos).
+ */
+public final class MenuSnapshot {
+
+    /**
+     * Lo que se carga de la base para una versión: productos base (con variantes) y las
+     * variantes activas como productos completos (para el escaneo por SKU).
+     */
+    public record Contenido(List<ProductoDTO> productos, List<ProductoDTO> variantes) {
+    }
+
+    private record Entrada(ProductoDTO producto, String nombre) {
+    }
+
+    private final long version;
+    private final List<ProductoDTO> productos;
+    private final List<ProductoDTO> activosEnMenu;
+    private final List<Entrada> entradas;
+    private final List<Entrada> entradasActivasEnMenu;
+    private final Map<Long, List<Entrada>> porCategoria;
+    private final Map<String, ProductoDTO> porSku;
+    private volatile IndiceBusquedaProductos indice;
+    /** Índice más reciente de una versión anterior; se suelta al armar el propio. */
+    private IndiceBusquedaProductos indiceAnterior;
+
+    private MenuSnapshot(long version, List<Entrada> entradas, List<ProductoDTO> variantes, MenuSnapshot anterior) {
+        this.version = version;
+        this.indiceAnterior = anterior != null ? anterior.ultimoIndice() : null;
+        this.entradas = List.copyOf(entradas);
+        this.productos = this.entradas.stream().map(Entrada::producto).toList();
+        this.entradasActivasEnMenu = this.entradas.stream()
+                .filter(e -> Boolean.TRUE.equals(e.producto().activo())
+                        && Boolean.TRUE.equals(e.producto().disponibleEnMenu()))
+                .toList();
+        this.activosEnMenu = this.entradasActivasEnMenu.stream().map(Entrada::producto).toList();
+
+        Map<Long, List<Entrada>> categorias = new HashMap<>();
+        for (Entrada e : this.entradas) {
+            if (e.producto().categoriaId() != null) {
+                categorias.computeIfAbsent(e.producto().categoriaId(), k -> new ArrayList<>()).add(e);
+            }
+        }
+        categorias.replaceAll((k, v) -> List.copyOf(v));
+        this.porCategoria = Map.copyOf(categorias);
+
+        // Si quedara un SKU repetido (datos previos al índice único) gana el primero
+        Map<String, ProductoDTO> skus = new HashMap<>();
+        for (ProductoDTO p : this.productos) {
+            if (p.sku() != null && Boolean.TRUE.equals(p.activo())) {
+                skus.putIfAbsent(p.sku(), p);
+            }
+        }
+        for (ProductoDTO v : variantes) {
+            if (v.sku() != null) {
+                skus.putIfAbsent(v.sku(), v);
+            }
+        }
+        this.porSku = Map.copyOf(skus);
+    }
+
+    /**
+     * @param productos productos base (con variantes) en el orden en que se listan
+     */
+    public static MenuSnapshot de(long version, List<ProductoDTO> productos) {
+        return de(version, productos, null);
+    }
+
+    /**
+     * @param anterior foto de la versión anterior o null; su índice de búsqueda se reutiliza
+     *                 para los productos que no cambiaron
+     */
+    public static MenuSnapshot de(long version, List<ProductoDTO> productos, MenuSnapshot anterior) {
+        return de(version, new Contenido(productos, List.of()), anterior);
+    }
+
+    public static MenuSnapshot de(long version, Contenido contenido, MenuSnapshot anterior) {
+        return new MenuSnapshot(version, contenido.productos().stream()
+                .map(p -> new Entrada(p, normalizar(p.nombre())))
+                .toList(), contenido.variantes(), anterior);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int tamano() {
+        return productos.size();
+    }
+
+    /**
+     * Producto activo (base o variante) con ese SKU exacto.
+     */
+    public Optional<ProductoDTO> porSku(String sku) {
+        return Optional.ofNullable(porSku.get(sku));
+    }
+
+    /**
+     * Búsqueda por relevancia; el índice se arma en la primera búsqueda de esta versión,
+     * normalizando de nuevo solo los productos que cambiaron desde el índice anterior.
+     *
+     * @param soloMenu si es true, solo productos activos y disponibles en el menú
+     */
+    public List<ProductoDTO> buscar(String q, int limite, boolean soloMenu) {
+        IndiceBusquedaProductos i = indice;
+        if (i == null) {
+            synchronized (this) {
+                i = indice;
+                if (i == null) {
+                    i = IndiceBusquedaProductos.de(productos, indiceAnterior);
+                    indice = i;
+                    indiceAnterior = null;
+                }
+            }
+        }
+        return i.buscar(q, limite, p -> !soloMenu
+                || (Boolean.TRUE.equals(p.activo()) && Boolean.TRUE.equals(p.disponibleEnMenu())));
+    }
+
+    private synchronized IndiceBusquedaProductos ultimoIndice() {
+        return indice != null ? indice : indiceAnterior;
+    }
+
+    /**
+     * Mismos filtros que GET /api/productos. Sin filtros, o solo activo + en menú, devuelve
+     * la lista precalculada sin copiarla.
+     */
+    public List<ProductoDTO> filtrar(Optional<Boolean> activo, Optional<Boolean> enMenu, Optional<Long> categoriaId,
+            Optional<String> q) {
+        boolean soloActivosEnMenu = activo.orElse(false) && enMenu.orElse(false);
+        if (categoriaId.isEmpty() && q.isEmpty()) {
+            if (activo.isEmpty() && enMenu.isEmpty()) {
+                return productos;
+            }
+            if (soloActivosEnMenu) {
+                return activosEnMenu;
+            }
+        }
+
+        List<Entrada> candidatos = categoriaId.isPresent()
+                ? porCategoria.getOrDefault(categoriaId.get(), List.of())
+                : soloActivosEnMenu ? entradasActivasEnMenu : entradas;
+        String texto = q.map(MenuSnapshot::normalizar).orElse(null);
+        return candidatos.stream()
+                .filter(e -> activo.map(a -> a.equals(e.producto().activo())).orElse(true))
+                .filter(e -> enMenu.map(m -> m.equals(e.producto().disponibleEnMenu())).orElse(true))
+                .filter(e -> texto == null || (e.nombre() != null && e.nombre().contains(texto)))
+                .map(Entrada::producto)
+                .toList();
+    }
+
+    private static String normalizar(String texto) {
+        return IndiceBusquedaProductos.normalizar(texto);
+    }
+}
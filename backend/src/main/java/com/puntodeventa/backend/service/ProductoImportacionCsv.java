@@ -0,0 +1,219 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.ProductoImportDTO;
+import com.puntodeventa.backend.exception.ImportacionInvalidaException;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Lector del CSV de importación de productos.
+ *
+ * La primera fila es el encabezado (en cualquier orden): id, sku, nombre, descripcion,
+ * categoriaId, precio, costoEstimado, activo, disponibleEnMenu, variante, ordenVariante.
+ * Una fila con "variante" es una variante del producto base de la fila anterior sin
+ * variante; de ella se toman sku, precio, costoEstimado y ordenVariante. Acepta campos
+ * entre comillas dobles (con comas, saltos de línea o "" para una comilla).
+ */
+final class ProductoImportacionCsv {
+
+    private static final Set<String> COLUMNAS = Set.of("id", "sku", "nombre", "descripcion", "categoriaid", "precio",
+            "costoestimado", "activo", "disponibleenmenu", "variante", "ordenvariante");
+
+    /**
+     * Productos leídos y, por producto, la línea del producto base seguida de la de cada
+     * variante (para reportar errores por línea).
+     */
+    record Lectura(List<ProductoImportDTO> productos, List<List<Integer>> lineas) {
+    }
+
+    private record Fila(int linea, List<String> campos) {
+    }
+
+    private ProductoImportacionCsv() {
+    }
+
+    static Lectura leer(String csv) {
+        List<Fila> filas = filas(csv == null ? "" : csv);
+        Map<String, String> errores = new LinkedHashMap<>();
+        if (filas.isEmpty()) {
+            errores.put("línea 1", "El archivo está vacío");
+            throw new ImportacionInvalidaException(errores);
+        }
+
+        Map<String, Integer> columnas = new HashMap<>();
+        List<String> encabezado = filas.get(0).campos();
+        for (int i = 0; i < encabezado.size(); i++) {
+            String nombre = encabezado.get(i).trim().replace("_", "").toLowerCase(Locale.ROOT);
+            if (!COLUMNAS.contains(nombre)) {
+                errores.merge("línea 1", "Columna desconocida: " + encabezado.get(i), (a, b) -> a + "; " + b);
+            }
+            columnas.put(nombre, i);
+        }
+        if (!errores.isEmpty()) {
+            throw new ImportacionInvalidaException(errores);
+        }
+
+        List<ProductoImportDTO> productos = new ArrayList<>();
+        List<List<Integer>> lineas = new ArrayList<>();
+        List<ProductoImportDTO.VarianteImportDTO> variantes = null;
+        for (Fila fila : filas.subList(1, filas.size())) {
+            Campos c = new Campos(fila, columnas, errores);
+            String variante = c.texto("variante");
+            if (variante != null) {
+                if (variantes == null) {
+                    c.error("La variante '" + variante + "' no tiene un producto base en una fila anterior");
+                    continue;
+                }
+                variantes.add(new ProductoImportDTO.VarianteImportDTO(variante, c.texto("sku"),
+                        c.decimal("precio"), c.decimal("costoestimado"), c.entero("ordenvariante")));
+                lineas.get(lineas.size() - 1).add(fila.linea());
+            } else {
+                variantes = new ArrayList<>();
+                productos.add(new ProductoImportDTO(c.largo("id"), c.texto("sku"), c.texto("nombre"),
+                        c.texto("descripcion"), c.largo("categoriaid"), c.decimal("precio"),
+                        c.decimal("costoestimado"), c.booleano("activo"), c.booleano("disponibleenmenu"),
+                        variantes));
+                lineas.add(new ArrayList<>(List.of(fila.linea())));
+            }
+        }
+        if (!errores.isEmpty()) {
+            throw new ImportacionInvalidaException(errores);
+        }
+        return new Lectura(productos, lineas);
+    }
+
+    /**
+     * Separa el texto en filas y campos; omite las filas vacías.
+     */
+    private static List<Fila> filas(String csv) {
+        List<Fila> filas = new ArrayList<>();
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreComillas = false;
+        int linea = 1;
+        int inicioFila = 1;
+        for (int i = 0; i < csv.length(); i++) {
+            char ch = csv.charAt(i);
+            if (entreComillas) {
+                if (ch == '"' && i + 1 < csv.length() && csv.charAt(i + 1) == '"') {
+                    campo.append('"');
+                    i++;
+                } else if (ch == '"') {
+                    entreComillas = false;
+                } else {
+                    if (ch == '\n') {
+                        linea++;
+                    }
+                    campo.append(ch);
+                }
+            } else if (ch == '"') {
+                entreComillas = true;
+            } else if (ch == ',') {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (ch == '\n' || ch == '\r') {
+                if (ch == '\r' && i + 1 < csv.length() && csv.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                campos.add(campo.toString());
+                campo.setLength(0);
+                agregarFila(filas, inicioFila, campos);
+                campos = new ArrayList<>();
+                linea++;
+                inicioFila = linea;
+            } else {
+                campo.append(ch);
+            }
+        }
+        campos.add(campo.toString());
+        agregarFila(filas, inicioFila, campos);
+        return filas;
+    }
+
+    private static void agregarFila(List<Fila> filas, int linea, List<String> campos) {
+        if (campos.stream().anyMatch(c -> !c.isBlank())) {
+            filas.add(new Fila(linea, campos));
+        }
+    }
+
+    /**
+     * Campos de una fila por nombre de columna; los valores inválidos se anotan como error
+     * de la línea y se leen como null.
+     */
+    private static final class Campos {
+
+        private final Fila fila;
+        private final Map<String, Integer> columnas;
+        private final Map<String, String> errores;
+
+        Campos(Fila fila, Map<String, Integer> columnas, Map<String, String> errores) {
+            this.fila = fila;
+            this.columnas = columnas;
+            this.errores = errores;
+        }
+
+        String texto(String columna) {
+            Integer i = columnas.get(columna);
+            if (i == null || i >= fila.campos().size()) {
+                return null;
+            }
+            String valor = fila.campos().get(i).trim();
+            return valor.isEmpty() ? null : valor;
+        }
+
+        BigDecimal decimal(String columna) {
+            String valor = texto(columna);
+            try {
+                return valor == null ? null : new BigDecimal(valor);
+            } catch (NumberFormatException e) {
+                error(columna + " no es un número: " + valor);
+                return null;
+            }
+        }
+
+        Long largo(String columna) {
+            String valor = texto(columna);
+            try {
+                return valor == null ? null : Long.valueOf(valor);
+            } catch (NumberFormatException e) {
+                error(columna + " no es un número entero: " + valor);
+                return null;
+            }
+        }
+
+        Integer entero(String columna) {
+            Long valor = largo(columna);
+            if (valor != null && (valor < Integer.MIN_VALUE || valor > Integer.MAX_VALUE)) {
+                error(columna + " fuera de rango: " + valor);
+                return null;
+            }
+            return valor == null ? null : valor.intValue();
+        }
+
+        Boolean booleano(String columna) {
+            String valor = texto(columna);
+            if (valor == null) {
+                return null;
+            }
+            return switch (valor.toLowerCase(Locale.ROOT)) {
+                case "true", "1", "si", "sí" -> true;
+                case "false", "0", "no" -> false;
+                default -> {
+                    error(columna + " debe ser true/false: " + valor);
+                    yield null;
+                }
+            };
+        }
+
+        void error(String mensaje) {
+            errores.merge("línea " + fila.linea(), mensaje, (a, b) -> a + "; " + b);
+        }
+    }
+}
@@ -0,0 +1,361 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.ProductoImportDTO;
+import com.puntodeventa.backend.dto.ResultadoImportacionDTO;
+import com.puntodeventa.backend.exception.ImportacionInvalidaException;
+import com.puntodeventa.backend.model.CategoriaProducto;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.repository.CategoriaProductoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Importación masiva del catálogo (JSON o CSV): productos base con sus variantes.
+ *
+ * Todo se valida antes de escribir, con una consulta por tipo de dato (productos por id,
+ * por SKU, variantes de los productos base y categorías), y se reportan todos los errores
+ * juntos. La escritura es una sola transacción: los ids salen de la secuencia en bloques y
+ * Hibernate agrupa los INSERT/UPDATE en lotes JDBC (hibernate.jdbc.batch_size). Al final se
+ * publica un solo cambio del catálogo (con los productos actualizados, ver
+ * {@link CatalogoCacheInvalidador}) y se envía un solo evento por WebSocket.
+ */
+@Slf4j
+@Service
+@Transactional
+public class ProductoImportacionService {
+
+    /** Máximo de productos base por importación. */
+    static final int LIMITE_PRODUCTOS = 2_000;
+
+    private final ProductoRepository productoRepository;
+    private final CategoriaProductoRepository categoriaRepository;
+    private final ApplicationEventPublisher eventos;
+    private final WebSocketNotificationService notificationService;
+
+    public ProductoImportacionService(ProductoRepository productoRepository,
+            CategoriaProductoRepository categoriaRepository, ApplicationEventPublisher eventos,
+            WebSocketNotificationService notificationService) {
+        this.productoRepository = productoRepository;
+        this.categoriaRepository = categoriaRepository;
+        this.eventos = eventos;
+        this.notificationService = notificationService;
+    }
+
+    /**
+     * Importación JSON; los errores se reportan como productos[i] y productos[i].variantes[j].
+     */
+    public ResultadoImportacionDTO importar(List<ProductoImportDTO> productos) {
+        return importar(productos, (i, j) -> "productos[" + i + "]" + (j == null ? "" : ".variantes[" + j + "]"));
+    }
+
+    /**
+     * Importación CSV (ver {@link ProductoImportacionCsv}); los errores se reportan por línea.
+     */
+    public ResultadoImportacionDTO importarCsv(String csv) {
+        ProductoImportacionCsv.Lectura lectura = ProductoImportacionCsv.leer(csv);
+        return importar(lectura.productos(),
+                (i, j) -> "línea " + lectura.lineas().get(i).get(j == null ? 0 : j + 1));
+    }
+
+    private ResultadoImportacionDTO importar(List<ProductoImportDTO> productos,
+            BiFunction<Integer, Integer, String> etiqueta) {
+        if (productos == null || productos.isEmpty()) {
+            throw new IllegalArgumentException("La importación no tiene productos");
+        }
+        if (productos.size() > LIMITE_PRODUCTOS) {
+            throw new IllegalArgumentException(
+                    "La importación admite hasta " + LIMITE_PRODUCTOS + " productos base por solicitud");
+        }
+
+        Plan plan = validar(productos, etiqueta);
+        List<Long> actualizados = new ArrayList<>();
+        ResultadoImportacionDTO resultado = escribir(productos, plan, actualizados);
+
+        eventos.publishEvent(MenuCatalogoRegistry.CambioCatalogo.deProductos(actualizados));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                notificationService.notificarProductosImportados(resultado);
+            }
+        });
+        log.info("Importación de productos: {}", resultado);
+        return resultado;
+    }
+
+    /**
+     * Lo que ya existe en la base para esta importación, cargado en pocas consultas.
+     */
+    private record Plan(Map<Integer, Producto> bases, Map<Long, List<Producto>> variantes,
+            Map<Long, CategoriaProducto> categorias) {
+    }
+
+    private Plan validar(List<ProductoImportDTO> productos, BiFunction<Integer, Integer, String> etiqueta) {
+        Map<String, String> errores = new LinkedHashMap<>();
+
+        // Existentes: por id y por SKU (un producto base con ese SKU se actualiza)
+        Set<Long> ids = productos.stream().map(ProductoImportDTO::id).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, Producto> porId = productoRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Producto::getId, Function.identity()));
+        Set<String> skus = new HashSet<>();
+        for (ProductoImportDTO p : productos) {
+            agregarSku(skus, p.sku());
+            if (p.variantes() != null) {
+                p.variantes().forEach(v -> agregarSku(skus, v.sku()));
+            }
+        }
+        Map<String, Producto> porSku = skus.isEmpty() ? Map.of()
+                : productoRepository.findBySkuIn(skus).stream()
+                        .collect(Collectors.toMap(Producto::getSku, Function.identity(), (a, b) -> a));
+
+        Map<Integer, Producto> bases = new HashMap<>();
+        for (int i = 0; i < productos.size(); i++) {
+            ProductoImportDTO p = productos.get(i);
+            String sku = normalizar(p.sku());
+            Producto existente = p.id() != null ? porId.get(p.id()) : sku != null ? porSku.get(sku) : null;
+            if (p.id() != null && existente == null) {
+                error(errores, etiqueta.apply(i, null), "No existe el producto con id " + p.id());
+            } else if (existente != null && existente.getProductoBase() != null) {
+                error(errores, etiqueta.apply(i, null), "El producto " + existente.getId()
+                        + " es una variante; se importa dentro de su producto base");
+            } else if (existente != null) {
+                bases.put(i, existente);
+            }
+        }
+        Map<Long, List<Producto>> variantes = bases.isEmpty() ? Map.of()
+                : productoRepository.findByProductoBaseIdIn(
+                        bases.values().stream().map(Producto::getId).collect(Collectors.toSet())).stream()
+                        .collect(Collectors.groupingBy(v -> v.getProductoBase().getId()));
+
+        Set<Long> categoriaIds = productos.stream().map(ProductoImportDTO::categoriaId).filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, CategoriaProducto> categorias = categoriaRepository.findAllById(categoriaIds).stream()
+                .collect(Collectors.toMap(CategoriaProducto::getId, Function.identity()));
+
+        // Cada SKU a lo más en un producto del archivo, y solo en el que ya lo tiene en la base
+        Map<String, String> skuEnArchivo = new HashMap<>();
+        Set<Long> basesRepetidas = new HashSet<>();
+        for (int i = 0; i < productos.size(); i++) {
+            ProductoImportDTO p = productos.get(i);
+            String clave = etiqueta.apply(i, null);
+            Producto base = bases.get(i);
+
+            if (base != null && !basesRepetidas.add(base.getId())) {
+                error(errores, clave, "El producto " + base.getId() + " aparece más de una vez");
+            }
+            if (base == null) {
+                if (p.nombre() == null || p.nombre().isBlank()) {
+                    error(errores, clave, "El nombre es obligatorio");
+                }
+                if (p.precio() == null) {
+                    error(errores, clave, "El precio es obligatorio");
+                }
+            }
+            validarImporte(errores, clave, "precio", p.precio());
+            validarImporte(errores, clave, "costoEstimado", p.costoEstimado());
+            if (p.categoriaId() != null && !categorias.containsKey(p.categoriaId())) {
+                error(errores, clave, "Categoría no encontrada con id: " + p.categoriaId());
+            }
+            validarSku(errores, clave, p.sku(), base, skuEnArchivo, porSku);
+
+            if (p.variantes() == null) {
+                continue;
+            }
+            Map<String, Producto> existentes = variantesPorNombre(base, variantes);
+            Set<String> nombres = new HashSet<>();
+            for (int j = 0; j < p.variantes().size(); j++) {
+                ProductoImportDTO.VarianteImportDTO v = p.variantes().get(j);
+                String claveVariante = etiqueta.apply(i, j);
+                String nombre = clave(v.nombreVariante());
+                if (nombre == null) {
+                    error(errores, claveVariante, "El nombre de la variante es obligatorio");
+                } else if (!nombres.add(nombre)) {
+                    error(errores, claveVariante, "Variante repetida: " + v.nombreVariante().trim());
+                }
+                validarImporte(errores, claveVariante, "precio", v.precio());
+                validarImporte(errores, claveVariante, "costoEstimado", v.costoEstimado());
+                validarSku(errores, claveVariante, v.sku(), nombre != null ? existentes.get(nombre) : null,
+                        skuEnArchivo, porSku);
+            }
+        }
+
+        if (!errores.isEmpty()) {
+            throw new ImportacionInvalidaException(errores);
+        }
+        return new Plan(bases, variantes, categorias);
+    }
+
+    /**
+     * Aplica la importación; deja en actualizados los ids de los productos existentes que
+     * cambiaron (los nuevos no pueden estar en caché).
+     */
+    private ResultadoImportacionDTO escribir(List<ProductoImportDTO> productos, Plan plan, List<Long> actualizados) {
+        List<Producto> nuevos = new ArrayList<>();
+        int productosCreados = 0;
+        int productosActualizados = 0;
+        int variantesCreadas = 0;
+        int variantesActualizadas = 0;
+
+        for (int i = 0; i < productos.size(); i++) {
+            ProductoImportDTO p = productos.get(i);
+            Producto base = plan.bases().get(i);
+            if (base == null) {
+                base = new Producto();
+                nuevos.add(base);
+                productosCreados++;
+            } else {
+                productosActualizados++;
+                actualizados.add(base.getId());
+            }
+            aplicar(p, base, plan.categorias());
+
+            if (p.variantes() == null) {
+                continue;
+            }
+            Map<String, Producto> existentes = variantesPorNombre(plan.bases().get(i), plan.variantes());
+            for (ProductoImportDTO.VarianteImportDTO v : p.variantes()) {
+                Producto variante = existentes.get(clave(v.nombreVariante()));
+                if (variante == null) {
+                    variante = new Producto();
+                    variante.setProductoBase(base);
+                    variante.setActivo(true);
+                    nuevos.add(variante);
+                    variantesCreadas++;
+                } else {
+                    variantesActualizadas++;
+                    actualizados.add(variante.getId());
+                }
+                aplicar(v, base, variante);
+            }
+        }
+
+        // Los existentes se guardan al hacer flush (dirty checking); los nuevos en lotes
+        productoRepository.saveAll(nuevos);
+        productoRepository.flush();
+        return new ResultadoImportacionDTO(productosCreados, productosActualizados, variantesCreadas,
+                variantesActualizadas);
+    }
+
+    private static void aplicar(ProductoImportDTO dto, Producto p, Map<Long, CategoriaProducto> categorias) {
+        if (dto.nombre() != null && !dto.nombre().isBlank())
+            p.setNombre(dto.nombre().trim());
+        if (dto.descripcion() != null)
+            p.setDescripcion(dto.descripcion());
+        if (dto.categoriaId() != null)
+            p.setCategoria(categorias.get(dto.categoriaId()));
+        if (dto.precio() != null)
+            p.setPrecio(dto.precio());
+        if (dto.costoEstimado() != null)
+            p.setCostoEstimado(dto.costoEstimado());
+        if (normalizar(dto.sku()) != null)
+            p.setSku(normalizar(dto.sku()));
+        if (dto.activo() != null)
+            p.setActivo(dto.activo());
+        if (dto.disponibleEnMenu() != null)
+            p.setDisponibleEnMenu(dto.disponibleEnMenu());
+    }
+
+    /**
+     * Variante nueva o existente: hereda del producto base lo que no trae (igual que
+     * ProductoService.crearVariante) y el nombre completo se arma con el del producto base.
+     */
+    private static void aplicar(ProductoImportDTO.VarianteImportDTO dto, Producto base, Producto v) {
+        String nombreVariante = dto.nombreVariante().trim();
+        v.setNombreVariante(nombreVariante);
+        v.setNombre(base.getNombre() + " - " + nombreVariante);
+        v.setDescripcion(base.getDescripcion());
+        v.setCategoria(base.getCategoria());
+        v.setDisponibleEnMenu(base.getDisponibleEnMenu());
+        if (dto.precio() != null || v.getPrecio() == null)
+            v.setPrecio(dto.precio() != null ? dto.precio() : base.getPrecio());
+        if (dto.costoEstimado() != null || v.getCostoEstimado() == null)
+            v.setCostoEstimado(dto.costoEstimado() != null ? dto.costoEstimado() : base.getCostoEstimado());
+        if (normalizar(dto.sku()) != null)
+            v.setSku(normalizar(dto.sku()));
+        if (dto.ordenVariante() != null)
+            v.setOrdenVariante(dto.ordenVariante());
+    }
+
+    /**
+     * El SKU no puede repetirse en el archivo ni pertenecer en la base a otro producto que
+     * el que se actualiza.
+     */
+    private static void validarSku(Map<String, String> errores, String clave, String sku, Producto actual,
+            Map<String, String> skuEnArchivo, Map<String, Producto> porSku) {
+        String codigo = normalizar(sku);
+        if (codigo == null) {
+            return;
+        }
+        if (codigo.length() > 50) {
+            error(errores, clave, "El SKU admite hasta 50 caracteres");
+        }
+        String previa = skuEnArchivo.putIfAbsent(codigo, clave);
+        if (previa != null) {
+            error(errores, clave, "SKU repetido en la importación: " + codigo + " (también en " + previa + ")");
+            return;
+        }
+        Producto duenio = porSku.get(codigo);
+        if (duenio != null && (actual == null || !duenio.getId().equals(actual.getId()))) {
+            error(errores, clave, "El SKU " + codigo + " ya pertenece al producto " + duenio.getId());
+        }
+    }
+
+    private static void validarImporte(Map<String, String> errores, String clave, String campo, BigDecimal valor) {
+        if (valor != null && valor.signum() < 0) {
+            error(errores, clave, campo + " debe ser positivo o cero");
+        }
+    }
+
+    private static Map<String, Producto> variantesPorNombre(Producto base, Map<Long, List<Producto>> variantes) {
+        if (base == null) {
+            return Map.of();
+        }
+        Map<String, Producto> porNombre = new HashMap<>();
+        for (Producto v : variantes.getOrDefault(base.getId(), List.of())) {
+            if (v.getNombreVariante() != null) {
+                porNombre.putIfAbsent(clave(v.getNombreVariante()), v);
+            }
+        }
+        return porNombre;
+    }
+
+    private static void error(Map<String, String> errores, String clave, String mensaje) {
+        errores.merge(clave, mensaje, (a, b) -> a + "; " + b);
+    }
+
+    private static void agregarSku(Set<String> skus, String sku) {
+        String codigo = normalizar(sku);
+        if (codigo != null) {
+            skus.add(codigo);
+        }
+    }
+
+    /** Nombre de variante para comparar: sin espacios alrededor y sin mayúsculas. */
+    private static String clave(String nombreVariante) {
+        return nombreVariante == null || nombreVariante.isBlank() ? null
+                : nombreVariante.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String normalizar(String sku) {
+        return sku == null || sku.isBlank() ? null : sku.trim();
+    }
+}
@@ -1,50 +1,89 @@
 package com.puntodeventa.backend.service;
 
+import com.puntodeventa.backend.config.CacheRecargable;
 import com.puntodeventa.backend.dto.ProductoDTO;
 import com.puntodeventa.backend.exception.ResourceNotFoundException;
 import com.puntodeventa.backend.model.CategoriaProducto;
 import com.puntodeventa.backend.model.Producto;
 import com.puntodeventa.backend.repository.CategoriaProductoRepository;
 import com.puntodeventa.backend.repository.ProductoRepository;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
-public class ProductoService {
+public class ProductoService implements CacheRecargable {
+
+    private static final int LIMITE_BUSQUEDA = 100;
+
+    /** Índice único parcial de SKU (V015 y Producto). */
+    private static final String INDICE_SKU = "ux_productos_sku";
 
     private final ProductoRepository productoRepository;
     private final CategoriaProductoRepository categoriaRepository;
+    private final MenuCatalogoRegistry menuCatalogo;
+    private final ApplicationEventPublisher eventos;
 
-    public ProductoService(ProductoRepository productoRepository, CategoriaProductoRepository categoriaRepository) {
+    public ProductoService(ProductoRepository productoRepository, CategoriaProductoRepository categoriaRepository,
+            MenuCatalogoRegistry menuCatalogo, ApplicationEventPublisher eventos) {
         this.productoRepository = productoRepository;
         this.categoriaRepository = categoriaRepository;
+        this.menuCatalogo = menuCatalogo;
+        this.eventos = eventos;
     }
 
-    @Cacheable(value = "productos", unless = "#result.isEmpty()")
+    /**
+     * Productos base con sus variantes activas, filtrados sobre la foto inmutable del menú
+     * (se reconstruye una vez por cambio del catálogo, no por combinación de filtros).
+     */
     @Transactional(readOnly = true)
     public List<ProductoDTO> listar(Optional<Boolean> activo, Optional<Boolean> enMenu, Optional<Long> categoriaId,
             Optional<String> q) {
-        // Obtener solo productos base (producto_base_id IS NULL) - más eficiente que
-        // findAll()
-        List<Producto> productos = productoRepository.findByProductoBaseIdIsNull().stream()
-                .filter(p -> activo.map(a -> a.equals(p.getActivo())).orElse(true))
-                .filter(p -> enMenu.map(m -> m.equals(p.getDisponibleEnMenu())).orElse(true))
-                .filter(p -> categoriaId.map(id -> p.getCategoria() != null && id.equals(p.getCategoria().getId()))
-                        .orElse(true))
-                .filter(p -> q.map(s -> p.getNombre() != null && p.getNombre().toLowerCase().contains(s.toLowerCase()))
-                        .orElse(true))
-                .toList();
+        return menu().filtrar(activo, enMenu, categoriaId, q);
+    }
 
-        return productos.stream()
-                .map(this::toDTOWithVariantes)
-                .collect(Collectors.toList());
+    /**
+     * Búsqueda de la caja sobre el índice de la foto del menú (sin acentos, por prefijo y con
+     * tolerancia a errores de tecleo), ordenada por relevancia.
+     *
+     * @param soloMenu si es true, solo productos activos y disponibles en el menú
+     */
+    @Transactional(readOnly = true)
+    public List<ProductoDTO> buscar(String q, int limite, boolean soloMenu) {
+        if (q == null || q.isBlank()) {
+            throw new IllegalArgumentException("El texto de búsqueda es obligatorio");
+        }
+        return menu().buscar(q, Math.min(Math.max(limite, 1), LIMITE_BUSQUEDA), soloMenu);
+    }
+
+    /**
+     * Escaneo de código de barras / SKU en la caja: búsqueda en el mapa de la foto del menú.
+     * Sin transacción propia: con la foto vigente no se toca la base.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public ProductoDTO escanear(String sku) {
+        String codigo = normalizarSku(sku);
+        if (codigo == null) {
+            throw new IllegalArgumentException("El SKU es obligatorio");
+        }
+        return menu().porSku(codigo)
+                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con SKU: " + codigo));
+    }
+
+    @Transactional(readOnly = true)
+    public MenuSnapshot menu() {
+        return menuCatalogo.menu(this::cargarMenu);
     }
 
     @Cacheable(value = "productos", key = "#id")
@@ -52,14 +91,7 @@ public class ProductoService {
     public ProductoDTO obtener(Long id) {
         Producto p = productoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id));
-
-        // Si es un producto base (no tiene producto base), devolver con variantes
-        if (p.getProductoBase() == null) {
-            return toDTOWithVariantes(p);
-        } else {
-            // Si es una variante, devolver sin variantes
-            return toDTO(p);
-        }
+        return toDTODetalle(p);
     }
 
     /**
@@ -72,27 +104,40 @@ public class ProductoService {
         Producto productoBase = productoRepository.findById(productoBaseId)
                 .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + productoBaseId));
 
-        // Buscar variantes
-        return productoRepository.findAll().stream()
-                .filter(p -> p.getProductoBase() != null && p.getProductoBase().getId().equals(productoBaseId))
-                .sorted((v1, v2) -> {
-                    Integer orden1 = v1.getOrdenVariante() != null ? v1.getOrdenVariante() : 999;
-                    Integer orden2 = v2.getOrdenVariante() != null ? v2.getOrdenVariante() : 999;
-                    return orden1.compareTo(orden2);
-                })
-                .map(this::toDTO)
-                .collect(Collectors.toList());
+        return variantes(productoBase.getId());
+    }
+
+    @Override
+    public String cache() {
+        return "productos";
+    }
+
+    /**
+     * Recarga en segundo plano de una entrada de la caché "productos" (refresh-after-write):
+     * el producto por id o 'variantes-' + id.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Object recargar(Object clave) {
+        if (clave instanceof Long id) {
+            return productoRepository.findById(id).map(this::toDTODetalle).orElse(null);
+        }
+        if (clave instanceof String s && s.startsWith("variantes-")) {
+            Long id = Long.valueOf(s.substring("variantes-".length()));
+            return productoRepository.existsById(id) ? variantes(id) : null;
+        }
+        return null;
     }
 
-    @CacheEvict(value = "productos", allEntries = true)
     public ProductoDTO crear(ProductoDTO dto) {
+        validarSku(dto.sku(), null);
         Producto p = new Producto();
         apply(dto, p);
-        Producto guardado = productoRepository.save(p);
+        Producto guardado = guardar(p);
+        cambioCatalogo(guardado);
         return toDTO(guardado);
     }
 
-    @CacheEvict(value = "productos", allEntries = true)
     public ProductoDTO actualizar(Long id, ProductoDTO dto) {
         Producto p = productoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id));
@@ -100,27 +145,17 @@ public class ProductoService {
         // Si es una variante, validar que no haya otro nombreVariante igual en el mismo
         // productoBase
         if (p.getProductoBase() != null && dto.nombreVariante() != null) {
-            boolean existeOtraConSameNombre = productoRepository.findAll().stream()
-                    .filter(prod -> prod.getProductoBase() != null
-                            && prod.getProductoBase().getId().equals(p.getProductoBase().getId())
-                            && !prod.getId().equals(id) // Excluir la misma variante
-                            && prod.getNombreVariante() != null
-                            && prod.getNombreVariante().equalsIgnoreCase(dto.nombreVariante().trim()))
-                    .findAny()
-                    .isPresent();
-
-            if (existeOtraConSameNombre) {
-                throw new IllegalArgumentException(
-                        "Ya existe una variante con el nombre '" + dto.nombreVariante() + "' en este producto");
-            }
+            validarNombreVariante(p.getProductoBase().getId(), dto.nombreVariante(), id);
         }
+        validarSku(dto.sku(), id);
+        Long baseAnterior = p.getProductoBase() != null ? p.getProductoBase().getId() : null;
 
         apply(dto, p);
-        Producto guardado = productoRepository.save(p);
+        Producto guardado = guardar(p);
+        cambioCatalogo(guardado, baseAnterior);
         return toDTO(guardado);
     }
 
-    @CacheEvict(value = "productos", allEntries = true)
     public void eliminar(Long id) {
         Producto p = productoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id));
@@ -135,6 +170,9 @@ public class ProductoService {
         // Marcar el producto base como inactivo
         p.setActivo(false);
         productoRepository.save(p);
+        List<Long> afectados = new ArrayList<>(variantes.stream().map(Producto::getId).toList());
+        afectados.add(id);
+        eventos.publishEvent(MenuCatalogoRegistry.CambioCatalogo.deProductos(afectados));
     }
 
     /**
@@ -144,16 +182,12 @@ public class ProductoService {
      * - Recetas asociadas
      * - Variantes (si es producto base)
      */
-    @CacheEvict(value = "productos", allEntries = true)
     public void eliminarDefinitivamente(Long id) {
         Producto p = productoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id));
 
         // Verificar si el producto tiene variantes (si es un producto base)
-        List<Producto> variantes = productoRepository.findAll().stream()
-                .filter(prod -> prod.getProductoBase() != null && prod.getProductoBase().getId().equals(id))
-                .toList();
-        if (!variantes.isEmpty()) {
+        if (productoRepository.countVariantesByProductoBaseId(p.getId()) > 0) {
             throw new IllegalStateException("No se puede eliminar un producto base que tiene variantes");
         }
 
@@ -162,21 +196,27 @@ public class ProductoService {
 
         // Realizar el hard delete
         productoRepository.deleteById(id);
+        cambioCatalogo(p);
     }
 
     public ProductoDTO cambiarEstado(Long id, boolean activo) {
         Producto p = productoRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con id: " + id));
         p.setActivo(activo);
-        return toDTO(productoRepository.save(p));
+        Producto guardado = productoRepository.save(p);
+        cambioCatalogo(guardado);
+        return toDTO(guardado);
     }
 
-    @CacheEvict(value = "productos", allEntries = true)
     public ProductoDTO crearVariante(Long productoBaseId, ProductoDTO dto) {
         // Verificar que el producto base existe
         Producto productoBase = productoRepository.findById(productoBaseId)
                 .orElseThrow(
                         () -> new ResourceNotFoundException("Producto base no encontrado con id: " + productoBaseId));
+        if (dto.nombreVariante() != null) {
+            validarNombreVariante(productoBaseId, dto.nombreVariante(), null);
+        }
+        validarSku(dto.sku(), null);
 
         // Crear la variante
         Producto variante = new Producto();
@@ -188,15 +228,106 @@ public class ProductoService {
         variante.setDescripcion(productoBase.getDescripcion());
         variante.setCategoria(productoBase.getCategoria());
         variante.setCostoEstimado(dto.costoEstimado() != null ? dto.costoEstimado() : productoBase.getCostoEstimado());
-        variante.setSku(dto.sku());
+        variante.setSku(normalizarSku(dto.sku()));
         variante.setActivo(true);
         variante.setDisponibleEnMenu(productoBase.getDisponibleEnMenu());
         variante.setOrdenVariante(dto.ordenVariante());
 
-        Producto guardada = productoRepository.save(variante);
+        Producto guardada = guardar(variante);
+        cambioCatalogo(guardada);
         return toDTO(guardada);
     }
 
+    /**
+     * Rechaza un nombre de variante repetido (sin distinguir mayúsculas) dentro del mismo
+     * producto base. En PostgreSQL lo garantiza además ux_productos_base_nombre_variante.
+     */
+    private void validarNombreVariante(Long productoBaseId, String nombreVariante, Long excluirId) {
+        if (productoRepository.existsVarianteConNombre(productoBaseId, nombreVariante.trim(), excluirId)) {
+            throw new IllegalArgumentException(
+                    "Ya existe una variante con el nombre '" + nombreVariante + "' en este producto");
+        }
+    }
+
+    /**
+     * Rechaza un SKU que ya usa otro producto (lo garantiza además ux_productos_sku).
+     */
+    private void validarSku(String sku, Long excluirId) {
+        String codigo = normalizarSku(sku);
+        if (codigo != null && productoRepository.existsOtroConSku(codigo, excluirId)) {
+            throw new IllegalArgumentException("Ya existe un producto con el SKU '" + codigo + "'");
+        }
+    }
+
+    /**
+     * Guarda el producto escribiéndolo de inmediato: si otro producto tomó el mismo SKU entre
+     * validarSku y el INSERT/UPDATE, ux_productos_sku lo rechaza y se responde con el mismo
+     * error de validación en lugar de un conflicto de integridad genérico.
+     */
+    private Producto guardar(Producto p) {
+        try {
+            return productoRepository.saveAndFlush(p);
+        } catch (DataIntegrityViolationException e) {
+            String detalle = e.getMostSpecificCause().getMessage();
+            if (p.getSku() != null && detalle != null && detalle.toLowerCase().contains(INDICE_SKU)) {
+                throw new IllegalArgumentException("Ya existe un producto con el SKU '" + p.getSku() + "'", e);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * SKU sin espacios alrededor; vacío se guarda como null (no cuenta para el índice único).
+     */
+    private static String normalizarSku(String sku) {
+        return sku == null || sku.isBlank() ? null : sku.trim();
+    }
+
+    /**
+     * Publica el cambio del producto y de su producto base (cuya lista de variantes cambia);
+     * el menú y las cachés invalidan solo esas entradas.
+     */
+    private void cambioCatalogo(Producto p, Long... otros) {
+        List<Long> afectados = new ArrayList<>(Arrays.asList(otros));
+        afectados.add(p.getId());
+        if (p.getProductoBase() != null) {
+            afectados.add(p.getProductoBase().getId());
+        }
+        eventos.publishEvent(MenuCatalogoRegistry.CambioCatalogo.deProductos(afectados));
+    }
+
+    /**
+     * Carga el menú completo en dos consultas: productos base (con categoría) y variantes
+     * activas, agrupadas en memoria por producto base.
+     */
+    private MenuSnapshot.Contenido cargarMenu() {
+        List<Producto> bases = productoRepository.findBasesConCategoria();
+        List<Producto> activas = productoRepository.findByProductoBaseIsNotNullAndActivoTrue();
+        Map<Long, List<Producto>> variantes = activas.stream()
+                .collect(Collectors.groupingBy(v -> v.getProductoBase().getId()));
+        return new MenuSnapshot.Contenido(
+                bases.stream()
+                        .map(p -> toDTOWithVariantes(p, variantes.getOrDefault(p.getId(), List.of())))
+                        .toList(),
+                activas.stream().map(this::toDTO).toList());
+    }
+
+    /**
+     * Producto base con sus variantes activas; una variante, sin variantes.
+     */
+    private ProductoDTO toDTODetalle(Producto p) {
+        return p.getProductoBase() == null ? toDTOWithVariantes(p) : toDTO(p);
+    }
+
+    /**
+     * Variantes de un producto base (consulta por producto_base_id, ya ordenada).
+     */
+    private List<ProductoDTO> variantes(Long productoBaseId) {
+        return productoRepository.findVariantesOrdenadas(productoBaseId).stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
     private void apply(ProductoDTO dto, Producto p) {
         if (dto.nombre() != null)
             p.setNombre(dto.nombre());
@@ -210,7 +341,7 @@ public class ProductoService {
         }
         p.setPrecio(dto.precio());
         p.setCostoEstimado(dto.costoEstimado());
-        p.setSku(dto.sku());
+        p.setSku(normalizarSku(dto.sku()));
         if (dto.activo() != null)
             p.setActivo(dto.activo());
         if (dto.disponibleEnMenu() != null)
@@ -267,8 +398,11 @@ public class ProductoService {
      */
     private ProductoDTO toDTOWithVariantes(Producto productoBase) {
         // Usar la relación inversa @OneToMany para obtener variantes
-        List<Producto> variantesProducto = productoBase.getVariantes() != null ? productoBase.getVariantes()
-                : new java.util.ArrayList<>();
+        return toDTOWithVariantes(productoBase, productoBase.getVariantes() != null ? productoBase.getVariantes()
+                : List.of());
+    }
+
+    private ProductoDTO toDTOWithVariantes(Producto productoBase, List<Producto> variantesProducto) {
 
         List<ProductoDTO.VarianteDTO> variantes = variantesProducto.stream()
                 .filter(v -> Boolean.TRUE.equals(v.getActivo())) // Solo variantes activas
@@ -282,7 +416,8 @@ public class ProductoService {
                         v.getNombre(),
                         v.getNombreVariante(),
                         v.getPrecio(),
-                        v.getOrdenVariante()))
+                        v.getOrdenVariante(),
+                        v.getSku()))
                 .toList();
 
         return new ProductoDTO(
@@ -1,5 +1,6 @@
 package com.puntodeventa.backend.service;
 
+import com.puntodeventa.backend.config.CacheRecargable;
 import com.puntodeventa.backend.dto.RecetaDTO;
 import com.puntodeventa.backend.exception.ResourceNotFoundException;
 import com.puntodeventa.backend.mapper.InventarioMapper;
@@ -9,43 +10,75 @@ import com.puntodeventa.backend.repository.ProductoRepository;
 import com.puntodeventa.backend.repository.RecetaRepository;
 import com.puntodeventa.backend.repository.UnidadRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Servicio para gestión de recetas (BOM - Bill of Materials).
+ * Cada escritura publica un {@link CatalogoCacheInvalidador.CambioRecetas} con el producto y
+ * los ingredientes afectados, en lugar de vaciar la caché "recetas".
  */
 @Service
 @RequiredArgsConstructor
 @Transactional(readOnly = true)
-public class RecetaService {
+public class RecetaService implements CacheRecargable {
 
     private final RecetaRepository recetaRepository;
     private final ProductoRepository productoRepository;
     private final IngredienteRepository ingredienteRepository;
     private final UnidadRepository unidadRepository;
     private final InventarioMapper mapper;
+    private final ApplicationEventPublisher eventos;
+    private final CostoRecetaService costos;
 
     @Cacheable(value = "recetas", key = "'producto-' + #productoId")
     public List<RecetaDTO> obtenerPorProducto(Long productoId) {
+        return recetasDeProducto(productoId);
+    }
+
+    @Cacheable(value = "recetas", key = "'ingrediente-' + #ingredienteId")
+    public List<RecetaDTO> obtenerPorIngrediente(Long ingredienteId) {
+        return recetasDeIngrediente(ingredienteId);
+    }
+
+    @Override
+    public String cache() {
+        return "recetas";
+    }
+
+    /**
+     * Recarga en segundo plano de una entrada de la caché "recetas" (refresh-after-write).
+     */
+    @Override
+    public Object recargar(Object clave) {
+        if (clave instanceof String s && s.startsWith("producto-")) {
+            return recetasDeProducto(Long.valueOf(s.substring("producto-".length())));
+        }
+        if (clave instanceof String s && s.startsWith("ingrediente-")) {
+            return recetasDeIngrediente(Long.valueOf(s.substring("ingrediente-".length())));
+        }
+        return null;
+    }
+
+    private List<RecetaDTO> recetasDeProducto(Long productoId) {
         return recetaRepository.findByProductoIdWithDetails(productoId).stream()
                 .map(mapper::toRecetaDTO)
                 .toList();
     }
 
-    @Cacheable(value = "recetas", key = "'ingrediente-' + #ingredienteId")
-    public List<RecetaDTO> obtenerPorIngrediente(Long ingredienteId) {
+    private List<RecetaDTO> recetasDeIngrediente(Long ingredienteId) {
         return recetaRepository.findByIngredienteId(ingredienteId).stream()
                 .map(mapper::toRecetaDTO)
                 .toList();
     }
 
-    @CacheEvict(value = "recetas", allEntries = true)
     @Transactional
     public RecetaDTO crear(RecetaDTO dto) {
         // Validar que el producto existe
@@ -72,10 +105,11 @@ public class RecetaService {
                 .build();
 
         receta = recetaRepository.save(receta);
+        costos.recetasModificadas(dto.productoId());
+        eventos.publishEvent(CatalogoCacheInvalidador.CambioRecetas.de(dto.productoId(), dto.ingredienteId()));
         return mapper.toRecetaDTO(receta);
     }
 
-    @CacheEvict(value = "recetas", allEntries = true)
     @Transactional
     public RecetaDTO actualizar(Long productoId, Long ingredienteId, RecetaDTO dto) {
         RecetaId recetaId = new RecetaId(productoId, ingredienteId);
@@ -92,10 +126,11 @@ public class RecetaService {
         receta.setMermaTeorica(dto.mermaTeorica() != null ? dto.mermaTeorica() : BigDecimal.ZERO);
 
         receta = recetaRepository.save(receta);
+        costos.recetasModificadas(productoId);
+        eventos.publishEvent(CatalogoCacheInvalidador.CambioRecetas.de(productoId, ingredienteId));
         return mapper.toRecetaDTO(receta);
     }
 
-    @CacheEvict(value = "recetas", allEntries = true)
     @Transactional
     public void eliminar(Long productoId, Long ingredienteId) {
         RecetaId recetaId = new RecetaId(productoId, ingredienteId);
@@ -104,46 +139,24 @@ public class RecetaService {
                     "Receta no encontrada para producto: " + productoId + " e ingrediente: " + ingredienteId);
         }
         recetaRepository.deleteById(recetaId);
+        costos.recetasModificadas(productoId);
+        eventos.publishEvent(CatalogoCacheInvalidador.CambioRecetas.de(productoId, ingredienteId));
     }
 
-    @CacheEvict(value = "recetas", allEntries = true)
     @Transactional
     public void eliminarRecetasDeProducto(Long productoId) {
         List<Receta> recetas = recetaRepository.findByProductoId(productoId);
         recetaRepository.deleteAll(recetas);
+        costos.recetasModificadas(productoId);
+        eventos.publishEvent(new CatalogoCacheInvalidador.CambioRecetas(Set.of(productoId),
+                recetas.stream().map(Receta::getIngredienteId).collect(Collectors.toSet())));
     }
 
     /**
      * Calcula el costo estándar de un producto basado en su receta.
-     * Incluye el ajuste por merma teórica.
+     * Incluye el ajuste por merma teórica. Lo calcula una vez el {@link CostoRecetaService}.
      */
     public BigDecimal calcularCostoReceta(Long productoId) {
-        List<Receta> recetas = recetaRepository.findByProductoIdWithDetails(productoId);
-
-        if (recetas.isEmpty()) {
-            return BigDecimal.ZERO;
-        }
-
-        return recetas.stream()
-                .map(this::calcularCostoIngrediente)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    private BigDecimal calcularCostoIngrediente(Receta receta) {
-        BigDecimal cantidad = receta.getCantidad();
-        BigDecimal mermaTeorica = receta.getMermaTeorica();
-        BigDecimal costoUnitario = receta.getIngrediente().getCostoUnitarioBase();
-
-        // cantidad_real = cantidad / (1 - merma_teorica)
-        BigDecimal cantidadReal = mermaTeorica.compareTo(BigDecimal.ONE) < 0
-                ? cantidad.divide(BigDecimal.ONE.subtract(mermaTeorica), 6, BigDecimal.ROUND_HALF_UP)
-                : cantidad;
-
-        // Aplicar factor de conversión de unidad si es necesario
-        BigDecimal factorConversion = receta.getUnidad().getFactorBase();
-        BigDecimal cantidadEnUnidadBase = cantidadReal.multiply(factorConversion);
-
-        // costo = cantidad_en_unidad_base * costo_unitario_base
-        return cantidadEnUnidadBase.multiply(costoUnitario);
+        return costos.costo(productoId);
     }
 }
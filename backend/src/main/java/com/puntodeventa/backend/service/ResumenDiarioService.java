@@ -0,0 +1,315 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.aggregate.ResumenDiarioAggregate;
+import com.puntodeventa.backend.model.Gasto;
+import com.puntodeventa.backend.model.ResumenDiario;
+import com.puntodeventa.backend.model.Venta;
+import com.puntodeventa.backend.model.VentaItem;
+import com.puntodeventa.backend.repository.GastoRepository;
+import com.puntodeventa.backend.repository.ResumenDiarioRepository;
+import com.puntodeventa.backend.repository.VentaItemRepository;
+import com.puntodeventa.backend.repository.VentaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mantiene el acumulado diario por sucursal (tabla resumen_diario) que alimenta
+ * los resúmenes de EstadisticasService.
+ *
+ * Cada alta/edición/cancelación/eliminación de venta y cada alta/edición/eliminación
+ * de gasto aplica su aporte con un UPDATE atómico dentro de la misma transacción,
+ * así que un resumen de rango suma a lo más (días x sucursales) filas en lugar de
+ * recorrer ventas, items y gastos. {@link #reconstruir()} corrige la tabla contra
+ * los datos crudos (también se ejecuta al arrancar si la tabla está vacía).
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class ResumenDiarioService {
+
+    private static final String GASTO_OPERACIONAL = "Operacional";
+
+    /** Un 'hasta' a partir de esta hora se considera fin del día (el frontend envía 23:59:59). */
+    private static final LocalTime INICIO_FIN_DEL_DIA = LocalTime.of(23, 59, 59);
+
+    /** Reconstrucción inicial en tareas_programadas, y cuánto dura su turno. */
+    static final String TAREA_RECONSTRUCCION = "reconstruccion-resumen-diario";
+    private static final Duration TURNO_RECONSTRUCCION = Duration.ofMinutes(30);
+
+    private static final String SQL_CREAR_FILA = """
+        INSERT INTO resumen_diario (fecha, sucursal_id, total_ventas, subtotal_ventas, cantidad_ventas,
+                                    items_vendidos, costo_productos, gastos_operacionales)
+        VALUES (?, ?, 0, 0, 0, 0, 0, 0)
+        """;
+
+    /**
+     * Aporte de una venta o un gasto al acumulado de un día/sucursal.
+     */
+    public record Aporte(LocalDate fecha, Long sucursalId, BigDecimal total, BigDecimal subtotal,
+                         long ventas, long items, BigDecimal costo, BigDecimal gastos) {
+
+        /** Sin aporte (venta no cerrada o gasto no operacional). */
+        public static final Aporte NINGUNO = new Aporte(null, null, BigDecimal.ZERO, BigDecimal.ZERO,
+            0, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+
+        public boolean vacio() {
+            return fecha == null;
+        }
+
+        Aporte negado() {
+            return new Aporte(fecha, sucursalId, total.negate(), subtotal.negate(), -ventas, -items,
+                costo.negate(), gastos.negate());
+        }
+
+        /** Suma de dos aportes del mismo día/sucursal. */
+        Aporte sumar(Aporte otro) {
+            return new Aporte(fecha, sucursalId, total.add(otro.total), subtotal.add(otro.subtotal),
+                ventas + otro.ventas, items + otro.items, costo.add(otro.costo), gastos.add(otro.gastos));
+        }
+
+        boolean cero() {
+            return total.signum() == 0 && subtotal.signum() == 0 && ventas == 0 && items == 0
+                && costo.signum() == 0 && gastos.signum() == 0;
+        }
+    }
+
+    private final ResumenDiarioRepository resumenDiarioRepository;
+    private final VentaRepository ventaRepository;
+    private final VentaItemRepository ventaItemRepository;
+    private final GastoRepository gastoRepository;
+    private final FilaUnica filaUnica;
+    private final TareaProgramadaService tareas;
+    private final TransactionTemplate reconstruccion;
+
+    public ResumenDiarioService(ResumenDiarioRepository resumenDiarioRepository, VentaRepository ventaRepository,
+                                VentaItemRepository ventaItemRepository, GastoRepository gastoRepository,
+                                FilaUnica filaUnica, TareaProgramadaService tareas,
+                                PlatformTransactionManager transactionManager) {
+        this.resumenDiarioRepository = resumenDiarioRepository;
+        this.ventaRepository = ventaRepository;
+        this.ventaItemRepository = ventaItemRepository;
+        this.gastoRepository = gastoRepository;
+        this.filaUnica = filaUnica;
+        this.tareas = tareas;
+        this.reconstruccion = new TransactionTemplate(transactionManager);
+        this.reconstruccion.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    /**
+     * Aporte de la venta en su estado actual; solo las ventas cerradas cuentan.
+     */
+    public Aporte aporteVenta(Venta venta) {
+        if (!"cerrada".equals(venta.getEstado()) || venta.getFecha() == null) {
+            return Aporte.NINGUNO;
+        }
+        long items = 0;
+        BigDecimal costo = BigDecimal.ZERO;
+        for (VentaItem item : venta.getItems()) {
+            items += item.getCantidad() != null ? item.getCantidad() : 0;
+            if (item.getCostoEstimado() != null) {
+                costo = costo.add(item.getCostoEstimado());
+            }
+        }
+        Long sucursalId = venta.getSucursal() != null ? venta.getSucursal().getId() : null;
+        return new Aporte(venta.getFecha().toLocalDate(), sucursalId(sucursalId),
+            valor(venta.getTotal()), valor(venta.getSubtotal()), 1, items, costo, BigDecimal.ZERO);
+    }
+
+    /**
+     * Aporte del gasto en su estado actual; solo los gastos operacionales cuentan.
+     */
+    public Aporte aporteGasto(Gasto gasto) {
+        if (!GASTO_OPERACIONAL.equals(gasto.getTipoGasto()) || gasto.getFecha() == null) {
+            return Aporte.NINGUNO;
+        }
+        Long sucursalId = gasto.getSucursal() != null ? gasto.getSucursal().getId() : null;
+        return new Aporte(gasto.getFecha().toLocalDate(), sucursalId(sucursalId),
+            BigDecimal.ZERO, BigDecimal.ZERO, 0, 0, BigDecimal.ZERO, valor(gasto.getMonto()));
+    }
+
+    @Transactional
+    public void sumar(Aporte aporte) {
+        if (!aporte.vacio()) {
+            acumular(aporte);
+        }
+    }
+
+    @Transactional
+    public void restar(Aporte aporte) {
+        if (!aporte.vacio()) {
+            acumular(aporte.negado());
+        }
+    }
+
+    /**
+     * Resumen de ventas cerradas y gastos operacionales del rango [desde, hasta].
+     *
+     * Los días completos se suman desde resumen_diario; las fracciones de día en los
+     * extremos (si el rango no empieza a medianoche o no termina al final del día) se
+     * calculan sobre los datos crudos, que para una fracción de día son pocos.
+     */
+    public ResumenDiarioAggregate resumenRango(LocalDateTime desde, LocalDateTime hasta) {
+        LocalDate primerDia = desde.toLocalTime().equals(LocalTime.MIDNIGHT)
+            ? desde.toLocalDate()
+            : desde.toLocalDate().plusDays(1);
+        LocalDate ultimoDia = hasta.toLocalTime().isBefore(INICIO_FIN_DEL_DIA)
+            ? hasta.toLocalDate().minusDays(1)
+            : hasta.toLocalDate();
+
+        if (primerDia.isAfter(ultimoDia)) {
+            // Rango sin ningún día completo
+            return crudo(desde, hasta);
+        }
+
+        ResumenDiarioAggregate resumen = resumenDiarioRepository.sumarRango(primerDia, ultimoDia);
+        if (desde.isBefore(primerDia.atStartOfDay())) {
+            resumen = resumen.sumar(crudo(desde, primerDia.atStartOfDay().minus(1, ChronoUnit.MICROS)));
+        }
+        LocalDateTime inicioSiguiente = ultimoDia.plusDays(1).atStartOfDay();
+        if (!hasta.isBefore(inicioSiguiente)) {
+            resumen = resumen.sumar(crudo(inicioSiguiente, hasta));
+        }
+        return resumen;
+    }
+
+    /**
+     * Resumen del día completo de una sucursal, leído solo de resumen_diario.
+     */
+    public ResumenDiarioAggregate resumenDiaSucursal(LocalDate fecha, Long sucursalId) {
+        return resumenDiarioRepository.sumarRangoSucursal(fecha, fecha, sucursalId(sucursalId));
+    }
+
+    /**
+     * Recalcula resumen_diario completo desde ventas, items y gastos.
+     *
+     * Los datos crudos y las filas actuales se leen en la misma instantánea
+     * (REPEATABLE_READ) y cada fila recibe la diferencia con el mismo UPDATE atómico que
+     * las ventas, sin borrar la tabla: el aporte de una venta concurrente que la
+     * instantánea no vio se conserva (y si esa venta tocó una fila a corregir, la
+     * reconstrucción falla y se puede repetir, pero no pisa su aporte).
+     *
+     * @return filas (día/sucursal) con datos
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int reconstruir() {
+        Map<String, ResumenDiario> filas = new HashMap<>();
+        for (Object[] f : ventaRepository.sumCerradasPorDiaYSucursal()) {
+            ResumenDiario fila = fila(filas, f);
+            fila.setTotalVentas(decimal(f[2]));
+            fila.setSubtotalVentas(decimal(f[3]));
+            fila.setCantidadVentas(((Number) f[4]).longValue());
+        }
+        for (Object[] f : ventaItemRepository.sumItemsCerradasPorDiaYSucursal()) {
+            ResumenDiario fila = fila(filas, f);
+            fila.setItemsVendidos(f[2] != null ? ((Number) f[2]).longValue() : 0L);
+            fila.setCostoProductos(decimal(f[3]));
+        }
+        for (Object[] f : gastoRepository.sumMontoByTipoGastoPorDiaYSucursal(GASTO_OPERACIONAL)) {
+            fila(filas, f).setGastosOperacionales(decimal(f[2]));
+        }
+
+        Map<String, Aporte> diferencias = new HashMap<>();
+        filas.forEach((clave, fila) -> diferencias.put(clave, aporte(fila)));
+        for (ResumenDiario actual : resumenDiarioRepository.findAll()) {
+            diferencias.merge(clave(actual.getFecha(), actual.getSucursalId()), aporte(actual).negado(),
+                Aporte::sumar);
+        }
+        int corregidas = 0;
+        for (Aporte diferencia : diferencias.values()) {
+            if (!diferencia.cero()) {
+                acumular(diferencia);
+                corregidas++;
+            }
+        }
+        log.info("resumen_diario reconstruido: {} filas (día/sucursal), {} corregidas", filas.size(), corregidas);
+        return filas.size();
+    }
+
+    /**
+     * Puebla resumen_diario al arrancar si está vacía (primera ejecución tras la migración
+     * o BD de desarrollo recién creada). Si varios nodos arrancan a la vez, solo la
+     * reconstruye el que toma la tarea en {@link TareaProgramadaService}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void reconstruirSiVacio() {
+        if (resumenDiarioRepository.count() > 0 || !tareas.tomar(TAREA_RECONSTRUCCION, TURNO_RECONSTRUCCION)) {
+            return;
+        }
+        reconstruccion.executeWithoutResult(status -> {
+            if (resumenDiarioRepository.count() == 0) {
+                reconstruir();
+            }
+        });
+    }
+
+    private void acumular(Aporte a) {
+        if (actualizar(a) > 0) {
+            return;
+        }
+        // Primera operación del día/sucursal: se crea la fila en la transacción de la venta (si
+        // otra venta concurrente la creó primero, el INSERT se descarta) y se vuelve a acumular
+        filaUnica.insertarSiFalta(SQL_CREAR_FILA, a.fecha(), a.sucursalId());
+        actualizar(a);
+    }
+
+    private int actualizar(Aporte a) {
+        return resumenDiarioRepository.acumular(a.fecha(), a.sucursalId(), a.total(), a.subtotal(),
+            a.ventas(), a.items(), a.costo(), a.gastos());
+    }
+
+    private ResumenDiarioAggregate crudo(LocalDateTime desde, LocalDateTime hasta) {
+        return ResumenDiarioAggregate.de(ventaRepository.aggregateResumen(desde, hasta),
+            gastoRepository.sumMontoByTipoGastoAndFechaBetween(GASTO_OPERACIONAL, desde, hasta));
+    }
+
+    private static ResumenDiario fila(Map<String, ResumenDiario> filas, Object[] f) {
+        LocalDate fecha = f[0] instanceof java.sql.Date d ? d.toLocalDate() : (LocalDate) f[0];
+        Long sucursalId = ((Number) f[1]).longValue();
+        return filas.computeIfAbsent(clave(fecha, sucursalId), k -> ResumenDiario.builder()
+            .fecha(fecha)
+            .sucursalId(sucursalId)
+            .build());
+    }
+
+    private static String clave(LocalDate fecha, Long sucursalId) {
+        return fecha + "|" + sucursalId;
+    }
+
+    private static Aporte aporte(ResumenDiario fila) {
+        return new Aporte(fila.getFecha(), fila.getSucursalId(), fila.getTotalVentas(), fila.getSubtotalVentas(),
+            fila.getCantidadVentas(), fila.getItemsVendidos(), fila.getCostoProductos(), fila.getGastosOperacionales());
+    }
+
+    private static Long sucursalId(Long id) {
+        return id != null ? id : ResumenDiario.SIN_SUCURSAL;
+    }
+
+    private static BigDecimal valor(BigDecimal v) {
+        return v != null ? v : BigDecimal.ZERO;
+    }
+
+    private static BigDecimal decimal(Object v) {
+        if (v == null) {
+            return BigDecimal.ZERO;
+        }
+        return v instanceof BigDecimal b ? b : new BigDecimal(v.toString());
+    }
+}
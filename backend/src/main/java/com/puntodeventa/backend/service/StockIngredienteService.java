@@ -0,0 +1,326 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.config.ProgramacionConfig;
+import com.puntodeventa.backend.dto.ConciliacionStockDTO;
+import com.puntodeventa.backend.dto.StockIngredienteDTO;
+import com.puntodeventa.backend.dto.projection.SaldoLibroFila;
+import com.puntodeventa.backend.exception.ResourceNotFoundException;
+import com.puntodeventa.backend.model.Ingrediente;
+import com.puntodeventa.backend.model.InventarioMovimiento;
+import com.puntodeventa.backend.model.StockIngrediente;
+import com.puntodeventa.backend.repository.IngredienteRepository;
+import com.puntodeventa.backend.repository.InventarioMovimientoRepository;
+import com.puntodeventa.backend.repository.StockIngredienteRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Mantiene la existencia por ingrediente y sucursal (tabla stock_ingredientes).
+ *
+ * Cada movimiento que se registra (o se elimina) aplica su cantidad, convertida a la
+ * unidad base del ingrediente, con un UPDATE atómico dentro de la misma transacción, así
+ * que consultar la existencia o compararla con el stock mínimo lee una fila en lugar de
+ * sumar todo el historial. {@link #conciliar(boolean)} la compara contra la suma del libro
+ * (al arrancar si la tabla está vacía y cada inventario.stock.conciliacion.intervalo, en
+ * un solo nodo: el que toma la tarea en {@link TareaProgramadaService}).
+ * Las cantidades aplicadas pasan a {@link AlertaStockService}, que avisa al cruzar el mínimo.
+ */
+@Slf4j
+@Service
+@Transactional(readOnly = true)
+public class StockIngredienteService {
+
+    /** Tipos que suman a la existencia; los de SALIDAS restan y los demás no la cambian. */
+    private static final Set<String> ENTRADAS = Set.of("ENTRADA", "INGRESO", "DEVOLUCION", "AJUSTE");
+    static final Set<String> SALIDAS = Set.of("EGRESO", "CONSUMO", "MERMA");
+
+    /** Nombre de la conciliación periódica en tareas_programadas. */
+    static final String TAREA_CONCILIACION = "conciliacion-stock";
+
+    /** Construcción inicial de stock_ingredientes en tareas_programadas, y cuánto dura su turno. */
+    static final String TAREA_CONSTRUCCION = "construccion-stock";
+    private static final Duration TURNO_CONSTRUCCION = Duration.ofMinutes(30);
+
+    private static final String SQL_CREAR_FILA = """
+        INSERT INTO stock_ingredientes (ingrediente_id, sucursal_id, cantidad, actualizado)
+        VALUES (?, ?, 0, ?)
+        """;
+
+    private final StockIngredienteRepository stockRepository;
+    private final InventarioMovimientoRepository movimientoRepository;
+    private final IngredienteRepository ingredienteRepository;
+    private final AlertaStockService alertas;
+    private final FilaUnica filaUnica;
+    private final TransactionTemplate conciliacion;
+    private final TareaProgramadaService tareas;
+    private final TaskScheduler programador;
+    private final Duration intervalo;
+
+    public StockIngredienteService(StockIngredienteRepository stockRepository,
+                                   InventarioMovimientoRepository movimientoRepository,
+                                   IngredienteRepository ingredienteRepository,
+                                   AlertaStockService alertas,
+                                   TareaProgramadaService tareas,
+                                   FilaUnica filaUnica,
+                                   PlatformTransactionManager transactionManager,
+                                   @Qualifier(ProgramacionConfig.PROGRAMADOR) TaskScheduler programador,
+                                   @Value("${inventario.stock.conciliacion.intervalo:6h}") Duration intervalo) {
+        this.stockRepository = stockRepository;
+        this.movimientoRepository = movimientoRepository;
+        this.ingredienteRepository = ingredienteRepository;
+        this.alertas = alertas;
+        this.filaUnica = filaUnica;
+        this.conciliacion = new TransactionTemplate(transactionManager);
+        this.conciliacion.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.tareas = tareas;
+        this.programador = programador;
+        this.intervalo = intervalo;
+    }
+
+    /**
+     * Signo con el que el tipo de movimiento cambia la existencia: 1, -1 o 0.
+     */
+    public static int signo(String tipo) {
+        if (ENTRADAS.contains(tipo)) {
+            return 1;
+        }
+        return SALIDAS.contains(tipo) ? -1 : 0;
+    }
+
+    /**
+     * Aplica a la existencia un movimiento recién guardado.
+     */
+    @Transactional
+    public void registrar(InventarioMovimiento movimiento) {
+        acumular(movimiento.getIngrediente().getId(), movimiento.getSucursalId(), cantidadBase(movimiento));
+    }
+
+    /**
+     * Quita de la existencia un movimiento que se elimina.
+     */
+    @Transactional
+    public void revertir(InventarioMovimiento movimiento) {
+        acumular(movimiento.getIngrediente().getId(), movimiento.getSucursalId(), cantidadBase(movimiento).negate());
+    }
+
+    /**
+     * Aplica varios movimientos recién guardados: una actualización por ingrediente/sucursal,
+     * en orden (ingrediente, sucursal), el mismo en que bloquea el descuento de ventas.
+     */
+    @Transactional
+    public void registrarTodos(Collection<InventarioMovimiento> movimientos) {
+        acumularTodos(movimientos, BigDecimal.ONE);
+    }
+
+    /**
+     * Quita de la existencia varios movimientos que se eliminan, en el mismo orden que
+     * {@link #registrarTodos}.
+     */
+    @Transactional
+    public void revertirTodos(Collection<InventarioMovimiento> movimientos) {
+        acumularTodos(movimientos, BigDecimal.ONE.negate());
+    }
+
+    /**
+     * Aplica una cantidad con signo, ya en la unidad base, de movimientos insertados sin
+     * pasar por la entidad (p. ej. en lote por JDBC).
+     */
+    @Transactional
+    public void sumar(Long ingredienteId, Long sucursalId, BigDecimal cantidadBase) {
+        acumular(ingredienteId, sucursalId, cantidadBase);
+    }
+
+    /**
+     * Existencia del ingrediente en la sucursal (cero si aún no tiene movimientos).
+     *
+     * @param sucursalId null = sin sucursal asignada
+     * @throws ResourceNotFoundException si el ingrediente no existe
+     */
+    public StockIngredienteDTO existencia(Long ingredienteId, Long sucursalId) {
+        Long sucursal = sucursalId(sucursalId);
+        return stockRepository.findDTO(ingredienteId, sucursal).orElseGet(() -> {
+            Ingrediente ingrediente = ingredienteRepository.findById(ingredienteId)
+                .orElseThrow(() -> new ResourceNotFoundException("Ingrediente no encontrado con ID: " + ingredienteId));
+            return new StockIngredienteDTO(ingredienteId, ingrediente.getNombre(), sucursal, BigDecimal.ZERO,
+                ingrediente.getUnidadBase().getAbreviatura(), ingrediente.getStockMinimo(), null);
+        });
+    }
+
+    /**
+     * Existencia del ingrediente en cada sucursal donde tiene movimientos.
+     */
+    public List<StockIngredienteDTO> existencias(Long ingredienteId) {
+        return stockRepository.findDTOByIngrediente(ingredienteId);
+    }
+
+    /**
+     * Ingredientes activos por debajo de su stock mínimo en la sucursal.
+     */
+    public List<StockIngredienteDTO> bajoMinimo(Long sucursalId) {
+        return stockRepository.findBajoMinimo(sucursalId(sucursalId));
+    }
+
+    /**
+     * Compara la existencia de cada ingrediente/sucursal con la suma de sus movimientos.
+     * Ambas se leen en la misma instantánea (REPEATABLE_READ); la corrección suma la
+     * diferencia con el mismo UPDATE atómico, así que no pisa movimientos concurrentes.
+     *
+     * @param corregir aplicar las diferencias a la existencia
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public ConciliacionStockDTO conciliar(boolean corregir) {
+        Map<Clave, BigDecimal> libro = new HashMap<>();
+        for (SaldoLibroFila f : movimientoRepository.sumarPorIngredienteSucursalYTipo()) {
+            BigDecimal cantidad = f.cantidadBase().multiply(BigDecimal.valueOf(signo(f.tipo())));
+            libro.merge(new Clave(f.ingredienteId(), sucursalId(f.sucursalId())), cantidad, BigDecimal::add);
+        }
+
+        List<ConciliacionStockDTO.Diferencia> diferencias = new ArrayList<>();
+        List<StockIngrediente> filas = stockRepository.findAll();
+        for (StockIngrediente fila : filas) {
+            BigDecimal enLibro = libro.remove(new Clave(fila.getIngredienteId(), fila.getSucursalId()));
+            enLibro = enLibro != null ? enLibro : BigDecimal.ZERO;
+            if (fila.getCantidad().compareTo(enLibro) != 0) {
+                diferencias.add(new ConciliacionStockDTO.Diferencia(fila.getIngredienteId(), fila.getSucursalId(),
+                    fila.getCantidad(), enLibro));
+            }
+        }
+        List<StockIngrediente> nuevas = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+        libro.forEach((clave, cantidad) -> {
+            if (cantidad.signum() == 0) {
+                return;
+            }
+            diferencias.add(new ConciliacionStockDTO.Diferencia(clave.ingredienteId(), clave.sucursalId(),
+                BigDecimal.ZERO, cantidad));
+            nuevas.add(StockIngrediente.builder()
+                .ingredienteId(clave.ingredienteId())
+                .sucursalId(clave.sucursalId())
+                .cantidad(cantidad)
+                .actualizado(ahora)
+                .build());
+        });
+
+        if (corregir) {
+            // Las primeras diferencias son de filas existentes; las demás, filas nuevas
+            for (ConciliacionStockDTO.Diferencia d : diferencias.subList(0, diferencias.size() - nuevas.size())) {
+                stockRepository.acumular(d.ingredienteId(), d.sucursalId(), d.ajuste(), ahora);
+            }
+            stockRepository.saveAll(nuevas);
+        }
+        diferencias.forEach(d -> log.warn("Stock del ingrediente {} / sucursal {}: {} en stock_ingredientes, {} en el libro{}",
+            d.ingredienteId(), d.sucursalId(), d.stock(), d.libro(), corregir ? " (corregido)" : ""));
+        return new ConciliacionStockDTO(filas.size() + nuevas.size(), diferencias, corregir);
+    }
+
+    /**
+     * Puebla stock_ingredientes al arrancar si está vacía (primera ejecución tras la
+     * migración o BD de desarrollo recién creada). Si varios nodos arrancan a la vez, solo
+     * la construye el que toma la tarea; si ese nodo falla, la conciliación periódica crea
+     * las filas que falten.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void construirSiVacio() {
+        if (stockRepository.count() > 0 || !tareas.tomar(TAREA_CONSTRUCCION, TURNO_CONSTRUCCION)) {
+            return;
+        }
+        Integer filas = conciliacion.execute(status ->
+            stockRepository.count() == 0 ? conciliar(true).diferencias().size() : null);
+        if (filas != null) {
+            log.info("stock_ingredientes construido desde el libro: {} filas (ingrediente/sucursal)", filas);
+        }
+    }
+
+    /**
+     * Programa la conciliación periódica (si inventario.stock.conciliacion.intervalo no es 0).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void programar() {
+        if (!intervalo.isZero()) {
+            programador.scheduleWithFixedDelay(this::conciliarSeguro, Instant.now().plus(intervalo), intervalo);
+        }
+    }
+
+    /**
+     * Concilia si a este nodo le toca el turno; los demás la omiten hasta el siguiente.
+     */
+    private void conciliarSeguro() {
+        try {
+            if (!tareas.tomar(TAREA_CONCILIACION, intervalo)) {
+                log.debug("Conciliación de stock a cargo de otro nodo");
+                return;
+            }
+            ConciliacionStockDTO resultado = conciliacion.execute(status -> conciliar(true));
+            log.info("Conciliación de stock: {} filas, {} diferencias", resultado.revisados(), resultado.diferencias().size());
+        } catch (Exception e) {
+            // p. ej. un movimiento concurrente sobre una fila a corregir: se reintenta en la siguiente
+            log.warn("Conciliación de stock no completada: {}", e.getMessage());
+        }
+    }
+
+    private void acumular(Long ingredienteId, Long sucursalId, BigDecimal cantidad) {
+        if (cantidad.signum() == 0) {
+            return;
+        }
+        Long sucursal = sucursalId(sucursalId);
+        LocalDateTime ahora = LocalDateTime.now();
+        if (stockRepository.acumular(ingredienteId, sucursal, cantidad, ahora) == 0) {
+            // Primer movimiento del ingrediente/sucursal: la fila se crea en la misma transacción (si
+            // un movimiento concurrente la creó primero, el INSERT se descarta) y se vuelve a acumular
+            filaUnica.insertarSiFalta(SQL_CREAR_FILA, ingredienteId, sucursal, ahora);
+            stockRepository.acumular(ingredienteId, sucursal, cantidad, ahora);
+        }
+        alertas.registrar(ingredienteId, sucursal, cantidad);
+    }
+
+    private void acumularTodos(Collection<InventarioMovimiento> movimientos, BigDecimal sentido) {
+        Map<Clave, BigDecimal> cantidades = new TreeMap<>(
+            Comparator.comparing(Clave::ingredienteId).thenComparing(Clave::sucursalId));
+        for (InventarioMovimiento m : movimientos) {
+            cantidades.merge(new Clave(m.getIngrediente().getId(), sucursalId(m.getSucursalId())),
+                cantidadBase(m).multiply(sentido), BigDecimal::add);
+        }
+        cantidades.forEach((clave, cantidad) -> acumular(clave.ingredienteId(), clave.sucursalId(), cantidad));
+    }
+
+    /**
+     * Cantidad con signo en la unidad base del ingrediente (cantidad x factor de la unidad).
+     */
+    private static BigDecimal cantidadBase(InventarioMovimiento m) {
+        return m.getCantidad()
+            .multiply(m.getUnidad().getFactorBase())
+            .multiply(BigDecimal.valueOf(signo(m.getTipo())));
+    }
+
+    private static Long sucursalId(Long id) {
+        return id != null ? id : StockIngrediente.SIN_SUCURSAL;
+    }
+
+    private record Clave(Long ingredienteId, Long sucursalId) {
+    }
+}
@@ -0,0 +1,59 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.model.TareaProgramada;
+import com.puntodeventa.backend.repository.TareaProgramadaRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Reparte entre los nodos las tareas periódicas que solo debe ejecutar uno (tabla
+ * tareas_programadas): cada nodo intenta tomar la tarea en su turno y solo la ejecuta si
+ * la encontró vencida, así que corre una vez por intervalo en todo el grupo.
+ */
+@Slf4j
+@Service
+public class TareaProgramadaService {
+
+    private final TareaProgramadaRepository repository;
+    private final BusEventos bus;
+    private final TransactionTemplate transaccion;
+
+    public TareaProgramadaService(TareaProgramadaRepository repository, BusEventos bus,
+                                  PlatformTransactionManager transactionManager) {
+        this.repository = repository;
+        this.bus = bus;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Toma la tarea para este nodo durante el intervalo, en una transacción propia que se
+     * confirma antes de ejecutarla. Si la fila aún no existe (BD sin la migración), la crea.
+     *
+     * @return true si este nodo debe ejecutarla ahora
+     */
+    public boolean tomar(String nombre, Duration intervalo) {
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime hasta = ahora.plus(intervalo);
+        try {
+            return Boolean.TRUE.equals(transaccion.execute(status -> {
+                if (repository.tomar(nombre, ahora, hasta, bus.nodo()) == 1) {
+                    return true;
+                }
+                if (repository.existsById(nombre)) {
+                    return false;
+                }
+                repository.saveAndFlush(new TareaProgramada(nombre, hasta, bus.nodo()));
+                return true;
+            }));
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Tarea {} creada por otro nodo", nombre);
+            return false;
+        }
+    }
+}
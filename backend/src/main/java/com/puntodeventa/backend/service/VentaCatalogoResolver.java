@@ -0,0 +1,111 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.PagoDTO;
+import com.puntodeventa.backend.dto.VentaItemDTO;
+import com.puntodeventa.backend.exception.ResourceNotFoundException;
+import com.puntodeventa.backend.model.MetodoPago;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.repository.MetodoPagoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Etapa de ensamblado de ventas: resuelve de una sola vez todos los productos y
+ * métodos de pago referenciados por un ticket.
+ *
+ * En lugar de un findById por cada item/pago, se ejecuta una consulta IN por
+ * catálogo (productos con su producto base y métodos de pago), de modo que un
+ * ticket de N líneas cuesta 2 viajes a la BD sin importar N.
+ */
+@Component
+@RequiredArgsConstructor
+public class VentaCatalogoResolver {
+
+    private final ProductoRepository productoRepository;
+    private final MetodoPagoRepository metodoPagoRepository;
+
+    /**
+     * Catálogo resuelto para un ticket, indexado por ID.
+     */
+    public record CatalogoVenta(Map<Long, Producto> productos, Map<Long, MetodoPago> metodosPago) {
+
+        public Producto producto(Long id) {
+            return productos.get(id);
+        }
+
+        public MetodoPago metodoPago(Long id) {
+            return metodosPago.get(id);
+        }
+    }
+
+    /**
+     * Resuelve productos y métodos de pago de la venta.
+     *
+     * @throws ResourceNotFoundException si algún ID no existe (se reportan todos los faltantes)
+     */
+    public CatalogoVenta resolver(List<VentaItemDTO> items, List<PagoDTO> pagos) {
+        Map<Long, Producto> productos = resolverProductos(items);
+        Map<Long, MetodoPago> metodosPago = resolverMetodosPago(pagos);
+        return new CatalogoVenta(productos, metodosPago);
+    }
+
+    public Map<Long, Producto> resolverProductos(List<VentaItemDTO> items) {
+        Set<Long> ids = idsUnicos(items.stream().map(VentaItemDTO::productoId).toList());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, Producto> productos = productoRepository.findAllWithBaseByIdIn(ids).stream()
+            .collect(Collectors.toMap(Producto::getId, Function.identity()));
+
+        verificarFaltantes(ids, productos, "Producto no encontrado con ID: ", "Productos no encontrados con IDs: ");
+        return productos;
+    }
+
+    public Map<Long, MetodoPago> resolverMetodosPago(List<PagoDTO> pagos) {
+        Set<Long> ids = idsUnicos(pagos.stream().map(PagoDTO::metodoPagoId).toList());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, MetodoPago> metodosPago = metodoPagoRepository.findAllById(ids).stream()
+            .collect(Collectors.toMap(MetodoPago::getId, Function.identity()));
+
+        verificarFaltantes(ids, metodosPago, "Método de pago no encontrado con ID: ",
+            "Métodos de pago no encontrados con IDs: ");
+        return metodosPago;
+    }
+
+    /**
+     * IDs únicos conservando el orden de aparición en el ticket (para mensajes de error estables).
+     */
+    private Set<Long> idsUnicos(Collection<Long> ids) {
+        return ids.stream()
+            .filter(Objects::nonNull)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private void verificarFaltantes(Set<Long> solicitados, Map<Long, ?> encontrados,
+                                    String mensajeUno, String mensajeVarios) {
+        List<Long> faltantes = solicitados.stream()
+            .filter(id -> !encontrados.containsKey(id))
+            .toList();
+
+        if (faltantes.size() == 1) {
+            throw new ResourceNotFoundException(mensajeUno + faltantes.getFirst());
+        }
+        if (!faltantes.isEmpty()) {
+            throw new ResourceNotFoundException(mensajeVarios + faltantes);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.PagoDTO;
+import com.puntodeventa.backend.dto.VentaDTO;
+import com.puntodeventa.backend.dto.VentaItemDTO;
+import com.puntodeventa.backend.dto.VentaPaginaDTO;
+import com.puntodeventa.backend.dto.projection.PagoFila;
+import com.puntodeventa.backend.dto.projection.VentaCabecera;
+import com.puntodeventa.backend.dto.projection.VentaItemFila;
+import com.puntodeventa.backend.repository.PagoRepository;
+import com.puntodeventa.backend.repository.VentaItemRepository;
+import com.puntodeventa.backend.repository.VentaRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Modelo de lectura de ventas basado en proyecciones DTO.
+ *
+ * Una página de ventas se arma con 3 consultas (cabeceras, items y pagos) sin
+ * importar su tamaño, y sin cargar entidades en el contexto de persistencia, por
+ * lo que la memoria por página es constante. Los listados filtrados (estado,
+ * sucursal, rango de fechas) usan el mismo ensamblado: 1 consulta de cabeceras
+ * más 2 por cada bloque de LIMITE_MAXIMO ventas.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class VentaLecturaService {
+
+    /** Tamaño máximo de página (también usado por la exportación NDJSON). */
+    public static final int LIMITE_MAXIMO = 500;
+
+    private final VentaRepository ventaRepository;
+    private final VentaItemRepository ventaItemRepository;
+    private final PagoRepository pagoRepository;
+
+    /**
+     * Obtiene una página de ventas ordenada por (fecha, id) descendente.
+     *
+     * @param cursor cursor opaco devuelto por la página anterior, o null para la primera
+     * @param limite tamaño de página (se acota a 1..LIMITE_MAXIMO)
+     */
+    public VentaPaginaDTO pagina(String cursor, int limite) {
+        int tamano = Math.max(1, Math.min(limite, LIMITE_MAXIMO));
+        // Se pide un elemento extra para saber si hay más páginas
+        Limit limit = Limit.of(tamano + 1);
+
+        List<VentaCabecera> cabeceras;
+        if (cursor == null || cursor.isBlank()) {
+            cabeceras = ventaRepository.findCabeceras(limit);
+        } else {
+            CursorFechaId c = CursorFechaId.decodificar(cursor);
+            cabeceras = ventaRepository.findCabecerasAntesDe(c.fecha(), c.id(), limit);
+        }
+
+        boolean hayMas = cabeceras.size() > tamano;
+        if (hayMas) {
+            cabeceras = cabeceras.subList(0, tamano);
+        }
+
+        String siguienteCursor = null;
+        if (hayMas) {
+            VentaCabecera ultima = cabeceras.getLast();
+            siguienteCursor = new CursorFechaId(ultima.fecha(), ultima.id()).codificar();
+        }
+
+        return new VentaPaginaDTO(ensamblar(cabeceras), siguienteCursor, hayMas);
+    }
+
+    /**
+     * Todas las ventas, recorridas por páginas de LIMITE_MAXIMO (3 consultas por página).
+     * Se conserva por compatibilidad con GET /api/ventas; para historiales largos usar
+     * la paginación por cursor o la exportación NDJSON.
+     */
+    public List<VentaDTO> todas() {
+        List<VentaDTO> resultado = new ArrayList<>();
+        String cursor = null;
+        do {
+            VentaPaginaDTO pagina = pagina(cursor, LIMITE_MAXIMO);
+            resultado.addAll(pagina.ventas());
+            cursor = pagina.siguienteCursor();
+        } while (cursor != null);
+        return resultado;
+    }
+
+    public Optional<VentaDTO> porId(Long id) {
+        return ventaRepository.findCabeceraById(id)
+            .map(cabecera -> ensamblar(List.of(cabecera)).getFirst());
+    }
+
+    public List<VentaDTO> porEstado(String estado) {
+        return ensamblar(ventaRepository.findCabecerasByEstado(estado));
+    }
+
+    public List<VentaDTO> porSucursal(Long sucursalId) {
+        return ensamblar(ventaRepository.findCabecerasBySucursalId(sucursalId));
+    }
+
+    public List<VentaDTO> porRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
+        return ensamblar(ventaRepository.findCabecerasByFechaBetween(fechaInicio, fechaFin));
+    }
+
+    /**
+     * Completa un lote de cabeceras con sus items y pagos (2 consultas IN por cada bloque
+     * de LIMITE_MAXIMO cabeceras).
+     * Respeta el orden de las cabeceras recibidas.
+     */
+    public List<VentaDTO> ensamblar(List<VentaCabecera> cabeceras) {
+        if (cabeceras.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, List<VentaItemDTO>> itemsPorVenta = new HashMap<>();
+        Map<Long, List<PagoDTO>> pagosPorVenta = new HashMap<>();
+
+        // Bloques de LIMITE_MAXIMO IDs para acotar el tamaño de la cláusula IN
+        for (int desde = 0; desde < cabeceras.size(); desde += LIMITE_MAXIMO) {
+            List<Long> ids = cabeceras.subList(desde, Math.min(desde + LIMITE_MAXIMO, cabeceras.size())).stream()
+                .map(VentaCabecera::id)
+                .toList();
+
+            itemsPorVenta.putAll(ventaItemRepository.findFilasByVentaIds(ids).stream()
+                .collect(Collectors.groupingBy(VentaItemFila::ventaId,
+                    Collectors.mapping(VentaItemFila::toDTO, Collectors.toList()))));
+
+            pagosPorVenta.putAll(pagoRepository.findFilasByVentaIds(ids).stream()
+                .collect(Collectors.groupingBy(PagoFila::ventaId,
+                    Collectors.mapping(PagoFila::toDTO, Collectors.toList()))));
+        }
+
+        return cabeceras.stream()
+            .map(c -> new VentaDTO(
+                c.id(),
+                c.sucursalId(),
+                c.sucursalNombre(),
+                c.fecha(),
+                c.subtotal(),
+                c.total(),
+                c.impuestos(),
+                c.descuento(),
+                c.canal(),
+                c.estado(),
+                c.nota(),
+                c.usuarioId(),
+                c.usuarioNombre(),
+                itemsPorVenta.getOrDefault(c.id(), List.of()),
+                pagosPorVenta.getOrDefault(c.id(), List.of())
+            ))
+            .toList();
+    }
+}
@@ -0,0 +1,87 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.config.ContadorSentencias;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.function.Supplier;
+
+/**
+ * Métricas del servicio de ventas (Micrometer, expuestas en /actuator/prometheus).
+ *
+ * - ventas.operacion: duración de crear/actualizar/cancelar/listar (tags operacion, resultado)
+ * - ventas.sentencias: sentencias SQL de Hibernate por operación
+ * - ventas.items: líneas por ticket al crear/actualizar
+ * - ventas.listado.ventas: ventas devueltas por cada listado
+ * - ventas.notificacion: envío WebSocket después del commit
+ *
+ * Los histogramas se publican como buckets; los percentiles se calculan en Prometheus,
+ * así que registrar una muestra cuesta unas pocas operaciones atómicas.
+ */
+@Component
+@RequiredArgsConstructor
+public class VentaMetricas {
+
+    private final MeterRegistry registry;
+
+    /**
+     * Ejecuta y mide una operación: duración, resultado y sentencias SQL emitidas.
+     */
+    public <T> T medir(String operacion, Supplier<T> accion) {
+        long sentenciasAntes = ContadorSentencias.actual();
+        Timer.Sample muestra = Timer.start(registry);
+        String resultado = "error";
+        try {
+            T valor = accion.get();
+            resultado = "ok";
+            return valor;
+        } finally {
+            muestra.stop(Timer.builder("ventas.operacion")
+                .description("Duración de operaciones del servicio de ventas")
+                .tag("operacion", operacion)
+                .tag("resultado", resultado)
+                .publishPercentileHistogram()
+                .register(registry));
+            DistributionSummary.builder("ventas.sentencias")
+                .description("Sentencias SQL (Hibernate) por operación de ventas")
+                .baseUnit("sentencias")
+                .tag("operacion", operacion)
+                .register(registry)
+                .record(ContadorSentencias.actual() - sentenciasAntes);
+        }
+    }
+
+    /**
+     * Igual que {@link #medir} y además registra cuántas ventas devolvió el listado.
+     */
+    public <T extends Collection<?>> T medirListado(String operacion, Supplier<T> accion) {
+        T ventas = medir(operacion, accion);
+        DistributionSummary.builder("ventas.listado.ventas")
+            .description("Ventas devueltas por listado")
+            .tag("operacion", operacion)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(ventas.size());
+        return ventas;
+    }
+
+    public void registrarItems(String operacion, int items) {
+        DistributionSummary.builder("ventas.items")
+            .description("Líneas por ticket")
+            .tag("operacion", operacion)
+            .publishPercentileHistogram()
+            .register(registry)
+            .record(items);
+    }
+
+    public void medirNotificacion(Runnable envio) {
+        Timer.builder("ventas.notificacion")
+            .description("Envío de la notificación WebSocket de una venta")
+            .register(registry)
+            .record(envio);
+    }
+}
@@ -6,8 +6,6 @@ import com.puntodeventa.backend.model.*;
 import com.puntodeventa.backend.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.PersistenceContext;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -15,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -32,53 +31,57 @@ public class VentaService {
     private final MetodoPagoRepository metodoPagoRepository;
     private final SucursalRepository sucursalRepository;
     private final InventarioMovimientoRepository inventarioMovimientoRepository;
-    private final RecetaRepository recetaRepository;
-    private final IngredienteRepository ingredienteRepository;
     private final UsuarioRepository usuarioRepository;
     private final WebSocketNotificationService notificationService;
-
-    @PersistenceContext
-    private EntityManager entityManager;
+    private final VentaCatalogoResolver catalogoResolver;
+    private final CajaTurnoActivoRegistry cajaTurnoRegistry;
+    private final VentaLecturaService ventaLecturaService;
+    private final VentaMetricas metricas;
+    private final ResumenDiarioService resumenDiarioService;
+    private final StockIngredienteService stockIngredienteService;
+    private final LoteInventarioService loteInventarioService;
+    private final DescuentoInventarioService descuentoInventarioService;
     
+    /**
+     * Todas las ventas (más recientes primero). Se arma por páginas con proyecciones,
+     * sin N+1; para historiales largos preferir {@link #obtenerPagina(String, int)}.
+     */
     public List<VentaDTO> obtenerTodas() {
-        return ventaRepository.findAll().stream()
-            .map(this::toDTO)
-            .toList();
+        return metricas.medirListado("listar", ventaLecturaService::todas);
+    }
+    
+    /**
+     * Página de ventas con paginación por cursor sobre (fecha, id), más recientes primero.
+     */
+    public VentaPaginaDTO obtenerPagina(String cursor, int limite) {
+        return metricas.medir("listar_pagina", () -> ventaLecturaService.pagina(cursor, limite));
     }
     
     public VentaDTO obtenerPorId(Long id) {
-        Venta venta = ventaRepository.findById(id)
+        return ventaLecturaService.porId(id)
             .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada con ID: " + id));
-        return toDTO(venta);
     }
     
     public List<VentaDTO> obtenerPorEstado(String estado) {
-        return ventaRepository.findByEstado(estado).stream()
-            .map(this::toDTO)
-            .toList();
+        return metricas.medirListado("listar_estado", () -> ventaLecturaService.porEstado(estado));
     }
     
     public List<VentaDTO> obtenerPorSucursal(Long sucursalId) {
-        return ventaRepository.findBySucursalId(sucursalId).stream()
-            .map(this::toDTO)
-            .toList();
+        return metricas.medirListado("listar_sucursal", () -> ventaLecturaService.porSucursal(sucursalId));
     }
     
     public List<VentaDTO> obtenerPorRangoFechas(LocalDateTime fechaInicio, LocalDateTime fechaFin) {
-        List<Venta> ventas = ventaRepository.findByFechaBetween(fechaInicio, fechaFin);
-        System.out.println("🔍 [VentaService] obtenerPorRangoFechas: encontradas " + ventas.size() + " ventas");
-        ventas.forEach(v -> System.out.println("  - Venta ID: " + v.getId() + ", Items: " + (v.getItems() != null ? v.getItems().size() : 0)));
-        
-        List<VentaDTO> resultado = ventas.stream()
-            .map(this::toDTO)
-            .toList();
-        
-        System.out.println("🔍 [VentaService] Retornando " + resultado.size() + " VentaDTO");
-        return resultado;
+        return metricas.medirListado("listar_rango",
+            () -> ventaLecturaService.porRangoFechas(fechaInicio, fechaFin));
     }
     
     @Transactional // Permite escritura (sobrescribe readOnly=true de la clase)
     public VentaDTO crearVenta(CrearVentaRequest request) {
+        metricas.registrarItems("crear", request.items().size());
+        return metricas.medir("crear", () -> registrarVenta(request));
+    }
+
+    private VentaDTO registrarVenta(CrearVentaRequest request) {
         LocalDateTime ahora = LocalDateTime.now();
         
         // 1. Crear la venta principal
@@ -91,24 +94,19 @@ public class VentaService {
             .descuento(BigDecimal.ZERO) // TODO: Implementar descuentos
             .build();
 
-        // Asignar caja por compatibilidad con esquema actual (Railway exige caja_id NOT NULL)
-        // Si no viene en la request, usar un valor por defecto (1L) temporalmente.
-        Long cajaId = null;
-        try { cajaId = request.cajaId(); } catch (Exception ignored) {}
+        // Asignar caja y turno (Railway exige caja_id/turno_id NOT NULL).
+        // Si no vienen en la request, se resuelven desde el registro en memoria (sin SQL adicional).
+        Long cajaId = request.cajaId();
         if (cajaId == null) {
-            cajaId = seleccionarCajaActiva(request.sucursalId());
-            org.slf4j.LoggerFactory.getLogger(VentaService.class)
-                .warn("crearVenta(): cajaId no proporcionado; resolviendo caja activa -> {}", cajaId);
+            cajaId = cajaTurnoRegistry.cajaActiva(request.sucursalId());
+            log.debug("crearVenta(): cajaId no proporcionado; usando caja activa -> {}", cajaId);
         }
         venta.setCajaId(cajaId);
 
-        // Asignar turno (NOT NULL en Railway). Si no viene, usar 1L hasta implementar gestión de turnos.
-        Long turnoId = null;
-        try { turnoId = request.turnoId(); } catch (Exception ignored) {}
+        Long turnoId = request.turnoId();
         if (turnoId == null) {
-            turnoId = seleccionarTurnoActivo(request.sucursalId(), cajaId);
-            org.slf4j.LoggerFactory.getLogger(VentaService.class)
-                .warn("crearVenta(): turnoId no proporcionado; resolviendo turno activo -> {}", turnoId);
+            turnoId = cajaTurnoRegistry.turnoActivo(request.sucursalId(), cajaId);
+            log.debug("crearVenta(): turnoId no proporcionado; usando turno activo -> {}", turnoId);
         }
         venta.setTurnoId(turnoId);
         
@@ -125,12 +123,58 @@ public class VentaService {
             venta.setUsuario(usuarioActual);
         }
         
-        // 3. Procesar items y calcular subtotal
+        // 3. Resolver productos y métodos de pago del ticket en una consulta por catálogo
+        VentaCatalogoResolver.CatalogoVenta catalogo = catalogoResolver.resolver(request.items(), request.pagos());
+
+        // 3.1. Procesar items y calcular subtotal
+        BigDecimal subtotal = agregarItems(venta, request.items(), catalogo);
+        
+        venta.setSubtotal(subtotal);
+        venta.setTotal(subtotal); // Por ahora sin impuestos ni descuentos
+        
+        // 4. Procesar pagos y validar que cubran el total
+        BigDecimal totalPagos = agregarPagos(venta, request.pagos(), catalogo, ahora);
+        
+        // Validar que los pagos cubran el total
+        if (totalPagos.compareTo(venta.getTotal()) < 0) {
+            throw new IllegalArgumentException("El total de pagos (" + totalPagos + ") no cubre el total de la venta (" + venta.getTotal() + ")");
+        }
+        
+        // 5. Guardar la venta y sumarla al acumulado diario
+        Venta ventaGuardada = ventaRepository.save(venta);
+        resumenDiarioService.sumar(resumenDiarioService.aporteVenta(ventaGuardada));
+        
+        // 6. Dejar el consumo por recetas pendiente de descontar (lo hace DescuentoInventarioService
+        //    en segundo plano, así que el tamaño de las recetas no se suma al tiempo del cobro)
+        descuentoInventarioService.encolar(ventaGuardada.getId());
+        
+        VentaDTO ventaDTO = toDTO(ventaGuardada);
+        
+        // 7. Notificar creación de venta en tiempo real (después del commit)
+        // Usar TransactionSynchronizationManager para enviar después del commit
+        org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization(
+            new org.springframework.transaction.support.TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    if (notificationService != null) {
+                        metricas.medirNotificacion(() ->
+                            notificationService.notificarVentaCreada(ventaGuardada.getId(), ventaDTO.sucursalId(), ventaDTO));
+                    }
+                }
+            }
+        );
+        
+        return ventaDTO;
+    }
+
+    /**
+     * Construye los items de la venta a partir del catálogo ya resuelto y devuelve el subtotal.
+     */
+    private BigDecimal agregarItems(Venta venta, List<VentaItemDTO> items, VentaCatalogoResolver.CatalogoVenta catalogo) {
         BigDecimal subtotal = BigDecimal.ZERO;
         
-        for (VentaItemDTO itemDTO : request.items()) {
-            Producto producto = productoRepository.findById(itemDTO.productoId())
-                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con ID: " + itemDTO.productoId()));
+        for (VentaItemDTO itemDTO : items) {
+            Producto producto = catalogo.producto(itemDTO.productoId());
 
             // TODO: Validar stock suficiente (pendiente)
 
@@ -176,196 +220,29 @@ public class VentaService {
             subtotal = subtotal.add(subtotalItem);
         }
         
-        venta.setSubtotal(subtotal);
-        venta.setTotal(subtotal); // Por ahora sin impuestos ni descuentos
-        
-        // 4. Procesar pagos y validar que cubran el total
+        return subtotal;
+    }
+
+    /**
+     * Construye los pagos de la venta a partir del catálogo ya resuelto y devuelve el total pagado.
+     */
+    private BigDecimal agregarPagos(Venta venta, List<PagoDTO> pagos, VentaCatalogoResolver.CatalogoVenta catalogo,
+                                    LocalDateTime fecha) {
         BigDecimal totalPagos = BigDecimal.ZERO;
         
-        for (PagoDTO pagoDTO : request.pagos()) {
-            MetodoPago metodoPago = metodoPagoRepository.findById(pagoDTO.metodoPagoId())
-                .orElseThrow(() -> new ResourceNotFoundException("Método de pago no encontrado con ID: " + pagoDTO.metodoPagoId()));
-            
+        for (PagoDTO pagoDTO : pagos) {
             Pago pago = Pago.builder()
-                .metodoPago(metodoPago)
+                .metodoPago(catalogo.metodoPago(pagoDTO.metodoPagoId()))
                 .monto(pagoDTO.monto())
                 .referencia(pagoDTO.referencia())
-                .fecha(ahora)
+                .fecha(fecha)
                 .build();
             
             venta.addPago(pago);
             totalPagos = totalPagos.add(pagoDTO.monto());
         }
         
-        // Validar que los pagos cubran el total
-        if (totalPagos.compareTo(venta.getTotal()) < 0) {
-            throw new IllegalArgumentException("El total de pagos (" + totalPagos + ") no cubre el total de la venta (" + venta.getTotal() + ")");
-        }
-        
-        // 5. Guardar la venta
-        Venta ventaGuardada = ventaRepository.save(venta);
-        
-        // 6. Descontar inventario automáticamente (consumo por recetas)
-        // COMENTADO TEMPORALMENTE: No implementado aún en H2
-        // try {
-        //     descontarInventario(ventaGuardada);
-        // } catch (Exception e) {
-        //     org.slf4j.LoggerFactory.getLogger(VentaService.class)
-        //         .warn("No se pudo descontar inventario (posiblemente en modo desarrollo H2): {}", e.getMessage());
-        // }
-        
-        VentaDTO ventaDTO = toDTO(ventaGuardada);
-        
-        // 7. Notificar creación de venta en tiempo real (después del commit)
-        // Usar TransactionSynchronizationManager para enviar después del commit
-        long inicioNotificacion = System.currentTimeMillis();
-        org.springframework.transaction.support.TransactionSynchronizationManager.registerSynchronization(
-            new org.springframework.transaction.support.TransactionSynchronization() {
-                @Override
-                public void afterCommit() {
-                    long tiempoCommit = System.currentTimeMillis() - inicioNotificacion;
-                    org.slf4j.LoggerFactory.getLogger(VentaService.class)
-                        .info("Venta {} confirmada en BD. Tiempo transacción: {}ms. Enviando notificación WebSocket...", 
-                            ventaGuardada.getId(), tiempoCommit);
-                    
-                    long inicioNotif = System.currentTimeMillis();
-                    if (notificationService != null) {
-                        notificationService.notificarVentaCreada(ventaGuardada.getId(), ventaDTO);
-                        long tiempoNotif = System.currentTimeMillis() - inicioNotif;
-                        org.slf4j.LoggerFactory.getLogger(VentaService.class)
-                            .info("Notificación WebSocket enviada para venta {}. Tiempo notificación: {}ms", 
-                                ventaGuardada.getId(), tiempoNotif);
-                    }
-                }
-            }
-        );
-        
-        return ventaDTO;
-    }
-
-    /**
-     * Selecciona una caja activa preferentemente por sucursal. Si no hay activa, toma cualquiera.
-     * Lanza IllegalStateException si no existe ninguna caja.
-     */
-    private Long seleccionarCajaActiva(Long sucursalId) {
-        // Intentar por sucursal y activa
-        try {
-            var query = new StringBuilder("select id from cajas where activa = true");
-            if (sucursalId != null) {
-                query.append(" and sucursal_id = :suc");
-            }
-            query.append(" order by id limit 1");
-            var q = entityManager.createNativeQuery(query.toString());
-            if (sucursalId != null) q.setParameter("suc", sucursalId);
-            var res = q.getResultList();
-            if (!res.isEmpty()) {
-                return ((Number) res.getFirst()).longValue();
-            }
-        } catch (Exception ignored) {}
-
-        // Cualquiera activa
-        try {
-            var res = entityManager.createNativeQuery("select id from cajas where activa = true order by id limit 1")
-                .getResultList();
-            if (!res.isEmpty()) return ((Number) res.getFirst()).longValue();
-        } catch (Exception ignored) {}
-
-        // Cualquiera existente
-        try {
-            var res = entityManager.createNativeQuery("select id from cajas order by id limit 1").getResultList();
-            if (!res.isEmpty()) return ((Number) res.getFirst()).longValue();
-        } catch (Exception ignored) {}
-
-        // Fallback: si no existe la tabla cajas (H2 local), retornar ID por defecto
-        org.slf4j.LoggerFactory.getLogger(VentaService.class)
-            .warn("No se pudo acceder a tabla 'cajas'. Usando cajaId por defecto = 1 (modo desarrollo H2)");
-        return 1L;
-    }
-
-    /**
-     * Selecciona un turno activo preferentemente por caja/sucursal. Si no hay activo, toma el más reciente.
-     * Lanza IllegalStateException si no existe ningún turno.
-     */
-    private Long seleccionarTurnoActivo(Long sucursalId, Long cajaId) {
-        // Intentar activo por caja
-        try {
-            var sb = new StringBuilder("select id from turnos where activo = true");
-            if (cajaId != null) sb.append(" and caja_id = :caja");
-            if (sucursalId != null) sb.append(" and sucursal_id = :suc");
-            sb.append(" order by fecha_apertura desc limit 1");
-            var q = entityManager.createNativeQuery(sb.toString());
-            if (cajaId != null) q.setParameter("caja", cajaId);
-            if (sucursalId != null) q.setParameter("suc", sucursalId);
-            var res = q.getResultList();
-            if (!res.isEmpty()) return ((Number) res.getFirst()).longValue();
-        } catch (Exception ignored) {}
-
-        // Activo cualquiera
-        try {
-            var res = entityManager.createNativeQuery("select id from turnos where activo = true order by fecha_apertura desc limit 1")
-                .getResultList();
-            if (!res.isEmpty()) return ((Number) res.getFirst()).longValue();
-        } catch (Exception ignored) {}
-
-        // El más reciente
-        try {
-            var res = entityManager.createNativeQuery("select id from turnos order by fecha_apertura desc nulls last, id desc limit 1").getResultList();
-            if (!res.isEmpty()) return ((Number) res.getFirst()).longValue();
-        } catch (Exception ignored) {}
-
-        // Fallback: si no existe la tabla turnos (H2 local), retornar ID por defecto
-        org.slf4j.LoggerFactory.getLogger(VentaService.class)
-            .warn("No se pudo acceder a tabla 'turnos'. Usando turnoId por defecto = 1 (modo desarrollo H2)");
-        return 1L;
-    }
-    
-    /**
-     * Descuenta el inventario automáticamente basado en las recetas de los productos vendidos.
-     * Genera movimientos de inventario de tipo "EGRESO" por consumo.
-     */
-    private void descontarInventario(Venta venta) {
-        LocalDateTime ahora = LocalDateTime.now();
-        
-        for (VentaItem item : venta.getItems()) {
-            Producto producto = item.getProducto();
-            Integer cantidadVendida = item.getCantidad();
-            
-            // Buscar recetas del producto
-            List<Receta> recetas = recetaRepository.findByProductoId(producto.getId());
-            
-            for (Receta receta : recetas) {
-                Ingrediente ingrediente = receta.getIngrediente();
-                
-                // Calcular cantidad a descontar (cantidad_receta * cantidad_vendida)
-                BigDecimal cantidadConsumir = receta.getCantidad()
-                    .multiply(BigDecimal.valueOf(cantidadVendida));
-                
-                // Calcular costo del consumo
-                BigDecimal costoUnitario = ingrediente.getCostoUnitarioBase();
-                BigDecimal costoTotal = cantidadConsumir.multiply(costoUnitario);
-                
-                // Crear movimiento de inventario (EGRESO por consumo)
-                InventarioMovimiento movimiento = InventarioMovimiento.builder()
-                    .ingrediente(ingrediente)
-                    .tipo("EGRESO")
-                    .cantidad(cantidadConsumir)
-                    .unidad(receta.getUnidad())
-                    .costoUnitario(costoUnitario)
-                    .costoTotal(costoTotal)
-                    .fecha(ahora)
-                    .refTipo("venta")
-                    .refId(venta.getId())
-                    .nota("Consumo automático por venta #" + venta.getId())
-                    .build();
-                
-                inventarioMovimientoRepository.save(movimiento);
-                
-                // TODO: Actualizar stock actual del ingrediente (pendiente - requiere agregar campo stockActual a Ingrediente)
-                // BigDecimal nuevoStock = ingrediente.getStockActual().subtract(cantidadConsumir);
-                // ingrediente.setStockActual(nuevoStock);
-                // ingredienteRepository.save(ingrediente);
-            }
-        }
+        return totalPagos;
     }
     
     // Método helper para conversión a DTO
@@ -425,12 +302,16 @@ public class VentaService {
      */
     @Transactional
     public VentaDTO cancelarVenta(Long ventaId, String motivo) {
+        return metricas.medir("cancelar", () -> cancelar(ventaId, motivo));
+    }
+
+    private VentaDTO cancelar(Long ventaId, String motivo) {
         if (motivo == null || motivo.trim().isEmpty()) {
             throw new IllegalArgumentException("El motivo de cancelación es obligatorio");
         }
         
         // Buscar la venta
-        Venta venta = ventaRepository.findById(ventaId)
+        Venta venta = ventaRepository.findConItemsById(ventaId)
             .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada con ID: " + ventaId));
         
         // Validar que no esté ya cancelada
@@ -451,8 +332,13 @@ public class VentaService {
         // Obtener usuario actual para auditoría
         Usuario usuarioCancelacion = obtenerUsuarioActual();
         
-        // Revertir movimientos de inventario si existen
-        revertirMovimientosInventario(venta);
+        // Revertir movimientos de inventario si existen (si aún no se descontó, basta con sacarla de la cola)
+        if (!descuentoInventarioService.descartar(venta.getId())) {
+            revertirMovimientosInventario(venta);
+        }
+        
+        // Quitar la venta del acumulado diario antes de cambiar su estado
+        resumenDiarioService.restar(resumenDiarioService.aporteVenta(venta));
         
     // Cambiar estado a cancelada
     venta.setEstado("cancelada");
@@ -490,6 +376,7 @@ public class VentaService {
         }
         
         LocalDateTime ahora = LocalDateTime.now();
+        List<InventarioMovimiento> reversiones = new ArrayList<>();
         
         // Crear movimientos de reversión (ENTRADA) para cada movimiento de consumo (EGRESO)
         for (InventarioMovimiento movimientoOriginal : movimientosVenta) {
@@ -510,10 +397,18 @@ public class VentaService {
                 .refTipo("venta_cancelada")
                 .refId(venta.getId())
                 .nota("Reversión de consumo por cancelación de venta #" + venta.getId())
+                .lote(movimientoOriginal.getLote())
+                .caducidad(movimientoOriginal.getCaducidad())
+                .sucursalId(movimientoOriginal.getSucursalId())
                 .build();
             
-            inventarioMovimientoRepository.save(movimientoReversion);
+            reversiones.add(movimientoReversion);
         }
+        
+        // Todos los lotes (en su orden de bloqueo) antes que cualquier existencia
+        inventarioMovimientoRepository.saveAll(reversiones);
+        loteInventarioService.registrarTodos(reversiones);
+        stockIngredienteService.registrarTodos(reversiones);
     }
     
     /**
@@ -528,6 +423,11 @@ public class VentaService {
      */
     @Transactional
     public VentaDTO actualizarVenta(Long ventaId, ActualizarVentaRequest request) {
+        metricas.registrarItems("actualizar", request.items().size());
+        return metricas.medir("actualizar", () -> actualizar(ventaId, request));
+    }
+
+    private VentaDTO actualizar(Long ventaId, ActualizarVentaRequest request) {
         // Buscar la venta
         Venta venta = ventaRepository.findById(ventaId)
             .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada con ID: " + ventaId));
@@ -550,8 +450,11 @@ public class VentaService {
         // Obtener usuario actual para auditoría
         Usuario usuarioEdicion = obtenerUsuarioActual();
         
-        // 1. Revertir movimientos de inventario anteriores
-        revertirMovimientosInventario(venta);
+        // 1. Revertir movimientos de inventario anteriores (o sacarla de la cola si aún no se descontó)
+        if (!descuentoInventarioService.descartar(venta.getId())) {
+            revertirMovimientosInventario(venta);
+        }
+        ResumenDiarioService.Aporte aporteAnterior = resumenDiarioService.aporteVenta(venta);
         
         // 2. Actualizar sucursal si se proporciona
         if (request.sucursalId() != null) {
@@ -565,74 +468,14 @@ public class VentaService {
         venta.getPagos().clear();
         
         // 4. Procesar nuevos items y calcular subtotal
-        BigDecimal subtotal = BigDecimal.ZERO;
-        
-        for (VentaItemDTO itemDTO : request.items()) {
-            Producto producto = productoRepository.findById(itemDTO.productoId())
-                .orElseThrow(() -> new ResourceNotFoundException("Producto no encontrado con ID: " + itemDTO.productoId()));
-
-            // Calcular subtotal del item (precio * cantidad)
-            BigDecimal precioUnitario = itemDTO.precioUnitario() != null
-                ? itemDTO.precioUnitario()
-                : producto.getPrecio();
-
-            BigDecimal subtotalItem = precioUnitario.multiply(BigDecimal.valueOf(itemDTO.cantidad()));
-
-            // Calcular costo estimado del item
-            BigDecimal costoEstimadoProducto = producto.getCostoEstimado();
-            BigDecimal costoItem = null;
-            if (costoEstimadoProducto != null) {
-                costoItem = costoEstimadoProducto.multiply(BigDecimal.valueOf(itemDTO.cantidad()));
-            }
-
-            // Construir nombre completo del producto (con variante si aplica)
-            String nombreCompleto = itemDTO.productoNombre();
-            if (nombreCompleto == null || nombreCompleto.isBlank()) {
-                // Si no se proporciona nombre, construir desde el producto
-                if (producto.getProductoBase() != null) {
-                    // Es una variante, construir nombre completo
-                    Producto productoBase = producto.getProductoBase();
-                    nombreCompleto = productoBase.getNombre() + " - " + 
-                        (producto.getNombreVariante() != null ? producto.getNombreVariante() : producto.getNombre());
-                } else {
-                    nombreCompleto = producto.getNombre();
-                }
-            }
-            
-            VentaItem item = VentaItem.builder()
-                .producto(producto)
-                .productoNombre(nombreCompleto)
-                .cantidad(itemDTO.cantidad())
-                .precioUnitario(precioUnitario)
-                .subtotal(subtotalItem)
-                .costoEstimado(costoItem)
-                .nota(itemDTO.nota())
-                .build();
-
-            venta.addItem(item);
-            subtotal = subtotal.add(subtotalItem);
-        }
+        VentaCatalogoResolver.CatalogoVenta catalogo = catalogoResolver.resolver(request.items(), request.pagos());
+        BigDecimal subtotal = agregarItems(venta, request.items(), catalogo);
         
         venta.setSubtotal(subtotal);
         venta.setTotal(subtotal); // Por ahora sin impuestos ni descuentos
         
         // 5. Procesar nuevos pagos y validar que cubran el total
-        BigDecimal totalPagos = BigDecimal.ZERO;
-        
-        for (PagoDTO pagoDTO : request.pagos()) {
-            MetodoPago metodoPago = metodoPagoRepository.findById(pagoDTO.metodoPagoId())
-                .orElseThrow(() -> new ResourceNotFoundException("Método de pago no encontrado con ID: " + pagoDTO.metodoPagoId()));
-            
-            Pago pago = Pago.builder()
-                .metodoPago(metodoPago)
-                .monto(pagoDTO.monto())
-                .referencia(pagoDTO.referencia())
-                .fecha(ahora)
-                .build();
-            
-            venta.addPago(pago);
-            totalPagos = totalPagos.add(pagoDTO.monto());
-        }
+        BigDecimal totalPagos = agregarPagos(venta, request.pagos(), catalogo, ahora);
         
         // Validar que los pagos cubran el total
         if (totalPagos.compareTo(venta.getTotal()) < 0) {
@@ -672,11 +515,13 @@ public class VentaService {
             }
         }
         
-        // 7. Guardar la venta actualizada
+        // 7. Guardar la venta actualizada y reemplazar su aporte al acumulado diario
         Venta ventaActualizada = ventaRepository.save(venta);
+        resumenDiarioService.restar(aporteAnterior);
+        resumenDiarioService.sumar(resumenDiarioService.aporteVenta(ventaActualizada));
         
-        // 8. Generar nuevos movimientos de inventario con los items actualizados
-        descontarInventario(ventaActualizada);
+        // 8. Descontar de nuevo, con los items actualizados, en segundo plano
+        descuentoInventarioService.encolar(ventaActualizada.getId());
         
         return toDTO(ventaActualizada);
     }
@@ -728,7 +573,7 @@ public class VentaService {
     @Transactional
     public VentaDTO actualizarFechaVenta(Long ventaId, LocalDateTime nuevaFecha) {
         // Buscar la venta
-        Venta venta = ventaRepository.findById(ventaId)
+        Venta venta = ventaRepository.findConItemsById(ventaId)
             .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada con ID: " + ventaId));
         
         // Validar que no esté cancelada
@@ -766,9 +611,11 @@ public class VentaService {
         // Obtener usuario actual para auditoría (ya obtenido anteriormente, se reutiliza)
         Usuario usuarioEdicion = usuarioActual;
         
-        // Actualizar la fecha
+        // Actualizar la fecha (el aporte al acumulado diario se mueve al nuevo día)
         LocalDateTime fechaAnterior = venta.getFecha();
+        resumenDiarioService.restar(resumenDiarioService.aporteVenta(venta));
         venta.setFecha(nuevaFecha);
+        resumenDiarioService.sumar(resumenDiarioService.aporteVenta(venta));
         
         // Agregar nota de auditoría
         String notaEdicion = String.format(
@@ -813,17 +660,21 @@ public class VentaService {
         Venta venta = ventaRepository.findById(ventaId)
             .orElseThrow(() -> new ResourceNotFoundException("Venta no encontrada con ID: " + ventaId));
         
-        // Eliminar movimientos de inventario asociados (si existen)
+        // Sacarla de la cola de descuento y eliminar movimientos de inventario asociados (si existen)
+        descuentoInventarioService.descartar(ventaId);
         List<InventarioMovimiento> movimientos = inventarioMovimientoRepository
             .findByRefTipoAndRefId("venta", ventaId);
         
         if (!movimientos.isEmpty()) {
             log.info("Eliminando {} movimientos de inventario asociados a la venta {}", 
                     movimientos.size(), ventaId);
+            loteInventarioService.revertirTodos(movimientos);
+            stockIngredienteService.revertirTodos(movimientos);
             inventarioMovimientoRepository.deleteAll(movimientos);
         }
         
         // Eliminar la venta (cascade eliminará items y pagos automáticamente)
+        resumenDiarioService.restar(resumenDiarioService.aporteVenta(venta));
         ventaRepository.delete(venta);
         
         log.info("Venta {} eliminada definitivamente del sistema", ventaId);
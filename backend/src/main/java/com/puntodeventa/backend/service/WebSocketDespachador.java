@@ -0,0 +1,230 @@
+package com.puntodeventa.backend.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puntodeventa.backend.dto.WebSocketMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Despacho asíncrono de mensajes WebSocket.
+ *
+ * Los envíos se encolan y un único hilo los serializa y publica, así que el hilo de la
+ * petición (p. ej. el afterCommit de una venta) no espera al broker. La cola es acotada;
+ * si se llena se descarta el mensaje más antiguo.
+ *
+ * Los mensajes de "refrescar" (estadísticas, inventario) se coalescen por destino: a lo
+ * más uno por ventana (websocket.despacho.ventana-ms, 500 ms por defecto). El primero de
+ * una ráfaga sale de inmediato y los siguientes se fusionan en uno solo al cerrar la
+ * ventana, conservando el último mensaje. El mensaje coalescido se construye al publicarse,
+ * así que su contenido (p. ej. el resumen del día) se calcula una vez por ventana.
+ *
+ * Con varios nodos, los mensajes publicados se reenvían por el {@link BusEventos} (tipo
+ * "websocket") y los demás nodos los publican a sus propios clientes: el broker STOMP es
+ * local a cada nodo y el cliente puede estar conectado a cualquiera. Los reenvíos se juntan
+ * y salen en un solo envío del bus cuando se vacía la cola de despacho (o cada
+ * {@link #MAX_REENVIOS}), no uno por mensaje.
+ *
+ * Métricas: websocket.cola (profundidad), websocket.publicacion (encolado a publicado,
+ * tag tipo), websocket.descartados y websocket.fusionados.
+ */
+@Slf4j
+@Component
+public class WebSocketDespachador {
+
+    private record Envio(String destino, String usuario, Supplier<WebSocketMessage> mensaje, long encoladoNanos,
+                         boolean deOtroNodo) {
+
+        Envio(String destino, String usuario, Supplier<WebSocketMessage> mensaje, long encoladoNanos) {
+            this(destino, usuario, mensaje, encoladoNanos, false);
+        }
+    }
+
+    /** Mensaje reenviado a los demás nodos. */
+    private record Reenvio(String destino, String usuario, WebSocketMessage mensaje) {
+    }
+
+    private static final String TIPO = "websocket";
+
+    /** Reenvíos a otros nodos que se juntan como máximo en un envío del bus. */
+    static final int MAX_REENVIOS = 100;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final MeterRegistry registry;
+    private final BusEventos bus;
+    private final ObjectMapper objectMapper;
+    private final long ventanaNanos;
+    private final ThreadPoolExecutor despacho;
+    private final ScheduledExecutorService ventanas;
+
+    /** Mensaje pendiente por destino coalescido (a lo más uno). */
+    private final Map<String, Envio> pendientes = new ConcurrentHashMap<>();
+    /** Instante (nanoTime) a partir del cual el destino puede volver a publicar. */
+    private final Map<String, Long> proximoEnvio = new ConcurrentHashMap<>();
+    /** Reenvíos publicados y aún no enviados a los demás nodos; solo los usa el hilo de despacho. */
+    private final List<String> reenvios = new ArrayList<>();
+
+    private final Counter descartados;
+    private final Counter fusionados;
+
+    public WebSocketDespachador(SimpMessagingTemplate messagingTemplate, MeterRegistry registry,
+                                BusEventos bus, ObjectMapper objectMapper,
+                                @Value("${websocket.despacho.capacidad:1000}") int capacidad,
+                                @Value("${websocket.despacho.ventana-ms:500}") long ventanaMs) {
+        this.messagingTemplate = messagingTemplate;
+        this.registry = registry;
+        this.bus = bus;
+        this.objectMapper = objectMapper;
+        this.ventanaNanos = TimeUnit.MILLISECONDS.toNanos(ventanaMs);
+        this.descartados = Counter.builder("websocket.descartados")
+            .description("Mensajes WebSocket descartados por cola llena")
+            .register(registry);
+        this.fusionados = Counter.builder("websocket.fusionados")
+            .description("Mensajes WebSocket fusionados dentro de la ventana de coalescencia")
+            .register(registry);
+        this.despacho = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(capacidad),
+            Thread.ofPlatform().name("ws-despacho").daemon().factory(),
+            (tarea, executor) -> {
+                if (executor.isShutdown()) {
+                    return;
+                }
+                // Cola llena: se descarta el más antiguo para dejar pasar el más reciente
+                executor.getQueue().poll();
+                descartados.increment();
+                executor.execute(tarea);
+            });
+        this.ventanas = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ws-coalescencia").daemon().factory());
+        Gauge.builder("websocket.cola", despacho, e -> e.getQueue().size())
+            .description("Mensajes WebSocket pendientes de publicar")
+            .register(registry);
+        bus.suscribir(TIPO, this::recibir);
+    }
+
+    /**
+     * Encola un mensaje para todos los suscriptores del destino.
+     */
+    public void encolar(String destino, WebSocketMessage mensaje) {
+        encolar(new Envio(destino, null, () -> mensaje, System.nanoTime()));
+    }
+
+    /**
+     * Encola un mensaje para un usuario específico.
+     */
+    public void encolarAUsuario(String usuario, String destino, WebSocketMessage mensaje) {
+        encolar(new Envio(destino, usuario, () -> mensaje, System.nanoTime()));
+    }
+
+    /**
+     * Encola un mensaje coalescido: dentro de una ventana se publica a lo más uno por destino.
+     * El mensaje se construye en el hilo de despacho justo antes de publicarse.
+     */
+    public void coalescer(String destino, Supplier<WebSocketMessage> mensaje) {
+        long ahora = System.nanoTime();
+        pendientes.compute(destino, (d, previo) -> {
+            if (previo != null) {
+                fusionados.increment();
+                return new Envio(d, null, mensaje, previo.encoladoNanos());
+            }
+            long espera = Math.max(0, proximoEnvio.getOrDefault(d, ahora) - ahora);
+            ventanas.schedule(() -> liberar(d), espera, TimeUnit.NANOSECONDS);
+            return new Envio(d, null, mensaje, ahora);
+        });
+    }
+
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        ventanas.shutdownNow();
+        despacho.shutdown();
+        if (!despacho.awaitTermination(2, TimeUnit.SECONDS)) {
+            log.warn("Despacho WebSocket detenido con {} mensajes pendientes", despacho.getQueue().size());
+            despacho.shutdownNow();
+        }
+    }
+
+    private void liberar(String destino) {
+        // Se fija la siguiente ventana antes de retirar el pendiente: lo que llegue entre
+        // ambas operaciones se fusiona con este envío en lugar de salir por separado
+        proximoEnvio.put(destino, System.nanoTime() + ventanaNanos);
+        Envio envio = pendientes.remove(destino);
+        if (envio != null) {
+            encolar(envio);
+        }
+    }
+
+    private void reenviar() {
+        try {
+            bus.publicarTodos(TIPO, List.copyOf(reenvios));
+        } catch (RuntimeException e) {
+            log.error("No se pudieron reenviar {} mensajes WebSocket a los demás nodos: {}", reenvios.size(),
+                e.getMessage());
+        } finally {
+            reenvios.clear();
+        }
+    }
+
+    /**
+     * Publica a los clientes de este nodo un mensaje reenviado por otro.
+     */
+    private void recibir(String carga) {
+        try {
+            Reenvio reenvio = objectMapper.readValue(carga, Reenvio.class);
+            encolar(new Envio(reenvio.destino(), reenvio.usuario(), reenvio::mensaje, System.nanoTime(), true));
+        } catch (JsonProcessingException e) {
+            log.error("Mensaje WebSocket de otro nodo ilegible: {}", e.getMessage());
+        }
+    }
+
+    private void encolar(Envio envio) {
+        despacho.execute(() -> publicar(envio));
+    }
+
+    private void publicar(Envio envio) {
+        String tipo = "desconocido";
+        try {
+            WebSocketMessage mensaje = envio.mensaje().get();
+            tipo = mensaje.tipo();
+            if (envio.usuario() != null) {
+                messagingTemplate.convertAndSendToUser(envio.usuario(), envio.destino(), mensaje);
+            } else {
+                messagingTemplate.convertAndSend(envio.destino(), mensaje);
+            }
+            log.debug("Notificación enviada a {}: {}", envio.destino(), tipo);
+            if (!envio.deOtroNodo()) {
+                reenvios.add(objectMapper.writeValueAsString(new Reenvio(envio.destino(), envio.usuario(), mensaje)));
+            }
+        } catch (Exception e) {
+            log.error("Error enviando notificación WebSocket a {}: {}", envio.destino(), e.getMessage());
+        } finally {
+            // Los reenvíos salen juntos al vaciarse la cola (un envío del bus por ráfaga, no por mensaje)
+            if (!reenvios.isEmpty() && (despacho.getQueue().isEmpty() || reenvios.size() >= MAX_REENVIOS)) {
+                reenviar();
+            }
+            Timer.builder("websocket.publicacion")
+                .description("Tiempo desde que se encola un mensaje WebSocket hasta que se publica")
+                .tag("tipo", tipo)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - envio.encoladoNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -1,51 +1,59 @@
 package com.puntodeventa.backend.service;
 
+import com.puntodeventa.backend.dto.AlertaStockDTO;
+import com.puntodeventa.backend.dto.EstadisticasDiaDTO;
 import com.puntodeventa.backend.dto.WebSocketMessage;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
+import com.puntodeventa.backend.model.StockIngrediente;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+
 /**
  * Servicio para enviar notificaciones en tiempo real a través de WebSocket.
+ *
+ * Los envíos son asíncronos ({@link WebSocketDespachador}); las notificaciones de
+ * estadísticas e inventario se coalescen por ventana de tiempo.
+ *
+ * ESTADISTICAS_ACTUALIZADAS lleva en datos el {@link ResumenVentasDiaDTO} del día, calculado
+ * una sola vez por evento coalescido; los clientes lo aplican sin volver a consultar
+ * /api/estadisticas/ventas/dia.
+ *
+ * Ventas y estadísticas se publican además en destinos por sucursal
+ * (/topic/sucursal/{id}/ventas, /topic/sucursal/{id}/estadisticas) con el resumen de esa
+ * sucursal; los temas globales quedan para las pantallas de administración. La suscripción
+ * a los temas de sucursal se autoriza en StompAutorizacionInterceptor.
+ *
+ * STOCK_BAJO lleva en datos un {@link AlertaStockDTO} (ver {@link AlertaStockService}).
  * 
  * @author Grxson
  * @version 1.0.0
  * @since Java 21
  */
+@Slf4j
 @Service
 public class WebSocketNotificationService {
 
-    private static final Logger logger = LoggerFactory.getLogger(WebSocketNotificationService.class);
-    
-    private final SimpMessagingTemplate messagingTemplate;
+    private final WebSocketDespachador despachador;
+    private final EstadisticasService estadisticasService;
 
-    public WebSocketNotificationService(SimpMessagingTemplate messagingTemplate) {
-        this.messagingTemplate = messagingTemplate;
+    public WebSocketNotificationService(WebSocketDespachador despachador, EstadisticasService estadisticasService) {
+        this.despachador = despachador;
+        this.estadisticasService = estadisticasService;
     }
 
     /**
      * Enviar notificación a todos los clientes suscritos a un tema.
      */
     public void broadcast(String destino, WebSocketMessage mensaje) {
-        try {
-            messagingTemplate.convertAndSend(destino, mensaje);
-            logger.debug("Notificación enviada a {}: {}", destino, mensaje.tipo());
-        } catch (Exception e) {
-            logger.error("Error enviando notificación WebSocket a {}: {}", destino, e.getMessage());
-        }
+        despachador.encolar(destino, mensaje);
     }
 
     /**
      * Enviar notificación a un usuario específico.
      */
     public void sendToUser(String usuario, String destino, WebSocketMessage mensaje) {
-        try {
-            messagingTemplate.convertAndSendToUser(usuario, destino, mensaje);
-            logger.debug("Notificación enviada a usuario {} en {}: {}", usuario, destino, mensaje.tipo());
-        } catch (Exception e) {
-            logger.error("Error enviando notificación WebSocket a usuario {}: {}", usuario, e.getMessage());
-        }
+        despachador.encolarAUsuario(usuario, destino, mensaje);
     }
 
     // Métodos de conveniencia para diferentes tipos de eventos
@@ -77,34 +85,96 @@ public class WebSocketNotificationService {
         ));
     }
 
-    public void notificarVentaCreada(Long ventaId, Object venta) {
-        broadcast("/topic/ventas", new WebSocketMessage(
+    /**
+     * Un solo evento por importación masiva (en lugar de uno por producto).
+     */
+    public void notificarProductosImportados(Object resultado) {
+        broadcast("/topic/productos", new WebSocketMessage(
+            "PRODUCTOS_IMPORTADOS",
+            "producto",
+            null,
+            resultado
+        ));
+    }
+
+    public void notificarVentaCreada(Long ventaId, Long sucursalId, Object venta) {
+        WebSocketMessage mensaje = new WebSocketMessage(
             "VENTA_CREADA",
             "venta",
             ventaId,
             venta
-        ));
+        );
+        broadcast("/topic/ventas", mensaje);
+        if (sucursalId != null) {
+            broadcast(temaSucursal(sucursalId, "ventas"), mensaje);
+        }
         
         // También notificar actualización de estadísticas
-        notificarEstadisticasActualizadas();
+        notificarEstadisticasActualizadas(sucursalId);
     }
 
-    public void notificarEstadisticasActualizadas() {
-        broadcast("/topic/estadisticas", new WebSocketMessage(
+    /**
+     * Estadísticas globales y, si se indica, las de la sucursal afectada.
+     */
+    public void notificarEstadisticasActualizadas(Long sucursalId) {
+        despachador.coalescer("/topic/estadisticas", () -> new WebSocketMessage(
             "ESTADISTICAS_ACTUALIZADAS",
             "estadisticas",
             null,
-            null
+            resumenHoy(null)
         ));
+        if (sucursalId != null) {
+            despachador.coalescer(temaSucursal(sucursalId, "estadisticas"), () -> new WebSocketMessage(
+                "ESTADISTICAS_ACTUALIZADAS",
+                "estadisticas",
+                sucursalId,
+                resumenHoy(sucursalId)
+            ));
+        }
+    }
+
+    public static String temaSucursal(Long sucursalId, String tema) {
+        return "/topic/sucursal/" + sucursalId + "/" + tema;
     }
 
     public void notificarInventarioActualizado() {
-        broadcast("/topic/inventario", new WebSocketMessage(
+        despachador.coalescer("/topic/inventario", () -> new WebSocketMessage(
             "INVENTARIO_ACTUALIZADO",
             "inventario",
             null,
             null
         ));
     }
+
+    /**
+     * Un ingrediente cruzó su stock mínimo: la alerta va a /topic/inventario y al tema de
+     * inventario de la sucursal. Sin coalescer, porque cada alerta es de otro ingrediente.
+     */
+    public void notificarStockBajo(AlertaStockDTO alerta) {
+        WebSocketMessage mensaje = new WebSocketMessage(
+            "STOCK_BAJO",
+            "ingrediente",
+            alerta.ingredienteId(),
+            alerta
+        );
+        broadcast("/topic/inventario", mensaje);
+        if (!StockIngrediente.SIN_SUCURSAL.equals(alerta.sucursalId())) {
+            broadcast(temaSucursal(alerta.sucursalId(), "inventario"), mensaje);
+        }
+    }
+
+    /**
+     * Resumen del día y desglose por método de pago (global o de una sucursal) para el
+     * evento de estadísticas. Si falla se envía sin datos y los clientes vuelven a
+     * consultar el endpoint.
+     */
+    private EstadisticasDiaDTO resumenHoy(Long sucursalId) {
+        try {
+            return estadisticasService.estadisticasDia(LocalDate.now(), sucursalId);
+        } catch (Exception e) {
+            log.warn("No se pudo calcular el resumen del día para WebSocket: {}", e.getMessage());
+            return null;
+        }
+    }
 }
 
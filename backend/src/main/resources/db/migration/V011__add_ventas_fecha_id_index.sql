@@ -0,0 +1,4 @@
+-- Índice compuesto para paginación por cursor (keyset) del listado de ventas
+-- Ordena por (fecha, id) descendente: GET /api/ventas/pagina y /api/ventas/export
+
+CREATE INDEX IF NOT EXISTS idx_venta_fecha_id ON ventas(fecha DESC, id DESC);
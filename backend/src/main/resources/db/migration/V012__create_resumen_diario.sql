@@ -0,0 +1,16 @@
+-- Acumulado diario de ventas cerradas y gastos operacionales por sucursal
+-- Mantenido por ResumenDiarioService; sucursal_id = 0 agrupa registros sin sucursal.
+-- Se puebla al arrancar la aplicación si está vacía (o con POST /api/estadisticas/resumen-diario/reconstruir)
+
+CREATE TABLE IF NOT EXISTS resumen_diario (
+    id BIGSERIAL PRIMARY KEY,
+    fecha DATE NOT NULL,
+    sucursal_id BIGINT NOT NULL,
+    total_ventas NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    subtotal_ventas NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    cantidad_ventas BIGINT NOT NULL DEFAULT 0,
+    items_vendidos BIGINT NOT NULL DEFAULT 0,
+    costo_productos NUMERIC(16, 4) NOT NULL DEFAULT 0,
+    gastos_operacionales NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    CONSTRAINT uk_resumen_diario_fecha_sucursal UNIQUE (fecha, sucursal_id)
+);
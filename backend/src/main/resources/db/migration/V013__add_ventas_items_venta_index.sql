@@ -0,0 +1,5 @@
+-- Índice por venta en ventas_items
+-- Lo usan el resumen de ventas de una sola pasada (join ventas -> items por rango de fechas)
+-- y el ensamblado de items por lote de ventas (GET /api/ventas, /pagina, /export)
+
+CREATE INDEX IF NOT EXISTS idx_venta_item_venta ON ventas_items(venta_id);
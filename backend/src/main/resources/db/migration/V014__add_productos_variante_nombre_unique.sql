@@ -0,0 +1,20 @@
+-- Nombre de variante único por producto base (sin distinguir mayúsculas)
+-- Respalda la validación de ProductoService.actualizar/crearVariante, que ahora consulta
+-- por índice en lugar de recorrer todo el catálogo
+
+-- Duplicados existentes: se conserva el nombre en la variante más antigua y a las demás
+-- se les agrega su id para que el índice pueda crearse
+UPDATE productos p
+SET nombre_variante = p.nombre_variante || ' (' || p.id || ')'
+WHERE p.producto_base_id IS NOT NULL
+  AND p.nombre_variante IS NOT NULL
+  AND EXISTS (
+      SELECT 1 FROM productos o
+      WHERE o.producto_base_id = p.producto_base_id
+        AND LOWER(o.nombre_variante) = LOWER(p.nombre_variante)
+        AND o.id < p.id
+  );
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_productos_base_nombre_variante
+    ON productos (producto_base_id, LOWER(nombre_variante))
+    WHERE producto_base_id IS NOT NULL AND nombre_variante IS NOT NULL;
@@ -0,0 +1,21 @@
+-- SKU / código de barras único para el escaneo en caja (GET /api/inventario/productos/escanear)
+-- Respalda la validación de ProductoService.crear/actualizar/crearVariante
+
+-- SKU vacío equivale a sin SKU
+UPDATE productos SET sku = NULL WHERE TRIM(sku) = '';
+UPDATE productos SET sku = TRIM(sku) WHERE sku <> TRIM(sku);
+
+-- Duplicados existentes: se conserva el SKU en el producto más antiguo y a los demás
+-- se les agrega su id para que el índice pueda crearse
+UPDATE productos p
+SET sku = LEFT(p.sku, 50 - LENGTH('-' || p.id)) || '-' || p.id
+WHERE p.sku IS NOT NULL
+  AND EXISTS (
+      SELECT 1 FROM productos o
+      WHERE o.sku = p.sku
+        AND o.id < p.id
+  );
+
+CREATE UNIQUE INDEX IF NOT EXISTS ux_productos_sku
+    ON productos (sku)
+    WHERE sku IS NOT NULL;
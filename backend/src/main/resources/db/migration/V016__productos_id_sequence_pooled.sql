@@ -0,0 +1,19 @@
+-- Producto usa GenerationType.SEQUENCE con allocationSize = 50 (optimizador pooled):
+-- Hibernate reserva 50 ids por cada nextval y puede agrupar los INSERT en lotes JDBC
+-- (importación masiva de productos). La secuencia debe avanzar de 50 en 50.
+
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.columns
+        WHERE table_name = 'productos' AND column_name = 'id' AND is_identity = 'YES'
+    ) THEN
+        ALTER TABLE productos ALTER COLUMN id SET INCREMENT BY 50;
+    ELSE
+        ALTER SEQUENCE productos_id_seq INCREMENT BY 50;
+    END IF;
+END $$;
+
+-- Hibernate toma cada valor como el tope del bloque (valor - 49 .. valor): el siguiente
+-- valor debe dejar libre el bloque posterior al id más alto existente
+SELECT setval(pg_get_serial_sequence('productos', 'id'), COALESCE((SELECT MAX(id) FROM productos), 0) + 50, false);
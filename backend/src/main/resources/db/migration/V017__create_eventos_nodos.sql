@@ -0,0 +1,12 @@
+-- Eventos entre instancias del backend (bus.tipo=jdbc): invalidaciones de caché, cambios
+-- del catálogo y mensajes WebSocket de una transacción confirmada en un nodo.
+-- Cada nodo lee las filas nuevas de los demás; las de más de bus.jdbc.retencion se borran.
+
+CREATE TABLE IF NOT EXISTS eventos_nodos (
+    id BIGSERIAL PRIMARY KEY,
+    nodo VARCHAR(36) NOT NULL,
+    eventos TEXT NOT NULL,
+    creado_en TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_eventos_nodos_creado_en ON eventos_nodos(creado_en);
@@ -0,0 +1,19 @@
+-- ProductoCostoHistorico usa GenerationType.SEQUENCE con allocationSize = 50, como
+-- productos (V016): el recálculo de costos por cambio de ingrediente agrega un renglón
+-- por producto afectado y Hibernate puede agrupar los INSERT en lotes JDBC.
+
+DO $$
+BEGIN
+    IF EXISTS (
+        SELECT 1 FROM information_schema.columns
+        WHERE table_name = 'producto_costo_historico' AND column_name = 'id' AND is_identity = 'YES'
+    ) THEN
+        ALTER TABLE producto_costo_historico ALTER COLUMN id SET INCREMENT BY 50;
+    ELSE
+        ALTER SEQUENCE producto_costo_historico_id_seq INCREMENT BY 50;
+    END IF;
+END $$;
+
+-- Hibernate toma cada valor como el tope del bloque (valor - 49 .. valor)
+SELECT setval(pg_get_serial_sequence('producto_costo_historico', 'id'),
+              COALESCE((SELECT MAX(id) FROM producto_costo_historico), 0) + 50, false);
@@ -0,0 +1,16 @@
+-- Índices para la paginación por cursor (keyset) de movimientos de inventario
+-- Ordenan por (fecha, id) descendente, con el filtro al inicio:
+-- GET /api/inventario/movimientos, /ingrediente/{id}, /ingrediente/{id}/tipo/{tipo} y /rango
+
+CREATE INDEX IF NOT EXISTS idx_inv_mov_ingrediente_fecha_id
+    ON inventario_movimientos(ingrediente_id, fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_inv_mov_ingrediente_tipo_fecha_id
+    ON inventario_movimientos(ingrediente_id, tipo, fecha DESC, id DESC);
+CREATE INDEX IF NOT EXISTS idx_inv_mov_fecha_id
+    ON inventario_movimientos(fecha DESC, id DESC);
+
+-- Cubierto por idx_inv_mov_ingrediente_fecha_id
+DROP INDEX IF EXISTS idx_inv_mov_ingrediente_fecha;
+
+-- El tipo se guarda en mayúsculas (el filtro por tipo no distingue mayúsculas y así usa el índice)
+UPDATE inventario_movimientos SET tipo = UPPER(tipo) WHERE tipo <> UPPER(tipo);
@@ -0,0 +1,15 @@
+-- Existencia por ingrediente y sucursal, en la unidad base del ingrediente
+-- Mantenida por StockIngredienteService con cada movimiento; sucursal_id = 0 agrupa movimientos sin sucursal.
+-- Se puebla desde inventario_movimientos al arrancar la aplicación si está vacía
+-- (o con POST /api/inventario/stock/conciliar?corregir=true)
+
+ALTER TABLE inventario_movimientos ADD COLUMN IF NOT EXISTS sucursal_id BIGINT;
+
+CREATE TABLE IF NOT EXISTS stock_ingredientes (
+    id BIGSERIAL PRIMARY KEY,
+    ingrediente_id BIGINT NOT NULL,
+    sucursal_id BIGINT NOT NULL,
+    cantidad NUMERIC(24, 12) NOT NULL DEFAULT 0,
+    actualizado TIMESTAMP NOT NULL,
+    CONSTRAINT uk_stock_ingrediente_sucursal UNIQUE (ingrediente_id, sucursal_id)
+);
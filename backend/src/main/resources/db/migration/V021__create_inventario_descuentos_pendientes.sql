@@ -0,0 +1,13 @@
+-- Ventas pendientes de descontar del inventario (outbox transaccional)
+-- Se inserta en la transacción de la venta; DescuentoInventarioService borra la fila en la misma
+-- transacción en que inserta los movimientos de consumo (una sola vez por venta).
+
+CREATE TABLE IF NOT EXISTS inventario_descuentos_pendientes (
+    id BIGSERIAL PRIMARY KEY,
+    venta_id BIGINT NOT NULL,
+    creado_en TIMESTAMP NOT NULL,
+    intentos INTEGER NOT NULL DEFAULT 0,
+    error TEXT
+);
+
+CREATE INDEX IF NOT EXISTS idx_inv_desc_pend_venta ON inventario_descuentos_pendientes(venta_id);
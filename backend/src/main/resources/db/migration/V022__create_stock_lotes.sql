@@ -0,0 +1,21 @@
+-- Existencia por lote y caducidad, en la unidad base del ingrediente
+-- Mantenida por LoteInventarioService: los movimientos con lote suman o restan a su lote y las salidas
+-- sin lote se reparten entre los lotes por caducidad (FEFO). sucursal_id = 0 agrupa movimientos sin sucursal.
+-- No se puebla desde el libro: las salidas anteriores no se asignaban a lotes.
+
+CREATE TABLE IF NOT EXISTS stock_lotes (
+    id BIGSERIAL PRIMARY KEY,
+    ingrediente_id BIGINT NOT NULL,
+    sucursal_id BIGINT NOT NULL,
+    lote VARCHAR(100) NOT NULL,
+    caducidad DATE,
+    cantidad NUMERIC(24, 12) NOT NULL DEFAULT 0,
+    actualizado TIMESTAMP NOT NULL,
+    CONSTRAINT uk_stock_lote UNIQUE (ingrediente_id, sucursal_id, lote)
+);
+
+-- Asignación FEFO: lotes de un ingrediente/sucursal por caducidad
+CREATE INDEX IF NOT EXISTS idx_stock_lote_asignacion ON stock_lotes(ingrediente_id, sucursal_id, caducidad);
+
+-- Lotes por caducar de una sucursal (rango de fechas)
+CREATE INDEX IF NOT EXISTS idx_stock_lote_sucursal_caducidad ON stock_lotes(sucursal_id, caducidad);
@@ -0,0 +1,13 @@
+-- Turnos de las tareas periódicas que solo debe ejecutar un nodo (TareaProgramadaService)
+-- Un nodo toma la tarea con un UPDATE atómico cuando bloqueada_hasta ya pasó y la deja
+-- bloqueada durante su intervalo; los demás nodos la omiten hasta entonces.
+
+CREATE TABLE IF NOT EXISTS tareas_programadas (
+    nombre VARCHAR(60) PRIMARY KEY,
+    bloqueada_hasta TIMESTAMP NOT NULL,
+    nodo VARCHAR(36)
+);
+
+INSERT INTO tareas_programadas (nombre, bloqueada_hasta)
+VALUES ('conciliacion-stock', TIMESTAMP '2000-01-01 00:00:00')
+ON CONFLICT (nombre) DO NOTHING;
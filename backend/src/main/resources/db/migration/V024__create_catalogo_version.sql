@@ -0,0 +1,12 @@
+-- Versión del catálogo compartida por los nodos (MenuCatalogoRegistry)
+-- Cada cambio de productos/categorías la sube en su propia transacción; el ETag de los
+-- endpoints del catálogo es esta versión, así que coincide en todos los nodos.
+
+CREATE TABLE IF NOT EXISTS catalogo_version (
+    id INTEGER PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+
+INSERT INTO catalogo_version (id, version)
+VALUES (1, 0)
+ON CONFLICT (id) DO NOTHING;
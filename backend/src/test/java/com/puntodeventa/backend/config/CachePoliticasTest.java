@@ -0,0 +1,98 @@
+package com.puntodeventa.backend.config;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de las políticas por caché y de la recarga en segundo plano (refresh-after-write)
+ */
+class CachePoliticasTest {
+
+        @Test
+        void testPoliticaPropiaCompletaConElDefecto() {
+                CachePoliticas politicas = new CachePoliticas(
+                                new CachePoliticas.Politica(500L, null, null, null, null),
+                                Map.of("recetas", new CachePoliticas.Politica(null, 2_000L, Duration.ofMinutes(5), null,
+                                                Duration.ofMinutes(1))));
+
+                CachePoliticas.Politica defecto = politicas.de("roles");
+                assertEquals(500L, defecto.maximumSize());
+                assertEquals(Duration.ofMinutes(10), defecto.expireAfterWrite(), "Expiración por defecto del código");
+
+                CachePoliticas.Politica recetas = politicas.de("recetas");
+                assertNull(recetas.maximumSize(), "Con peso propio no hereda el tamaño máximo");
+                assertEquals(2_000L, recetas.maximumWeight());
+                assertEquals(Duration.ofMinutes(5), recetas.expireAfterWrite());
+                assertEquals(Duration.ofMinutes(1), recetas.refreshAfterWrite());
+        }
+
+        @Test
+        void testRecargaDevuelveElValorAnteriorSinEsperar() {
+                AtomicLong reloj = new AtomicLong();
+                AtomicInteger recargas = new AtomicInteger();
+                Deque<Runnable> pendientes = new ArrayDeque<>();
+                StaticListableBeanFactory beans = new StaticListableBeanFactory();
+                beans.addBean("recargable", new CacheRecargable() {
+                        @Override
+                        public String cache() {
+                                return "productos";
+                        }
+
+                        @Override
+                        public Object recargar(Object clave) {
+                                recargas.incrementAndGet();
+                                return "nuevo-" + clave;
+                        }
+                });
+                LoadingCache<Object, Object> cache = CacheConfig
+                                .caffeine(new CachePoliticas.Politica(10L, null, Duration.ofMinutes(5), null,
+                                                Duration.ofMinutes(1)))
+                                .ticker(reloj::get)
+                                .executor(pendientes::add)
+                                .build(CacheConfig.recargador("productos", beans.getBeanProvider(CacheRecargable.class)));
+
+                assertNull(cache.get(1L), "Un fallo lo calcula el método @Cacheable");
+                cache.put(1L, "viejo");
+                assertEquals("viejo", cache.get(1L));
+                assertEquals(0, recargas.get(), "Entrada reciente: sin recarga");
+
+                reloj.addAndGet(TimeUnit.MINUTES.toNanos(2));
+                assertEquals("viejo", cache.get(1L), "La lectura no espera la recarga");
+                assertEquals(0, recargas.get(), "La recarga queda en el pool de Caffeine");
+
+                while (!pendientes.isEmpty()) {
+                        pendientes.poll().run();
+                }
+                assertEquals(1, recargas.get());
+                assertEquals("nuevo-1", cache.get(1L));
+        }
+
+        @Test
+        void testSinRecargableLaEntradaViejaSeDescarta() {
+                AtomicLong reloj = new AtomicLong();
+                StaticListableBeanFactory beans = new StaticListableBeanFactory();
+                LoadingCache<Object, Object> cache = CacheConfig
+                                .caffeine(new CachePoliticas.Politica(10L, null, null, null, Duration.ofMinutes(1)))
+                                .ticker(reloj::get)
+                                .executor(Runnable::run)
+                                .build(CacheConfig.recargador("otra", beans.getBeanProvider(CacheRecargable.class)));
+
+                cache.put("k", List.of("a", "b"));
+                reloj.addAndGet(TimeUnit.MINUTES.toNanos(2));
+                cache.get("k");
+
+                assertNull(cache.getIfPresent("k"));
+        }
+}
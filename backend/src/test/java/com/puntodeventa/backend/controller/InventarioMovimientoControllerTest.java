@@ -0,0 +1,68 @@
+package com.puntodeventa.backend.controller;
+
+import com.puntodeventa.backend.dto.InventarioMovimientoDTO;
+import com.puntodeventa.backend.dto.InventarioMovimientoPaginaDTO;
+import com.puntodeventa.backend.service.InventarioMovimientoService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para InventarioMovimientoController
+ * Verifica que los listados conservan la forma de lista sin cursor ni limite
+ */
+class InventarioMovimientoControllerTest {
+
+        private static final int TOTAL = InventarioMovimientoService.LIMITE_MAXIMO * 2 + 7;
+
+        @Test
+        void testSinCursorNiLimiteDevuelveLaListaCompleta() {
+                List<Integer> limites = new ArrayList<>();
+
+                Object respuesta = InventarioMovimientoController.paginaOLista(null, null, libro(limites));
+
+                List<?> lista = assertInstanceOf(List.class, respuesta);
+                assertEquals(TOTAL, lista.size());
+                assertEquals(List.of(InventarioMovimientoService.LIMITE_MAXIMO, InventarioMovimientoService.LIMITE_MAXIMO,
+                                InventarioMovimientoService.LIMITE_MAXIMO), limites, "Recorre el libro por páginas");
+        }
+
+        @Test
+        void testConCursorOLimiteDevuelveUnaPagina() {
+                List<Integer> limites = new ArrayList<>();
+
+                InventarioMovimientoPaginaDTO primera = assertInstanceOf(InventarioMovimientoPaginaDTO.class,
+                                InventarioMovimientoController.paginaOLista(null, 20, libro(limites)));
+                assertEquals(20, primera.movimientos().size());
+                assertTrue(primera.hayMas());
+
+                InventarioMovimientoPaginaDTO siguiente = assertInstanceOf(InventarioMovimientoPaginaDTO.class,
+                                InventarioMovimientoController.paginaOLista(primera.siguienteCursor(), null, libro(limites)));
+                assertEquals(50, siguiente.movimientos().size(), "Límite por defecto");
+                assertEquals(List.of(20, 50), limites);
+        }
+
+        /** Libro de TOTAL movimientos; el cursor es el índice del siguiente. */
+        private static BiFunction<String, Integer, InventarioMovimientoPaginaDTO> libro(List<Integer> limites) {
+                return (cursor, limite) -> {
+                        limites.add(limite);
+                        int desde = cursor != null ? Integer.parseInt(cursor) : 0;
+                        int hasta = Math.min(TOTAL, desde + limite);
+                        List<InventarioMovimientoDTO> movimientos = LongStream.range(desde, hasta)
+                                        .mapToObj(InventarioMovimientoControllerTest::movimiento)
+                                        .toList();
+                        boolean hayMas = hasta < TOTAL;
+                        return new InventarioMovimientoPaginaDTO(movimientos, hayMas ? Integer.toString(hasta) : null, hayMas);
+                };
+        }
+
+        private static InventarioMovimientoDTO movimiento(long id) {
+                return new InventarioMovimientoDTO(id, null, null, "ENTRADA", null, null, null, null, null, null, null,
+                                null, null, null, null, null, null);
+        }
+}
@@ -0,0 +1,78 @@
+package com.puntodeventa.backend.controller;
+
+import com.puntodeventa.backend.service.MenuCatalogoRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests para RespuestaCatalogo
+ * Verifica el GET condicional (ETag / 304) de los endpoints del catálogo
+ */
+class RespuestaCatalogoTest {
+
+        private final MenuCatalogoRegistry menuCatalogo = mock(MenuCatalogoRegistry.class);
+        private final RespuestaCatalogo respuesta = new RespuestaCatalogo(menuCatalogo);
+
+        @Test
+        void testNoModificadoHastaQueCambiaElCatalogo() {
+                AtomicInteger cargas = new AtomicInteger();
+                when(menuCatalogo.etag()).thenReturn("\"1\"");
+
+                ResponseEntity<List<String>> primera = respuesta.condicional(peticion(null),
+                                () -> cargar(cargas));
+                String etag = primera.getHeaders().getETag();
+                assertEquals(HttpStatus.OK, primera.getStatusCode());
+                assertNotNull(etag);
+                assertEquals("no-cache", primera.getHeaders().getCacheControl());
+
+                // Misma versión: 304 sin cuerpo y sin cargar datos
+                ResponseEntity<List<String>> segunda = respuesta.condicional(peticion(etag),
+                                () -> cargar(cargas));
+                assertEquals(HttpStatus.NOT_MODIFIED, segunda.getStatusCode());
+                assertNull(segunda.getBody());
+                assertEquals(etag, segunda.getHeaders().getETag());
+                assertEquals(1, cargas.get());
+
+                // Cambio en el catálogo: nuevo ETag y cuerpo completo
+                when(menuCatalogo.etag()).thenReturn("\"2\"");
+                ResponseEntity<List<String>> tercera = respuesta.condicional(peticion(etag),
+                                () -> cargar(cargas));
+                assertEquals(HttpStatus.OK, tercera.getStatusCode());
+                assertNotEquals(etag, tercera.getHeaders().getETag());
+                assertEquals(2, cargas.get());
+        }
+
+        @Test
+        void testCoincideIfNoneMatch() {
+                String etag = "\"abc-3\"";
+                assertTrue(RespuestaCatalogo.coincide("\"abc-3\"", etag));
+                assertTrue(RespuestaCatalogo.coincide("\"abc-2\", W/\"abc-3\"", etag));
+                assertTrue(RespuestaCatalogo.coincide("*", etag));
+                assertFalse(RespuestaCatalogo.coincide("\"abc-2\"", etag));
+                assertFalse(RespuestaCatalogo.coincide("", etag));
+                assertFalse(RespuestaCatalogo.coincide(null, etag));
+        }
+
+        private static ServletWebRequest peticion(String ifNoneMatch) {
+                MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/inventario/productos");
+                if (ifNoneMatch != null) {
+                        request.addHeader("If-None-Match", ifNoneMatch);
+                }
+                return new ServletWebRequest(request);
+        }
+
+        private static List<String> cargar(AtomicInteger cargas) {
+                cargas.incrementAndGet();
+                return List.of("Café", "Té");
+        }
+}
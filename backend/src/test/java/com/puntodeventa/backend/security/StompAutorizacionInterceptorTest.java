@@ -0,0 +1,101 @@
+package com.puntodeventa.backend.security;
+
+import com.puntodeventa.backend.model.Sucursal;
+import com.puntodeventa.backend.model.Usuario;
+import com.puntodeventa.backend.repository.UsuarioRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para StompAutorizacionInterceptor
+ * Verifica que solo los usuarios de la sucursal (o ADMIN) se suscriben a sus temas, y solo
+ * ADMIN a los globales
+ */
+class StompAutorizacionInterceptorTest {
+
+        private final JwtUtil jwtUtil = mock(JwtUtil.class);
+        private final UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+        private final StompAutorizacionInterceptor interceptor = new StompAutorizacionInterceptor(jwtUtil,
+                        usuarioRepository);
+
+        @Test
+        void testSuscripcionATemaDeSucursal() {
+                Map<String, Object> cajeroCentro = conectar("token-cajero", 7L, 1L, "CAJERO");
+                Map<String, Object> admin = conectar("token-admin", 8L, 2L, "ADMIN");
+                Map<String, Object> anonimo = conectar(null, null, null, null);
+
+                // Su propia sucursal y el catálogo
+                assertDoesNotThrow(() -> suscribir(cajeroCentro, "/topic/sucursal/1/ventas"));
+                assertDoesNotThrow(() -> suscribir(cajeroCentro, "/topic/productos"));
+                // Otra sucursal y los temas globales con datos de todas las sucursales
+                assertThrows(AccessDeniedException.class, () -> suscribir(cajeroCentro, "/topic/sucursal/2/ventas"));
+                assertThrows(AccessDeniedException.class, () -> suscribir(cajeroCentro, "/topic/estadisticas"));
+                assertThrows(AccessDeniedException.class, () -> suscribir(cajeroCentro, "/topic/ventas"));
+                assertThrows(AccessDeniedException.class, () -> suscribir(cajeroCentro, "/topic/inventario"));
+                // ADMIN ve cualquier sucursal y los temas globales
+                assertDoesNotThrow(() -> suscribir(admin, "/topic/sucursal/1/estadisticas"));
+                assertDoesNotThrow(() -> suscribir(admin, "/topic/inventario"));
+                // Sin token, nada
+                assertThrows(AccessDeniedException.class, () -> suscribir(anonimo, "/topic/productos"));
+                assertThrows(AccessDeniedException.class, () -> suscribir(anonimo, "/topic/estadisticas"));
+                assertThrows(AccessDeniedException.class, () -> suscribir(anonimo, "/topic/sucursal/1/ventas"));
+        }
+
+        @Test
+        void testConnectConTokenInvalidoSeRechaza() {
+                when(jwtUtil.isTokenValid("caducado")).thenReturn(false);
+                assertThrows(MessagingException.class, () -> conectar("caducado", null, null, null));
+        }
+
+        @Test
+        void testSucursalDeDestino() {
+                assertEquals(12L, StompAutorizacionInterceptor.sucursalDeDestino("/topic/sucursal/12/ventas"));
+                assertNull(StompAutorizacionInterceptor.sucursalDeDestino("/topic/ventas"));
+                assertNull(StompAutorizacionInterceptor.sucursalDeDestino("/topic/sucursal/x/ventas"));
+                assertNull(StompAutorizacionInterceptor.sucursalDeDestino(null));
+        }
+
+        private Map<String, Object> conectar(String token, Long usuarioId, Long sucursalId, String rol) {
+                Map<String, Object> sesion = new HashMap<>();
+                StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+                accessor.setSessionAttributes(sesion);
+                if (token != null) {
+                        accessor.addNativeHeader("Authorization", "Bearer " + token);
+                        if (usuarioId != null) {
+                                Sucursal sucursal = new Sucursal();
+                                sucursal.setId(sucursalId);
+                                Usuario usuario = new Usuario();
+                                usuario.setSucursal(sucursal);
+                                when(jwtUtil.isTokenValid(token)).thenReturn(true);
+                                when(jwtUtil.extractUsuarioId(token)).thenReturn(usuarioId);
+                                when(jwtUtil.extractRol(token)).thenReturn(rol);
+                                when(usuarioRepository.findById(usuarioId)).thenReturn(Optional.of(usuario));
+                        }
+                }
+                interceptor.preSend(mensaje(accessor), null);
+                return sesion;
+        }
+
+        private void suscribir(Map<String, Object> sesion, String destino) {
+                StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.SUBSCRIBE);
+                accessor.setSessionAttributes(sesion);
+                accessor.setDestination(destino);
+                interceptor.preSend(mensaje(accessor), null);
+        }
+
+        private static Message<byte[]> mensaje(StompHeaderAccessor accessor) {
+                return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        }
+}
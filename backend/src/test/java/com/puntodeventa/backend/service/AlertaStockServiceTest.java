@@ -0,0 +1,213 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.AlertaStockDTO;
+import com.puntodeventa.backend.dto.InventarioMovimientoDTO;
+import com.puntodeventa.backend.model.Ingrediente;
+import com.puntodeventa.backend.model.Unidad;
+import com.puntodeventa.backend.repository.IngredienteRepository;
+import com.puntodeventa.backend.repository.UnidadRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests de las alertas de stock bajo. Necesitan confirmar transacciones (la evaluación
+ * corre al hacer commit), así que usan su propia BD en memoria en lugar de @Transactional.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:alertas-stock")
+class AlertaStockServiceTest {
+
+        private static final Logger log = LoggerFactory.getLogger(AlertaStockServiceTest.class);
+
+        private static final long SUCURSAL = 7L;
+
+        @MockitoSpyBean
+        private WebSocketNotificationService notificationService;
+
+        @Autowired
+        private InventarioMovimientoService movimientoService;
+
+        @Autowired
+        private IngredienteRepository ingredienteRepository;
+
+        @Autowired
+        private UnidadRepository unidadRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        private Unidad kilo;
+
+        @BeforeEach
+        void setUp() {
+                kilo = unidadRepository.save(Unidad.builder().nombre("Kilogramo " + System.nanoTime())
+                                .abreviatura("kg").factorBase(BigDecimal.ONE).build());
+                clearInvocations(notificationService);
+        }
+
+        @Test
+        void testAlertaSoloAlCruzarElMinimoHaciaAbajo() {
+                Ingrediente queso = ingrediente("Queso", "5");
+                movimiento(queso, "ENTRADA", "10");
+                movimiento(queso, "EGRESO", "3");
+                verify(notificationService, never()).notificarStockBajo(any());
+
+                movimiento(queso, "EGRESO", "4");
+                ArgumentCaptor<AlertaStockDTO> alerta = ArgumentCaptor.forClass(AlertaStockDTO.class);
+                verify(notificationService).notificarStockBajo(alerta.capture());
+                assertEquals(queso.getId(), alerta.getValue().ingredienteId());
+                assertEquals(SUCURSAL, alerta.getValue().sucursalId());
+                assertEquals(0, new BigDecimal("3").compareTo(alerta.getValue().cantidad()));
+                assertEquals(0, new BigDecimal("1").compareTo(alerta.getValue().consumoDiario()), "7 kg en 7 días");
+                assertEquals(0, new BigDecimal("3").compareTo(alerta.getValue().diasRestantes()));
+                assertTrue(alerta.getValue().agotamientoEstimado().isAfter(LocalDateTime.now().plusDays(2)));
+
+                // Ya por debajo: otra salida no repite la alerta
+                movimiento(queso, "MERMA", "1");
+                verify(notificationService, times(1)).notificarStockBajo(any());
+
+                // Se repone y vuelve a cruzar
+                movimiento(queso, "ENTRADA", "10");
+                movimiento(queso, "EGRESO", "8");
+                verify(notificationService, times(2)).notificarStockBajo(any());
+        }
+
+        /**
+         * Movimientos sin sucursal (sucursal 0 en la existencia): la alerta y su consumo se
+         * arman con la conexión de la transacción que cruzó el mínimo, sin abrir otra sesión.
+         */
+        @Test
+        void testAlertaSinSucursalUsaLaConexionDeLaTransaccion() {
+                Ingrediente crema = ingrediente("Crema", "5");
+                movimiento(crema, null, "ENTRADA", "10");
+                movimiento(crema, null, "EGRESO", "3");
+                movimiento(crema, SUCURSAL, "EGRESO", "2");
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                stats.clear();
+                movimiento(crema, null, "EGRESO", "4");
+                assertEquals(1, stats.getSessionOpenCount(), "Una sola sesión (y conexión) para la salida y su alerta");
+
+                ArgumentCaptor<AlertaStockDTO> alerta = ArgumentCaptor.forClass(AlertaStockDTO.class);
+                verify(notificationService).notificarStockBajo(alerta.capture());
+                assertEquals(0L, alerta.getValue().sucursalId());
+                assertEquals(0, new BigDecimal("3").compareTo(alerta.getValue().cantidad()));
+                assertEquals(0, new BigDecimal("1").compareTo(alerta.getValue().consumoDiario()),
+                                "7 kg sin sucursal en 7 días; la salida de la sucursal no cuenta");
+        }
+
+        @Test
+        void testTransaccionQueNoTerminaBajoElMinimoNoAlerta() {
+                Ingrediente leche = ingrediente("Leche", "2");
+                Ingrediente sinMinimo = ingrediente("Sal", null);
+                movimiento(leche, "ENTRADA", "3");
+                movimiento(sinMinimo, "ENTRADA", "1");
+
+                // Baja y se repone en la misma transacción: neto sobre el mínimo
+                transactionTemplate.executeWithoutResult(status -> {
+                        registrar(leche, "EGRESO", "2");
+                        registrar(leche, "ENTRADA", "2");
+                        registrar(sinMinimo, "EGRESO", "5");
+                });
+                verify(notificationService, never()).notificarStockBajo(any());
+
+                // Una salida revertida por rollback tampoco
+                assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+                        registrar(leche, "EGRESO", "2");
+                        throw new IllegalStateException("rollback");
+                }));
+                verify(notificationService, never()).notificarStockBajo(any());
+        }
+
+        /**
+         * 📊 BENCHMARK: sentencias de una salida con 10 y con 5,000 ingredientes bajo su mínimo
+         * en la sucursal; la evaluación consulta solo las filas que tocó la transacción.
+         */
+        @Test
+        void testEvaluacionNoRecorreTodosLosIngredientes() {
+                Ingrediente harina = ingrediente("Harina", "1");
+                movimiento(harina, "ENTRADA", "1000");
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                sembrarBajoMinimo(10);
+                stats.clear();
+                long inicio = System.nanoTime();
+                movimiento(harina, "EGRESO", "1");
+                long pocosUs = (System.nanoTime() - inicio) / 1_000;
+                long pocos = stats.getPrepareStatementCount();
+
+                sembrarBajoMinimo(5_000);
+                stats.clear();
+                inicio = System.nanoTime();
+                movimiento(harina, "EGRESO", "1");
+                long muchosUs = (System.nanoTime() - inicio) / 1_000;
+                long muchos = stats.getPrepareStatementCount();
+
+                assertEquals(pocos, muchos);
+                verify(notificationService, never()).notificarStockBajo(any());
+                log.info("📊 Salida con alertas: {} sentencias / {} µs con 10 ingredientes bajo mínimo, "
+                                + "{} sentencias / {} µs con 5,010", pocos, pocosUs, muchos, muchosUs);
+        }
+
+        private Ingrediente ingrediente(String nombre, String stockMinimo) {
+                return ingredienteRepository.save(Ingrediente.builder().nombre(nombre).unidadBase(kilo)
+                                .costoUnitarioBase(BigDecimal.TEN)
+                                .stockMinimo(stockMinimo != null ? new BigDecimal(stockMinimo) : null)
+                                .activo(true).build());
+        }
+
+        private void movimiento(Ingrediente ingrediente, String tipo, String cantidad) {
+                movimiento(ingrediente, SUCURSAL, tipo, cantidad);
+        }
+
+        private void movimiento(Ingrediente ingrediente, Long sucursalId, String tipo, String cantidad) {
+                transactionTemplate.executeWithoutResult(status -> registrar(ingrediente, sucursalId, tipo, cantidad));
+        }
+
+        private void registrar(Ingrediente ingrediente, String tipo, String cantidad) {
+                registrar(ingrediente, SUCURSAL, tipo, cantidad);
+        }
+
+        private void registrar(Ingrediente ingrediente, Long sucursalId, String tipo, String cantidad) {
+                movimientoService.registrarMovimiento(new InventarioMovimientoDTO(null, ingrediente.getId(), null, tipo,
+                                new BigDecimal(cantidad), kilo.getId(), null, null, BigDecimal.ONE, null,
+                                LocalDateTime.now(), null, null, null, null, null, sucursalId));
+        }
+
+        /** Ingredientes con mínimo 10 y existencia 1 en la sucursal. */
+        private void sembrarBajoMinimo(int cantidad) {
+                jdbcTemplate.update("""
+                                INSERT INTO ingredientes (nombre, unidad_base_id, costo_unitario_base, stock_minimo, activo)
+                                SELECT CONCAT('Bajo mínimo ', X), ?, 1, 10, 1 FROM SYSTEM_RANGE(1, CAST(? AS BIGINT))
+                                """, kilo.getId(), cantidad);
+                jdbcTemplate.update("""
+                                INSERT INTO stock_ingredientes (ingrediente_id, sucursal_id, cantidad, actualizado)
+                                SELECT i.id, ?, 1, CURRENT_TIMESTAMP FROM ingredientes i
+                                WHERE i.nombre LIKE 'Bajo mínimo %' AND NOT EXISTS (
+                                        SELECT 1 FROM stock_ingredientes s WHERE s.ingrediente_id = i.id AND s.sucursal_id = ?)
+                                """, SUCURSAL, SUCURSAL);
+        }
+}
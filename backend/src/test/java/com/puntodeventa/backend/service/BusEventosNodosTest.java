@@ -0,0 +1,127 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.PuntoDeVentaBackendApplication;
+import com.puntodeventa.backend.dto.WebSocketMessage;
+import com.puntodeventa.backend.repository.EventoNodoRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.AbstractSubscribableChannel;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de dos nodos del backend sobre la misma base H2 con el bus JDBC: invalidaciones de
+ * caché, versión del catálogo y mensajes WebSocket de un nodo llegan al otro.
+ */
+class BusEventosNodosTest {
+
+        private static ConfigurableApplicationContext nodoA;
+        private static ConfigurableApplicationContext nodoB;
+        private static final List<String> destinosB = new CopyOnWriteArrayList<>();
+
+        @BeforeAll
+        static void arrancarNodos() {
+                nodoA = nodo();
+                nodoB = nodo();
+                nodoB.getBean("brokerChannel", AbstractSubscribableChannel.class).addInterceptor(new ChannelInterceptor() {
+                        @Override
+                        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+                                destinosB.add(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+                                return message;
+                        }
+                });
+        }
+
+        @AfterAll
+        static void detenerNodos() {
+                nodoA.close();
+                nodoB.close();
+        }
+
+        private static ConfigurableApplicationContext nodo() {
+                return new SpringApplicationBuilder(PuntoDeVentaBackendApplication.class).run(
+                                "--server.port=0",
+                                "--spring.datasource.url=jdbc:h2:mem:bus-nodos;DB_CLOSE_DELAY=-1",
+                                "--spring.jpa.hibernate.ddl-auto=update",
+                                "--bus.tipo=jdbc",
+                                "--bus.jdbc.intervalo-ms=50");
+        }
+
+        @Test
+        void testInvalidacionDeCacheLlegaAlOtroNodo() {
+                Cache productosA = nodoA.getBean(CacheManager.class).getCache("productos");
+                Cache productosB = nodoB.getBean(CacheManager.class).getCache("productos");
+                productosA.put(1L, "a");
+                productosB.put(1L, "b");
+                productosB.put("variantes-1", List.of());
+                productosB.put(2L, "b");
+
+                productosA.evict(1L);
+                productosA.evict("variantes-1");
+
+                esperar(() -> productosB.get(1L) == null && productosB.get("variantes-1") == null);
+                assertNotNull(productosB.get(2L), "Solo se invalidan las claves afectadas");
+        }
+
+        @Test
+        void testCambioDeCatalogoSoloSePropagaAlConfirmar() {
+                MenuCatalogoRegistry catalogoA = nodoA.getBean(MenuCatalogoRegistry.class);
+                MenuCatalogoRegistry catalogoB = nodoB.getBean(MenuCatalogoRegistry.class);
+                EventoNodoRepository eventos = nodoA.getBean(EventoNodoRepository.class);
+                TransactionTemplate transaccionA = new TransactionTemplate(nodoA.getBean(PlatformTransactionManager.class));
+
+                long filas = eventos.count();
+                transaccionA.executeWithoutResult(status -> {
+                        nodoA.publishEvent(MenuCatalogoRegistry.CambioCatalogo.deProductos(5L));
+                        status.setRollbackOnly();
+                });
+                assertEquals(filas, eventos.count(), "Un rollback no envía eventos");
+                String etag = catalogoA.etag();
+                assertEquals(etag, catalogoB.etag(), "Mismo ETag en los dos nodos");
+
+                long versionB = catalogoB.version();
+                transaccionA.executeWithoutResult(status ->
+                                nodoA.publishEvent(MenuCatalogoRegistry.CambioCatalogo.deProductos(5L)));
+                assertEquals(filas + 1, eventos.count(), "Los eventos de la transacción van en una sola fila");
+
+                esperar(() -> catalogoB.version() > versionB);
+                assertNotEquals(etag, catalogoA.etag());
+                esperar(() -> catalogoB.etag().equals(catalogoA.etag()));
+        }
+
+        @Test
+        void testMensajeWebSocketSePublicaEnElOtroNodo() {
+                nodoA.getBean(WebSocketDespachador.class).encolar("/topic/bus-nodos",
+                                new WebSocketMessage("PRODUCTO_ACTUALIZADO", "producto", 1L, null));
+
+                esperar(() -> destinosB.contains("/topic/bus-nodos"));
+        }
+
+        private static void esperar(BooleanSupplier condicion) {
+                long limite = System.currentTimeMillis() + 10_000;
+                while (!condicion.getAsBoolean()) {
+                        assertTrue(System.currentTimeMillis() < limite, "El otro nodo no recibió el evento");
+                        try {
+                                Thread.sleep(20);
+                        } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                fail(e);
+                        }
+                }
+        }
+}
@@ -0,0 +1,116 @@
+package com.puntodeventa.backend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para CajaTurnoActivoRegistry.
+ * Sin @Transactional: las tablas cajas/turnos se crean y borran en cada test.
+ */
+@SpringBootTest
+class CajaTurnoActivoRegistryTest {
+
+        @Autowired
+        private CajaTurnoActivoRegistry registry;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private ApplicationEventPublisher eventPublisher;
+
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        @BeforeEach
+        void setUp() {
+                jdbcTemplate.execute("CREATE TABLE cajas (id BIGINT PRIMARY KEY, sucursal_id BIGINT, activa BOOLEAN)");
+                jdbcTemplate.execute("CREATE TABLE turnos (id BIGINT PRIMARY KEY, sucursal_id BIGINT, caja_id BIGINT, "
+                                + "fecha_apertura TIMESTAMP, activo BOOLEAN)");
+                jdbcTemplate.update("INSERT INTO cajas VALUES (10, 1, FALSE), (11, 1, TRUE), (20, 2, TRUE)");
+                jdbcTemplate.update("INSERT INTO turnos VALUES "
+                                + "(100, 1, 11, TIMESTAMP '2025-01-01 08:00:00', TRUE), "
+                                + "(200, 2, 20, TIMESTAMP '2025-01-01 09:00:00', TRUE)");
+                registry.invalidar(null);
+        }
+
+        @AfterEach
+        void tearDown() {
+                jdbcTemplate.execute("DROP TABLE turnos");
+                jdbcTemplate.execute("DROP TABLE cajas");
+                registry.invalidar(null);
+        }
+
+        @Test
+        void testResuelveCajaYTurnoActivosPorSucursal() {
+                assertEquals(11L, registry.cajaActiva(1L));
+                assertEquals(20L, registry.cajaActiva(2L));
+                assertEquals(100L, registry.turnoActivo(1L, 11L));
+                assertEquals(200L, registry.turnoActivo(2L, 20L));
+
+                // Sucursal sin caja activa: cualquier caja activa
+                assertEquals(11L, registry.cajaActiva(99L));
+        }
+
+        /**
+         * El valor se sirve desde memoria hasta que llega un evento de apertura/cierre
+         */
+        @Test
+        void testSirveDesdeMemoriaHastaEventoDeCambio() {
+                assertEquals(11L, registry.cajaActiva(1L));
+
+                // Cerrar la caja 11 y abrir la 10 directamente en BD: el registro no consulta
+                jdbcTemplate.update("UPDATE cajas SET activa = (id = 10) WHERE sucursal_id = 1");
+                assertEquals(11L, registry.cajaActiva(1L));
+
+                eventPublisher.publishEvent(new CajaTurnoActivoRegistry.CambioCajaTurno(1L));
+                assertEquals(10L, registry.cajaActiva(1L));
+        }
+
+        /**
+         * Dentro de una transacción la carga usa su misma conexión (ve lo que aún no se
+         * confirma) en lugar de tomar otra del pool, y un error queda en su savepoint.
+         */
+        @Test
+        void testCargaConLaConexionDeLaTransaccion() {
+                transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update("INSERT INTO cajas VALUES (50, 5, TRUE)");
+                        assertEquals(50L, registry.cajaActiva(5L));
+                        status.setRollbackOnly();
+                });
+                registry.invalidar(null);
+
+                jdbcTemplate.execute("DROP TABLE turnos");
+                transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update("UPDATE cajas SET activa = FALSE WHERE id = 20");
+                        assertEquals(CajaTurnoActivoRegistry.ID_POR_DEFECTO, registry.turnoActivo(2L, 20L));
+                        // La transacción sigue utilizable y su cambio se confirma
+                        jdbcTemplate.update("UPDATE cajas SET activa = TRUE WHERE id = 10");
+                });
+                jdbcTemplate.execute("CREATE TABLE turnos (id BIGINT PRIMARY KEY)");
+                assertEquals(2, jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM cajas WHERE id IN (10, 20) AND activa = (id = 10)", Integer.class));
+        }
+
+        @Test
+        void testSinTablasUsaIdPorDefecto() {
+                jdbcTemplate.execute("DROP TABLE turnos");
+                jdbcTemplate.execute("DROP TABLE cajas");
+                registry.invalidar(null);
+
+                assertEquals(CajaTurnoActivoRegistry.ID_POR_DEFECTO, registry.cajaActiva(1L));
+                assertEquals(CajaTurnoActivoRegistry.ID_POR_DEFECTO, registry.turnoActivo(1L, 1L));
+
+                // Recrear para tearDown
+                jdbcTemplate.execute("CREATE TABLE cajas (id BIGINT PRIMARY KEY)");
+                jdbcTemplate.execute("CREATE TABLE turnos (id BIGINT PRIMARY KEY)");
+        }
+}
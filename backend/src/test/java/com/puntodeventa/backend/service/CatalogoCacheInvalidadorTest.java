@@ -0,0 +1,146 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.ProductoDTO;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la invalidación por claves de las cachés del catálogo, de sus políticas y
+ * de sus métricas
+ */
+@SpringBootTest
+@Transactional
+class CatalogoCacheInvalidadorTest {
+
+        @Autowired
+        private ProductoService productoService;
+
+        @Autowired
+        private ProductoRepository productoRepository;
+
+        @Autowired
+        private CacheManager cacheManager;
+
+        @Autowired
+        private ApplicationEventPublisher eventos;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        private Producto base;
+        private Producto variante;
+        private Producto otro;
+
+        @BeforeEach
+        void setUp() {
+                cacheManager.getCache("productos").clear();
+                cacheManager.getCache("recetas").clear();
+                base = productoRepository.save(producto("Limonada", null, null));
+                variante = productoRepository.save(producto("Limonada - Grande", base, "Grande"));
+                otro = productoRepository.save(producto("Horchata", null, null));
+        }
+
+        @Test
+        void testCambiarEstadoInvalidaSoloElProductoYSuBase() {
+                Cache productos = cacheManager.getCache("productos");
+                productoService.obtener(base.getId());
+                productoService.obtenerVariantes(base.getId());
+                productoService.obtener(variante.getId());
+                productoService.obtener(otro.getId());
+
+                productoService.cambiarEstado(variante.getId(), false);
+
+                assertNull(productos.get(variante.getId()), "La variante desactivada");
+                assertNull(productos.get(base.getId()), "El producto base lista sus variantes activas");
+                assertNull(productos.get("variantes-" + base.getId()));
+                assertNotNull(productos.get(otro.getId()), "Los demás productos siguen en caché");
+
+                assertFalse(productoService.obtener(variante.getId()).activo());
+                assertNull(productoService.obtener(base.getId()).variantes(), "Sin variantes activas");
+        }
+
+        @Test
+        void testCambioGeneralVaciaProductosYCambioRecetasSoloSusClaves() {
+                Cache recetas = cacheManager.getCache("recetas");
+                recetas.put("producto-1", "a");
+                recetas.put("producto-2", "b");
+                recetas.put("ingrediente-7", "c");
+                recetas.put("ingrediente-8", "d");
+
+                eventos.publishEvent(new CatalogoCacheInvalidador.CambioRecetas(Set.of(1L), Set.of(7L)));
+
+                assertNull(recetas.get("producto-1"));
+                assertNull(recetas.get("ingrediente-7"));
+                assertNotNull(recetas.get("producto-2"));
+                assertNotNull(recetas.get("ingrediente-8"));
+
+                productoService.obtener(otro.getId());
+                eventos.publishEvent(new MenuCatalogoRegistry.CambioCatalogo());
+                assertNull(cacheManager.getCache("productos").get(otro.getId()));
+        }
+
+        @Test
+        void testTasaDeAciertosPorCache() {
+                productoService.obtener(otro.getId());
+                productoService.obtener(otro.getId());
+                productoService.obtener(otro.getId());
+
+                Gauge ratio = meterRegistry.find("cache.hit.ratio").tag("cache", "productos").gauge();
+                assertNotNull(ratio, "cache.hit.ratio registrado para productos");
+                assertTrue(ratio.value() > 0, "Hubo aciertos: " + ratio.value());
+                assertNotNull(meterRegistry.find("cache.gets").tag("cache", "productos").tag("result", "hit")
+                                .functionCounter(), "Contadores de Actuator para la caché");
+        }
+
+        @Test
+        void testPoliticasPorCacheDesdePropiedades() {
+                com.github.benmanes.caffeine.cache.Cache<Object, Object> productos =
+                                ((CaffeineCache) cacheManager.getCache("productos")).getNativeCache();
+                com.github.benmanes.caffeine.cache.Cache<Object, Object> roles =
+                                ((CaffeineCache) cacheManager.getCache("roles")).getNativeCache();
+
+                assertEquals(5_000L, productos.policy().eviction().orElseThrow().getMaximum());
+                assertEquals(Duration.ofMinutes(1), productos.policy().refreshAfterWrite().orElseThrow().getRefreshesAfter());
+                assertTrue(productos instanceof LoadingCache<Object, Object>);
+                assertTrue(((CaffeineCache) cacheManager.getCache("recetas")).getNativeCache().policy().eviction()
+                                .orElseThrow().isWeighted());
+                assertEquals(1_000L, roles.policy().eviction().orElseThrow().getMaximum());
+                assertEquals(Duration.ofMinutes(10), roles.policy().expireAfterWrite().orElseThrow().getExpiresAfter());
+                assertTrue(roles.policy().refreshAfterWrite().isEmpty());
+                assertNull(cacheManager.getCache("no-declarada"), "Solo existen las cachés declaradas");
+
+                for (String nombre : cacheManager.getCacheNames()) {
+                        assertNotNull(meterRegistry.find("cache.size").tag("cache", nombre).gauge(),
+                                        "Métricas de Actuator para " + nombre);
+                }
+        }
+
+        private static Producto producto(String nombre, Producto productoBase, String nombreVariante) {
+                return Producto.builder()
+                                .nombre(nombre)
+                                .precio(new BigDecimal("25.00"))
+                                .activo(true)
+                                .disponibleEnMenu(true)
+                                .productoBase(productoBase)
+                                .nombreVariante(nombreVariante)
+                                .build();
+        }
+}
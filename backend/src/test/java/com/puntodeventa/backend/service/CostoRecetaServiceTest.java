@@ -0,0 +1,348 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.IngredienteDTO;
+import com.puntodeventa.backend.dto.RecetaDTO;
+import com.puntodeventa.backend.model.CategoriaProducto;
+import com.puntodeventa.backend.model.Ingrediente;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.model.ProductoCostoHistorico;
+import com.puntodeventa.backend.model.Receta;
+import com.puntodeventa.backend.model.Unidad;
+import com.puntodeventa.backend.repository.CategoriaProductoRepository;
+import com.puntodeventa.backend.repository.IngredienteRepository;
+import com.puntodeventa.backend.repository.ProductoCostoHistoricoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import com.puntodeventa.backend.repository.RecetaRepository;
+import com.puntodeventa.backend.repository.UnidadRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del motor de costos de recetas: costo memoizado por producto y recálculo por lote
+ * de los productos que usan un ingrediente cuyo costo cambió
+ */
+@SpringBootTest
+@Transactional
+class CostoRecetaServiceTest {
+
+        private static final Logger log = LoggerFactory.getLogger(CostoRecetaServiceTest.class);
+
+        @Autowired
+        private CostoRecetaService costoRecetaService;
+
+        @Autowired
+        private RecetaService recetaService;
+
+        @Autowired
+        private IngredienteService ingredienteService;
+
+        @Autowired
+        private ProductoRepository productoRepository;
+
+        @Autowired
+        private CategoriaProductoRepository categoriaRepository;
+
+        @Autowired
+        private IngredienteRepository ingredienteRepository;
+
+        @Autowired
+        private UnidadRepository unidadRepository;
+
+        @Autowired
+        private RecetaRepository recetaRepository;
+
+        @Autowired
+        private ProductoCostoHistoricoRepository historicoRepository;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        private CategoriaProducto categoria;
+        private Unidad kilo;
+        private Unidad gramo;
+        private Ingrediente harina;
+        private Ingrediente leche;
+        private Producto pan;
+        private Producto pastel;
+        private Producto te;
+
+        @BeforeEach
+        void setUp() {
+                categoria = categoriaRepository.save(CategoriaProducto.builder()
+                                .nombre("Panadería")
+                                .activa(true)
+                                .build());
+                kilo = unidadRepository.save(Unidad.builder().nombre("Kilogramo").abreviatura("kg")
+                                .factorBase(BigDecimal.ONE).build());
+                gramo = unidadRepository.save(Unidad.builder().nombre("Gramo").abreviatura("g")
+                                .factorBase(new BigDecimal("0.001")).build());
+                harina = ingrediente("Harina", kilo, "20.00");
+                leche = ingrediente("Leche", kilo, "15.00");
+                pan = producto("Pan", "12.00");
+                pastel = producto("Pastel", "45.00");
+                te = producto("Té", "20.00");
+
+                // Pan: 200 g de harina; pastel: 0.5 kg de harina y 0.25 kg de leche con 10% de merma
+                receta(pan, harina, "200", gramo, "0");
+                receta(pastel, harina, "0.5", kilo, "0");
+                receta(pastel, leche, "0.25", kilo, "0.10");
+                entityManager.flush();
+                // Recetas insertadas sin RecetaService: el modelo en memoria se descarta
+                costoRecetaService.recetasModificadas();
+        }
+
+        @Test
+        void testCostoPorRecetaSeCalculaUnaVez() {
+                assertEquals(0, new BigDecimal("4.00").compareTo(costoRecetaService.costo(pan.getId())));
+                // 0.5 × 20 + (0.25 / 0.9) × 15
+                assertEquals(0, new BigDecimal("14.16667").compareTo(costoRecetaService.costo(pastel.getId())));
+                assertEquals(0, BigDecimal.ZERO.compareTo(costoRecetaService.costo(te.getId())), "Sin receta");
+                assertEquals(Set.of(pan.getId(), pastel.getId()), costoRecetaService.productosConIngrediente(harina.getId()));
+
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                stats.clear();
+                assertEquals(0, new BigDecimal("4.00").compareTo(recetaService.calcularCostoReceta(pan.getId())));
+                assertEquals(0, stats.getPrepareStatementCount(), "El costo se reutiliza sin consultar la BD");
+        }
+
+        @Test
+        void testCambioDeCostoRecalculaSoloLosProductosQueUsanElIngrediente() {
+                costoRecetaService.costo(pan.getId());
+                BigDecimal confirmado = costoEnOtroHilo(pastel);
+
+                ingredienteService.actualizar(leche.getId(), new IngredienteDTO(leche.getId(), "Leche", null,
+                                kilo.getId(), null, null, new BigDecimal("18.00"), null, null, null, null, true));
+                entityManager.flush();
+                entityManager.clear();
+
+                // 0.5 × 20 + 0.277778 × 18
+                BigDecimal esperado = new BigDecimal("15.0000");
+                assertEquals(0, esperado.compareTo(costoRecetaService.costo(pastel.getId()).setScale(4, RoundingMode.HALF_UP)));
+                assertEquals(confirmado, costoEnOtroHilo(pastel), "Sin commit, los demás hilos siguen con el modelo confirmado");
+                assertEquals(0, esperado.compareTo(productoRepository.findById(pastel.getId()).orElseThrow().getCostoEstimado()));
+                assertNull(productoRepository.findById(pan.getId()).orElseThrow().getCostoEstimado(),
+                                "El pan no usa leche");
+
+                List<ProductoCostoHistorico> historico = historicoRepository
+                                .findByProductoIdOrderByFechaCalculoDesc(pastel.getId());
+                assertEquals(1, historico.size());
+                assertEquals(CostoRecetaService.FUENTE_COSTO_INGREDIENTE, historico.get(0).getFuente());
+                assertEquals(0, new BigDecimal("30.0000").compareTo(historico.get(0).getMargenAbsoluto()));
+                assertEquals(0, new BigDecimal("66.67").compareTo(historico.get(0).getMargenPorcentaje()));
+                assertTrue(historicoRepository.findByProductoIdOrderByFechaCalculoDesc(pan.getId()).isEmpty());
+
+                // Mismo costo: no se recalcula nada
+                ingredienteService.actualizar(leche.getId(), new IngredienteDTO(leche.getId(), "Leche entera", null,
+                                kilo.getId(), null, null, new BigDecimal("18.000000"), null, null, null, null, true));
+                assertEquals(1, historicoRepository.findByProductoIdOrderByFechaCalculoDesc(pastel.getId()).size());
+        }
+
+        @Test
+        void testCambioDeRecetaDescartaElCostoMemoizado() {
+                assertEquals(0, new BigDecimal("4.00").compareTo(costoRecetaService.costo(pan.getId())));
+
+                recetaService.actualizar(pan.getId(), harina.getId(), new RecetaDTO(pan.getId(), null, harina.getId(),
+                                null, new BigDecimal("300"), gramo.getId(), null, null, BigDecimal.ZERO));
+
+                assertEquals(0, new BigDecimal("6.00").compareTo(costoRecetaService.costo(pan.getId())));
+                assertEquals(Set.of(pastel.getId()), costoRecetaService.productosConIngrediente(leche.getId()));
+
+                entityManager.flush();
+                entityManager.clear();
+                assertEquals(0, new BigDecimal("6.0000").compareTo(productoRepository.findById(pan.getId()).orElseThrow()
+                                .getCostoEstimado()), "La receta nueva se refleja en costoEstimado");
+                List<ProductoCostoHistorico> historico = historicoRepository
+                                .findByProductoIdOrderByFechaCalculoDesc(pan.getId());
+                assertEquals(1, historico.size());
+                assertEquals(CostoRecetaService.FUENTE_RECETA, historico.get(0).getFuente());
+                assertTrue(historicoRepository.findByProductoIdOrderByFechaCalculoDesc(pastel.getId()).isEmpty());
+        }
+
+        @Test
+        void testCostoFijadoAManoNoSeSobrescribe() {
+                // Pastel ya calculado por el motor y luego editado a mano
+                costoRecetaService.recetasModificadas(pastel.getId());
+                entityManager.flush();
+                pastel = productoRepository.findById(pastel.getId()).orElseThrow();
+                pastel.setCostoEstimado(new BigDecimal("13.0000"));
+                productoRepository.save(pastel);
+                // Pan con costo previo al motor (sin histórico, como los productos existentes y las variantes)
+                pan = productoRepository.findById(pan.getId()).orElseThrow();
+                pan.setCostoEstimado(new BigDecimal("99.0000"));
+                productoRepository.save(pan);
+
+                ingredienteService.actualizar(harina.getId(), new IngredienteDTO(harina.getId(), "Harina", null,
+                                kilo.getId(), null, null, new BigDecimal("30.00"), null, null, null, null, true));
+                entityManager.flush();
+                entityManager.clear();
+
+                assertEquals(0, new BigDecimal("13.0000").compareTo(productoRepository.findById(pastel.getId()).orElseThrow()
+                                .getCostoEstimado()), "Costo propio: se respeta");
+                assertEquals(1, historicoRepository.findByProductoIdOrderByFechaCalculoDesc(pastel.getId()).size());
+                assertEquals(0, new BigDecimal("6.0000").compareTo(productoRepository.findById(pan.getId()).orElseThrow()
+                                .getCostoEstimado()), "Con receta y sin histórico: sigue a la receta");
+
+                // Calculado por el motor: el siguiente cambio lo vuelve a actualizar
+                ingredienteService.actualizar(harina.getId(), new IngredienteDTO(harina.getId(), "Harina", null,
+                                kilo.getId(), null, null, new BigDecimal("25.00"), null, null, null, null, true));
+                entityManager.flush();
+                entityManager.clear();
+                assertEquals(0, new BigDecimal("5.0000").compareTo(productoRepository.findById(pan.getId()).orElseThrow()
+                                .getCostoEstimado()));
+                assertEquals(2, historicoRepository.findByProductoIdOrderByFechaCalculoDesc(pan.getId()).size());
+        }
+
+        /**
+         * 📊 BENCHMARK: catálogo de 2000 productos y 500 ingredientes (5 por receta). Cambian
+         * todos los costos de ingredientes: el motor recalcula los 2000 productos en memoria
+         * y escribe costoEstimado e histórico en lotes. Se compara con recalcular 200 productos
+         * uno por uno con una consulta de su receta (como hacía calcularCostoReceta).
+         */
+        @Test
+        void testRecalculoMasivoPorLotes() {
+                int ingredientes = 500;
+                int productos = 2_000;
+                Random random = new Random(42);
+                List<Ingrediente> insumos = new ArrayList<>(ingredientes);
+                for (int i = 0; i < ingredientes; i++) {
+                        insumos.add(ingrediente("Insumo " + i, kilo, (1 + random.nextInt(100)) + ".50"));
+                }
+                List<Producto> catalogo = new ArrayList<>(productos);
+                for (int i = 0; i < productos; i++) {
+                        catalogo.add(producto("Platillo " + i, "99.00"));
+                }
+                for (int i = 0; i < productos; i++) {
+                        int primero = random.nextInt(ingredientes);
+                        for (int j = 0; j < 5; j++) {
+                                receta(catalogo.get(i), insumos.get((primero + j * 7) % ingredientes),
+                                                "0." + (1 + random.nextInt(9)), kilo, "0.05");
+                        }
+                }
+                entityManager.flush();
+                entityManager.clear();
+                costoRecetaService.recetasModificadas();
+
+                Map<Long, BigDecimal> nuevosCostos = new HashMap<>();
+                insumos.forEach(i -> nuevosCostos.put(i.getId(), i.getCostoUnitarioBase().add(BigDecimal.ONE)));
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                // Un solo ingrediente: solo los productos que lo usan
+                stats.clear();
+                Long uno = insumos.get(0).getId();
+                Set<Long> afectadosUno = costoRecetaService.recalcularPorIngredientes(
+                                Map.of(uno, nuevosCostos.get(uno)), CostoRecetaService.FUENTE_COSTO_INGREDIENTE);
+                entityManager.flush();
+                assertEquals(recetaRepository.findProductoIdsByIngredienteId(uno).size(), afectadosUno.size());
+
+                stats.clear();
+                long inicio = System.nanoTime();
+                Set<Long> afectados = costoRecetaService.recalcularPorIngredientes(nuevosCostos,
+                                CostoRecetaService.FUENTE_COSTO_INGREDIENTE);
+                entityManager.flush();
+                long motorMs = (System.nanoTime() - inicio) / 1_000_000;
+                long motorStatements = stats.getPrepareStatementCount();
+
+                assertEquals(productos, afectados.size());
+                assertEquals(productos, stats.getEntityInsertCount(), "Un renglón de histórico por producto");
+                assertTrue(motorStatements < productos / 10,
+                                "Se esperaban escrituras en lotes, statements preparados: " + motorStatements);
+                entityManager.clear();
+                Producto muestra = productoRepository.findById(catalogo.get(7).getId()).orElseThrow();
+                assertEquals(0, costoSinMotor(muestra.getId(), nuevosCostos).setScale(4, RoundingMode.HALF_UP)
+                                .compareTo(muestra.getCostoEstimado()));
+
+                // Sin motor: una consulta de receta por producto
+                int individuales = 200;
+                entityManager.clear();
+                stats.clear();
+                inicio = System.nanoTime();
+                LocalDateTime ahora = LocalDateTime.now();
+                for (Producto p : productoRepository.findAllById(afectados.stream().limit(individuales).toList())) {
+                        BigDecimal costo = costoSinMotor(p.getId(), nuevosCostos).setScale(4, RoundingMode.HALF_UP);
+                        p.setCostoEstimado(costo);
+                        historicoRepository.save(ProductoCostoHistorico.builder().producto(p).costo(costo)
+                                        .precio(p.getPrecio()).fechaCalculo(ahora).fuente("SIN_MOTOR").build());
+                }
+                entityManager.flush();
+                long sinMotorMs = (System.nanoTime() - inicio) / 1_000_000;
+
+                log.info("📊 Recálculo de {} productos ({} ingredientes): motor {} ms, {} statements | {} sin motor: {} ms, {} statements | 1 ingrediente: {} productos",
+                                productos, ingredientes, motorMs, motorStatements, individuales, sinMotorMs,
+                                stats.getPrepareStatementCount(), afectadosUno.size());
+        }
+
+        /**
+         * Cálculo anterior: receta del producto desde la BD y costo renglón por renglón, con
+         * los nuevos costos de ingrediente.
+         */
+        private BigDecimal costoSinMotor(Long productoId, Map<Long, BigDecimal> costos) {
+                BigDecimal total = BigDecimal.ZERO;
+                for (Receta r : recetaRepository.findByProductoIdWithDetails(productoId)) {
+                        BigDecimal cantidadReal = r.getCantidad().divide(BigDecimal.ONE.subtract(r.getMermaTeorica()), 6,
+                                        RoundingMode.HALF_UP);
+                        total = total.add(cantidadReal.multiply(r.getUnidad().getFactorBase())
+                                        .multiply(costos.get(r.getIngredienteId())));
+                }
+                return total;
+        }
+
+        /** Costo visto fuera de la transacción del test. */
+        private BigDecimal costoEnOtroHilo(Producto producto) {
+                return CompletableFuture.supplyAsync(() -> costoRecetaService.costo(producto.getId())).join();
+        }
+
+        private Ingrediente ingrediente(String nombre, Unidad unidad, String costo) {
+                return ingredienteRepository.save(Ingrediente.builder()
+                                .nombre(nombre)
+                                .unidadBase(unidad)
+                                .costoUnitarioBase(new BigDecimal(costo))
+                                .activo(true)
+                                .build());
+        }
+
+        private Producto producto(String nombre, String precio) {
+                return productoRepository.save(Producto.builder()
+                                .nombre(nombre)
+                                .categoria(categoria)
+                                .precio(new BigDecimal(precio))
+                                .activo(true)
+                                .disponibleEnMenu(true)
+                                .build());
+        }
+
+        /** Con persist: save() de una entidad con id asignado haría un SELECT antes de cada INSERT. */
+        private void receta(Producto producto, Ingrediente ingrediente, String cantidad, Unidad unidad, String merma) {
+                entityManager.persist(Receta.builder()
+                                .productoId(producto.getId())
+                                .ingredienteId(ingrediente.getId())
+                                .cantidad(new BigDecimal(cantidad))
+                                .unidad(unidad)
+                                .mermaTeorica(new BigDecimal(merma))
+                                .build());
+        }
+}
@@ -0,0 +1,249 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.CrearVentaRequest;
+import com.puntodeventa.backend.dto.PagoDTO;
+import com.puntodeventa.backend.dto.VentaDTO;
+import com.puntodeventa.backend.dto.VentaItemDTO;
+import com.puntodeventa.backend.model.CategoriaProducto;
+import com.puntodeventa.backend.model.Ingrediente;
+import com.puntodeventa.backend.model.InventarioMovimiento;
+import com.puntodeventa.backend.model.MetodoPago;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.model.Receta;
+import com.puntodeventa.backend.model.Sucursal;
+import com.puntodeventa.backend.model.Unidad;
+import com.puntodeventa.backend.repository.CategoriaProductoRepository;
+import com.puntodeventa.backend.repository.IngredienteRepository;
+import com.puntodeventa.backend.repository.InventarioMovimientoRepository;
+import com.puntodeventa.backend.repository.MetodoPagoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import com.puntodeventa.backend.repository.SucursalRepository;
+import com.puntodeventa.backend.repository.UnidadRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del descuento de inventario por recetas en segundo plano (outbox de ventas).
+ */
+@SpringBootTest
+@Transactional
+class DescuentoInventarioServiceTest {
+
+        private static final Logger log = LoggerFactory.getLogger(DescuentoInventarioServiceTest.class);
+
+        @Autowired
+        private DescuentoInventarioService descuentoService;
+
+        @Autowired
+        private VentaService ventaService;
+
+        @Autowired
+        private StockIngredienteService stockService;
+
+        @Autowired
+        private CostoRecetaService costoRecetaService;
+
+        @Autowired
+        private InventarioMovimientoRepository movimientoRepository;
+
+        @Autowired
+        private IngredienteRepository ingredienteRepository;
+
+        @Autowired
+        private UnidadRepository unidadRepository;
+
+        @Autowired
+        private ProductoRepository productoRepository;
+
+        @Autowired
+        private CategoriaProductoRepository categoriaRepository;
+
+        @Autowired
+        private MetodoPagoRepository metodoPagoRepository;
+
+        @Autowired
+        private SucursalRepository sucursalRepository;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        private Unidad kilo;
+        private Unidad gramo;
+        private Ingrediente queso;
+        private Ingrediente frijol;
+        private CategoriaProducto categoria;
+        private Producto molletes;
+        private MetodoPago efectivo;
+        private Sucursal centro;
+
+        @BeforeEach
+        void setUp() {
+                kilo = unidadRepository.save(Unidad.builder().nombre("Kilogramo").abreviatura("kg")
+                                .factorBase(BigDecimal.ONE).build());
+                gramo = unidadRepository.save(Unidad.builder().nombre("Gramo").abreviatura("g")
+                                .factorBase(new BigDecimal("0.001")).build());
+                queso = ingrediente("Queso", "100");
+                frijol = ingrediente("Frijol", "40");
+
+                categoria = categoriaRepository.save(CategoriaProducto.builder().nombre("Desayunos").activa(true).build());
+                molletes = producto("Molletes");
+                receta(molletes, queso, "80", gramo);
+                receta(molletes, frijol, "0.1", kilo);
+
+                efectivo = new MetodoPago();
+                efectivo.setNombre("Efectivo-D");
+                efectivo.setActivo(true);
+                efectivo.setRequiereReferencia(false);
+                efectivo = metodoPagoRepository.save(efectivo);
+
+                centro = new Sucursal();
+                centro.setNombre("Centro");
+                centro = sucursalRepository.save(centro);
+
+                entityManager.flush();
+                costoRecetaService.recetasModificadas();
+        }
+
+        @Test
+        void testVentaSeDescuentaUnaVezEnSegundoPlano() {
+                VentaDTO venta = vender(List.of(molletes), 3);
+                assertTrue(movimientosDe(venta).isEmpty(), "El cobro no inserta movimientos");
+
+                assertEquals(1, descuentoService.procesarPendientes());
+                List<InventarioMovimiento> movimientos = movimientosDe(venta);
+                assertEquals(2, movimientos.size());
+                InventarioMovimiento consumoQueso = movimientos.stream()
+                                .filter(m -> m.getIngredienteId().equals(queso.getId())).findFirst().orElseThrow();
+                assertEquals("EGRESO", consumoQueso.getTipo());
+                assertEquals(0, new BigDecimal("240").compareTo(consumoQueso.getCantidad()), "80 g x 3");
+                assertEquals(gramo.getId(), consumoQueso.getUnidad().getId());
+                assertEquals(0, new BigDecimal("0.1").compareTo(consumoQueso.getCostoUnitario()), "100 por kg = 0.1 por g");
+                assertEquals(0, new BigDecimal("24").compareTo(consumoQueso.getCostoTotal()));
+                assertEquals(centro.getId(), consumoQueso.getSucursalId());
+                assertEquals(venta.fecha().withNano(0), consumoQueso.getFecha().withNano(0));
+
+                assertEquals(0, new BigDecimal("-0.24").compareTo(existencia(queso)));
+                assertEquals(0, new BigDecimal("-0.3").compareTo(existencia(frijol)));
+
+                // Otra pasada no vuelve a descontar la venta
+                assertEquals(0, descuentoService.procesarPendientes());
+                assertEquals(2, movimientosDe(venta).size());
+                assertEquals(0, new BigDecimal("-0.24").compareTo(existencia(queso)));
+        }
+
+        @Test
+        void testCancelarVentaPendienteOYaDescontada() {
+                VentaDTO pendiente = vender(List.of(molletes), 2);
+                ventaService.cancelarVenta(pendiente.id(), "Error de captura");
+                assertEquals(0, descuentoService.procesarPendientes(), "Cancelada antes del descuento: nada que descontar");
+                assertTrue(movimientosDe(pendiente).isEmpty());
+
+                VentaDTO descontada = vender(List.of(molletes), 2);
+                descuentoService.procesarPendientes();
+                assertEquals(0, new BigDecimal("-0.16").compareTo(existencia(queso)));
+                ventaService.cancelarVenta(descontada.id(), "Devolución");
+                assertEquals(0, BigDecimal.ZERO.compareTo(existencia(queso)), "La cancelación revierte el consumo");
+                assertEquals(0, BigDecimal.ZERO.compareTo(existencia(frijol)));
+        }
+
+        /**
+         * 📊 BENCHMARK: sentencias del cobro de un ticket de 10 productos sin receta y con
+         * recetas de 4 ingredientes; el descuento (40 movimientos) ya no cuenta para el cajero.
+         */
+        @Test
+        void testCobroNoDependeDelTamanoDeLasRecetas() {
+                List<Ingrediente> ingredientes = new ArrayList<>();
+                for (int i = 0; i < 4; i++) {
+                        ingredientes.add(ingrediente("Ingrediente " + i, "10"));
+                }
+                List<Producto> sinReceta = new ArrayList<>();
+                List<Producto> conReceta = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                        sinReceta.add(producto("Sin receta " + i));
+                        Producto p = producto("Con receta " + i);
+                        ingredientes.forEach(ing -> receta(p, ing, "0.05", kilo));
+                        conReceta.add(p);
+                }
+                entityManager.flush();
+                costoRecetaService.recetasModificadas();
+                vender(sinReceta, 1);
+                descuentoService.procesarPendientes();
+                entityManager.flush();
+                entityManager.clear();
+
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                stats.clear();
+                vender(sinReceta, 1);
+                entityManager.flush();
+                long cobroSinReceta = stats.getPrepareStatementCount();
+
+                stats.clear();
+                VentaDTO venta = vender(conReceta, 1);
+                entityManager.flush();
+                long cobroConReceta = stats.getPrepareStatementCount();
+
+                long inicio = System.nanoTime();
+                assertEquals(2, descuentoService.procesarPendientes());
+                long descuentoMs = (System.nanoTime() - inicio) / 1_000_000;
+                assertEquals(40, movimientosDe(venta).size());
+                assertEquals(cobroSinReceta, cobroConReceta, "El cobro no consulta ni inserta por receta");
+
+                log.info("📊 Cobro de 10 productos: {} sentencias sin receta, {} con recetas de 4 ingredientes; "
+                                + "descuento en segundo plano: 40 movimientos en {} ms",
+                                cobroSinReceta, cobroConReceta, descuentoMs);
+        }
+
+        private Ingrediente ingrediente(String nombre, String costoKilo) {
+                return ingredienteRepository.save(Ingrediente.builder().nombre(nombre).unidadBase(kilo)
+                                .costoUnitarioBase(new BigDecimal(costoKilo)).activo(true).build());
+        }
+
+        private Producto producto(String nombre) {
+                return productoRepository.save(Producto.builder().nombre(nombre).categoria(categoria)
+                                .precio(new BigDecimal("45.00")).build());
+        }
+
+        private void receta(Producto producto, Ingrediente ingrediente, String cantidad, Unidad unidad) {
+                entityManager.persist(Receta.builder()
+                                .productoId(producto.getId())
+                                .ingredienteId(ingrediente.getId())
+                                .cantidad(new BigDecimal(cantidad))
+                                .unidad(unidad)
+                                .build());
+        }
+
+        private VentaDTO vender(List<Producto> productos, int cantidad) {
+                List<VentaItemDTO> items = productos.stream()
+                                .map(p -> new VentaItemDTO(null, p.getId(), null, cantidad, p.getPrecio(), null, null, null))
+                                .toList();
+                return ventaService.crearVenta(new CrearVentaRequest(centro.getId(), 1L, 1L, items,
+                                List.of(new PagoDTO(null, efectivo.getId(), null, new BigDecimal("10000.00"), null, null)),
+                                null, "POS"));
+        }
+
+        private List<InventarioMovimiento> movimientosDe(VentaDTO venta) {
+                return movimientoRepository.findByRefTipoAndRefId("venta", venta.id());
+        }
+
+        private BigDecimal existencia(Ingrediente ingrediente) {
+                return stockService.existencia(ingrediente.getId(), centro.getId()).cantidad();
+        }
+}
@@ -0,0 +1,252 @@
+package com.puntodeventa.backend.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.puntodeventa.backend.dto.aggregate.ResumenVentasAggregate;
+import com.puntodeventa.backend.model.CategoriaProducto;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.repository.CategoriaProductoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import com.puntodeventa.backend.repository.VentaRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para el resumen de ventas de EstadisticasService.
+ * Compara aggregateResumen (dos agregados planos en una consulta) contra la consulta anterior con subconsultas:
+ * por omisión sobre un conjunto chico, contando sentencias y revisando el plan de H2; la corrida de tiempos
+ * sobre 200k items (-Dbenchmark.resumen.items=1000000) lleva el tag "benchmark" y se corre con -Pbenchmark.
+ */
+@SpringBootTest
+@Transactional
+class EstadisticasServiceTest {
+
+        private static final Logger log = LoggerFactory.getLogger(EstadisticasServiceTest.class);
+
+        /** Items del conjunto chico de los tests de siempre. */
+        private static final int ITEMS = 2_000;
+        /** Items a sembrar en el benchmark; -Dbenchmark.resumen.items=1000000 para la corrida completa. */
+        private static final int ITEMS_BENCHMARK = Integer.getInteger("benchmark.resumen.items", 200_000);
+        private static final int ITEMS_POR_VENTA = 4;
+        private static final long ID_BASE = 10_000_000L;
+        private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 0, 0);
+        private static final int DIAS = 60;
+        private static final Map<String, LocalDateTime[]> RANGOS = Map.of(
+                        "día", new LocalDateTime[] { INICIO.plusDays(10), INICIO.plusDays(11).minusNanos(1000) },
+                        "semana", new LocalDateTime[] { INICIO.plusDays(14), INICIO.plusDays(21).minusNanos(1000) },
+                        "mes", new LocalDateTime[] { INICIO.plusDays(20), INICIO.plusDays(50).minusNanos(1000) });
+
+        /** Consulta anterior: suma ventas y vuelve a recorrer items con dos subconsultas. */
+        private static final String JPQL_ANTERIOR = """
+                SELECT new com.puntodeventa.backend.dto.aggregate.ResumenVentasAggregate(
+                    COALESCE(SUM(v.total), 0),
+                    COALESCE(SUM(v.subtotal), 0),
+                    COUNT(DISTINCT v.id),
+                    (SELECT COALESCE(SUM(i2.cantidad), 0) FROM VentaItem i2 JOIN i2.venta v2 WHERE v2.estado = 'cerrada' AND v2.fecha BETWEEN :inicio AND :fin),
+                    (SELECT COALESCE(SUM(i3.costoEstimado), 0) FROM VentaItem i3 JOIN i3.venta v3 WHERE v3.estado = 'cerrada' AND v3.fecha BETWEEN :inicio AND :fin)
+                )
+                FROM Venta v
+                WHERE v.estado = 'cerrada' AND v.fecha BETWEEN :inicio AND :fin
+                """;
+
+        /** Acceso a ventas_items por su índice en el plan de H2 (EXPLAIN). */
+        private static final String ITEMS_POR_INDICE = "PUBLIC.IDX_VENTA_ITEM_VENTA: VENTA_ID =";
+
+        @Autowired
+        private VentaRepository ventaRepository;
+
+        @Autowired
+        private ProductoRepository productoRepository;
+
+        @Autowired
+        private CategoriaProductoRepository categoriaRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        /**
+         * Mismo resultado que la consulta anterior en una sola sentencia, y el plan recorre
+         * ventas_items una vez (por su índice) en lugar de una vez por subconsulta.
+         */
+        @Test
+        void testAggregateResumenUnaSentenciaYUnRecorridoDeItems() {
+                sembrar(ITEMS);
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                for (Map.Entry<String, LocalDateTime[]> rango : RANGOS.entrySet()) {
+                        LocalDateTime desde = rango.getValue()[0];
+                        LocalDateTime hasta = rango.getValue()[1];
+
+                        stats.clear();
+                        ResumenVentasAggregate anterior = anterior(desde, hasta);
+                        assertEquals(1, stats.getPrepareStatementCount(), rango.getKey());
+                        stats.clear();
+                        ResumenVentasAggregate nuevo = ventaRepository.aggregateResumen(desde, hasta);
+                        assertEquals(1, stats.getPrepareStatementCount(), rango.getKey() + ": una sola sentencia");
+
+                        assertTrue(nuevo.cantidadVentas() > 0);
+                        assertIguales(anterior, nuevo);
+                }
+
+                String planAnterior = plan(() -> anterior(INICIO, INICIO.plusDays(1)));
+                String planNuevo = plan(() -> ventaRepository.aggregateResumen(INICIO, INICIO.plusDays(1)));
+                assertEquals(2, ocurrencias(planAnterior, ITEMS_POR_INDICE), planAnterior);
+                assertEquals(1, ocurrencias(planNuevo, ITEMS_POR_INDICE), planNuevo);
+                assertFalse(planNuevo.contains("tableScan"), planNuevo);
+
+                // Rango sin ventas: ceros (no nulls)
+                ResumenVentasAggregate vacio = ventaRepository.aggregateResumen(
+                                INICIO.minusYears(1), INICIO.minusYears(1).plusDays(1));
+                assertEquals(0, BigDecimal.ZERO.compareTo(vacio.totalVentas()));
+                assertEquals(0L, vacio.cantidadVentas());
+                assertEquals(0L, vacio.itemsVendidos());
+                assertEquals(0, BigDecimal.ZERO.compareTo(vacio.totalCostos()));
+        }
+
+        /**
+         * 📊 BENCHMARK: misma respuesta que la consulta anterior y latencia de ambas para
+         * rangos de un día, una semana y un mes sobre el conjunto grande. Solo registra los
+         * tiempos: la comparación se hace leyendo el log, no con una aserción.
+         */
+        @Test
+        @Tag("benchmark")
+        void testAggregateResumenAgregadosPlanosVsSubconsultas() {
+                sembrar(ITEMS_BENCHMARK);
+
+                for (Map.Entry<String, LocalDateTime[]> rango : RANGOS.entrySet()) {
+                        LocalDateTime desde = rango.getValue()[0];
+                        LocalDateTime hasta = rango.getValue()[1];
+
+                        ResumenVentasAggregate nuevo = ventaRepository.aggregateResumen(desde, hasta);
+                        assertIguales(anterior(desde, hasta), nuevo);
+
+                        long usAnterior = medianaMicros(n -> anterior(desde, hasta.minusNanos(n * 1000L)));
+                        long usNuevo = medianaMicros(n -> ventaRepository.aggregateResumen(desde, hasta.minusNanos(n * 1000L)));
+                        log.info("📊 aggregateResumen [{}] {} ventas / {} items de {} sembrados: anterior={}us, agregados planos={}us",
+                                        rango.getKey(), nuevo.cantidadVentas(), nuevo.itemsVendidos(), ITEMS_BENCHMARK,
+                                        usAnterior, usNuevo);
+                }
+        }
+
+        private void sembrar(int items) {
+                CategoriaProducto categoria = categoriaRepository.save(CategoriaProducto.builder()
+                                .nombre("Benchmark")
+                                .activa(true)
+                                .build());
+                Producto producto = productoRepository.save(Producto.builder()
+                                .nombre("Producto benchmark")
+                                .categoria(categoria)
+                                .precio(new BigDecimal("25.00"))
+                                .build());
+                entityManager.flush();
+
+                int ventas = items / ITEMS_POR_VENTA;
+                long segundosPorVenta = DIAS * 86_400L / ventas;
+
+                // Siembra con SYSTEM_RANGE de H2: 1 de cada 10 ventas cancelada, 1 de cada 7 items sin costo
+                jdbcTemplate.update("""
+                                INSERT INTO ventas (id, fecha, subtotal, total, impuestos, descuento, canal, estado)
+                                SELECT CAST(? AS BIGINT) + X, DATEADD('SECOND', X * CAST(? AS BIGINT), CAST(? AS TIMESTAMP)), 100 + MOD(X, 50), 100 + MOD(X, 50), 0, 0, 'POS',
+                                       CASE WHEN MOD(X, 10) = 0 THEN 'cancelada' ELSE 'cerrada' END
+                                FROM SYSTEM_RANGE(0, CAST(? AS BIGINT) - 1)
+                                """, ID_BASE, segundosPorVenta, INICIO, ventas);
+                jdbcTemplate.update("""
+                                INSERT INTO ventas_items (venta_id, producto_id, producto_nombre, cantidad, precio_unitario, subtotal, costo_estimado)
+                                SELECT CAST(? AS BIGINT) + X / CAST(? AS BIGINT), CAST(? AS BIGINT), 'Producto benchmark', 1 + MOD(X, 3), 25, 25 * (1 + MOD(X, 3)),
+                                       CASE WHEN MOD(X, 7) = 0 THEN NULL ELSE 7.2500 END
+                                FROM SYSTEM_RANGE(0, CAST(? AS BIGINT) - 1)
+                                """, ID_BASE, ITEMS_POR_VENTA, producto.getId(), ventas * ITEMS_POR_VENTA);
+        }
+
+        private static void assertIguales(ResumenVentasAggregate anterior, ResumenVentasAggregate nuevo) {
+                assertEquals(0, anterior.totalVentas().compareTo(nuevo.totalVentas()));
+                assertEquals(0, anterior.subtotalVentas().compareTo(nuevo.subtotalVentas()));
+                assertEquals(anterior.cantidadVentas(), nuevo.cantidadVentas());
+                assertEquals(anterior.itemsVendidos(), nuevo.itemsVendidos());
+                assertEquals(0, anterior.totalCostos().compareTo(nuevo.totalCostos()));
+        }
+
+        private ResumenVentasAggregate anterior(LocalDateTime desde, LocalDateTime hasta) {
+                return entityManager.createQuery(JPQL_ANTERIOR, ResumenVentasAggregate.class)
+                                .setParameter("inicio", desde)
+                                .setParameter("fin", hasta)
+                                .getSingleResult();
+        }
+
+        /**
+         * Plan de H2 (EXPLAIN) de la única sentencia que genera la consulta. El SQL se toma
+         * del logger org.hibernate.SQL y los parámetros se dejan sin valor: EXPLAIN no los
+         * necesita para elegir índices.
+         */
+        private String plan(Supplier<?> consulta) {
+                ch.qos.logback.classic.Logger sql = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("org.hibernate.SQL");
+                ListAppender<ILoggingEvent> sentencias = new ListAppender<>();
+                Level nivel = sql.getLevel();
+                sentencias.start();
+                sql.addAppender(sentencias);
+                sql.setLevel(Level.DEBUG);
+                try {
+                        consulta.get();
+                } finally {
+                        sql.setLevel(nivel);
+                        sql.detachAppender(sentencias);
+                }
+                List<String> generadas = sentencias.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+                assertEquals(1, generadas.size(), generadas.toString());
+                return jdbcTemplate.queryForObject("EXPLAIN " + generadas.getFirst(), String.class);
+        }
+
+        private static int ocurrencias(String texto, String buscado) {
+                int n = 0;
+                for (int i = texto.indexOf(buscado); i >= 0; i = texto.indexOf(buscado, i + 1)) {
+                        n++;
+                }
+                return n;
+        }
+
+        /**
+         * Mediana de 7 ejecuciones tras 3 de calentamiento. Cada ejecución desplaza el rango
+         * unos microsegundos para que H2 no responda desde su caché de resultados.
+         */
+        private long medianaMicros(IntFunction<?> consulta) {
+                int n = 0;
+                for (int i = 0; i < 3; i++) {
+                        consulta.apply(++n);
+                }
+                long[] tiempos = new long[7];
+                for (int i = 0; i < tiempos.length; i++) {
+                        long inicio = System.nanoTime();
+                        consulta.apply(++n);
+                        tiempos[i] = (System.nanoTime() - inicio) / 1_000;
+                }
+                Arrays.sort(tiempos);
+                return tiempos[tiempos.length / 2];
+        }
+}
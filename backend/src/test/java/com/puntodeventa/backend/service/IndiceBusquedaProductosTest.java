@@ -0,0 +1,148 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.ProductoDTO;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para la búsqueda de la caja sobre la foto del menú
+ * (sin acentos, por prefijo, con errores de tecleo y ordenada por relevancia)
+ */
+class IndiceBusquedaProductosTest {
+
+        private static final Logger log = LoggerFactory.getLogger(IndiceBusquedaProductosTest.class);
+
+        private final MenuSnapshot menu = MenuSnapshot.de(1, List.of(
+                        producto(1L, "Café Americano", "Bebidas Calientes", "CAF-001", true,
+                                        variante(11L, "Chico", "7501000000011"), variante(12L, "Grande", null)),
+                        producto(2L, "Capuccino", "Bebidas Calientes", null, true),
+                        producto(3L, "Pastel de Café", "Postres", null, true),
+                        producto(4L, "Jugo de Naranja", "Bebidas Frías", null, true, variante(41L, "1 Litro", null)),
+                        producto(5L, "Té Chai", "Bebidas Calientes", null, false)));
+
+        @Test
+        void testSinAcentosYPorPrefijo() {
+                assertEquals(List.of(1L, 3L), ids(menu.buscar("cafe", 10, true)),
+                                "Exacto en el nombre, sin acento");
+                assertEquals(List.of(1L, 3L), ids(menu.buscar("CAFÉ", 10, true)));
+                assertEquals(List.of(1L), ids(menu.buscar("caf amer", 10, true)), "Todos los términos deben coincidir");
+                assertEquals(List.of(2L), ids(menu.buscar("capu", 10, true)));
+                assertEquals(List.of(4L), ids(menu.buscar("litro", 10, true)), "Nombre de variante");
+                assertEquals(List.of(1L), ids(menu.buscar("7501000000011", 10, true)), "SKU de variante");
+                assertEquals(List.of(1L), ids(menu.buscar("caf-001", 10, true)), "SKU del producto base");
+
+                // Filtro del menú y límite
+                assertEquals(List.of(), ids(menu.buscar("te chai", 10, true)));
+                assertEquals(List.of(5L), ids(menu.buscar("te chai", 10, false)));
+                assertEquals(List.of(1L), ids(menu.buscar("cafe", 1, true)));
+
+                // El filtro de GET /productos?q= tampoco distingue acentos
+                assertEquals(List.of(1L, 3L), ids(menu.filtrar(Optional.empty(), Optional.empty(), Optional.empty(),
+                                Optional.of("cafe"))));
+        }
+
+        @Test
+        void testToleraErroresDeTecleo() {
+                // Sustitución, transposición y letra faltante
+                assertEquals(List.of(2L), ids(menu.buscar("capucino", 10, true)));
+                assertEquals(List.of(4L), ids(menu.buscar("narnaja", 10, true)));
+                assertEquals(List.of(1L), ids(menu.buscar("amercano", 10, true)));
+                // Coincidencia exacta antes que la aproximada
+                List<ProductoDTO> postre = menu.buscar("postre", 10, true);
+                assertEquals(3L, postre.get(0).id());
+                // Menos de 4 letras: sin tolerancia
+                assertEquals(List.of(), ids(menu.buscar("cfe", 10, true)));
+
+                assertEquals(1, IndiceBusquedaProductos.distanciaAPrefijo("capucino", "capuccino", 1));
+                assertEquals(0, IndiceBusquedaProductos.distanciaAPrefijo("capu", "capuccino", 1));
+                assertTrue(IndiceBusquedaProductos.distanciaAPrefijo("naranja", "nachos", 1) > 1);
+        }
+
+        /**
+         * 📊 BENCHMARK: búsqueda sobre 10k productos base con 4 variantes cada uno.
+         */
+        @Test
+        void testBusquedaSobreCatalogoGrande() {
+                String[] nombres = { "Café", "Capuccino", "Latte", "Mocha", "Chocolate", "Jugo", "Licuado", "Té",
+                                "Pastel", "Galleta", "Sándwich", "Baguette", "Ensalada", "Croissant", "Panqué" };
+                String[] sabores = { "Vainilla", "Avellana", "Fresa", "Mango", "Nuez", "Canela", "Limón", "Durazno" };
+                List<ProductoDTO> productos = new ArrayList<>();
+                for (int i = 0; i < 10_000; i++) {
+                        long id = i + 1L;
+                        productos.add(producto(id, nombres[i % nombres.length] + " " + sabores[(i / 15) % sabores.length]
+                                        + " " + i, "Categoría " + (i % 20), "SKU-" + id, true,
+                                        variante(id * 10, "Chico", "75" + id + "1"),
+                                        variante(id * 10 + 1, "Mediano", "75" + id + "2"),
+                                        variante(id * 10 + 2, "Grande", "75" + id + "3"),
+                                        variante(id * 10 + 3, "Extra Grande", "75" + id + "4")));
+                }
+                MenuSnapshot grande = MenuSnapshot.de(1, productos);
+
+                long inicio = System.nanoTime();
+                grande.buscar("x", 1, true);
+                long msIndice = (System.nanoTime() - inicio) / 1_000_000;
+
+                // Cambio de un producto: la nueva foto solo normaliza ese producto
+                List<ProductoDTO> cambiados = new ArrayList<>(productos);
+                cambiados.set(500, producto(501L, "Horchata Especial", "Categoría 0", "SKU-501", true));
+                MenuSnapshot siguiente = MenuSnapshot.de(2, cambiados, grande);
+                inicio = System.nanoTime();
+                List<ProductoDTO> horchata = siguiente.buscar("horchata", 20, true);
+                long msIncremental = (System.nanoTime() - inicio) / 1_000_000;
+                assertEquals(List.of(501L), ids(horchata));
+                assertEquals(501L, grande.buscar("jugo avellana 500", 20, true).get(0).id());
+                assertFalse(ids(siguiente.buscar("jugo avellana 500", 20, true)).contains(501L), "Sin el nombre anterior");
+
+                String[] consultas = { "cafe vainilla", "capucino", "sandw", "limon", "pastel nuez 9", "sku-4321",
+                                "croisant canela", "751234", "chocolate mango" };
+                // Calentamiento del JIT
+                for (int r = 0; r < 200; r++) {
+                        for (String c : consultas) {
+                                grande.buscar(c, 20, true);
+                        }
+                }
+                long[] tiempos = new long[consultas.length * 100];
+                int n = 0;
+                for (int r = 0; r < 100; r++) {
+                        for (String c : consultas) {
+                                long t0 = System.nanoTime();
+                                grande.buscar(c, 20, true);
+                                tiempos[n++] = System.nanoTime() - t0;
+                        }
+                }
+                Arrays.sort(tiempos);
+                long p50 = tiempos[tiempos.length / 2] / 1_000;
+                long p99 = tiempos[tiempos.length * 99 / 100] / 1_000;
+                log.info("Búsqueda en {} productos: índice {} ms (incremental {} ms), p50={}us, p99={}us",
+                                productos.size(), msIndice, msIncremental, p50, p99);
+
+                assertEquals("SKU-4321", grande.buscar("sku-4321", 20, true).get(0).sku());
+                assertTrue(grande.buscar("capucino", 20, true).stream()
+                                .allMatch(p -> p.nombre().startsWith("Capuccino")));
+                assertTrue(p50 < 1_000, "Mediana por debajo de 1 ms");
+        }
+
+        private static List<Long> ids(List<ProductoDTO> productos) {
+                return productos.stream().map(ProductoDTO::id).toList();
+        }
+
+        private static ProductoDTO producto(Long id, String nombre, String categoria, String sku, boolean activo,
+                        ProductoDTO.VarianteDTO... variantes) {
+                return new ProductoDTO(id, nombre, null, 1L, categoria, new BigDecimal("40.00"), null, sku, activo,
+                                true, variantes.length == 0 ? null : List.of(variantes), null, null, null);
+        }
+
+        private static ProductoDTO.VarianteDTO variante(Long id, String nombreVariante, String sku) {
+                return new ProductoDTO.VarianteDTO(id, "Variante " + nombreVariante, nombreVariante,
+                                new BigDecimal("40.00"), null, sku);
+        }
+}
@@ -0,0 +1,229 @@
+package com.puntodeventa.backend.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.puntodeventa.backend.dto.InventarioMovimientoPaginaDTO;
+import com.puntodeventa.backend.model.InventarioMovimiento;
+import com.puntodeventa.backend.model.Unidad;
+import com.puntodeventa.backend.repository.InventarioMovimientoRepository;
+import com.puntodeventa.backend.repository.UnidadRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de los listados de movimientos de inventario sobre un libro (un movimiento cada
+ * 15 s, 3 tipos) sembrado en H2.
+ *
+ * Por omisión se siembra un libro chico (6k movimientos de 10 ingredientes) y se revisa que
+ * cada página sea una consulta y que el plan de H2 lea el índice ya ordenado. El benchmark
+ * (tag "benchmark", mvn test -Pbenchmark) usa 200k movimientos de 200 ingredientes; el de 2M
+ * (casi un año) se corre con -Dbenchmark.inventario.movimientos=2000000 (sembrarlo tarda
+ * varios minutos). Ese libro no cabe en el heap de una base en memoria: se usa una base H2
+ * en archivo bajo target/ y se siembra en bloques confirmados (sin transacción de test).
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:file:./target/h2/inventario-libro")
+class InventarioLibroGrandeTest {
+
+        private static final Logger log = LoggerFactory.getLogger(InventarioLibroGrandeTest.class);
+
+        private static final int MOVIMIENTOS = 6_000;
+        private static final int INGREDIENTES = 10;
+        private static final int MOVIMIENTOS_BENCHMARK = Integer.getInteger("benchmark.inventario.movimientos", 200_000);
+        private static final int INGREDIENTES_BENCHMARK = 200;
+        private static final int BLOQUE = 100_000;
+        private static final long ID_INGREDIENTES = 30_000_000L;
+        private static final long ID_MOVIMIENTOS = 40_000_000L;
+        private static final LocalDateTime ORIGEN = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        @Autowired
+        private InventarioMovimientoService movimientoService;
+
+        @Autowired
+        private InventarioMovimientoRepository movimientoRepository;
+
+        @Autowired
+        private UnidadRepository unidadRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        /**
+         * Cada página (50 renglones) es 1 consulta de proyección, y su plan lee el índice de
+         * la consulta con el filtro al inicio y ya ordenado, así que una página a mitad del
+         * libro cuesta lo mismo que la primera.
+         */
+        @Test
+        void testPaginasDelLibroSonUnaConsultaPorIndice() {
+                sembrar(MOVIMIENTOS, INGREDIENTES);
+
+                long mitad = MOVIMIENTOS / 2;
+                LocalDateTime fechaMitad = ORIGEN.plusSeconds(mitad * 15);
+                String cursorMitad = new CursorFechaId(fechaMitad, ID_MOVIMIENTOS + mitad).codificar();
+                Long ingrediente = ID_INGREDIENTES + 7;
+
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                InventarioMovimientoPaginaDTO primera = pagina(stats, "listar (1a)", "IDX_INV_MOV_FECHA_ID",
+                                () -> movimientoService.listar(null, 50));
+                assertEquals(ID_MOVIMIENTOS + MOVIMIENTOS - 1, primera.movimientos().getFirst().id());
+                assertTrue(primera.hayMas());
+
+                InventarioMovimientoPaginaDTO profunda = pagina(stats, "listar (mitad)", "IDX_INV_MOV_FECHA_ID",
+                                () -> movimientoService.listar(cursorMitad, 50));
+                assertEquals(ID_MOVIMIENTOS + mitad - 1, profunda.movimientos().getFirst().id());
+                assertEquals(50, profunda.movimientos().size());
+
+                InventarioMovimientoPaginaDTO porIngrediente = pagina(stats, "ingrediente (mitad)",
+                                "IDX_INV_MOV_INGREDIENTE_FECHA_ID",
+                                () -> movimientoService.obtenerPorIngrediente(ingrediente, cursorMitad, 50));
+                assertEquals(50, porIngrediente.movimientos().size());
+                assertTrue(porIngrediente.movimientos().stream().allMatch(m -> m.ingredienteId().equals(ingrediente)
+                                && m.fecha().isBefore(fechaMitad)));
+
+                InventarioMovimientoPaginaDTO porTipo = pagina(stats, "ingrediente+tipo (mitad)",
+                                "IDX_INV_MOV_INGREDIENTE_TIPO_FECHA_ID",
+                                () -> movimientoService.obtenerPorIngredienteYTipo(ingrediente, "egreso", cursorMitad, 50));
+                assertEquals(50, porTipo.movimientos().size());
+                assertTrue(porTipo.movimientos().stream().allMatch(m -> m.ingredienteId().equals(ingrediente)
+                                && m.tipo().equals("EGRESO")));
+
+                InventarioMovimientoPaginaDTO porRango = pagina(stats, "rango de un día", "IDX_INV_MOV_FECHA_ID",
+                                () -> movimientoService.obtenerPorRangoFechas(fechaMitad.minusDays(1), fechaMitad, null, 50));
+                assertEquals(50, porRango.movimientos().size());
+                assertEquals(fechaMitad, porRango.movimientos().getFirst().fecha());
+                InventarioMovimientoPaginaDTO rangoSiguiente = pagina(stats, "rango (2a)", "IDX_INV_MOV_FECHA_ID",
+                                () -> movimientoService.obtenerPorRangoFechas(fechaMitad.minusDays(1), fechaMitad,
+                                                porRango.siguienteCursor(), 50));
+                assertEquals(fechaMitad.minusSeconds(50 * 15), rangoSiguiente.movimientos().getFirst().fecha());
+        }
+
+        /**
+         * 📊 BENCHMARK: tiempos de las páginas por cursor sobre el libro grande, contra
+         * paginar por OFFSET a la misma profundidad cargando entidades. Solo registra los
+         * tiempos; el costo por página lo cubre testPaginasDelLibroSonUnaConsultaPorIndice.
+         */
+        @Test
+        @Tag("benchmark")
+        void testPaginasDelLibroGrandeVsOffset() {
+                sembrar(MOVIMIENTOS_BENCHMARK, INGREDIENTES_BENCHMARK);
+
+                long mitad = MOVIMIENTOS_BENCHMARK / 2;
+                LocalDateTime fechaMitad = ORIGEN.plusSeconds(mitad * 15);
+                String cursorMitad = new CursorFechaId(fechaMitad, ID_MOVIMIENTOS + mitad).codificar();
+                Long ingrediente = ID_INGREDIENTES + 7;
+                StringBuilder resumen = new StringBuilder();
+
+                medir(resumen, "listar (1a)", () -> movimientoService.listar(null, 50));
+                InventarioMovimientoPaginaDTO profunda = medir(resumen, "listar (mitad)",
+                                () -> movimientoService.listar(cursorMitad, 50));
+                medir(resumen, "ingrediente (mitad)",
+                                () -> movimientoService.obtenerPorIngrediente(ingrediente, cursorMitad, 50));
+                medir(resumen, "ingrediente+tipo (mitad)",
+                                () -> movimientoService.obtenerPorIngredienteYTipo(ingrediente, "egreso", cursorMitad, 50));
+                medir(resumen, "rango de un día",
+                                () -> movimientoService.obtenerPorRangoFechas(fechaMitad.minusDays(1), fechaMitad, null, 50));
+
+                // Comparación: OFFSET a la misma profundidad, cargando entidades
+                long inicio = System.nanoTime();
+                List<InventarioMovimiento> offset = movimientoRepository.findAll(PageRequest.of((int) (mitad / 50), 50,
+                                Sort.by(Sort.Order.desc("fecha"), Sort.Order.desc("id")))).getContent();
+                long offsetMs = (System.nanoTime() - inicio) / 1_000_000;
+                assertEquals(profunda.movimientos().getFirst().id(), offset.getFirst().getId());
+
+                log.info("📊 Libro de {} movimientos, páginas de 50 por cursor: {}| por OFFSET a la mitad: {} ms",
+                                MOVIMIENTOS_BENCHMARK, resumen, offsetMs);
+        }
+
+        @AfterEach
+        void tearDown() {
+                // Los datos se confirmaron por bloques: se borran a mano
+                jdbcTemplate.update("DELETE FROM inventario_movimientos WHERE id >= ?", ID_MOVIMIENTOS);
+                jdbcTemplate.update("DELETE FROM ingredientes WHERE id >= ?", ID_INGREDIENTES);
+                unidadRepository.deleteAll();
+        }
+
+        private void sembrar(int movimientos, int ingredientes) {
+                Unidad kilo = unidadRepository.save(Unidad.builder().nombre("Kilogramo").abreviatura("kg")
+                                .factorBase(BigDecimal.ONE).build());
+                jdbcTemplate.update("""
+                                INSERT INTO ingredientes (id, nombre, unidad_base_id, costo_unitario_base, activo)
+                                SELECT CAST(? AS BIGINT) + X, 'Insumo ' || X, CAST(? AS BIGINT), 10, 1
+                                FROM SYSTEM_RANGE(0, CAST(? AS BIGINT) - 1)
+                                """, ID_INGREDIENTES, kilo.getId(), ingredientes);
+                long inicio = System.nanoTime();
+                for (long desde = 0; desde < movimientos; desde += BLOQUE) {
+                        jdbcTemplate.update("""
+                                        INSERT INTO inventario_movimientos (id, ingrediente_id, tipo, cantidad, unidad_id,
+                                                                           costo_unitario, costo_total, fecha, ref_tipo)
+                                        SELECT CAST(? AS BIGINT) + X, CAST(? AS BIGINT) + MOD(X, CAST(? AS BIGINT)),
+                                               CASE MOD(X, 3) WHEN 0 THEN 'ENTRADA' WHEN 1 THEN 'EGRESO' ELSE 'AJUSTE' END,
+                                               1, CAST(? AS BIGINT), 10, 10,
+                                               DATEADD(SECOND, X * 15, TIMESTAMP '2025-01-01 00:00:00'), 'venta'
+                                        FROM SYSTEM_RANGE(CAST(? AS BIGINT), CAST(? AS BIGINT) - 1)
+                                        """, ID_MOVIMIENTOS, ID_INGREDIENTES, ingredientes, kilo.getId(),
+                                        desde, Math.min(desde + BLOQUE, movimientos));
+                }
+                log.info("📊 Libro de {} movimientos sembrado en {} ms", movimientos, (System.nanoTime() - inicio) / 1_000_000);
+        }
+
+        /**
+         * Una página: 1 consulta de proyección cuyo plan de H2 (EXPLAIN) usa el índice dado y
+         * lo recorre ya ordenado. El SQL se toma del logger org.hibernate.SQL.
+         */
+        private InventarioMovimientoPaginaDTO pagina(Statistics stats, String nombre, String indice,
+                                                     Supplier<InventarioMovimientoPaginaDTO> consulta) {
+                ch.qos.logback.classic.Logger sql = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger("org.hibernate.SQL");
+                ListAppender<ILoggingEvent> sentencias = new ListAppender<>();
+                Level nivel = sql.getLevel();
+                sentencias.start();
+                sql.addAppender(sentencias);
+                sql.setLevel(Level.DEBUG);
+                stats.clear();
+                InventarioMovimientoPaginaDTO pagina;
+                try {
+                        pagina = consulta.get();
+                } finally {
+                        sql.setLevel(nivel);
+                        sql.detachAppender(sentencias);
+                }
+                assertEquals(1, stats.getPrepareStatementCount(), nombre + ": una consulta por página");
+                assertEquals(0, stats.getEntityLoadCount(), nombre + ": proyección, sin entidades");
+
+                String plan = jdbcTemplate.queryForObject("EXPLAIN " + sentencias.list.getFirst().getFormattedMessage(),
+                                String.class);
+                assertTrue(plan.contains("PUBLIC." + indice + ":"), nombre + ": usa " + indice + "\n" + plan);
+                assertTrue(plan.contains("/* index sorted */"), nombre + ": sin ordenar después\n" + plan);
+                return pagina;
+        }
+
+        private InventarioMovimientoPaginaDTO medir(StringBuilder resumen, String nombre,
+                                                    Supplier<InventarioMovimientoPaginaDTO> consulta) {
+                long inicio = System.nanoTime();
+                InventarioMovimientoPaginaDTO pagina = consulta.get();
+                long ms = (System.nanoTime() - inicio) / 1_000_000;
+                resumen.append(nombre).append(' ').append(ms).append(" ms ");
+                return pagina;
+        }
+}
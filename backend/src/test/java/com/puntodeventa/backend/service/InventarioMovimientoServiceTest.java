@@ -0,0 +1,155 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.InventarioMovimientoDTO;
+import com.puntodeventa.backend.dto.InventarioMovimientoPaginaDTO;
+import com.puntodeventa.backend.model.Ingrediente;
+import com.puntodeventa.backend.model.InventarioMovimiento;
+import com.puntodeventa.backend.model.Unidad;
+import com.puntodeventa.backend.repository.IngredienteRepository;
+import com.puntodeventa.backend.repository.InventarioMovimientoRepository;
+import com.puntodeventa.backend.repository.UnidadRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de los listados paginados por cursor de movimientos de inventario
+ */
+@SpringBootTest
+@Transactional
+class InventarioMovimientoServiceTest {
+
+        private static final LocalDateTime INICIO = LocalDateTime.of(2025, 1, 1, 8, 0);
+
+        @Autowired
+        private InventarioMovimientoService movimientoService;
+
+        @Autowired
+        private InventarioMovimientoRepository movimientoRepository;
+
+        @Autowired
+        private IngredienteRepository ingredienteRepository;
+
+        @Autowired
+        private UnidadRepository unidadRepository;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        private Unidad kilo;
+        private Ingrediente harina;
+        private Ingrediente azucar;
+
+        @BeforeEach
+        void setUp() {
+                kilo = unidadRepository.save(Unidad.builder().nombre("Kilogramo").abreviatura("kg")
+                                .factorBase(BigDecimal.ONE).build());
+                harina = ingredienteRepository.save(Ingrediente.builder().nombre("Harina").unidadBase(kilo)
+                                .costoUnitarioBase(new BigDecimal("20")).activo(true).build());
+                azucar = ingredienteRepository.save(Ingrediente.builder().nombre("Azúcar").unidadBase(kilo)
+                                .costoUnitarioBase(new BigDecimal("25")).activo(true).build());
+        }
+
+        @Test
+        void testPaginasPorIngredienteRecorrenTodoSinRepetir() {
+                // 25 de harina (dos con la misma fecha) y 5 de azúcar
+                for (int i = 0; i < 25; i++) {
+                        movimiento(harina, i % 2 == 0 ? "ENTRADA" : "EGRESO", INICIO.plusMinutes(Math.min(i, 23)));
+                }
+                for (int i = 0; i < 5; i++) {
+                        movimiento(azucar, "ENTRADA", INICIO.plusMinutes(i));
+                }
+                entityManager.flush();
+                entityManager.clear();
+
+                List<Long> ids = new ArrayList<>();
+                String cursor = null;
+                int paginas = 0;
+                do {
+                        InventarioMovimientoPaginaDTO pagina = movimientoService.obtenerPorIngrediente(harina.getId(), cursor, 10);
+                        pagina.movimientos().forEach(m -> {
+                                assertEquals(harina.getId(), m.ingredienteId());
+                                assertEquals("Harina", m.ingredienteNombre());
+                                assertEquals("kg", m.unidadAbreviatura());
+                                ids.add(m.id());
+                        });
+                        assertEquals(pagina.siguienteCursor() != null, pagina.hayMas());
+                        cursor = pagina.siguienteCursor();
+                        paginas++;
+                } while (cursor != null);
+
+                assertEquals(3, paginas);
+                assertEquals(25, ids.size());
+                assertEquals(25, ids.stream().distinct().count(), "Sin repetidos aunque haya fechas iguales");
+                List<LocalDateTime> fechas = ids.stream()
+                                .map(id -> movimientoService.obtenerPorId(id).fecha())
+                                .toList();
+                for (int i = 1; i < fechas.size(); i++) {
+                        assertFalse(fechas.get(i).isAfter(fechas.get(i - 1)), "Del más reciente al más antiguo");
+                }
+        }
+
+        @Test
+        void testFiltrosPorTipoYRango() {
+                movimiento(harina, "ENTRADA", INICIO);
+                movimiento(harina, "EGRESO", INICIO.plusHours(1));
+                movimiento(harina, "EGRESO", INICIO.plusDays(1));
+                movimiento(azucar, "EGRESO", INICIO.plusHours(2));
+                entityManager.flush();
+
+                InventarioMovimientoPaginaDTO egresos = movimientoService.obtenerPorIngredienteYTipo(harina.getId(), "egreso", null, 50);
+                assertEquals(2, egresos.movimientos().size(), "El tipo no distingue mayúsculas");
+                assertFalse(egresos.hayMas());
+
+                InventarioMovimientoPaginaDTO rango = movimientoService.obtenerPorRangoFechas(INICIO, INICIO.plusHours(23), null, 50);
+                assertEquals(List.of(INICIO.plusHours(2), INICIO.plusHours(1), INICIO),
+                                rango.movimientos().stream().map(InventarioMovimientoDTO::fecha).toList());
+
+                InventarioMovimientoDTO registrado = movimientoService.registrarMovimiento(new InventarioMovimientoDTO(
+                                null, harina.getId(), null, " merma ", BigDecimal.ONE, kilo.getId(), null, null,
+                                new BigDecimal("20"), null, INICIO.plusHours(3), null, null, null, null, null, null));
+                assertEquals("MERMA", registrado.tipo(), "El tipo se guarda en mayúsculas");
+
+                assertThrows(IllegalArgumentException.class, () -> movimientoService.listar("no-es-un-cursor", 10));
+        }
+
+        @Test
+        void testRegistrarIgnoraElIdDelCliente() {
+                InventarioMovimientoDTO primero = movimientoService.registrarMovimiento(new InventarioMovimientoDTO(
+                                null, harina.getId(), null, "ENTRADA", new BigDecimal("5"), kilo.getId(), null, null,
+                                new BigDecimal("20"), null, INICIO, null, null, null, null, null, null));
+
+                InventarioMovimientoDTO segundo = movimientoService.registrarMovimiento(new InventarioMovimientoDTO(
+                                primero.id(), harina.getId(), null, "ENTRADA", new BigDecimal("2"), kilo.getId(), null, null,
+                                new BigDecimal("20"), null, INICIO.plusHours(1), null, null, null, null, null, null));
+                entityManager.flush();
+                entityManager.clear();
+
+                assertNotEquals(primero.id(), segundo.id(), "Un alta no reutiliza el id enviado");
+                assertEquals(0, new BigDecimal("5").compareTo(movimientoService.obtenerPorId(primero.id()).cantidad()),
+                                "El movimiento existente no se sobrescribe");
+                assertEquals(2, movimientoService.obtenerPorIngrediente(harina.getId(), null, 50).movimientos().size());
+        }
+
+        private void movimiento(Ingrediente ingrediente, String tipo, LocalDateTime fecha) {
+                movimientoRepository.save(InventarioMovimiento.builder()
+                                .ingrediente(ingrediente)
+                                .tipo(tipo)
+                                .cantidad(BigDecimal.ONE)
+                                .unidad(kilo)
+                                .costoUnitario(BigDecimal.TEN)
+                                .costoTotal(BigDecimal.TEN)
+                                .fecha(fecha)
+                                .build());
+        }
+}
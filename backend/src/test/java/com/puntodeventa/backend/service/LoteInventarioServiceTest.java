@@ -0,0 +1,326 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.CrearVentaRequest;
+import com.puntodeventa.backend.dto.InventarioMovimientoDTO;
+import com.puntodeventa.backend.dto.PagoDTO;
+import com.puntodeventa.backend.dto.StockLoteDTO;
+import com.puntodeventa.backend.dto.VentaItemDTO;
+import com.puntodeventa.backend.model.CategoriaProducto;
+import com.puntodeventa.backend.model.Ingrediente;
+import com.puntodeventa.backend.model.InventarioMovimiento;
+import com.puntodeventa.backend.model.MetodoPago;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.model.Receta;
+import com.puntodeventa.backend.model.StockLote;
+import com.puntodeventa.backend.model.Sucursal;
+import com.puntodeventa.backend.model.Unidad;
+import com.puntodeventa.backend.repository.CategoriaProductoRepository;
+import com.puntodeventa.backend.repository.IngredienteRepository;
+import com.puntodeventa.backend.repository.InventarioMovimientoRepository;
+import com.puntodeventa.backend.repository.MetodoPagoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import com.puntodeventa.backend.repository.StockLoteRepository;
+import com.puntodeventa.backend.repository.SucursalRepository;
+import com.puntodeventa.backend.repository.UnidadRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la existencia por lote y la asignación FEFO. El descuento de inventario de las
+ * ventas corre en sus propias transacciones, así que usan su propia BD en memoria en lugar
+ * de @Transactional.
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:lotes-inventario")
+class LoteInventarioServiceTest {
+
+        private static final Logger log = LoggerFactory.getLogger(LoteInventarioServiceTest.class);
+
+        private static final long SUCURSAL = 3L;
+
+        /** Sin avisos: el despacho asíncrono tras cada venta consultaría la BD durante las mediciones. */
+        @MockitoBean
+        private WebSocketNotificationService notificationService;
+
+        @Autowired
+        private LoteInventarioService loteService;
+
+        @Autowired
+        private InventarioMovimientoService movimientoService;
+
+        @Autowired
+        private StockIngredienteService stockService;
+
+        @Autowired
+        private DescuentoInventarioService descuentoService;
+
+        @Autowired
+        private VentaService ventaService;
+
+        @Autowired
+        private CostoRecetaService costoRecetaService;
+
+        @Autowired
+        private InventarioMovimientoRepository movimientoRepository;
+
+        @Autowired
+        private StockLoteRepository loteRepository;
+
+        @Autowired
+        private IngredienteRepository ingredienteRepository;
+
+        @Autowired
+        private UnidadRepository unidadRepository;
+
+        @Autowired
+        private ProductoRepository productoRepository;
+
+        @Autowired
+        private CategoriaProductoRepository categoriaRepository;
+
+        @Autowired
+        private MetodoPagoRepository metodoPagoRepository;
+
+        @Autowired
+        private SucursalRepository sucursalRepository;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        @Autowired
+        private TransactionTemplate transactionTemplate;
+
+        private Unidad kilo;
+        private Unidad gramo;
+        private Long sucursalId = SUCURSAL;
+
+        @BeforeEach
+        void setUp() {
+                long n = System.nanoTime();
+                kilo = unidadRepository.save(Unidad.builder().nombre("Kilogramo " + n).abreviatura("kg")
+                                .factorBase(BigDecimal.ONE).build());
+                gramo = unidadRepository.save(Unidad.builder().nombre("Gramo " + n).abreviatura("g")
+                                .factorBase(new BigDecimal("0.001")).build());
+        }
+
+        @Test
+        void testSalidaSinLoteSeRepartePorCaducidad() {
+                Ingrediente leche = ingrediente("Leche");
+                LocalDate hoy = LocalDate.now();
+                movimiento(leche, "ENTRADA", "5", kilo, "L-TARDE", hoy.plusDays(10));
+                movimiento(leche, "ENTRADA", "4", kilo, "L-PRONTO", hoy.plusDays(3));
+                movimiento(leche, "ENTRADA", "2", kilo, "L-SIN-FECHA", null);
+
+                // 6000 g: 4 kg del que caduca antes y 2 kg del siguiente
+                movimiento(leche, "EGRESO", "6000", gramo, null, null);
+                List<InventarioMovimiento> salidas = salidas(leche);
+                assertEquals(2, salidas.size());
+                assertEquals("L-PRONTO", salidas.get(0).getLote());
+                assertEquals(hoy.plusDays(3), salidas.get(0).getCaducidad());
+                assertEquals(0, new BigDecimal("4000").compareTo(salidas.get(0).getCantidad()));
+                assertEquals("L-TARDE", salidas.get(1).getLote());
+                assertEquals(0, new BigDecimal("2000").compareTo(salidas.get(1).getCantidad()));
+                assertEquals(0, new BigDecimal("20").compareTo(salidas.get(1).getCostoTotal()), "Costo prorrateado");
+                assertEquals(List.of("L-TARDE", "L-SIN-FECHA"), loteService.lotes(leche.getId(), SUCURSAL).stream()
+                                .map(StockLoteDTO::lote).toList());
+
+                // Salida con lote: solo ese lote
+                movimiento(leche, "MERMA", "1", kilo, "L-SIN-FECHA", null);
+                // Más de lo que hay en lotes: el resto queda sin lote
+                movimiento(leche, "EGRESO", "5", kilo, null, null);
+                salidas = salidas(leche);
+                assertEquals(List.of("L-TARDE", "L-SIN-FECHA"), salidas.subList(3, 5).stream()
+                                .map(InventarioMovimiento::getLote).toList());
+                assertNull(salidas.get(5).getLote());
+                assertEquals(0, new BigDecimal("1").compareTo(salidas.get(5).getCantidad()));
+                assertTrue(loteService.lotes(leche.getId(), SUCURSAL).isEmpty());
+                assertEquals(0, new BigDecimal("-1").compareTo(stockService.existencia(leche.getId(), SUCURSAL).cantidad()),
+                                "La existencia total no depende del reparto");
+        }
+
+        /**
+         * El lote nuevo (y su fila de existencia) se crea en la transacción del movimiento,
+         * sin abrir otra sesión ni tomar otra conexión; si el lote ya existe, se acumula.
+         */
+        @Test
+        void testLoteNuevoSeCreaEnLaMismaTransaccion() {
+                Ingrediente harina = ingrediente("Harina");
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                stats.clear();
+                transactionTemplate.executeWithoutResult(status -> {
+                        movimiento(harina, "ENTRADA", "4", kilo, "H-1", LocalDate.now().plusDays(5));
+                        movimiento(harina, "ENTRADA", "500", gramo, "H-1", null);
+                });
+                assertEquals(1, stats.getSessionOpenCount(), "Una sola sesión para el movimiento y su lote");
+
+                List<StockLoteDTO> lotes = loteService.porCaducar(SUCURSAL, 7).stream()
+                                .filter(l -> l.ingredienteId().equals(harina.getId())).toList();
+                assertEquals(1, lotes.size());
+                assertEquals(0, new BigDecimal("4.5").compareTo(lotes.getFirst().cantidad()));
+        }
+
+        @Test
+        void testPorCaducarEnLaSucursal() {
+                Ingrediente crema = ingrediente("Crema");
+                Ingrediente jamon = ingrediente("Jamón");
+                LocalDate hoy = LocalDate.now();
+                movimiento(crema, "ENTRADA", "1", kilo, "C-VENCIDO", hoy.minusDays(1));
+                movimiento(crema, "ENTRADA", "1", kilo, "C-LEJANO", hoy.plusDays(30));
+                movimiento(jamon, "ENTRADA", "2", kilo, "J-PRONTO", hoy.plusDays(2));
+                movimiento(jamon, "ENTRADA", "1", kilo, "J-AGOTADO", hoy.plusDays(1));
+                movimiento(jamon, "EGRESO", "1", kilo, "J-AGOTADO", null);
+
+                List<StockLoteDTO> porCaducar = loteService.porCaducar(SUCURSAL, 7).stream()
+                                .filter(l -> l.ingredienteId().equals(crema.getId()) || l.ingredienteId().equals(jamon.getId()))
+                                .toList();
+                assertEquals(List.of("C-VENCIDO", "J-PRONTO"), porCaducar.stream().map(StockLoteDTO::lote).toList());
+                assertEquals("Jamón", porCaducar.get(1).ingredienteNombre());
+                assertEquals(0, new BigDecimal("2").compareTo(porCaducar.get(1).cantidad()));
+                assertTrue(loteService.porCaducar(SUCURSAL + 1, 7).isEmpty());
+                assertThrows(IllegalArgumentException.class, () -> loteService.porCaducar(SUCURSAL, -1));
+        }
+
+        @Test
+        void testAsignacionBloqueaSoloLosParesDeLasSalidas() {
+                Ingrediente leche = ingrediente("Leche pares");
+                Ingrediente crema = ingrediente("Crema pares");
+                LocalDate hoy = LocalDate.now();
+                for (long sucursal : new long[] {SUCURSAL, SUCURSAL + 1}) {
+                        sucursalId = sucursal;
+                        movimiento(leche, "ENTRADA", "1", kilo, "LP-" + sucursal, hoy.plusDays(2));
+                        movimiento(crema, "ENTRADA", "1", kilo, "CP-" + sucursal, hoy.plusDays(2));
+                }
+
+                List<String> bloqueados = transactionTemplate.execute(status -> loteRepository.findDisponiblesParaAsignar(
+                                List.of(new StockLoteRepository.Existencia(crema.getId(), SUCURSAL + 1),
+                                                new StockLoteRepository.Existencia(leche.getId(), SUCURSAL)))
+                                .stream().map(StockLote::getLote).toList());
+                assertEquals(List.of("LP-" + SUCURSAL, "CP-" + (SUCURSAL + 1)), bloqueados,
+                                "Sin los pares cruzados y en el orden de uk_stock_lote");
+        }
+
+        /**
+         * 📊 BENCHMARK: sentencias del descuento de una venta cuyos 4 ingredientes salen de 1
+         * lote cada uno y de otra que toma 5 lotes por ingrediente (20 movimientos); la
+         * asignación es una consulta y un lote de UPDATE, no una ida por lote.
+         */
+        @Test
+        void testAsignacionDeVentaNoDependeDelNumeroDeLotes() {
+                CategoriaProducto categoria = categoriaRepository.save(CategoriaProducto.builder()
+                                .nombre("Lotes " + System.nanoTime()).activa(true).build());
+                MetodoPago efectivo = new MetodoPago();
+                efectivo.setNombre("Efectivo-L " + System.nanoTime());
+                efectivo.setActivo(true);
+                efectivo.setRequiereReferencia(false);
+                efectivo = metodoPagoRepository.save(efectivo);
+                Sucursal centro = new Sucursal();
+                centro.setNombre("Centro lotes");
+                sucursalId = sucursalRepository.save(centro).getId();
+
+                LocalDate hoy = LocalDate.now();
+                Producto unLote = producto(categoria, "Un lote");
+                Producto cincoLotes = producto(categoria, "Cinco lotes");
+                for (int i = 0; i < 4; i++) {
+                        Ingrediente a = ingrediente("Un lote " + i);
+                        movimiento(a, "ENTRADA", "100", kilo, "A" + i, hoy.plusDays(5));
+                        receta(unLote, a);
+                        Ingrediente b = ingrediente("Cinco lotes " + i);
+                        for (int l = 0; l < 5; l++) {
+                                movimiento(b, "ENTRADA", "0.2", kilo, "B" + i + "-" + l, hoy.plusDays(l + 1));
+                        }
+                        receta(cincoLotes, b);
+                }
+                costoRecetaService.recetasModificadas();
+                vender(unLote, efectivo);
+                descuentoService.procesarPendientes();
+
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                Long ventaUnLote = vender(unLote, efectivo);
+                stats.clear();
+                long inicio = System.nanoTime();
+                assertEquals(1, descuentoService.procesarPendientes());
+                long unLoteUs = (System.nanoTime() - inicio) / 1_000;
+                long sentenciasUnLote = stats.getPrepareStatementCount();
+
+                Long ventaCincoLotes = vender(cincoLotes, efectivo);
+                stats.clear();
+                inicio = System.nanoTime();
+                assertEquals(1, descuentoService.procesarPendientes());
+                long cincoLotesUs = (System.nanoTime() - inicio) / 1_000;
+                long sentenciasCincoLotes = stats.getPrepareStatementCount();
+
+                assertEquals(4, movimientoRepository.findByRefTipoAndRefId("venta", ventaUnLote).size());
+                List<InventarioMovimiento> consumos = movimientoRepository.findByRefTipoAndRefId("venta", ventaCincoLotes);
+                assertEquals(20, consumos.size());
+                assertTrue(consumos.stream().allMatch(m -> m.getLote() != null));
+                assertEquals(sentenciasUnLote, sentenciasCincoLotes);
+
+                log.info("📊 Descuento de una venta: {} sentencias / {} µs con 1 lote por ingrediente, "
+                                + "{} sentencias / {} µs con 5 lotes (20 movimientos)",
+                                sentenciasUnLote, unLoteUs, sentenciasCincoLotes, cincoLotesUs);
+        }
+
+        private Ingrediente ingrediente(String nombre) {
+                return ingredienteRepository.save(Ingrediente.builder().nombre(nombre).unidadBase(kilo)
+                                .costoUnitarioBase(BigDecimal.TEN).activo(true).build());
+        }
+
+        private Producto producto(CategoriaProducto categoria, String nombre) {
+                return productoRepository.save(Producto.builder().nombre(nombre).categoria(categoria)
+                                .precio(new BigDecimal("45.00")).build());
+        }
+
+        private void receta(Producto producto, Ingrediente ingrediente) {
+                transactionTemplate.executeWithoutResult(status -> entityManager.persist(Receta.builder()
+                                .productoId(producto.getId())
+                                .ingredienteId(ingrediente.getId())
+                                .cantidad(BigDecimal.ONE)
+                                .unidad(kilo)
+                                .build()));
+        }
+
+        private Long vender(Producto producto, MetodoPago metodoPago) {
+                return ventaService.crearVenta(new CrearVentaRequest(sucursalId, 1L, 1L,
+                                List.of(new VentaItemDTO(null, producto.getId(), null, 1, producto.getPrecio(), null, null, null)),
+                                List.of(new PagoDTO(null, metodoPago.getId(), null, new BigDecimal("1000.00"), null, null)),
+                                null, "POS")).id();
+        }
+
+        private void movimiento(Ingrediente ingrediente, String tipo, String cantidad, Unidad unidad,
+                                String lote, LocalDate caducidad) {
+                BigDecimal costoUnitario = BigDecimal.TEN.multiply(unidad.getFactorBase());
+                movimientoService.registrarMovimiento(new InventarioMovimientoDTO(null, ingrediente.getId(), null, tipo,
+                                new BigDecimal(cantidad), unidad.getId(), null, null, costoUnitario, null,
+                                LocalDateTime.now(), null, null, lote, caducidad, null, sucursalId));
+        }
+
+        /** Salidas del ingrediente en el orden en que se registraron. */
+        private List<InventarioMovimiento> salidas(Ingrediente ingrediente) {
+                List<InventarioMovimiento> salidas = new ArrayList<>(movimientoRepository.findByIngredienteId(ingrediente.getId()));
+                salidas.removeIf(m -> StockIngredienteService.signo(m.getTipo()) >= 0);
+                salidas.sort(Comparator.comparing(InventarioMovimiento::getId));
+                return salidas;
+        }
+}
@@ -0,0 +1,299 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.ProductoDTO;
+import com.puntodeventa.backend.exception.ResourceNotFoundException;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de variantes y escaneo por SKU de ProductoService sobre un catálogo de productos
+ * base con 4 variantes cada uno sembrado en H2: 5k productos en los tests de siempre y 50k
+ * en los de tag "benchmark" (mvn test -Pbenchmark).
+ */
+@SpringBootTest
+@Transactional
+class ProductoCatalogoGrandeTest {
+
+        private static final Logger log = LoggerFactory.getLogger(ProductoCatalogoGrandeTest.class);
+
+        private static final int BASES = 1_000;
+        private static final int BASES_BENCHMARK = 10_000;
+        private static final int VARIANTES_POR_BASE = 4;
+        private static final long ID_BASE = 20_000_000L;
+        private static final long ID_VARIANTES = 25_000_000L;
+
+        @Autowired
+        private ProductoService productoService;
+
+        @Autowired
+        private ProductoRepository productoRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private MenuCatalogoRegistry menuCatalogo;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        private void sembrar(int bases) {
+                jdbcTemplate.update("""
+                                INSERT INTO productos (id, nombre, precio, activo, disponible_en_menu, sku)
+                                SELECT CAST(? AS BIGINT) + X, 'Base ' || X, 20, 1, 1, '75' || (CAST(? AS BIGINT) + X)
+                                FROM SYSTEM_RANGE(0, CAST(? AS BIGINT) - 1)
+                                """, ID_BASE, ID_BASE, bases);
+                // Orden inverso al id; la cuarta variante de cada base sin orden (va al final)
+                jdbcTemplate.update("""
+                                INSERT INTO productos (id, nombre, precio, activo, disponible_en_menu,
+                                                       producto_base_id, nombre_variante, orden_variante, sku)
+                                SELECT CAST(? AS BIGINT) + X, 'Base ' || (X / CAST(? AS BIGINT)) || ' - V' || MOD(X, CAST(? AS BIGINT)),
+                                       20, 1, 1, CAST(? AS BIGINT) + X / CAST(? AS BIGINT), 'V' || MOD(X, CAST(? AS BIGINT)),
+                                       CASE WHEN MOD(X, CAST(? AS BIGINT)) = 3 THEN NULL ELSE 3 - MOD(X, CAST(? AS BIGINT)) END,
+                                       '76' || (CAST(? AS BIGINT) + X)
+                                FROM SYSTEM_RANGE(0, CAST(? AS BIGINT) - 1)
+                                """, ID_VARIANTES, VARIANTES_POR_BASE, VARIANTES_POR_BASE, ID_BASE, VARIANTES_POR_BASE,
+                                VARIANTES_POR_BASE, VARIANTES_POR_BASE, VARIANTES_POR_BASE, ID_VARIANTES,
+                                bases * VARIANTES_POR_BASE);
+        }
+
+        @AfterEach
+        void tearDown() {
+                // La foto del menú armada con los datos sembrados no sobrevive al rollback
+                menuCatalogo.onCambioCatalogo(new MenuCatalogoRegistry.CambioCatalogo());
+        }
+
+        /**
+         * Variantes, validación de nombre y borrado definitivo cargan solo las filas del
+         * producto base, no el catálogo completo como el findAll() anterior.
+         */
+        @Test
+        void testVariantesNoRecorrenElCatalogo() {
+                sembrar(BASES);
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                long base = ID_BASE + 123;
+
+                // Antes: findAll() y filtro en Java
+                stats.clear();
+                List<Producto> anterior = productoRepository.findAll().stream()
+                                .filter(p -> p.getProductoBase() != null && p.getProductoBase().getId().equals(base))
+                                .toList();
+                long cargasAnterior = stats.getEntityLoadCount();
+                entityManager.clear();
+
+                // Después: consulta por producto_base_id
+                stats.clear();
+                List<ProductoDTO> variantes = productoService.obtenerVariantes(base);
+                long cargasNuevo = stats.getEntityLoadCount();
+
+                assertEquals(anterior.size(), variantes.size());
+                assertEquals(List.of("V2", "V1", "V0", "V3"),
+                                variantes.stream().map(ProductoDTO::nombreVariante).toList(),
+                                "Ordenadas por orden_variante, sin orden al final");
+                assertTrue(cargasAnterior >= BASES * (VARIANTES_POR_BASE + 1));
+                assertTrue(cargasNuevo <= VARIANTES_POR_BASE + 1, "Solo el producto base y sus variantes");
+
+                // Validación de nombre duplicado (sin distinguir mayúsculas)
+                Long v3 = variantes.get(3).id();
+                entityManager.clear();
+                stats.clear();
+                IllegalArgumentException duplicada = assertThrows(IllegalArgumentException.class,
+                                () -> productoService.actualizar(v3, dto("v1")));
+                assertTrue(duplicada.getMessage().contains("v1"));
+                assertThrows(IllegalArgumentException.class,
+                                () -> productoService.crearVariante(base, dto(" V2 ")));
+                assertTrue(stats.getEntityLoadCount() <= VARIANTES_POR_BASE + 1);
+
+                // Mismo nombre en otro producto base y renombrar a su propio nombre: permitido
+                assertEquals("Nuevo", productoService.actualizar(ID_VARIANTES, dto("Nuevo")).nombreVariante());
+                assertEquals("Nuevo", productoService.actualizar(v3, dto("Nuevo")).nombreVariante());
+                assertEquals("nuevo", productoService.actualizar(v3, dto("nuevo")).nombreVariante());
+
+                // Borrado definitivo: un producto base con variantes se rechaza con un COUNT
+                entityManager.flush();
+                entityManager.clear();
+                stats.clear();
+                assertThrows(IllegalStateException.class, () -> productoService.eliminarDefinitivamente(base));
+                productoService.eliminarDefinitivamente(v3);
+                entityManager.flush();
+                assertTrue(stats.getEntityLoadCount() <= VARIANTES_POR_BASE + 1);
+                assertEquals(VARIANTES_POR_BASE - 1, productoRepository.countVariantesByProductoBaseId(base));
+        }
+
+        /**
+         * 📊 BENCHMARK: variantes de un producto en un catálogo de 50k productos por
+         * producto_base_id contra findAll() y filtro en Java. Solo registra tiempos y cargas.
+         */
+        @Test
+        @Tag("benchmark")
+        void testVariantesEnCatalogoGrande() {
+                sembrar(BASES_BENCHMARK);
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                long base = ID_BASE + 1234;
+
+                stats.clear();
+                long inicio = System.nanoTime();
+                List<Producto> anterior = productoRepository.findAll().stream()
+                                .filter(p -> p.getProductoBase() != null && p.getProductoBase().getId().equals(base))
+                                .toList();
+                long usAnterior = (System.nanoTime() - inicio) / 1_000;
+                long cargasAnterior = stats.getEntityLoadCount();
+                entityManager.clear();
+
+                stats.clear();
+                inicio = System.nanoTime();
+                List<ProductoDTO> variantes = productoService.obtenerVariantes(base);
+                long usNuevo = (System.nanoTime() - inicio) / 1_000;
+                long cargasNuevo = stats.getEntityLoadCount();
+                assertEquals(anterior.size(), variantes.size());
+
+                log.info("📊 Variantes de un producto en catálogo de {} productos: anterior={}us/{} entidades, nuevo={}us/{} entidades",
+                                BASES_BENCHMARK * (VARIANTES_POR_BASE + 1), usAnterior, cargasAnterior, usNuevo, cargasNuevo);
+        }
+
+        /**
+         * Escaneo de SKU desde 8 terminales a la vez: responde desde el mapa de la foto del
+         * menú sin consultar la base, y un SKU repetido se rechaza antes del índice único.
+         */
+        @Test
+        void testEscaneoPorSkuConTerminalesConcurrentes() throws Exception {
+                sembrar(BASES);
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                // Variante por SKU: producto completo, con su producto base
+                ProductoDTO variante = productoService.escanear(" 76" + (ID_VARIANTES + 5) + " ");
+                assertEquals(ID_VARIANTES + 5, variante.id());
+                assertEquals(ID_BASE + 1, variante.productoBaseId());
+                assertEquals(ID_BASE + 7, productoService.escanear("75" + (ID_BASE + 7)).id());
+                assertThrows(ResourceNotFoundException.class, () -> productoService.escanear("0000"));
+                assertThrows(IllegalArgumentException.class, () -> productoService.escanear(" "));
+
+                // 8 terminales contra el mapa (la foto ya está armada)
+                stats.clear();
+                escanearEnTerminales(BASES, 8, 2_000);
+                assertEquals(0, stats.getPrepareStatementCount(), "Los escaneos no consultan la base");
+
+                // SKU repetido: rechazado antes de llegar al índice único
+                assertThrows(IllegalArgumentException.class,
+                                () -> productoService.actualizar(ID_VARIANTES, dto("V0", "75" + (ID_BASE + 7))));
+                assertThrows(IllegalArgumentException.class,
+                                () -> productoService.crearVariante(ID_BASE, dto("Nueva", "76" + ID_VARIANTES)));
+                assertEquals("76" + ID_VARIANTES,
+                                productoService.actualizar(ID_VARIANTES, dto("V0", "76" + ID_VARIANTES)).sku());
+        }
+
+        /**
+         * 📊 BENCHMARK: escaneo de SKU desde 8 terminales a la vez sobre el mapa de la foto del
+         * menú de un catálogo de 50k productos, contra la consulta findBySku de una sola
+         * terminal. Solo registra los percentiles.
+         */
+        @Test
+        @Tag("benchmark")
+        void testEscaneoPorSkuEnCatalogoGrande() throws Exception {
+                sembrar(BASES_BENCHMARK);
+                productoService.escanear("75" + ID_BASE);
+
+                // Antes: una consulta por escaneo
+                long[] consulta = new long[2_000];
+                for (int i = 0; i < consulta.length; i++) {
+                        String sku = skuAlAzar(BASES_BENCHMARK);
+                        long t0 = System.nanoTime();
+                        assertTrue(productoRepository.findBySku(sku).isPresent());
+                        consulta[i] = System.nanoTime() - t0;
+                        entityManager.clear();
+                }
+
+                // Después: 8 terminales contra el mapa
+                int terminales = 8;
+                long[] mapa = escanearEnTerminales(BASES_BENCHMARK, terminales, 20_000);
+
+                Arrays.sort(consulta);
+                log.info("📊 Escaneo de SKU en catálogo de {} productos: findBySku p50={}us p99={}us; "
+                                + "mapa con {} terminales p50={}us p99={}us",
+                                BASES_BENCHMARK * (VARIANTES_POR_BASE + 1), percentil(consulta, 50),
+                                percentil(consulta, 99), terminales, percentil(mapa, 50), percentil(mapa, 99));
+        }
+
+        /**
+         * Escaneos al azar desde varias terminales a la vez; cada uno debe devolver el producto
+         * de su SKU. Devuelve los tiempos ordenados de la segunda mitad de cada terminal (la
+         * primera es calentamiento).
+         */
+        private long[] escanearEnTerminales(int bases, int terminales, int escaneos) throws Exception {
+                ExecutorService pool = Executors.newFixedThreadPool(terminales);
+                List<Future<long[]>> resultados = new ArrayList<>();
+                for (int t = 0; t < terminales; t++) {
+                        resultados.add(pool.submit(() -> {
+                                long[] tiempos = new long[escaneos];
+                                for (int i = 0; i < escaneos; i++) {
+                                        String sku = skuAlAzar(bases);
+                                        long t0 = System.nanoTime();
+                                        ProductoDTO p = productoService.escanear(sku);
+                                        tiempos[i] = System.nanoTime() - t0;
+                                        if (!sku.equals(p.sku())) {
+                                                throw new IllegalStateException("SKU " + sku + " devolvió " + p.sku());
+                                        }
+                                }
+                                return tiempos;
+                        }));
+                }
+                long[] mapa = new long[terminales * escaneos / 2];
+                int n = 0;
+                try {
+                        for (Future<long[]> r : resultados) {
+                                long[] tiempos = r.get(60, TimeUnit.SECONDS);
+                                System.arraycopy(tiempos, escaneos / 2, mapa, n, escaneos / 2);
+                                n += escaneos / 2;
+                        }
+                } finally {
+                        pool.shutdown();
+                }
+                Arrays.sort(mapa);
+                return mapa;
+        }
+
+        private static String skuAlAzar(int bases) {
+                int i = ThreadLocalRandom.current().nextInt(bases * (VARIANTES_POR_BASE + 1));
+                return i < bases ? "75" + (ID_BASE + i) : "76" + (ID_VARIANTES + i - bases);
+        }
+        private static long percentil(long[] ordenados, int p) {
+                return ordenados[Math.min(ordenados.length - 1, ordenados.length * p / 100)] / 1_000;
+        }
+
+        private static ProductoDTO dto(String nombreVariante) {
+                return dto(nombreVariante, null);
+        }
+
+        private static ProductoDTO dto(String nombreVariante, String sku) {
+                return new ProductoDTO(null, null, null, null, null, new BigDecimal("20.00"), null, sku, null, null,
+                                null, null, nombreVariante, null);
+        }
+}
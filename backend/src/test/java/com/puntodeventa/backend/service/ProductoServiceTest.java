@@ -5,6 +5,9 @@ import com.puntodeventa.backend.model.CategoriaProducto;
 import com.puntodeventa.backend.model.Producto;
 import com.puntodeventa.backend.repository.CategoriaProductoRepository;
 import com.puntodeventa.backend.repository.ProductoRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +15,8 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -32,6 +37,12 @@ class ProductoServiceTest {
         @Autowired
         private CategoriaProductoRepository categoriaRepository;
 
+        @Autowired
+        private MenuCatalogoRegistry menuCatalogo;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
         private CategoriaProducto categoria1;
         private CategoriaProducto categoria2;
         private Producto productoBase;
@@ -380,4 +391,55 @@ class ProductoServiceTest {
                 assertEquals(productoBaseIdEsperado, varianteEnBD.getProductoBase().getId(),
                                 "En BD: productoBaseId debe preservarse en toda la transacción");
         }
+
+        /**
+         * 📊 BENCHMARK: el menú se construye una vez por versión del catálogo (dos consultas)
+         * y cualquier combinación de filtros se sirve de la misma foto sin SQL
+         */
+        @Test
+        void testMenuSnapshotCompartidoYReconstruidoTrasCambio() {
+                // Los datos del setUp se guardaron con el repositorio (sin evento de catálogo)
+                menuCatalogo.onCambioCatalogo(new MenuCatalogoRegistry.CambioCatalogo());
+                // Con ids de secuencia los INSERT del setUp quedan pendientes hasta el flush
+                productoRepository.flush();
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                Optional<Boolean> sinFiltro = Optional.empty();
+
+                stats.clear();
+                List<ProductoDTO> todos = productoService.listar(sinFiltro, sinFiltro, Optional.empty(), Optional.empty());
+                assertTrue(stats.getPrepareStatementCount() <= 2, "Bases con categoría + variantes activas");
+
+                stats.clear();
+                assertSame(todos, productoService.listar(sinFiltro, sinFiltro, Optional.empty(), Optional.empty()));
+                List<ProductoDTO> pos = productoService.listar(Optional.of(true), Optional.of(true), Optional.empty(),
+                                Optional.empty());
+                List<ProductoDTO> porCategoria = productoService.listar(sinFiltro, sinFiltro,
+                                Optional.of(categoria1.getId()), Optional.of("AGU"));
+                assertEquals(0, stats.getPrepareStatementCount(), "Filtros servidos desde la foto en memoria");
+
+                ProductoDTO agua = porCategoria.stream()
+                                .filter(p -> p.id().equals(productoBase.getId()))
+                                .findFirst()
+                                .orElseThrow();
+                assertTrue(pos.contains(agua));
+                assertEquals(List.of("500ml", "1 Litro"), agua.variantes().stream()
+                                .map(ProductoDTO.VarianteDTO::nombreVariante)
+                                .toList());
+                assertThrows(UnsupportedOperationException.class, () -> todos.add(agua));
+                assertTrue(productoService.listar(sinFiltro, sinFiltro, Optional.of(categoria2.getId()),
+                                Optional.empty()).isEmpty());
+
+                // Un cambio del catálogo genera una nueva versión de la foto
+                long version = menuCatalogo.version();
+                productoService.cambiarEstado(variante1.getId(), false);
+                assertTrue(menuCatalogo.version() > version);
+                ProductoDTO aguaDespues = productoService.listar(sinFiltro, sinFiltro, Optional.empty(),
+                                Optional.of("agua")).stream()
+                                .filter(p -> p.id().equals(productoBase.getId()))
+                                .findFirst()
+                                .orElseThrow();
+                assertEquals(List.of("1 Litro"), aguaDespues.variantes().stream()
+                                .map(ProductoDTO.VarianteDTO::nombreVariante)
+                                .toList());
+        }
 }
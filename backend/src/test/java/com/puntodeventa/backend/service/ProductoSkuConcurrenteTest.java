@@ -0,0 +1,74 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.ProductoDTO;
+import com.puntodeventa.backend.model.CategoriaProducto;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.repository.CategoriaProductoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Tests de un SKU tomado por otra alta entre la validación y el guardado.
+ * El repositorio es un spy para simular la carrera; va en su propia clase para que
+ * los demás tests de productos usen el repositorio real.
+ */
+@SpringBootTest
+@Transactional
+class ProductoSkuConcurrenteTest {
+
+        @Autowired
+        private ProductoService productoService;
+
+        @MockitoSpyBean
+        private ProductoRepository productoRepository;
+
+        @Autowired
+        private CategoriaProductoRepository categoriaRepository;
+
+        private CategoriaProducto categoria;
+
+        @BeforeEach
+        void setUp() {
+                categoria = categoriaRepository.save(CategoriaProducto.builder()
+                                .nombre("Bebidas")
+                                .descripcion("Bebidas diversas")
+                                .activa(true)
+                                .build());
+                productoRepository.save(Producto.builder()
+                                .nombre("Agua")
+                                .categoria(categoria)
+                                .precio(new BigDecimal("10.00"))
+                                .sku("AGUA-001")
+                                .activo(true)
+                                .disponibleEnMenu(true)
+                                .build());
+        }
+
+        /**
+         * Dos altas con el mismo SKU a la vez: la segunda pasa la validación antes de que la
+         * primera confirme (se simula con existsOtroConSku = false) y la rechaza el índice
+         * único; se responde con el mismo error de validación (400), no con un 409 genérico.
+         */
+        @Test
+        void testSkuTomadoEntreValidacionYGuardadoEsErrorDeValidacion() {
+                doReturn(false).when(productoRepository).existsOtroConSku(anyString(), any());
+
+                IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                                () -> productoService.crear(new ProductoDTO(null, "Agua mineral", null, categoria.getId(),
+                                                null, new BigDecimal("15.00"), null, " AGUA-001 ", true, true, null, null,
+                                                null, null)));
+                assertEquals("Ya existe un producto con el SKU 'AGUA-001'", error.getMessage());
+        }
+}
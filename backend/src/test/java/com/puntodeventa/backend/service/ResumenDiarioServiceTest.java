@@ -0,0 +1,239 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.CrearGastoRequest;
+import com.puntodeventa.backend.dto.CrearVentaRequest;
+import com.puntodeventa.backend.dto.GastoDTO;
+import com.puntodeventa.backend.dto.PagoDTO;
+import com.puntodeventa.backend.dto.VentaDTO;
+import com.puntodeventa.backend.dto.VentaItemDTO;
+import com.puntodeventa.backend.dto.aggregate.ResumenDiarioAggregate;
+import com.puntodeventa.backend.model.CategoriaGasto;
+import com.puntodeventa.backend.model.CategoriaProducto;
+import com.puntodeventa.backend.model.MetodoPago;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.model.Sucursal;
+import com.puntodeventa.backend.repository.CategoriaGastoRepository;
+import com.puntodeventa.backend.repository.CategoriaProductoRepository;
+import com.puntodeventa.backend.repository.GastoRepository;
+import com.puntodeventa.backend.repository.MetodoPagoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import com.puntodeventa.backend.repository.SucursalRepository;
+import com.puntodeventa.backend.repository.VentaRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para ResumenDiarioService
+ * Verifica que el acumulado incremental coincide con el cálculo sobre datos crudos
+ */
+@SpringBootTest
+@Transactional
+class ResumenDiarioServiceTest {
+
+        @Autowired
+        private ResumenDiarioService resumenDiarioService;
+
+        @Autowired
+        private VentaService ventaService;
+
+        @Autowired
+        private GastoService gastoService;
+
+        @Autowired
+        private VentaRepository ventaRepository;
+
+        @Autowired
+        private GastoRepository gastoRepository;
+
+        @Autowired
+        private ProductoRepository productoRepository;
+
+        @Autowired
+        private CategoriaProductoRepository categoriaProductoRepository;
+
+        @Autowired
+        private CategoriaGastoRepository categoriaGastoRepository;
+
+        @Autowired
+        private MetodoPagoRepository metodoPagoRepository;
+
+        @Autowired
+        private SucursalRepository sucursalRepository;
+
+        @Autowired
+        private FilaUnica filaUnica;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        private Producto cafe;
+        private Producto pan;
+        private MetodoPago efectivo;
+        private CategoriaGasto servicios;
+        private Sucursal centro;
+
+        @BeforeEach
+        void setUp() {
+                CategoriaProducto categoria = categoriaProductoRepository.save(CategoriaProducto.builder()
+                                .nombre("Cafetería")
+                                .activa(true)
+                                .build());
+
+                cafe = productoRepository.save(Producto.builder()
+                                .nombre("Café")
+                                .categoria(categoria)
+                                .precio(new BigDecimal("35.00"))
+                                .costoEstimado(new BigDecimal("12.50"))
+                                .build());
+
+                pan = productoRepository.save(Producto.builder()
+                                .nombre("Pan dulce")
+                                .categoria(categoria)
+                                .precio(new BigDecimal("18.00"))
+                                .costoEstimado(new BigDecimal("6.00"))
+                                .build());
+
+                efectivo = new MetodoPago();
+                efectivo.setNombre("Efectivo-R");
+                efectivo.setActivo(true);
+                efectivo.setRequiereReferencia(false);
+                efectivo = metodoPagoRepository.save(efectivo);
+
+                servicios = categoriaGastoRepository.save(CategoriaGasto.builder()
+                                .nombre("Servicios-R")
+                                .build());
+
+                centro = new Sucursal();
+                centro.setNombre("Centro");
+                centro = sucursalRepository.save(centro);
+        }
+
+        /**
+         * Altas, cancelaciones y gastos mantienen el acumulado igual al cálculo crudo,
+         * y la reconstrucción produce el mismo resultado
+         */
+        @Test
+        void testAcumuladoIncrementalCoincideConDatosCrudos() {
+                vender(centro.getId(), 2, 1);
+                vender(centro.getId(), 1, 3);
+                VentaDTO cancelada = vender(null, 4, 0);
+                ventaService.cancelarVenta(cancelada.id(), "Error de captura");
+
+                gasto(centro.getId(), "150.00", "Operacional");
+                gasto(null, "80.00", "Administrativo");
+                GastoDTO editado = gasto(null, "40.00", "Operacional");
+                gastoService.actualizar(editado.id(), new CrearGastoRequest(servicios.getId(), null, null,
+                                new BigDecimal("55.00"), editado.fecha(), null, null, null, "Operacional", null));
+                GastoDTO eliminado = gasto(centro.getId(), "999.00", "Operacional");
+                gastoService.eliminar(eliminado.id());
+
+                LocalDate hoy = LocalDate.now();
+                ResumenDiarioAggregate dia = resumenDiarioService.resumenRango(hoy.atStartOfDay(),
+                                hoy.atTime(LocalTime.of(23, 59, 59)));
+
+                assertEquals(2L, dia.cantidadVentas());
+                assertEquals(7L, dia.itemsVendidos());
+                assertEquals(0, new BigDecimal("205.00").compareTo(dia.gastosOperacionales()));
+
+                // Solo la sucursal Centro: sus dos ventas y su gasto operacional
+                ResumenDiarioAggregate centroHoy = resumenDiarioService.resumenDiaSucursal(hoy, centro.getId());
+                assertEquals(2L, centroHoy.cantidadVentas());
+                assertEquals(7L, centroHoy.itemsVendidos());
+                assertEquals(0, new BigDecimal("150.00").compareTo(centroHoy.gastosOperacionales()));
+
+                List<LocalDateTime[]> rangos = List.of(
+                                new LocalDateTime[] { hoy.atStartOfDay(), hoy.atTime(LocalTime.MAX) },
+                                new LocalDateTime[] { hoy.minusDays(1).atTime(12, 0), hoy.atTime(LocalTime.MAX) },
+                                new LocalDateTime[] { hoy.minusDays(7).atStartOfDay(), hoy.plusDays(1).atTime(6, 0) });
+                for (LocalDateTime[] rango : rangos) {
+                        assertIguales(crudo(rango[0], rango[1]), resumenDiarioService.resumenRango(rango[0], rango[1]));
+                }
+
+                // La reconstrucción corrige las filas desviadas (sin borrar la tabla) y da el mismo acumulado
+                LocalDate sinDatos = LocalDate.of(2020, 1, 1);
+                resumenDiarioService.sumar(new ResumenDiarioService.Aporte(hoy, centro.getId(), BigDecimal.TEN,
+                                BigDecimal.TEN, 1, 1, BigDecimal.ONE, BigDecimal.ONE));
+                resumenDiarioService.sumar(new ResumenDiarioService.Aporte(sinDatos, centro.getId(), BigDecimal.TEN,
+                                BigDecimal.TEN, 1, 1, BigDecimal.ONE, BigDecimal.ZERO));
+                assertTrue(resumenDiarioService.reconstruir() >= 2, "Una fila por sucursal (Centro y sin sucursal)");
+                assertIguales(dia, resumenDiarioService.resumenRango(hoy.atStartOfDay(),
+                                hoy.atTime(LocalTime.of(23, 59, 59))));
+                assertEquals(0L, resumenDiarioService.resumenDiaSucursal(sinDatos, centro.getId()).cantidadVentas());
+        }
+
+        /**
+         * La fila del primer aporte de un día se crea en la transacción del aporte, sin abrir
+         * otra sesión (ni tomar otra conexión); si ya existía, el INSERT se descarta y la
+         * transacción sigue.
+         */
+        @Test
+        void testPrimerAporteDelDiaCreaLaFilaEnLaMismaTransaccion() {
+                LocalDate dia = LocalDate.of(2024, 2, 29);
+                ResumenDiarioService.Aporte aporte = new ResumenDiarioService.Aporte(dia, centro.getId(),
+                                new BigDecimal("100.00"), new BigDecimal("90.00"), 1, 3, new BigDecimal("30.0000"),
+                                BigDecimal.ZERO);
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                stats.clear();
+                resumenDiarioService.sumar(aporte);
+                assertEquals(0, stats.getSessionOpenCount(), "Sin sesión nueva (REQUIRES_NEW)");
+
+                assertFalse(filaUnica.insertarSiFalta("""
+                                INSERT INTO resumen_diario (fecha, sucursal_id, total_ventas, subtotal_ventas, cantidad_ventas,
+                                                            items_vendidos, costo_productos, gastos_operacionales)
+                                VALUES (?, ?, 0, 0, 0, 0, 0, 0)
+                                """, dia, centro.getId()));
+                resumenDiarioService.sumar(aporte);
+
+                ResumenDiarioAggregate resumen = resumenDiarioService.resumenDiaSucursal(dia, centro.getId());
+                assertEquals(2L, resumen.cantidadVentas());
+                assertEquals(6L, resumen.itemsVendidos());
+                assertEquals(0, new BigDecimal("200.00").compareTo(resumen.totalVentas()));
+        }
+
+        private VentaDTO vender(Long sucursalId, int cafes, int panes) {
+                List<VentaItemDTO> items = new ArrayList<>();
+                items.add(new VentaItemDTO(null, cafe.getId(), null, cafes, cafe.getPrecio(), null, null, null));
+                if (panes > 0) {
+                        items.add(new VentaItemDTO(null, pan.getId(), null, panes, pan.getPrecio(), null, null, null));
+                }
+                return ventaService.crearVenta(new CrearVentaRequest(sucursalId, 1L, 1L, items,
+                                List.of(new PagoDTO(null, efectivo.getId(), null, new BigDecimal("1000.00"), null, null)),
+                                null, "POS"));
+        }
+
+        private GastoDTO gasto(Long sucursalId, String monto, String tipo) {
+                return gastoService.crear(new CrearGastoRequest(servicios.getId(), null, sucursalId,
+                                new BigDecimal(monto), LocalDateTime.now(), null, null, null, tipo, null));
+        }
+
+        private ResumenDiarioAggregate crudo(LocalDateTime desde, LocalDateTime hasta) {
+                return ResumenDiarioAggregate.de(ventaRepository.aggregateResumen(desde, hasta),
+                                gastoRepository.sumMontoByTipoGastoAndFechaBetween("Operacional", desde, hasta));
+        }
+
+        private void assertIguales(ResumenDiarioAggregate esperado, ResumenDiarioAggregate actual) {
+                assertEquals(0, esperado.totalVentas().compareTo(actual.totalVentas()), "totalVentas");
+                assertEquals(0, esperado.subtotalVentas().compareTo(actual.subtotalVentas()), "subtotalVentas");
+                assertEquals(esperado.cantidadVentas(), actual.cantidadVentas(), "cantidadVentas");
+                assertEquals(esperado.itemsVendidos(), actual.itemsVendidos(), "itemsVendidos");
+                assertEquals(0, esperado.totalCostos().compareTo(actual.totalCostos()), "totalCostos");
+                assertEquals(0, esperado.gastosOperacionales().compareTo(actual.gastosOperacionales()),
+                                "gastosOperacionales");
+        }
+}
@@ -0,0 +1,234 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.ConciliacionStockDTO;
+import com.puntodeventa.backend.dto.InventarioMovimientoDTO;
+import com.puntodeventa.backend.dto.StockIngredienteDTO;
+import com.puntodeventa.backend.model.Ingrediente;
+import com.puntodeventa.backend.model.InventarioMovimiento;
+import com.puntodeventa.backend.model.StockIngrediente;
+import com.puntodeventa.backend.model.Unidad;
+import com.puntodeventa.backend.repository.IngredienteRepository;
+import com.puntodeventa.backend.repository.UnidadRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de la existencia por ingrediente y sucursal: se mantiene con cada movimiento y
+ * coincide con la suma del libro.
+ */
+@SpringBootTest
+@Transactional
+class StockIngredienteServiceTest {
+
+        private static final Logger log = LoggerFactory.getLogger(StockIngredienteServiceTest.class);
+
+        @Autowired
+        private StockIngredienteService stockService;
+
+        @Autowired
+        private InventarioMovimientoService movimientoService;
+
+        @Autowired
+        private IngredienteRepository ingredienteRepository;
+
+        @Autowired
+        private UnidadRepository unidadRepository;
+
+        @Autowired
+        private JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        private Unidad kilo;
+        private Unidad gramo;
+        private Ingrediente queso;
+
+        @BeforeEach
+        void setUp() {
+                kilo = unidadRepository.save(Unidad.builder().nombre("Kilogramo").abreviatura("kg")
+                                .factorBase(BigDecimal.ONE).build());
+                gramo = unidadRepository.save(Unidad.builder().nombre("Gramo").abreviatura("g")
+                                .factorBase(new BigDecimal("0.001")).build());
+                queso = ingrediente("Queso", new BigDecimal("5"));
+        }
+
+        @Test
+        void testMovimientosActualizanExistenciaPorSucursal() {
+                movimiento(queso, "ENTRADA", "10", kilo, 1L);
+                movimiento(queso, "egreso", "2500", gramo, 1L);
+                movimiento(queso, "MERMA", "0.5", kilo, 1L);
+                movimiento(queso, "ENTRADA", "4", kilo, 2L);
+                movimiento(queso, "ENTRADA", "1", kilo, null);
+
+                StockIngredienteDTO sucursal1 = stockService.existencia(queso.getId(), 1L);
+                assertEquals(0, new BigDecimal("7").compareTo(sucursal1.cantidad()), "10 - 2.5 - 0.5");
+                assertEquals("kg", sucursal1.unidadAbreviatura());
+                assertFalse(sucursal1.bajoMinimo());
+
+                StockIngredienteDTO sucursal2 = stockService.existencia(queso.getId(), 2L);
+                assertEquals(0, new BigDecimal("4").compareTo(sucursal2.cantidad()));
+                assertTrue(sucursal2.bajoMinimo(), "4 < stock mínimo 5");
+
+                assertEquals(0, BigDecimal.ONE.compareTo(stockService.existencia(queso.getId(), null).cantidad()));
+                assertEquals(List.of(StockIngrediente.SIN_SUCURSAL, 1L, 2L),
+                                stockService.existencias(queso.getId()).stream().map(StockIngredienteDTO::sucursalId).toList());
+                assertEquals(0, BigDecimal.ZERO.compareTo(stockService.existencia(queso.getId(), 3L).cantidad()),
+                                "Sin movimientos en la sucursal la existencia es cero");
+
+                assertTrue(diferenciasDe(stockService.conciliar(false), queso).isEmpty(), "Coincide con el libro");
+        }
+
+        /**
+         * La fila del primer movimiento de un ingrediente/sucursal se crea en la transacción
+         * del movimiento, sin abrir otra sesión (ni tomar otra conexión).
+         */
+        @Test
+        void testPrimerMovimientoCreaLaFilaEnLaMismaTransaccion() {
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                stats.clear();
+                movimiento(queso, "ENTRADA", "3", kilo, 9L);
+                assertEquals(0, stats.getSessionOpenCount(), "Sin sesión nueva (REQUIRES_NEW)");
+
+                movimiento(queso, "EGRESO", "1", kilo, 9L);
+                assertEquals(0, new BigDecimal("2").compareTo(stockService.existencia(queso.getId(), 9L).cantidad()));
+        }
+
+        @Test
+        void testBajoMinimoIncluyeIngredientesSinMovimientos() {
+                Ingrediente leche = ingrediente("Leche", new BigDecimal("2"));
+                Ingrediente crema = ingrediente("Crema", new BigDecimal("1"));
+                movimiento(queso, "ENTRADA", "3", kilo, 1L);
+                movimiento(crema, "ENTRADA", "3", kilo, 1L);
+
+                List<Long> bajos = stockService.bajoMinimo(1L).stream().map(StockIngredienteDTO::ingredienteId).toList();
+                assertTrue(bajos.contains(queso.getId()), "3 < 5");
+                assertTrue(bajos.contains(leche.getId()), "Sin movimientos: 0 < 2");
+                assertFalse(bajos.contains(crema.getId()), "3 >= 1");
+        }
+
+        @Test
+        void testConciliarDetectaYCorrigeDiferencias() {
+                movimiento(queso, "ENTRADA", "10", kilo, 1L);
+                Ingrediente leche = ingrediente("Leche", null);
+                entityManager.flush();
+                // Desfase: el stock se altera por fuera y un movimiento entra sin pasar por el servicio
+                jdbcTemplate.update("UPDATE stock_ingredientes SET cantidad = 8 WHERE ingrediente_id = ? AND sucursal_id = 1",
+                                queso.getId());
+                jdbcTemplate.update("""
+                                INSERT INTO inventario_movimientos (ingrediente_id, tipo, cantidad, unidad_id, costo_unitario,
+                                                                    costo_total, fecha, sucursal_id)
+                                VALUES (?, 'ENTRADA', 750, ?, 1, 1, CURRENT_TIMESTAMP, 1)
+                                """, leche.getId(), gramo.getId());
+
+                List<ConciliacionStockDTO.Diferencia> diferencias = diferenciasDe(stockService.conciliar(false), queso, leche);
+                assertEquals(2, diferencias.size());
+                ConciliacionStockDTO.Diferencia quesoDif = diferencias.stream()
+                                .filter(d -> d.ingredienteId().equals(queso.getId())).findFirst().orElseThrow();
+                assertEquals(0, new BigDecimal("2").compareTo(quesoDif.ajuste()));
+
+                stockService.conciliar(true);
+                entityManager.clear();
+                assertTrue(diferenciasDe(stockService.conciliar(false), queso, leche).isEmpty());
+                assertEquals(0, new BigDecimal("10").compareTo(stockService.existencia(queso.getId(), 1L).cantidad()));
+                assertEquals(0, new BigDecimal("0.75").compareTo(stockService.existencia(leche.getId(), 1L).cantidad()));
+        }
+
+        @Test
+        void testRevertirTodosAgrupaPorIngredienteYSucursal() {
+                Ingrediente leche = ingrediente("Leche", null);
+                movimiento(queso, "ENTRADA", "10", kilo, 1L);
+                movimiento(leche, "ENTRADA", "10", kilo, 1L);
+                List<InventarioMovimiento> egresos = List.of(
+                                egreso(leche, "2", kilo), egreso(queso, "500", gramo), egreso(queso, "1", kilo));
+
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                stats.clear();
+                stockService.registrarTodos(egresos);
+                assertEquals(2, stats.getPrepareStatementCount(), "Un UPDATE por ingrediente/sucursal");
+                assertEquals(0, new BigDecimal("8.5").compareTo(stockService.existencia(queso.getId(), 1L).cantidad()));
+                assertEquals(0, new BigDecimal("8").compareTo(stockService.existencia(leche.getId(), 1L).cantidad()));
+
+                stockService.revertirTodos(egresos);
+                assertEquals(0, BigDecimal.TEN.compareTo(stockService.existencia(queso.getId(), 1L).cantidad()));
+                assertEquals(0, BigDecimal.TEN.compareTo(stockService.existencia(leche.getId(), 1L).cantidad()));
+        }
+
+        /**
+         * 📊 BENCHMARK: con 50k movimientos del ingrediente, consultar su existencia es 1
+         * consulta de una fila; sumar el libro recorre todo el historial.
+         */
+        @Test
+        void testExistenciaNoDependeDelHistorial() {
+                int movimientos = 50_000;
+                jdbcTemplate.update("""
+                                INSERT INTO inventario_movimientos (ingrediente_id, tipo, cantidad, unidad_id, costo_unitario,
+                                                                    costo_total, fecha, sucursal_id)
+                                SELECT CAST(? AS BIGINT), CASE MOD(X, 4) WHEN 0 THEN 'EGRESO' ELSE 'ENTRADA' END, 1,
+                                       CAST(? AS BIGINT), 1, 1, DATEADD(MINUTE, X, TIMESTAMP '2025-01-01 00:00:00'), 1
+                                FROM SYSTEM_RANGE(1, CAST(? AS BIGINT))
+                                """, queso.getId(), kilo.getId(), movimientos);
+                stockService.conciliar(true);
+                entityManager.clear();
+
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                stats.clear();
+                long inicio = System.nanoTime();
+                StockIngredienteDTO existencia = stockService.existencia(queso.getId(), 1L);
+                long existenciaUs = (System.nanoTime() - inicio) / 1_000;
+                assertEquals(1, stats.getPrepareStatementCount());
+                assertEquals(0, new BigDecimal(movimientos / 2).compareTo(existencia.cantidad()), "3/4 entran, 1/4 sale");
+
+                inicio = System.nanoTime();
+                BigDecimal libro = jdbcTemplate.queryForObject("""
+                                SELECT SUM(CASE tipo WHEN 'ENTRADA' THEN cantidad ELSE -cantidad END)
+                                FROM inventario_movimientos WHERE ingrediente_id = ? AND sucursal_id = 1
+                                """, BigDecimal.class, queso.getId());
+                long libroUs = (System.nanoTime() - inicio) / 1_000;
+                assertEquals(0, libro.compareTo(existencia.cantidad()));
+
+                log.info("📊 Existencia con {} movimientos: stock_ingredientes {} µs vs suma del libro {} µs",
+                                movimientos, existenciaUs, libroUs);
+        }
+
+        private Ingrediente ingrediente(String nombre, BigDecimal stockMinimo) {
+                return ingredienteRepository.save(Ingrediente.builder().nombre(nombre).unidadBase(kilo)
+                                .costoUnitarioBase(BigDecimal.TEN).stockMinimo(stockMinimo).activo(true).build());
+        }
+
+        private void movimiento(Ingrediente ingrediente, String tipo, String cantidad, Unidad unidad, Long sucursalId) {
+                movimientoService.registrarMovimiento(new InventarioMovimientoDTO(null, ingrediente.getId(), null, tipo,
+                                new BigDecimal(cantidad), unidad.getId(), null, null, BigDecimal.ONE, null,
+                                LocalDateTime.now(), null, null, null, null, null, sucursalId));
+        }
+
+        private static InventarioMovimiento egreso(Ingrediente ingrediente, String cantidad, Unidad unidad) {
+                return InventarioMovimiento.builder().ingrediente(ingrediente).tipo("EGRESO")
+                                .cantidad(new BigDecimal(cantidad)).unidad(unidad).sucursalId(1L).build();
+        }
+
+        private static List<ConciliacionStockDTO.Diferencia> diferenciasDe(ConciliacionStockDTO conciliacion,
+                                                                          Ingrediente... ingredientes) {
+                List<Long> ids = java.util.Arrays.stream(ingredientes).map(Ingrediente::getId).toList();
+                return conciliacion.diferencias().stream().filter(d -> ids.contains(d.ingredienteId())).toList();
+        }
+}
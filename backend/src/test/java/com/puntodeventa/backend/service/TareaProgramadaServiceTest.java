@@ -0,0 +1,39 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.model.TareaProgramada;
+import com.puntodeventa.backend.repository.TareaProgramadaRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests del turno de las tareas periódicas: un solo nodo la toma por intervalo.
+ */
+@SpringBootTest
+@Transactional
+class TareaProgramadaServiceTest {
+
+        @Autowired
+        private TareaProgramadaService tareaService;
+
+        @Autowired
+        private TareaProgramadaRepository tareaRepository;
+
+        @Test
+        void testLaTareaSeTomaUnaVezPorIntervalo() {
+                assertTrue(tareaService.tomar("prueba-turno", Duration.ofHours(6)), "Sin fila: se crea y se toma");
+                assertFalse(tareaService.tomar("prueba-turno", Duration.ofHours(6)), "Bloqueada durante el intervalo");
+
+                TareaProgramada tarea = tareaRepository.findById("prueba-turno").orElseThrow();
+                tarea.setBloqueadaHasta(LocalDateTime.now().minusSeconds(1));
+                tareaRepository.saveAndFlush(tarea);
+                assertTrue(tareaService.tomar("prueba-turno", Duration.ofHours(6)), "Vencida: la toma el siguiente");
+                assertFalse(tareaService.tomar("prueba-turno", Duration.ofHours(6)));
+        }
+}
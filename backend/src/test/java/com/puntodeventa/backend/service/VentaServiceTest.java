@@ -0,0 +1,333 @@
+package com.puntodeventa.backend.service;
+
+import com.puntodeventa.backend.dto.PagoDTO;
+import com.puntodeventa.backend.dto.VentaDTO;
+import com.puntodeventa.backend.dto.VentaItemDTO;
+import com.puntodeventa.backend.dto.VentaPaginaDTO;
+import com.puntodeventa.backend.exception.ResourceNotFoundException;
+import com.puntodeventa.backend.model.CategoriaProducto;
+import com.puntodeventa.backend.model.MetodoPago;
+import com.puntodeventa.backend.model.Pago;
+import com.puntodeventa.backend.model.Producto;
+import com.puntodeventa.backend.model.Venta;
+import com.puntodeventa.backend.model.VentaItem;
+import com.puntodeventa.backend.repository.CategoriaProductoRepository;
+import com.puntodeventa.backend.repository.MetodoPagoRepository;
+import com.puntodeventa.backend.repository.ProductoRepository;
+import com.puntodeventa.backend.repository.VentaRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests para VentaService y su etapa de ensamblado de ventas.
+ * Mide viajes a la BD con las estadísticas de Hibernate.
+ */
+@SpringBootTest
+@Transactional
+class VentaServiceTest {
+
+        private static final Logger log = LoggerFactory.getLogger(VentaServiceTest.class);
+
+        @Autowired
+        private VentaCatalogoResolver catalogoResolver;
+
+        @Autowired
+        private VentaService ventaService;
+
+        @Autowired
+        private VentaRepository ventaRepository;
+
+        @Autowired
+        private ProductoRepository productoRepository;
+
+        @Autowired
+        private MetodoPagoRepository metodoPagoRepository;
+
+        @Autowired
+        private CategoriaProductoRepository categoriaRepository;
+
+        @Autowired
+        private EntityManager entityManager;
+
+        @Autowired
+        private EntityManagerFactory entityManagerFactory;
+
+        @Autowired
+        private MeterRegistry meterRegistry;
+
+        private List<VentaItemDTO> items;
+        private List<PagoDTO> pagos;
+
+        @BeforeEach
+        void setUp() {
+                CategoriaProducto desayunos = categoriaRepository.save(CategoriaProducto.builder()
+                                .nombre("Desayunos")
+                                .activa(true)
+                                .build());
+
+                Producto jugo = productoRepository.save(Producto.builder()
+                                .nombre("Jugo")
+                                .categoria(desayunos)
+                                .precio(new BigDecimal("30.00"))
+                                .build());
+
+                // Ticket de desayuno de 12 líneas (productos base y variantes)
+                items = new ArrayList<>();
+                for (int i = 0; i < 12; i++) {
+                        Producto p = productoRepository.save(Producto.builder()
+                                        .nombre("Producto " + i)
+                                        .categoria(desayunos)
+                                        .precio(new BigDecimal("25.00"))
+                                        .costoEstimado(new BigDecimal("10.00"))
+                                        .productoBase(i % 2 == 0 ? jugo : null)
+                                        .nombreVariante(i % 2 == 0 ? "Tamaño " + i : null)
+                                        .build());
+                        items.add(new VentaItemDTO(null, p.getId(), null, 1, p.getPrecio(), null, null, null));
+                }
+
+                pagos = new ArrayList<>();
+                for (String nombre : List.of("Efectivo-T", "Tarjeta-T", "Transferencia-T")) {
+                        MetodoPago mp = new MetodoPago();
+                        mp.setNombre(nombre);
+                        mp.setActivo(true);
+                        mp.setRequiereReferencia(false);
+                        mp = metodoPagoRepository.save(mp);
+                        pagos.add(new PagoDTO(null, mp.getId(), null, new BigDecimal("100.00"), null, null));
+                }
+
+                entityManager.flush();
+                entityManager.clear();
+        }
+
+        /**
+         * 📊 BENCHMARK: viajes a la BD por ticket antes (findById por línea) y después
+         * (una consulta IN por catálogo).
+         */
+        @Test
+        void testResolverCatalogoUsaUnaConsultaPorCatalogo() {
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                // Antes: un findById por item y por pago
+                stats.clear();
+                for (VentaItemDTO item : items) {
+                        productoRepository.findById(item.productoId()).orElseThrow();
+                }
+                for (PagoDTO pago : pagos) {
+                        metodoPagoRepository.findById(pago.metodoPagoId()).orElseThrow();
+                }
+                long antes = stats.getPrepareStatementCount();
+                entityManager.clear();
+
+                // Después: etapa de ensamblado
+                stats.clear();
+                VentaCatalogoResolver.CatalogoVenta catalogo = catalogoResolver.resolver(items, pagos);
+                long despues = stats.getPrepareStatementCount();
+
+                log.info("Viajes a BD por ticket de {} items y {} pagos: antes={}, después={}",
+                                items.size(), pagos.size(), antes, despues);
+
+                assertEquals(items.size() + pagos.size(), antes,
+                                "El camino anterior hace un SELECT por línea del ticket");
+                assertEquals(2, despues, "Debe resolverse con una consulta por catálogo");
+                assertEquals(items.size(), catalogo.productos().size());
+                assertEquals(pagos.size(), catalogo.metodosPago().size());
+
+                // El producto base debe venir cargado (sin SELECT extra al construir el nombre)
+                stats.clear();
+                catalogo.productos().values().forEach(p -> {
+                        if (p.getProductoBase() != null) {
+                                p.getProductoBase().getNombre();
+                        }
+                });
+                assertEquals(0, stats.getPrepareStatementCount());
+        }
+
+        /**
+         * Los IDs inexistentes se reportan con precisión
+         */
+        @Test
+        void testResolverCatalogoReportaIdsFaltantes() {
+                List<VentaItemDTO> conUnFaltante = new ArrayList<>(items);
+                conUnFaltante.add(new VentaItemDTO(null, 999_001L, null, 1, BigDecimal.ONE, null, null, null));
+
+                ResourceNotFoundException uno = assertThrows(ResourceNotFoundException.class,
+                                () -> catalogoResolver.resolver(conUnFaltante, pagos));
+                assertEquals("Producto no encontrado con ID: 999001", uno.getMessage());
+
+                List<PagoDTO> conFaltantes = new ArrayList<>(pagos);
+                conFaltantes.add(new PagoDTO(null, 999_002L, null, BigDecimal.ONE, null, null));
+                conFaltantes.add(new PagoDTO(null, 999_003L, null, BigDecimal.ONE, null, null));
+
+                ResourceNotFoundException varios = assertThrows(ResourceNotFoundException.class,
+                                () -> catalogoResolver.resolver(items, conFaltantes));
+                assertEquals("Métodos de pago no encontrados con IDs: [999002, 999003]", varios.getMessage());
+        }
+
+        /**
+         * Paginación por cursor: recorre todo el historial en orden (fecha, id) descendente
+         * sin duplicar ni omitir ventas, incluso con fechas repetidas.
+         */
+        @Test
+        void testPaginacionPorCursorRecorreHistorialCompleto() {
+                LocalDateTime base = LocalDateTime.of(2025, 1, 15, 12, 0);
+                List<Long> esperadas = new ArrayList<>();
+                // Dos ventas comparten fecha para probar el desempate por id
+                for (LocalDateTime fecha : List.of(base, base.plusHours(1), base.plusHours(1), base.plusHours(2),
+                                base.plusHours(3))) {
+                        esperadas.add(guardarVenta(fecha, 2).getId());
+                }
+                entityManager.flush();
+                entityManager.clear();
+
+                List<VentaDTO> recorridas = new ArrayList<>();
+                String cursor = null;
+                int paginas = 0;
+                do {
+                        VentaPaginaDTO pagina = ventaService.obtenerPagina(cursor, 2);
+                        recorridas.addAll(pagina.ventas());
+                        assertEquals(pagina.siguienteCursor() != null, pagina.hayMas());
+                        cursor = pagina.siguienteCursor();
+                        paginas++;
+                } while (cursor != null);
+
+                assertEquals(3, paginas);
+                List<Long> idsRecorridos = recorridas.stream().map(VentaDTO::id).toList();
+                // Más recientes primero; con fecha igual, id mayor primero
+                List<Long> ordenEsperado = List.of(esperadas.get(4), esperadas.get(3), esperadas.get(2),
+                                esperadas.get(1), esperadas.get(0));
+                assertEquals(ordenEsperado, idsRecorridos);
+                recorridas.forEach(v -> {
+                        assertEquals(2, v.items().size(), "Cada venta debe traer sus items");
+                        assertEquals(1, v.pagos().size(), "Cada venta debe traer sus pagos");
+                });
+
+                assertEquals(idsRecorridos, ventaService.obtenerTodas().stream().map(VentaDTO::id).toList());
+        }
+
+        /**
+         * 📊 BENCHMARK: el modelo de lectura arma cualquier página con 3 consultas
+         * (cabeceras, items y pagos), mientras que recorrer las entidades LAZY crece con N.
+         */
+        @Test
+        void testConsultasConstantesSinImportarTamanoDePagina() {
+                LocalDateTime base = LocalDateTime.of(2025, 2, 1, 9, 0);
+                for (int i = 0; i < 40; i++) {
+                        guardarVenta(base.plusMinutes(i), 3);
+                }
+                entityManager.flush();
+                entityManager.clear();
+                Statistics stats = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+                // Antes: entidades + acceso LAZY por venta (como el antiguo toDTO)
+                stats.clear();
+                ventaRepository.findByEstado("cerrada").forEach(v -> {
+                        v.getItems().forEach(i -> i.getProducto().getNombre());
+                        v.getPagos().forEach(p -> p.getMetodoPago().getNombre());
+                });
+                long antes = stats.getPrepareStatementCount();
+                entityManager.clear();
+
+                for (int tamano : List.of(5, 20, 40)) {
+                        stats.clear();
+                        VentaPaginaDTO pagina = ventaService.obtenerPagina(null, tamano);
+                        assertEquals(tamano, pagina.ventas().size());
+                        assertEquals(3, stats.getPrepareStatementCount(),
+                                        "Una página de " + tamano + " ventas debe costar 3 consultas");
+                }
+
+                stats.clear();
+                List<VentaDTO> cerradas = ventaService.obtenerPorEstado("cerrada");
+                long despues = stats.getPrepareStatementCount();
+                log.info("Consultas para listar {} ventas: antes={}, después={}", cerradas.size(), antes, despues);
+
+                assertEquals(40, cerradas.size());
+                assertEquals(3, despues);
+                assertTrue(antes > 40, "El camino por entidades hace al menos una consulta por venta");
+                cerradas.forEach(v -> assertEquals(3, v.items().size()));
+
+                stats.clear();
+                assertEquals(40, ventaService.obtenerPorRangoFechas(base, base.plusHours(1)).size());
+                assertEquals(3, stats.getPrepareStatementCount());
+        }
+
+        /**
+         * Cada listado registra su duración, las sentencias SQL emitidas y las ventas devueltas
+         */
+        @Test
+        void testListadoRegistraMetricas() {
+                LocalDateTime base = LocalDateTime.of(2025, 3, 1, 9, 0);
+                for (int i = 0; i < 4; i++) {
+                        guardarVenta(base.plusMinutes(i), 2);
+                }
+                entityManager.flush();
+                entityManager.clear();
+
+                Timer timer = meterRegistry.timer("ventas.operacion", "operacion", "listar_rango", "resultado", "ok");
+                DistributionSummary sentencias = meterRegistry.summary("ventas.sentencias", "operacion", "listar_rango");
+                DistributionSummary devueltas = meterRegistry.summary("ventas.listado.ventas", "operacion", "listar_rango");
+                long llamadasAntes = timer.count();
+                double sentenciasAntes = sentencias.totalAmount();
+                double devueltasAntes = devueltas.totalAmount();
+
+                List<VentaDTO> ventas = ventaService.obtenerPorRangoFechas(base, base.plusHours(1));
+
+                assertEquals(4, ventas.size());
+                assertEquals(llamadasAntes + 1, timer.count());
+                assertEquals(3, sentencias.totalAmount() - sentenciasAntes, "Cabeceras, items y pagos");
+                assertEquals(4, devueltas.totalAmount() - devueltasAntes);
+        }
+
+        @Test
+        void testCursorInvalido() {
+                assertThrows(IllegalArgumentException.class, () -> ventaService.obtenerPagina("no-es-un-cursor", 10));
+        }
+
+        private Venta guardarVenta(LocalDateTime fecha, int numItems) {
+                Venta venta = Venta.builder()
+                                .fecha(fecha)
+                                .estado("cerrada")
+                                .canal("POS")
+                                .subtotal(BigDecimal.ZERO)
+                                .total(BigDecimal.ZERO)
+                                .build();
+                BigDecimal total = BigDecimal.ZERO;
+                for (int i = 0; i < numItems; i++) {
+                        VentaItemDTO itemDTO = items.get(i % items.size());
+                        Producto producto = entityManager.getReference(Producto.class, itemDTO.productoId());
+                        venta.addItem(VentaItem.builder()
+                                        .producto(producto)
+                                        .cantidad(1)
+                                        .precioUnitario(itemDTO.precioUnitario())
+                                        .subtotal(itemDTO.precioUnitario())
+                                        .build());
+                        total = total.add(itemDTO.precioUnitario());
+                }
+                venta.setSubtotal(total);
+                venta.setTotal(total);
+                venta.addPago(Pago.builder()
+                                .metodoPago(entityManager.getReference(MetodoPago.class, pagos.getFirst().metodoPagoId()))
+                                .monto(total)
+                                .fecha(fecha)
+                                .build());
+                return ventaRepository.save(venta);
+        }
+}
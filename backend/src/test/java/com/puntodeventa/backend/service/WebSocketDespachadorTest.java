@@ -0,0 +1,148 @@
+package com.puntodeventa.backend.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.puntodeventa.backend.dto.WebSocketMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests para WebSocketDespachador
+ * Verifica el envío asíncrono, la coalescencia por ventana y la cola acotada
+ */
+class WebSocketDespachadorTest {
+
+        private static final WebSocketMessage ESTADISTICAS = new WebSocketMessage(
+                        "ESTADISTICAS_ACTUALIZADAS", "estadisticas", null, null);
+
+        private final SimpMessagingTemplate template = mock(SimpMessagingTemplate.class);
+        private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        private WebSocketDespachador despachador;
+
+        @AfterEach
+        void tearDown() throws InterruptedException {
+                despachador.detener();
+        }
+
+        /**
+         * Una ráfaga de 200 notificaciones de estadísticas produce a lo más dos publicaciones
+         * (la primera inmediata y una fusionada al cerrar la ventana), y el contenido del
+         * mensaje se calcula una vez por publicación, no por notificación
+         */
+        @Test
+        void testRafagaDeEstadisticasSeCoalesce() {
+                despachador = unNodo(100, 200);
+                AtomicInteger calculos = new AtomicInteger();
+                Supplier<WebSocketMessage> estadisticas = () -> {
+                        calculos.incrementAndGet();
+                        return ESTADISTICAS;
+                };
+
+                for (int i = 0; i < 200; i++) {
+                        despachador.coalescer("/topic/estadisticas", estadisticas);
+                }
+
+                verify(template, timeout(2000).atLeastOnce()).convertAndSend(eq("/topic/estadisticas"), any(Object.class));
+                verify(template, after(600).atMost(2)).convertAndSend(eq("/topic/estadisticas"), any(Object.class));
+                long publicados = registry.get("websocket.publicacion").tag("tipo", "ESTADISTICAS_ACTUALIZADAS")
+                                .timer().count();
+                assertEquals(200.0 - publicados, registry.get("websocket.fusionados").counter().count());
+                assertEquals(publicados, calculos.get());
+
+                // Pasada la ventana, una notificación aislada sale de inmediato
+                despachador.coalescer("/topic/estadisticas", estadisticas);
+                verify(template, timeout(100).times((int) publicados + 1))
+                                .convertAndSend(eq("/topic/estadisticas"), any(Object.class));
+        }
+
+        /**
+         * Con el hilo de despacho bloqueado, la cola no pasa de su capacidad y los
+         * mensajes más antiguos se descartan
+         */
+        @Test
+        void testColaAcotadaDescartaLosMasAntiguos() throws InterruptedException {
+                CountDownLatch bloqueo = new CountDownLatch(1);
+                CountDownLatch enCurso = new CountDownLatch(1);
+                doAnswer(inv -> {
+                        enCurso.countDown();
+                        bloqueo.await(5, TimeUnit.SECONDS);
+                        return null;
+                }).when(template).convertAndSend(eq("/topic/ventas"), any(Object.class));
+
+                despachador = unNodo(10, 500);
+                despachador.encolar("/topic/ventas", venta(0));
+                assertTrue(enCurso.await(2, TimeUnit.SECONDS));
+
+                // El envío no bloquea al llamador aunque el broker esté ocupado
+                long inicio = System.nanoTime();
+                for (int i = 1; i <= 25; i++) {
+                        despachador.encolar("/topic/ventas", venta(i));
+                }
+                assertTrue(System.nanoTime() - inicio < TimeUnit.MILLISECONDS.toNanos(500));
+
+                assertEquals(10.0, registry.get("websocket.cola").gauge().value());
+                assertEquals(15.0, registry.get("websocket.descartados").counter().count());
+
+                bloqueo.countDown();
+                verify(template, timeout(2000).times(11)).convertAndSend(eq("/topic/ventas"), any(Object.class));
+                // Sobreviven los 10 más recientes
+                verify(template).convertAndSend(eq("/topic/ventas"), conId(25));
+                verify(template).convertAndSend(eq("/topic/ventas"), conId(16));
+                verify(template, never()).convertAndSend(eq("/topic/ventas"), conId(15));
+        }
+
+        /**
+         * Los reenvíos a otros nodos de una ráfaga salen en un solo envío del bus al vaciarse
+         * la cola, no uno por mensaje
+         */
+        @Test
+        void testReenviosDeUnaRafagaVanEnUnSoloEnvio() throws InterruptedException {
+                CountDownLatch bloqueo = new CountDownLatch(1);
+                CountDownLatch enCurso = new CountDownLatch(1);
+                doAnswer(inv -> {
+                        enCurso.countDown();
+                        bloqueo.await(5, TimeUnit.SECONDS);
+                        return null;
+                }).when(template).convertAndSend(eq("/topic/ventas"), conId(0));
+                BusEventos bus = mock(BusEventos.class);
+
+                despachador = new WebSocketDespachador(template, registry, bus,
+                                new ObjectMapper().findAndRegisterModules(), 100, 500);
+                despachador.encolar("/topic/ventas", venta(0));
+                assertTrue(enCurso.await(2, TimeUnit.SECONDS));
+                for (int i = 1; i <= 5; i++) {
+                        despachador.encolar("/topic/ventas", venta(i));
+                }
+                bloqueo.countDown();
+
+                verify(bus, timeout(2000)).publicarTodos(eq("websocket"), argThat(cargas -> cargas.size() == 6));
+                verify(bus, after(200).times(1)).publicarTodos(any(), any());
+                verify(bus, never()).publicar(any(), any());
+        }
+
+        private static Object conId(long id) {
+                return argThat(m -> m instanceof WebSocketMessage w && Long.valueOf(id).equals(w.entidadId()));
+        }
+
+        private static WebSocketMessage venta(long id) {
+                return new WebSocketMessage("VENTA_CREADA", "venta", id, null);
+        }
+
+        /** Un solo nodo: bus local. */
+        private WebSocketDespachador unNodo(int capacidad, long ventanaMs) {
+                return new WebSocketDespachador(template, registry, new BusEventosLocal(),
+                                new ObjectMapper().findAndRegisterModules(), capacidad, ventanaMs);
+        }
+}
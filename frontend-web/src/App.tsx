@@ -5,7 +5,7 @@ import { useEffect, useState } from 'react';
 // Context
 import { AuthProvider, useAuth } from './contexts/AuthContext';
 import { CartProvider } from './contexts/CartContext';
-import { DashboardProvider, useDashboard } from './contexts/DashboardContext';
+import { DashboardProvider } from './contexts/DashboardContext';
 import { websocketService } from './services/websocket.service';
 import { userPreferencesService } from './services/userPreferences.service';
 
@@ -90,33 +90,11 @@ const theme = createTheme({
 });
 
 function WebSocketHandlers() {
-  const { triggerRefresh } = useDashboard();
-
   useEffect(() => {
+    // Cada pantalla se suscribe a sus temas y aplica los datos del evento;
+    // aquí solo se abre la conexión (sin recargas globales por venta)
     websocketService.connect();
-
-    // Handler global para estadísticas - ejecutar inmediatamente
-    const unsubscribeEstadisticas = websocketService.on('estadisticas', (message) => {
-      if (message.tipo === 'ESTADISTICAS_ACTUALIZADAS') {
-        // Ejecutar inmediatamente sin delay
-        triggerRefresh();
-      }
-    });
-
-    // Handler global para ventas - ejecutar inmediatamente
-    const unsubscribeVentas = websocketService.on('ventas', (message) => {
-      if (message.tipo === 'VENTA_CREADA') {
-        // Ejecutar inmediatamente sin delay
-        triggerRefresh();
-      }
-    });
-
-    return () => {
-      unsubscribeEstadisticas();
-      unsubscribeVentas();
-    };
-    // eslint-disable-next-line react-hooks/exhaustive-deps
-  }, []); // Solo ejecutar una vez al montar - triggerRefresh es estable
+  }, []);
 
   return null;
 }
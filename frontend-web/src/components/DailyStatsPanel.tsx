@@ -14,6 +14,7 @@ import { es } from 'date-fns/locale';
 import apiService from '../services/api.service';
 import { API_ENDPOINTS } from '../config/api.config';
 import { websocketService } from '../services/websocket.service';
+import { useAuth } from '../contexts/AuthContext';
 
 interface DailyStats {
   fecha: string;
@@ -33,6 +34,9 @@ interface DesglosePago {
 }
 
 export default function DailyStatsPanel() {
+  const { usuario } = useAuth();
+  // Igual que la suscripción WebSocket: ADMIN ve el global; los demás, su sucursal
+  const sucursalId = usuario && usuario.rol !== 'ADMIN' ? usuario.sucursalId ?? usuario.idSucursal ?? null : null;
   const [stats, setStats] = useState<DailyStats | null>(null);
   const [desglosePagos, setDesglosePagos] = useState<DesglosePago[]>([]);
   const [loading, setLoading] = useState(true);
@@ -42,64 +46,37 @@ export default function DailyStatsPanel() {
   useEffect(() => {
     loadStats();
     
-    // Escuchar eventos WebSocket para actualización inmediata
+    // Escuchar eventos WebSocket para actualización inmediata.
+    // El evento trae el resumen del día y el desglose de pagos ya calculados: no se consulta nada.
+    // Cada venta emite también ESTADISTICAS_ACTUALIZADAS, así que VENTA_CREADA no recarga.
     const unsubscribeEstadisticas = websocketService.on('estadisticas', (message) => {
       if (message.tipo === 'ESTADISTICAS_ACTUALIZADAS') {
-        loadStats(); // Actualizar inmediatamente
+        if (message.datos) {
+          aplicarEstadisticas(message.datos);
+        } else {
+          loadStats();
+        }
       }
     });
     
-    const unsubscribeVentas = websocketService.on('ventas', (message) => {
-      if (message.tipo === 'VENTA_CREADA') {
-        loadStats(); // Actualizar inmediatamente
-      }
-    });
-    
-    // Actualizar cada 30 segundos como fallback
-    const interval = setInterval(loadStats, 30000);
-    
+    // Sin sondeo: cada venta empuja el resumen por WebSocket
     return () => {
       unsubscribeEstadisticas();
-      unsubscribeVentas();
-      clearInterval(interval);
     };
-  }, []);
+  }, [sucursalId]);
 
   const loadStats = async () => {
     try {
       setError(null);
       
-      // Cargar estadísticas del día
-      const response = await apiService.get(API_ENDPOINTS.STATS_DAILY);
-      if (response.success && response.data) {
-        const data = response.data;
-        setStats({
-          fecha: data.fecha || new Date().toISOString().split('T')[0],
-          totalVentas: parseFloat(data.totalVentas) || 0,
-          totalCostos: parseFloat(data.totalCostos) || 0,
-          totalGastos: parseFloat(data.totalGastos) || 0,
-          margenBruto: parseFloat(data.margenBruto) || 0,
-          cantidadVentas: data.cantidadVentas || 0,
-          itemsVendidos: data.itemsVendidos || 0,
-          ticketPromedio: parseFloat(data.ticketPromedio) || 0,
-          margenPorcentaje: parseFloat(data.margenPorcentaje) || 0,
-        });
-      }
-      
-      // Cargar desglose de pagos por método
-      const hoy = new Date();
-      const inicioDia = new Date(hoy.getFullYear(), hoy.getMonth(), hoy.getDate(), 0, 0, 0);
-      const finDia = new Date(hoy.getFullYear(), hoy.getMonth(), hoy.getDate(), 23, 59, 59);
-      
-      const desgloseResponse = await apiService.get(
-        `${API_ENDPOINTS.SALES}/resumen/metodos-pago?desde=${inicioDia.toISOString()}&hasta=${finDia.toISOString()}`
+      // Resumen del día y desglose de pagos de la sucursal (mismo contenido que el evento WebSocket)
+      const response = await apiService.get(
+        sucursalId != null
+          ? `${API_ENDPOINTS.STATS_DAILY_PANEL}?sucursalId=${sucursalId}`
+          : API_ENDPOINTS.STATS_DAILY_PANEL
       );
-      
-      if (desgloseResponse.success && desgloseResponse.data) {
-        setDesglosePagos(desgloseResponse.data.map((item: any) => ({
-          metodoPago: item.metodoPago,
-          total: parseFloat(item.total) || 0,
-        })));
+      if (response.success && response.data) {
+        aplicarEstadisticas(response.data);
       }
       
       if (!response.success) {
@@ -112,6 +89,31 @@ export default function DailyStatsPanel() {
     }
   };
 
+  const aplicarStats = (data: any) => {
+    setStats({
+      fecha: data.fecha || new Date().toISOString().split('T')[0],
+      totalVentas: parseFloat(data.totalVentas) || 0,
+      totalCostos: parseFloat(data.totalCostos) || 0,
+      totalGastos: parseFloat(data.totalGastos) || 0,
+      margenBruto: parseFloat(data.margenBruto) || 0,
+      cantidadVentas: data.cantidadVentas || 0,
+      itemsVendidos: data.itemsVendidos || 0,
+      ticketPromedio: parseFloat(data.ticketPromedio) || 0,
+      margenPorcentaje: parseFloat(data.margenPorcentaje) || 0,
+    });
+  };
+
+  // Resumen del día + desglose de pagos por método
+  const aplicarEstadisticas = (data: any) => {
+    if (data.resumen) {
+      aplicarStats(data.resumen);
+    }
+    setDesglosePagos((data.desglosePagos || []).map((item: any) => ({
+      metodoPago: item.metodoPago,
+      total: parseFloat(item.total) || 0,
+    })));
+  };
+
   // Neto = Efectivo - Gastos
   const efectivoTotal = desglosePagos.find((p) => p.metodoPago?.toLowerCase() === 'efectivo')?.total ?? 0;
   const neto = efectivoTotal - (stats ? (stats.totalGastos || 0) : 0);
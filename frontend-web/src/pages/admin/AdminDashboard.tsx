@@ -1,4 +1,4 @@
-import { useState, useEffect } from 'react';
+import { useState, useEffect, useRef } from 'react';
 import { 
   Box, 
   Typography, 
@@ -28,7 +28,7 @@ import { format } from 'date-fns';
 import { es } from 'date-fns/locale';
 import apiService from '../../services/api.service';
 import { API_ENDPOINTS } from '../../config/api.config';
-import { useDashboard } from '../../contexts/DashboardContext';
+import { websocketService } from '../../services/websocket.service';
 
 interface DailyStats {
   fecha: string;
@@ -55,46 +55,48 @@ interface ProductoRendimiento {
   margenBrutoTotal?: number;
 }
 
+// El evento de estadísticas no trae los productos más vendidos: se recargan como mucho una vez por intervalo
+const TOP_PRODUCTOS_INTERVALO_MS = 30_000;
+
 export default function AdminDashboard() {
   const [stats, setStats] = useState<DailyStats | null>(null);
   const [productosCount, setProductosCount] = useState<number>(0);
   const [topProductos, setTopProductos] = useState<ProductoRendimiento[]>([]);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
-  const { refreshTrigger } = useDashboard();
+  const ultimaCargaTop = useRef(0);
+  const cargaTopPendiente = useRef<ReturnType<typeof setTimeout> | null>(null);
 
   useEffect(() => {
     loadDashboardData();
-  }, []);
 
-  useEffect(() => {
-    if (refreshTrigger > 0) {
-      loadDashboardData();
-    }
-  }, [refreshTrigger]);
+    // El evento trae el resumen del día ya calculado (ResumenVentasDiaDTO en datos.resumen):
+    // se aplica sin consultar. Cada venta emite también ESTADISTICAS_ACTUALIZADAS.
+    const unsubscribeEstadisticas = websocketService.on('estadisticas', (message) => {
+      if (message.tipo === 'ESTADISTICAS_ACTUALIZADAS') {
+        if (message.datos?.resumen) {
+          aplicarStats(message.datos.resumen);
+        } else {
+          loadStats();
+        }
+        programarTopProductos();
+      }
+    });
+
+    return () => {
+      unsubscribeEstadisticas();
+      if (cargaTopPendiente.current) {
+        clearTimeout(cargaTopPendiente.current);
+      }
+    };
+  }, []);
 
   const loadDashboardData = async () => {
     try {
-      if (refreshTrigger === 0) {
-        setLoading(true);
-      }
+      setLoading(true);
       setError(null);
 
-      const statsResponse = await apiService.get(API_ENDPOINTS.STATS_DAILY);
-      if (statsResponse.success && statsResponse.data) {
-        const data = statsResponse.data;
-        setStats({
-          fecha: data.fecha || new Date().toISOString().split('T')[0],
-          totalVentas: parseFloat(data.totalVentas) || 0,
-          totalCostos: parseFloat(data.totalCostos) || 0,
-          totalGastos: parseFloat(data.totalGastos) || 0,
-          margenBruto: parseFloat(data.margenBruto) || 0,
-          cantidadVentas: data.cantidadVentas || 0,
-          itemsVendidos: data.itemsVendidos || 0,
-          ticketPromedio: parseFloat(data.ticketPromedio) || 0,
-          margenPorcentaje: parseFloat(data.margenPorcentaje) || 0,
-        });
-      }
+      await loadStats();
 
       const productosResponse = await apiService.get(API_ENDPOINTS.PRODUCTS);
       if (productosResponse.success && productosResponse.data) {
@@ -102,11 +104,7 @@ export default function AdminDashboard() {
         setProductosCount(productos.length);
       }
 
-      const fechaHoy = new Date().toISOString().split('T')[0];
-      const topProductosResponse = await apiService.get(`${API_ENDPOINTS.STATS_PRODUCTS_DAY}?fecha=${fechaHoy}&limite=5`);
-      if (topProductosResponse.success && topProductosResponse.data) {
-        setTopProductos(Array.isArray(topProductosResponse.data) ? topProductosResponse.data : []);
-      }
+      await loadTopProductos();
     } catch (err: any) {
       setError(err.message || 'Error al cargar datos del dashboard');
     } finally {
@@ -114,6 +112,50 @@ export default function AdminDashboard() {
     }
   };
 
+  const loadStats = async () => {
+    const statsResponse = await apiService.get(API_ENDPOINTS.STATS_DAILY);
+    if (statsResponse.success && statsResponse.data) {
+      aplicarStats(statsResponse.data);
+    }
+  };
+
+  const aplicarStats = (data: any) => {
+    setStats({
+      fecha: data.fecha || new Date().toISOString().split('T')[0],
+      totalVentas: parseFloat(data.totalVentas) || 0,
+      totalCostos: parseFloat(data.totalCostos) || 0,
+      totalGastos: parseFloat(data.totalGastos) || 0,
+      margenBruto: parseFloat(data.margenBruto) || 0,
+      cantidadVentas: data.cantidadVentas || 0,
+      itemsVendidos: data.itemsVendidos || 0,
+      ticketPromedio: parseFloat(data.ticketPromedio) || 0,
+      margenPorcentaje: parseFloat(data.margenPorcentaje) || 0,
+    });
+  };
+
+  const loadTopProductos = async () => {
+    ultimaCargaTop.current = Date.now();
+    const fechaHoy = new Date().toISOString().split('T')[0];
+    const topProductosResponse = await apiService.get(`${API_ENDPOINTS.STATS_PRODUCTS_DAY}?fecha=${fechaHoy}&limite=5`);
+    if (topProductosResponse.success && topProductosResponse.data) {
+      setTopProductos(Array.isArray(topProductosResponse.data) ? topProductosResponse.data : []);
+    }
+  };
+
+  // Una ráfaga de ventas deja una sola recarga pendiente, al cumplirse el intervalo
+  const programarTopProductos = () => {
+    if (cargaTopPendiente.current) {
+      return;
+    }
+    const espera = Math.max(0, ultimaCargaTop.current + TOP_PRODUCTOS_INTERVALO_MS - Date.now());
+    cargaTopPendiente.current = setTimeout(() => {
+      cargaTopPendiente.current = null;
+      loadTopProductos().catch(() => {
+        // Se reintenta con el siguiente evento
+      });
+    }, espera);
+  };
+
   const dashboardStats = [
     { 
       title: 'Ventas Hoy', 
@@ -155,7 +155,8 @@ export default function PosHome() {
 
     // Escuchar eventos de productos
     const unsubscribe = websocketService.on('productos', (message) => {
-      if (message.tipo === 'PRODUCTO_CREADO' || message.tipo === 'PRODUCTO_ACTUALIZADO') {
+      if (message.tipo === 'PRODUCTO_CREADO' || message.tipo === 'PRODUCTO_ACTUALIZADO'
+        || message.tipo === 'PRODUCTOS_IMPORTADOS') {
         // Recargar productos cuando hay cambios
     loadData();
       }
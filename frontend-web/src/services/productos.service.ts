@@ -4,10 +4,10 @@
 
 import { apiService } from './api.service';
 import { API_ENDPOINTS } from '../config/api.config';
-import type { Producto, ProductoFiltros } from '../types/productos.types';
+import type { Producto, ProductoFiltros, ProductoImport, ResultadoImportacion } from '../types/productos.types';
 
 // Re-exportar tipos para compatibilidad
-export type { Producto, ProductoFiltros } from '../types/productos.types';
+export type { Producto, ProductoFiltros, ProductoImport, ResultadoImportacion } from '../types/productos.types';
 
 export const productosService = {
   /**
@@ -36,6 +36,25 @@ export const productosService = {
     return apiService.get<Producto[]>(endpoint);
   },
 
+  /**
+   * Buscar productos por nombre, variante o SKU (sin acentos, tolera errores de tecleo)
+   */
+  buscar: async (q: string, limite = 20, soloMenu = true) => {
+    const params = new URLSearchParams({
+      q,
+      limite: limite.toString(),
+      soloMenu: soloMenu.toString(),
+    });
+    return apiService.get<Producto[]>(`${API_ENDPOINTS.PRODUCTS}/buscar?${params.toString()}`);
+  },
+
+  /**
+   * Producto activo (base o variante) por SKU / código de barras
+   */
+  escanear: async (sku: string) => {
+    return apiService.get<Producto>(`${API_ENDPOINTS.PRODUCTS}/escanear?sku=${encodeURIComponent(sku)}`);
+  },
+
   /**
    * Obtener producto por ID
    */
@@ -81,6 +100,13 @@ export const productosService = {
     return apiService.delete(`${API_ENDPOINTS.PRODUCTS}/${id}/permanente`);
   },
 
+  /**
+   * Importación masiva: crea o actualiza productos con sus variantes en una sola operación
+   */
+  importar: async (productos: ProductoImport[]) => {
+    return apiService.post<ResultadoImportacion>(`${API_ENDPOINTS.PRODUCTS}/importar`, productos);
+  },
+
   /**
    * Crear variante de un producto base
    */
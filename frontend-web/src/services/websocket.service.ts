@@ -50,6 +50,13 @@ class WebSocketService {
       reconnectDelay: 5000,
       heartbeatIncoming: 4000,
       heartbeatOutgoing: 4000,
+      // El JWT en el CONNECT permite suscribirse a los temas de la sucursal
+      beforeConnect: () => {
+        const token = localStorage.getItem('auth_token');
+        if (this.client) {
+          this.client.connectHeaders = token ? { Authorization: `Bearer ${token}` } : {};
+        }
+      },
       onConnect: () => {
         this.connected = true;
         this.reconnectAttempts = 0;
@@ -94,27 +101,56 @@ class WebSocketService {
   }
 
   private subscribeToTopics() {
+    // El servidor rechaza suscripciones sin sesión
+    const sesion = this.getSesionUsuario();
+    if (!sesion) {
+      return;
+    }
+
     // Suscribirse a productos
     this.subscribe('/topic/productos', (message) => {
       this.handleMessage('productos', message);
     });
 
+    // Ventas, estadísticas e inventario: los temas globales son solo para ADMIN;
+    // los demás usuarios reciben los de su sucursal
+    let prefijo = '/topic';
+    if (!sesion.admin) {
+      if (sesion.sucursalId == null) {
+        return;
+      }
+      prefijo = `/topic/sucursal/${sesion.sucursalId}`;
+    }
+
     // Suscribirse a ventas
-    this.subscribe('/topic/ventas', (message) => {
+    this.subscribe(`${prefijo}/ventas`, (message) => {
       this.handleMessage('ventas', message);
     });
 
     // Suscribirse a estadísticas
-    this.subscribe('/topic/estadisticas', (message) => {
+    this.subscribe(`${prefijo}/estadisticas`, (message) => {
       this.handleMessage('estadisticas', message);
     });
 
     // Suscribirse a inventario
-    this.subscribe('/topic/inventario', (message) => {
+    this.subscribe(`${prefijo}/inventario`, (message) => {
       this.handleMessage('inventario', message);
     });
   }
 
+  private getSesionUsuario(): { admin: boolean; sucursalId: number | null } | null {
+    try {
+      const usuario = JSON.parse(localStorage.getItem('auth_usuario') || 'null');
+      if (!usuario || !localStorage.getItem('auth_token')) {
+        return null;
+      }
+      const rol = typeof usuario.rol === 'string' ? usuario.rol : usuario.rol?.nombre || usuario.rolNombre;
+      return { admin: rol === 'ADMIN', sucursalId: usuario.sucursalId ?? usuario.sucursal?.id ?? null };
+    } catch {
+      return null;
+    }
+  }
+
   private subscribe(destination: string, callback: (message: StompMessage) => void) {
     if (!this.client || !this.connected) {
       console.warn('Cliente WebSocket no conectado');
@@ -20,6 +20,36 @@ export interface Producto {
   variantes?: Producto[];
 }
 
+/**
+ * Producto base con variantes para la importación masiva
+ * (se actualiza el de ese id o SKU; si no existe se crea)
+ */
+export interface ProductoImport {
+  id?: number | null;
+  sku?: string | null;
+  nombre?: string | null;
+  descripcion?: string | null;
+  categoriaId?: number | null;
+  precio?: number | null;
+  costoEstimado?: number | null;
+  activo?: boolean | null;
+  disponibleEnMenu?: boolean | null;
+  variantes?: Array<{
+    nombreVariante: string;
+    sku?: string | null;
+    precio?: number | null;
+    costoEstimado?: number | null;
+    ordenVariante?: number | null;
+  }>;
+}
+
+export interface ResultadoImportacion {
+  productosCreados: number;
+  productosActualizados: number;
+  variantesCreadas: number;
+  variantesActualizadas: number;
+}
+
 export interface ProductoFiltros {
   activo?: boolean;
   enMenu?: boolean;